@@ -37,7 +37,8 @@ public class ClienteController {
         return clienteService.addCliente(cliente);
     }
 
-    @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER')")
+    // SERVICIO: token interno de microservice-entrega para la pre-optimización nocturna
+    @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER', 'SERVICIO')")
     @GetMapping("/{id}")
     public List<ClienteDTO> getClienteByIds(@PathVariable List<Long> id) {
         return clienteService.getClienteByIds(id);
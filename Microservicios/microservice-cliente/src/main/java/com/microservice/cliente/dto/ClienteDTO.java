@@ -1,5 +1,7 @@
 package com.microservice.cliente.dto;
 
+import java.time.LocalTime;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -18,5 +20,8 @@ public class ClienteDTO {
     private String email;
     private Double precioCorriente;
     private Double precioEspecial;
+    private LocalTime ventanaInicio;
+    private LocalTime ventanaFin;
+    private Integer tiempoServicioMinutos;
     private String nombreRuta; // Nombre de la ruta asignada al cliente
 }
@@ -1,5 +1,7 @@
 package com.microservice.cliente.entity;
 
+import java.time.LocalTime;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -39,6 +41,17 @@ public class Cliente {
     @Column(name = "precio_especial")
     private Double precioEspecial;
 
+    // Ventana horaria en la que el local puede recibir la entrega
+    @Column(name = "ventana_inicio")
+    private LocalTime ventanaInicio;
+
+    @Column(name = "ventana_fin")
+    private LocalTime ventanaFin;
+
+    // Minutos que toma descargar el pedido en el local
+    @Column(name = "tiempo_servicio_minutos")
+    private Integer tiempoServicioMinutos;
+
     // Método utilitario para OR-Tools
     public double[] getCoordenadas() {
         return new double[] { latitud != null ? latitud : 0.0, longitud != null ? longitud : 0.0 };
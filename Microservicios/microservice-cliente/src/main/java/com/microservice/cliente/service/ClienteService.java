@@ -167,6 +167,9 @@ public class ClienteService {
         cliente.setEmail(clienteDetails.getEmail());
         cliente.setPrecioCorriente(clienteDetails.getPrecioCorriente());
         cliente.setPrecioEspecial(clienteDetails.getPrecioEspecial());
+        cliente.setVentanaInicio(clienteDetails.getVentanaInicio());
+        cliente.setVentanaFin(clienteDetails.getVentanaFin());
+        cliente.setTiempoServicioMinutos(clienteDetails.getTiempoServicioMinutos());
         
         Cliente updatedCliente = clienteRepository.save(cliente);
         return ResponseEntity.ok(updatedCliente);
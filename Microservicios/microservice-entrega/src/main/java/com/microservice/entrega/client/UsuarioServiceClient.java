@@ -17,4 +17,8 @@ public interface UsuarioServiceClient {
     @GetMapping("/api/usuarios/{id}")
     public UsuarioDTO getDriverById(@PathVariable("id") Long id);
 
+    // id, nombre y rol de varios usuarios en una sola llamada
+    @GetMapping("/api/usuarios/usuarios/batch")
+    public List<UsuarioDTO> getUsuariosByIds(@RequestParam("ids") List<Long> ids);
+
 }
@@ -0,0 +1,80 @@
+package com.microservice.entrega.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+import com.microservice.entrega.service.distancia.OsrmDistanceProvider;
+import com.microservice.entrega.service.distancia.OsrmGateway;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class DistanceProviderConfig {
+
+    // Máximo de coordenadas por consulta "table" (el servidor público y osrm-routed aceptan 100 por defecto)
+    @Value("${osrm.tablas.max-coordenadas:100}")
+    private int maxCoordenadas;
+
+    // Bloques de la tabla que se piden a la vez
+    @Value("${osrm.tablas.paralelismo:4}")
+    private int paralelismo;
+
+    @Value("${osrm.http.timeout-conexion-ms:2000}")
+    private long timeoutConexionMs;
+
+    // Tiempo máximo de espera por una respuesta; pasado esto el intento cuenta como fallido
+    @Value("${osrm.http.timeout-respuesta-ms:10000}")
+    private long timeoutRespuestaMs;
+
+    // Peticiones en vuelo por servidor y cuánto se espera un cupo antes de rendirse
+    @Value("${osrm.http.max-concurrentes:8}")
+    private int maxConcurrentes;
+
+    @Value("${osrm.http.espera-cupo-ms:2000}")
+    private long esperaCupoMs;
+
+    // Reintentos por petición (con espera exponencial y jitter desde la base)
+    @Value("${osrm.http.reintentos:2}")
+    private int reintentos;
+
+    @Value("${osrm.http.espera-base-ms:200}")
+    private long esperaBaseMs;
+
+    // Fallos seguidos que abren el circuito y cuánto tiempo queda abierto
+    @Value("${osrm.http.circuito.umbral-fallos:5}")
+    private int umbralFallos;
+
+    @Value("${osrm.http.circuito.apertura-ms:30000}")
+    private long aperturaMs;
+
+    // Servidor público de OSRM (con límite de peticiones); también lo usa la geometría de las rutas
+    @Bean
+    @Primary
+    OsrmGateway osrmGateway(@Value("${osrm.url:http://router.project-osrm.org}") String url, MeterRegistry registry) {
+        return new OsrmGateway("osrm", url, configuracion(), registry);
+    }
+
+    // Servidor OSRM propio, levantado junto a los microservicios
+    @Bean
+    OsrmGateway osrmLocalGateway(@Value("${osrm.local.url:http://localhost:5000}") String url, MeterRegistry registry) {
+        return new OsrmGateway("osrm-local", url, configuracion(), registry);
+    }
+
+    @Bean
+    OsrmDistanceProvider osrmDistanceProvider(OsrmGateway osrmGateway, HaversineDistanceProvider haversine) {
+        return new OsrmDistanceProvider("osrm", osrmGateway, maxCoordenadas, paralelismo, haversine);
+    }
+
+    @Bean
+    OsrmDistanceProvider osrmLocalDistanceProvider(OsrmGateway osrmLocalGateway, HaversineDistanceProvider haversine) {
+        return new OsrmDistanceProvider("osrm-local", osrmLocalGateway, maxCoordenadas, paralelismo, haversine);
+    }
+
+    private OsrmGateway.Configuracion configuracion() {
+        return new OsrmGateway.Configuracion(timeoutConexionMs, timeoutRespuestaMs, maxConcurrentes, esperaCupoMs,
+                reintentos, esperaBaseMs, umbralFallos, aperturaMs);
+    }
+}
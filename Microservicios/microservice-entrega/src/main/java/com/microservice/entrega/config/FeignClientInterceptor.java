@@ -1,5 +1,7 @@
 package com.microservice.entrega.config;
 
+import java.util.function.Supplier;
+
 import feign.RequestInterceptor;
 import feign.RequestTemplate;
 import jakarta.servlet.http.HttpServletRequest;
@@ -13,17 +15,44 @@ public class FeignClientInterceptor implements RequestInterceptor {
 
     private static final String AUTHORIZATION_HEADER = "Authorization";
 
+    // Token para llamadas hechas fuera de un request HTTP (trabajos en segundo plano)
+    private static final ThreadLocal<String> TOKEN_HILO = new ThreadLocal<>();
+
     @Override
     public void apply(RequestTemplate template) {
+        String token = tokenActual();
 
+        if (token != null && token.startsWith("Bearer ")) {
+            template.header(AUTHORIZATION_HEADER, token);
+        }
+    }
+
+    /**
+     * Token del request en curso o, si no hay request, el asociado al hilo actual.
+     */
+    public static String tokenActual() {
         ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
 
         if (attributes != null) {
             HttpServletRequest request = attributes.getRequest();
-            String token = request.getHeader(AUTHORIZATION_HEADER);
+            return request.getHeader(AUTHORIZATION_HEADER);
+        }
+        return TOKEN_HILO.get();
+    }
 
-            if (token != null && token.startsWith("Bearer ")) {
-                template.header(AUTHORIZATION_HEADER, token);
+    /**
+     * Ejecuta la tarea propagando el token a las llamadas Feign que haga en el hilo actual.
+     */
+    public static <T> T conToken(String token, Supplier<T> tarea) {
+        String anterior = TOKEN_HILO.get();
+        TOKEN_HILO.set(token);
+        try {
+            return tarea.get();
+        } finally {
+            if (anterior != null) {
+                TOKEN_HILO.set(anterior);
+            } else {
+                TOKEN_HILO.remove();
             }
         }
     }
@@ -0,0 +1,35 @@
+package com.microservice.entrega.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Pool dedicado para las resoluciones de OR-Tools, separado de los hilos de Tomcat.
+ * Es acotado en hilos y en cola: si la cola se llena, el envío se rechaza en vez de acumular trabajos.
+ */
+@Configuration
+public class OptimizacionExecutorConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public PoolOptimizacion optimizacionExecutor(
+            @Value("${optimizacion.jobs.hilos:0}") int hilos,
+            @Value("${optimizacion.jobs.capacidad-cola:50}") int capacidadCola) {
+        // 0 = un hilo por núcleo; el solver es nativo y usa CPU de forma intensiva
+        int tamano = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        AtomicInteger contador = new AtomicInteger();
+        return new PoolOptimizacion(new ThreadPoolExecutor(tamano, tamano, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "optimizacion-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.AbortPolicy()));
+    }
+}
@@ -0,0 +1,30 @@
+package com.microservice.entrega.config;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Envoltorio del pool de resoluciones de OR-Tools. No se publica el ThreadPoolExecutor como bean
+ * porque Spring Boot deja de crear su applicationTaskExecutor en cuanto existe cualquier bean Executor,
+ * y MVC async (SSE, exportaciones) quedaría sobre un SimpleAsyncTaskExecutor sin pool.
+ */
+public class PoolOptimizacion {
+
+    private final ThreadPoolExecutor ejecutor;
+
+    public PoolOptimizacion(ThreadPoolExecutor ejecutor) {
+        this.ejecutor = ejecutor;
+    }
+
+    public Future<?> submit(Runnable tarea) {
+        return ejecutor.submit(tarea);
+    }
+
+    public void purge() {
+        ejecutor.purge();
+    }
+
+    public void shutdownNow() {
+        ejecutor.shutdownNow();
+    }
+}
@@ -5,6 +5,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -15,14 +18,20 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microservice.entrega.dto.RegistroEntregaDTO;
 import com.microservice.entrega.entity.SesionReparto;
 import com.microservice.entrega.entity.ProgramacionEntrega;
 import com.microservice.entrega.entity.RegistroEntrega;
 import com.microservice.entrega.entity.TipoMovimiento;
 import com.microservice.entrega.service.EntregaService;
+import com.microservice.entrega.service.exportacion.EscritorFilas;
+import com.microservice.entrega.service.exportacion.FormatoExportacion;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -32,8 +41,14 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class EntregaController {
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     private final EntregaService entregaService;
 
+    // Tiempo máximo de una descarga en curso; solo aplica a las exportaciones, el resto usa el del servidor
+    @Value("${reportes.exportacion.timeout-ms:1800000}")
+    private long exportacionTimeoutMs = 1800000;
+
     // Obtener todas las rutas activas con sus clientes
     @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER')")
     @GetMapping("/rutas-activas")
@@ -275,6 +290,103 @@ public class EntregaController {
         }
     }
 
+    // Exportar el detalle de entregas en CSV o XLSX; las filas se envían a medida que se leen
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/reporte-entregas/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarReporteEntregas(
+            @RequestParam String fechaInicio,
+            @RequestParam String fechaFin,
+            @RequestParam(required = false) Long idRuta,
+            @RequestParam(defaultValue = "csv") String formato,
+            HttpServletRequest request) {
+        try {
+            LocalDate inicio = LocalDate.parse(fechaInicio);
+            LocalDate fin = LocalDate.parse(fechaFin);
+            FormatoExportacion tipo = validarExportacion(inicio, fin, formato);
+            StreamingResponseBody cuerpo = salida -> {
+                try (EscritorFilas escritor = tipo.escritor(salida, "Entregas")) {
+                    entregaService.exportarEntregas(inicio, fin, idRuta, escritor);
+                }
+            };
+            return respuestaExportacion(request, "entregas", inicio, fin, tipo, cuerpo);
+        } catch (Exception e) {
+            return errorExportacion("Error al exportar reporte: " + e.getMessage());
+        }
+    }
+
+    // Exportar el detalle de ventas en CSV o XLSX; las filas se envían a medida que se leen
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/reporte-ventas/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarReporteVentas(
+            @RequestParam String fechaInicio,
+            @RequestParam String fechaFin,
+            @RequestParam(defaultValue = "csv") String formato,
+            HttpServletRequest request) {
+        try {
+            LocalDate inicio = LocalDate.parse(fechaInicio);
+            LocalDate fin = LocalDate.parse(fechaFin);
+            FormatoExportacion tipo = validarExportacion(inicio, fin, formato);
+            StreamingResponseBody cuerpo = salida -> {
+                try (EscritorFilas escritor = tipo.escritor(salida, "Ventas")) {
+                    entregaService.exportarVentas(inicio, fin, escritor);
+                }
+            };
+            return respuestaExportacion(request, "ventas", inicio, fin, tipo, cuerpo);
+        } catch (Exception e) {
+            return errorExportacion("Error al exportar reporte: " + e.getMessage());
+        }
+    }
+
+    private FormatoExportacion validarExportacion(LocalDate inicio, LocalDate fin, String formato) {
+        if (fin.isBefore(inicio)) {
+            throw new IllegalArgumentException("La fecha de fin no puede ser anterior a la de inicio");
+        }
+        return FormatoExportacion.desde(formato);
+    }
+
+    // La respuesta se declara como StreamingResponseBody para que Spring la envíe en streaming; el error también
+    // se escribe así, con el mismo JSON que el resto de los endpoints
+    private ResponseEntity<StreamingResponseBody> errorExportacion(String mensaje) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", mensaje);
+        return ResponseEntity.badRequest()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(salida -> OBJECT_MAPPER.writeValue(salida, errorResponse));
+    }
+
+    private ResponseEntity<StreamingResponseBody> respuestaExportacion(HttpServletRequest request, String reporte,
+            LocalDate inicio, LocalDate fin, FormatoExportacion tipo, StreamingResponseBody cuerpo) {
+        // El cuerpo se escribe en un request asíncrono; su timeout se fija aquí y no en spring.mvc.async
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(exportacionTimeoutMs);
+        String archivo = reporte + "_" + inicio + "_" + fin + "." + tipo.getExtension();
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(tipo.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archivo + "\"")
+            .body(cuerpo);
+    }
+
+    // Recalcular el resumen diario de entregas desde los registros (historial o correcciones)
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/reporte-resumen/reconstruir")
+    public ResponseEntity<Map<String, Object>> reconstruirResumenDiario(
+            @RequestParam String fechaInicio,
+            @RequestParam String fechaFin) {
+        try {
+            LocalDate inicio = LocalDate.parse(fechaInicio);
+            LocalDate fin = LocalDate.parse(fechaFin);
+            return ResponseEntity.ok(entregaService.reconstruirResumenDiario(inicio, fin));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (Exception e) {
+            log.error("Error al reconstruir el resumen diario: {}", e.getMessage(), e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Error al reconstruir el resumen: " + e.getMessage());
+            return ResponseEntity.status(500).body(errorResponse);
+        }
+    }
+
     @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER')") 
     @GetMapping("/plan-produccion/{fecha}")
     public ResponseEntity<Map<String, Object>> getPlanProduccion(@PathVariable String fecha) {
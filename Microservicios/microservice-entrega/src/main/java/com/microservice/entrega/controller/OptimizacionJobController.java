@@ -0,0 +1,90 @@
+package com.microservice.entrega.controller;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.microservice.entrega.service.OptimizacionJobService;
+import com.microservice.entrega.service.optimizacion.PerfilBusqueda;
+import com.microservice.entrega.service.optimizacion.TrabajoOptimizacion;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * API asíncrona de optimización: se envía un trabajo, se obtiene su id y luego se consulta
+ * o se escucha su estado.
+ */
+@RestController
+@RequestMapping("/rutas/optimizacion/jobs")
+@RequiredArgsConstructor
+public class OptimizacionJobController {
+
+    private final OptimizacionJobService optimizacionJobService;
+
+    @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER')")
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> enviarTrabajo(@RequestBody Map<String, Object> request) {
+        try {
+            if (request.get("id_ruta") == null) {
+                throw new IllegalArgumentException("El campo id_ruta es obligatorio");
+            }
+            Long idRuta = Long.valueOf(request.get("id_ruta").toString());
+            LocalDate fecha = request.get("fecha") != null ? LocalDate.parse(request.get("fecha").toString()) : null;
+            String proveedor = request.get("proveedor") != null ? request.get("proveedor").toString() : null;
+            String perfil = request.get("perfil") != null ? request.get("perfil").toString() : null;
+
+            TrabajoOptimizacion trabajo = optimizacionJobService.enviar(idRuta, fecha, proveedor,
+                    PerfilBusqueda.desde(perfil));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(trabajo.resumen());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(error("Error al enviar la optimización: " + e.getMessage()));
+        }
+    }
+
+    @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER')")
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getTrabajo(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(optimizacionJobService.obtener(id).resumen());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error(e.getMessage()));
+        }
+    }
+
+    @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER')")
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> cancelarTrabajo(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(optimizacionJobService.cancelar(id).resumen());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error(e.getMessage()));
+        }
+    }
+
+    @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER')")
+    @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTrabajo(@PathVariable String id) {
+        return optimizacionJobService.suscribir(id);
+    }
+
+    private Map<String, Object> error(String mensaje) {
+        Map<String, Object> errorResult = new HashMap<>();
+        errorResult.put("error", mensaje);
+        return errorResult;
+    }
+}
@@ -1,10 +1,10 @@
 package com.microservice.entrega.controller;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -16,7 +16,16 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.microservice.entrega.service.AsignacionAutomaticaService;
+import com.microservice.entrega.service.EtaEnVivoService;
+import com.microservice.entrega.service.GeocercaService;
+import com.microservice.entrega.service.OptimizacionFlotaService;
+import com.microservice.entrega.service.PreOptimizacionNocturnaService;
+import com.microservice.entrega.service.RebalanceoService;
 import com.microservice.entrega.service.RutaService;
+import com.microservice.entrega.service.SeguimientoGpsService;
+import com.microservice.entrega.service.geometria.FormatoGeometria;
+import com.microservice.entrega.service.optimizacion.PerfilBusqueda;
 import com.microservice.entrega.dto.*;
 import com.microservice.entrega.entity.Ruta;
 
@@ -28,60 +37,37 @@ import lombok.RequiredArgsConstructor;
 public class RutaController {
 
     private final RutaService rutaService;
+    private final OptimizacionFlotaService optimizacionFlotaService;
+    private final PreOptimizacionNocturnaService preOptimizacionNocturnaService;
+    private final AsignacionAutomaticaService asignacionAutomaticaService;
+    private final RebalanceoService rebalanceoService;
+    private final EtaEnVivoService etaEnVivoService;
+    private final SeguimientoGpsService seguimientoGpsService;
+    private final GeocercaService geocercaService;
 
     @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER')")
     @GetMapping("/optimized-ortools/{id_ruta}")
-    public Map<String, Object> getOptimizedRouteORTools(@PathVariable Long id_ruta) {
-        List<ClienteDTO> clientes = rutaService.getClientesDeRuta(id_ruta);
-        List<ClienteDTO> orderedClients = rutaService.getOptimizedRouteORTools(id_ruta, clientes);
-        Ruta origen = rutaService.getOrigenRuta(id_ruta);
-        String osrmRoute = rutaService.getOsrmRoute(orderedClients, origen);
-
-        Map<String, Object> result = new HashMap<>();
-        result.put("orderedClients", orderedClients);
-        result.put("osrmRoute", osrmRoute);
-
-        Map<String, Object> origenInfo = new HashMap<>();
-        origenInfo.put("latitud", origen.getLatitud());
-        origenInfo.put("longitud", origen.getLongitud());
-        result.put("origen", origenInfo);
-
-        return result;
+    public Map<String, Object> getOptimizedRouteORTools(@PathVariable Long id_ruta,
+            @RequestParam(value = "proveedor", required = false) String proveedor,
+            @RequestParam(value = "perfil", required = false) String perfil,
+            @RequestParam(value = "formato", required = false) String formato) {
+        return rutaService.optimizarRuta(id_ruta, null, proveedor, PerfilBusqueda.desde(perfil),
+                FormatoGeometria.desde(formato));
     }
     @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER')")
     @GetMapping("/optimized-ortools/{id_ruta}/{fecha}")
     public Map<String, Object> getOptimizedRouteORToolsForDate(
             @PathVariable Long id_ruta, 
-            @PathVariable String fecha) {
+            @PathVariable String fecha,
+            @RequestParam(value = "proveedor", required = false) String proveedor,
+            @RequestParam(value = "perfil", required = false) String perfil,
+            @RequestParam(value = "formato", required = false) String formato) {
         try {
             java.time.LocalDate fechaLocal = java.time.LocalDate.parse(fecha);
             
-            // Obtener solo los clientes con programación de entregas para la fecha
-            List<ClienteDTO> clientesConProgramacion = rutaService.getClientesConProgramacion(id_ruta, fechaLocal);
-            
-            if (clientesConProgramacion.isEmpty()) {
-                Map<String, Object> result = new HashMap<>();
-                result.put("orderedClients", new ArrayList<>());
-                result.put("osrmRoute", null);
-                result.put("message", "No hay entregas programadas para esta fecha");
-                return result;
-            }
-            
-            // Optimizar la ruta solo con esos clientes
-            List<ClienteDTO> orderedClients = rutaService.getOptimizedRouteORTools(id_ruta, clientesConProgramacion);
-            Ruta origen = rutaService.getOrigenRuta(id_ruta);
-            String osrmRoute = rutaService.getOsrmRoute(orderedClients, origen);
-
-            Map<String, Object> result = new HashMap<>();
-            result.put("orderedClients", orderedClients);
-            result.put("osrmRoute", osrmRoute);
-
-            Map<String, Object> origenInfo = new HashMap<>();
-            origenInfo.put("latitud", origen.getLatitud());
-            origenInfo.put("longitud", origen.getLongitud());
-            result.put("origen", origenInfo);
-
-            return result;
+            // Solo se optimizan los clientes con programación de entregas para la fecha
+            return rutaService.optimizarRuta(id_ruta, fechaLocal, proveedor, PerfilBusqueda.desde(perfil),
+                    FormatoGeometria.desde(formato));
         } catch (Exception e) {
             Map<String, Object> errorResult = new HashMap<>();
             errorResult.put("error", "Error al optimizar la ruta: " + e.getMessage());
@@ -89,6 +75,51 @@ public class RutaController {
         }
     }
 
+    // Optimiza todas las rutas de la fecha como una sola flota y propone reasignaciones
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/optimized-fleet/{fecha}")
+    public ResponseEntity<Map<String, Object>> getOptimizedFleet(
+            @PathVariable String fecha,
+            @RequestParam(value = "proveedor", required = false) String proveedor) {
+        try {
+            java.time.LocalDate fechaLocal = java.time.LocalDate.parse(fecha);
+            return ResponseEntity.ok(optimizacionFlotaService.optimizarFlota(fechaLocal, proveedor));
+        } catch (Exception e) {
+            Map<String, Object> errorResult = new HashMap<>();
+            errorResult.put("error", "Error al optimizar la flota: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResult);
+        }
+    }
+
+    // Lanza a mano la pre-optimización de todas las rutas de una fecha (normalmente corre de noche)
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/pre-optimizacion/{fecha}")
+    public ResponseEntity<Map<String, Object>> iniciarPreOptimizacion(@PathVariable String fecha) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            java.time.LocalDate fechaLocal = java.time.LocalDate.parse(fecha);
+            if (!preOptimizacionNocturnaService.iniciarEnSegundoPlano(fechaLocal)) {
+                response.put("error", "Ya hay una pre-optimización en curso");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            response.put("message", "Pre-optimización iniciada para " + fechaLocal);
+            return ResponseEntity.accepted().body(response);
+        } catch (Exception e) {
+            response.put("error", "Error al iniciar la pre-optimización: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/pre-optimizacion/reporte")
+    public ResponseEntity<Map<String, Object>> getReportePreOptimizacion() {
+        Map<String, Object> reporte = preOptimizacionNocturnaService.getUltimoReporte();
+        if (reporte == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(reporte);
+    }
+
     @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER')")
     @GetMapping("/clientes/{id_ruta}")
     public List<ClienteDTO> getClientesDeRuta(@PathVariable Long id_ruta) {
@@ -113,6 +144,60 @@ public class RutaController {
         return rutaService.getClientesConRuta();
     }
 
+    // Propone una ruta para cada cliente sin ruta; no guarda nada hasta que se acepta
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/auto-asignacion")
+    public ResponseEntity<Map<String, Object>> proponerAsignacion() {
+        try {
+            return ResponseEntity.ok(asignacionAutomaticaService.proponer());
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Error al proponer la asignación: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/auto-asignacion/{id}/aceptar")
+    public ResponseEntity<Map<String, Object>> aceptarAsignacion(@PathVariable String id) {
+        try {
+            Map<String, Object> response = asignacionAutomaticaService.aceptar(id);
+            response.put("message", "Asignación aceptada correctamente");
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Error al aceptar la asignación: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    // Calcula en segundo plano qué clientes de borde conviene mover para emparejar la carga de los drivers
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/rebalanceo")
+    public ResponseEntity<Map<String, Object>> iniciarRebalanceo() {
+        Map<String, Object> response = new HashMap<>();
+        if (!rebalanceoService.iniciarEnSegundoPlano()) {
+            response.put("error", "Ya hay un rebalanceo en curso");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        response.put("message", "Rebalanceo iniciado");
+        return ResponseEntity.accepted().body(response);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/rebalanceo")
+    public ResponseEntity<Map<String, Object>> getResultadoRebalanceo() {
+        Map<String, Object> resultado = rebalanceoService.getUltimoResultado();
+        if (resultado == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(resultado);
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("/asignar-cliente")
     public ResponseEntity<String> asignarClienteARuta(@RequestBody Map<String, Long> request) {
@@ -172,6 +257,7 @@ public class RutaController {
     public ResponseEntity<Map<String, Object>> iniciarRuta(@PathVariable Long id_ruta) {
         try {
             Long idPedido = rutaService.iniciarRuta(id_ruta);
+            etaEnVivoService.iniciarSesion(idPedido);
 
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Ruta iniciada correctamente");
@@ -189,6 +275,9 @@ public class RutaController {
     public ResponseEntity<Map<String, Object>> finalizarRuta(@PathVariable Long id_ruta) {
         try {
             Map<String, Object> resumen = rutaService.finalizarRuta(id_ruta);
+            etaEnVivoService.terminarSesion(id_ruta);
+            seguimientoGpsService.terminarSesion(id_ruta);
+            geocercaService.terminarSesion(id_ruta);
             resumen.put("message", "Ruta finalizada correctamente");
             return ResponseEntity.ok(resumen);
         } catch (Exception e) {
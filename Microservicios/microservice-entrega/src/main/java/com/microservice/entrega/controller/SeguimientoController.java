@@ -0,0 +1,109 @@
+package com.microservice.entrega.controller;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.microservice.entrega.dto.PosicionDTO;
+import com.microservice.entrega.service.EtaEnVivoService;
+import com.microservice.entrega.service.GeocercaService;
+import com.microservice.entrega.service.SeguimientoGpsService;
+import com.microservice.entrega.service.seguimiento.EventoGeocerca;
+import com.microservice.entrega.service.seguimiento.Posicion;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@RestController
+@RequestMapping("/entrega/seguimiento")
+@RequiredArgsConstructor
+public class SeguimientoController {
+
+    private final SeguimientoGpsService seguimientoGpsService;
+    private final EtaEnVivoService etaEnVivoService;
+    private final GeocercaService geocercaService;
+
+    // Ping del dispositivo del driver; queda en memoria y se guarda en el próximo vaciado
+    @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER')")
+    @PostMapping("/sesiones/{idSesion}/posiciones")
+    public ResponseEntity<Map<String, Object>> registrarPosicion(@PathVariable Long idSesion,
+            @RequestBody PosicionDTO posicion) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            seguimientoGpsService.registrar(idSesion, posicion);
+            response.put("message", "Posición recibida");
+            return ResponseEntity.accepted().body(response);
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (Exception e) {
+            response.put("error", "Error al registrar la posición: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER')")
+    @GetMapping("/sesiones/{idSesion}/posicion")
+    public ResponseEntity<Posicion> getUltimaPosicion(@PathVariable Long idSesion) {
+        Posicion posicion = seguimientoGpsService.getUltimaPosicion(idSesion);
+        if (posicion == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(posicion);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/posiciones")
+    public List<Posicion> getUltimasPosiciones() {
+        return seguimientoGpsService.getUltimasPosiciones();
+    }
+
+    // ETAs de las paradas pendientes, recalculadas con cada entrega y cada posición recibida
+    @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER')")
+    @GetMapping("/sesiones/{idSesion}/etas")
+    public ResponseEntity<Map<String, Object>> getEtas(@PathVariable Long idSesion) {
+        Map<String, Object> etas = etaEnVivoService.getEtas(idSesion);
+        if (etas == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(etas);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/etas")
+    public List<Map<String, Object>> getEtasActivas() {
+        return etaEnVivoService.getEtasActivas();
+    }
+
+    // Llegadas y salidas detectadas por geocerca en la sesión
+    @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER')")
+    @GetMapping("/sesiones/{idSesion}/eventos")
+    public List<EventoGeocerca> getEventosGeocerca(@PathVariable Long idSesion) {
+        return geocercaService.getEventos(idSesion);
+    }
+
+    // Tiempo observado en cada cliente, base para ajustar su tiempo de servicio
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/permanencias")
+    public List<Map<String, Object>> getPermanencias(@RequestParam(defaultValue = "28") int dias) {
+        return geocercaService.getPermanencias(dias);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/estado")
+    public Map<String, Object> getEstado() {
+        return seguimientoGpsService.getEstado();
+    }
+}
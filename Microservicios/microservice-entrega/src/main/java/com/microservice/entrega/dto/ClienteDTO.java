@@ -1,5 +1,7 @@
 package com.microservice.entrega.dto;
 
+import java.time.LocalTime;
+
 import lombok.Data;
 
 @Data
@@ -12,4 +14,8 @@ public class ClienteDTO {
     private String email;
     private Double precioCorriente;
     private Double precioEspecial;
+    private LocalTime ventanaInicio;
+    private LocalTime ventanaFin;
+    private Integer tiempoServicioMinutos;
+    private LocalTime eta; // Hora estimada de llegada, calculada por el optimizador
 }
@@ -0,0 +1,18 @@
+package com.microservice.entrega.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PosicionDTO {
+    private Double latitud;
+    private Double longitud;
+    private Double velocidad_kmh;
+    private Double precision_metros;
+    private LocalDateTime hora; // si no viene, se usa la hora de recepción
+}
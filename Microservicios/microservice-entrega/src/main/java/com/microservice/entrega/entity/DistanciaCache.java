@@ -0,0 +1,40 @@
+package com.microservice.entrega.entity;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.UpdateTimestamp;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Celda de la matriz de distancias entre dos coordenadas redondeadas, por proveedor de distancias.
+ * Las claves tienen el formato "latitud,longitud" con la precisión configurada.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "distancia_cache", uniqueConstraints = @UniqueConstraint(columnNames = { "proveedor", "origen", "destino" }))
+public class DistanciaCache {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String proveedor;
+    private String origen;
+    private String destino;
+    private Long distancia; // metros
+    private Long duracion; // segundos
+
+    @UpdateTimestamp
+    private LocalDateTime fecha_actualizacion;
+}
@@ -0,0 +1,37 @@
+package com.microservice.entrega.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Posición GPS reportada por el dispositivo del driver durante una sesión de reparto.
+ * Se escribe por lotes con JDBC (ver SeguimientoGpsService), no con save de JPA.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "posicion_driver", indexes = @Index(name = "idx_posicion_driver_sesion_hora", columnList = "id_sesion, hora"))
+public class PosicionDriver {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long id_sesion;
+    private Long id_driver;
+    private Double latitud;
+    private Double longitud;
+    private Double velocidad_kmh;
+    private Double precision_metros;
+    private LocalDateTime hora;
+}
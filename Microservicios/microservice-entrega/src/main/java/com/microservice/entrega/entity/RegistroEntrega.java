@@ -8,6 +8,8 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,6 +18,7 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(name = "registro_entrega", indexes = @Index(name = "idx_registro_entrega_ruta_hora", columnList = "id_ruta, hora_entregada"))
 public class RegistroEntrega {
 
     @Id
@@ -26,6 +29,7 @@ public class RegistroEntrega {
     private TipoMovimiento tipo;
     
     private Long id_pedido;
+    private Long id_ruta;                // Ruta de la sesión al registrar; 0 si no se pudo determinar
     private Long id_cliente;
     private LocalDateTime hora_entregada;
     private Double corriente_entregado;
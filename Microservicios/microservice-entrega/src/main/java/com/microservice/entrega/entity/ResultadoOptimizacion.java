@@ -0,0 +1,53 @@
+package com.microservice.entrega.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.UpdateTimestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de optimización guardado para una ruta y fecha. La huella resume los clientes
+ * (ids, coordenadas y ventanas), el origen y el proveedor con que se calculó.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "resultado_optimizacion", uniqueConstraints = @UniqueConstraint(columnNames = { "id_ruta", "fecha" }))
+public class ResultadoOptimizacion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long id_ruta;
+    private LocalDate fecha;
+    private String huella;
+    private String proveedor;
+    private String perfil;
+
+    // Ids de clientes en orden de visita, separados por coma
+    @Column(columnDefinition = "TEXT")
+    private String orden_clientes;
+
+    // Hora estimada de llegada (HH:mm:ss) de cada cliente, en el mismo orden
+    @Column(columnDefinition = "TEXT")
+    private String etas;
+
+    @Column(columnDefinition = "TEXT")
+    private String osrm_route;
+
+    @UpdateTimestamp
+    private LocalDateTime fecha_actualizacion;
+}
@@ -0,0 +1,43 @@
+package com.microservice.entrega.entity;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Acumulado diario de los registros de entrega por ruta y cliente. Se actualiza en la misma transacción
+ * que guarda cada RegistroEntrega, así los reportes leen unas pocas filas por día en vez de agrupar
+ * registro_entrega. Sin ruta o sin cliente conocidos se guarda 0 en la columna.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "resumen_entrega_diario",
+        uniqueConstraints = @UniqueConstraint(name = "uk_resumen_entrega_diario", columnNames = { "fecha", "id_ruta", "id_cliente" }),
+        indexes = @Index(name = "idx_resumen_entrega_diario_ruta_fecha", columnList = "id_ruta, fecha"))
+public class ResumenEntregaDiario {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private LocalDate fecha;
+    private Long id_ruta;
+    private Long id_cliente;
+    private Long entregas;
+    private Double kg_corriente;
+    private Double kg_especial;
+    private Double monto_corriente;
+    private Double monto_especial;
+    private Double monto_total;
+}
@@ -30,4 +30,7 @@ public class Ruta {
 
     private Long id_driver;
 
+    // Proveedor de distancias para optimizar esta ruta (osrm, osrm-local, haversine). Null = por defecto.
+    private String proveedor_distancias;
+
 }
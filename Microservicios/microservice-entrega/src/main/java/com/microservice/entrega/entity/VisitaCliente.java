@@ -0,0 +1,35 @@
+package com.microservice.entrega.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Visita del driver a un cliente detectada por geocerca: llegada, salida y tiempo que estuvo en el lugar.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "visita_cliente", indexes = @Index(name = "idx_visita_cliente_cliente_llegada", columnList = "id_cliente, llegada"))
+public class VisitaCliente {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long id_sesion;
+    private Long id_ruta;
+    private Long id_cliente;
+    private LocalDateTime llegada;
+    private LocalDateTime salida;
+    private Long permanencia_segundos;
+}
@@ -0,0 +1,18 @@
+package com.microservice.entrega.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.microservice.entrega.entity.DistanciaCache;
+
+public interface DistanciaCacheRepository extends JpaRepository<DistanciaCache, Long> {
+
+    // Todas las celdas del proveedor cuyo origen y destino pertenecen al conjunto de claves
+    @Query("SELECT dc FROM DistanciaCache dc WHERE dc.proveedor = :proveedor AND dc.origen IN :claves AND dc.destino IN :claves")
+    List<DistanciaCache> findByProveedorAndClaves(@Param("proveedor") String proveedor,
+            @Param("claves") Collection<String> claves);
+}
@@ -31,9 +31,28 @@ public interface ProgramacionEntregaRepository extends JpaRepository<Programacio
     @Query("SELECT pe FROM ProgramacionEntrega pe WHERE pe.id_ruta = :idRuta")
     List<ProgramacionEntrega> findByIdRuta(@Param("idRuta") Long idRuta);
 
+    // Programaciones con orden de la fecha más reciente anterior a :fecha (orden de visita previo de la ruta)
+    @Query("SELECT pe FROM ProgramacionEntrega pe WHERE pe.id_ruta = :idRuta AND pe.orden IS NOT NULL " +
+           "AND pe.fecha_programada = (SELECT MAX(p2.fecha_programada) FROM ProgramacionEntrega p2 " +
+           "WHERE p2.id_ruta = :idRuta AND p2.orden IS NOT NULL AND p2.fecha_programada < :fecha)")
+    List<ProgramacionEntrega> findUltimoOrdenAnterior(@Param("idRuta") Long idRuta, @Param("fecha") LocalDate fecha);
+
+    @Query("SELECT DISTINCT pe.id_ruta FROM ProgramacionEntrega pe WHERE pe.fecha_programada = :fecha")
+    List<Long> findIdRutasByFechaProgramada(@Param("fecha") LocalDate fecha);
+
     @Query("SELECT COUNT(DISTINCT pe.id_cliente) FROM ProgramacionEntrega pe WHERE pe.fecha_programada = :fecha")
     Long countClientesByFechaProgramada(@Param("fecha") LocalDate fecha);
 
+    // Kilos por cliente en un periodo: [id_cliente, kg corriente, kg especial, días con entrega]
+    @Query("SELECT pe.id_cliente, SUM(pe.kg_corriente_programado), SUM(pe.kg_especial_programado), " +
+            "COUNT(DISTINCT pe.fecha_programada) FROM ProgramacionEntrega pe " +
+            "WHERE pe.fecha_programada BETWEEN :fechaInicio AND :fechaFin GROUP BY pe.id_cliente")
+    List<Object[]> sumKgPorCliente(@Param("fechaInicio") LocalDate fechaInicio, @Param("fechaFin") LocalDate fechaFin);
+
+    @Query("SELECT COUNT(DISTINCT pe.fecha_programada) FROM ProgramacionEntrega pe " +
+            "WHERE pe.fecha_programada BETWEEN :fechaInicio AND :fechaFin")
+    Long countDiasConEntregas(@Param("fechaInicio") LocalDate fechaInicio, @Param("fechaFin") LocalDate fechaFin);
+
         // Consultas para reportes
         @Query(value = "SELECT COUNT(DISTINCT pe.id_cliente) " +
                 "FROM programacion_entrega pe " +
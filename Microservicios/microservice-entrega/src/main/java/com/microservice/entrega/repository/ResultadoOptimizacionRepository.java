@@ -0,0 +1,25 @@
+package com.microservice.entrega.repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.microservice.entrega.entity.ResultadoOptimizacion;
+
+public interface ResultadoOptimizacionRepository extends JpaRepository<ResultadoOptimizacion, Long> {
+
+    @Query("SELECT r FROM ResultadoOptimizacion r WHERE r.id_ruta = :idRuta AND r.fecha = :fecha")
+    Optional<ResultadoOptimizacion> findByIdRutaAndFecha(@Param("idRuta") Long idRuta, @Param("fecha") LocalDate fecha);
+
+    @Modifying
+    @Query("DELETE FROM ResultadoOptimizacion r WHERE r.id_ruta = :idRuta AND r.fecha = :fecha")
+    void deleteByIdRutaAndFecha(@Param("idRuta") Long idRuta, @Param("fecha") LocalDate fecha);
+
+    @Modifying
+    @Query("DELETE FROM ResultadoOptimizacion r WHERE r.id_ruta = :idRuta")
+    void deleteByIdRuta(@Param("idRuta") Long idRuta);
+}
@@ -0,0 +1,101 @@
+package com.microservice.entrega.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.microservice.entrega.entity.ResumenEntregaDiario;
+
+public interface ResumenEntregaDiarioRepository extends JpaRepository<ResumenEntregaDiario, Long> {
+
+    // Suma una entrega al acumulado del día; crea la fila si es la primera
+    @Modifying
+    @Query(value = "INSERT INTO resumen_entrega_diario " +
+            "(fecha, id_ruta, id_cliente, entregas, kg_corriente, kg_especial, monto_corriente, monto_especial, monto_total) " +
+            "VALUES (:fecha, :idRuta, :idCliente, 1, :kgCorriente, :kgEspecial, :montoCorriente, :montoEspecial, :montoTotal) " +
+            "ON CONFLICT (fecha, id_ruta, id_cliente) DO UPDATE SET " +
+            "entregas = resumen_entrega_diario.entregas + 1, " +
+            "kg_corriente = resumen_entrega_diario.kg_corriente + EXCLUDED.kg_corriente, " +
+            "kg_especial = resumen_entrega_diario.kg_especial + EXCLUDED.kg_especial, " +
+            "monto_corriente = resumen_entrega_diario.monto_corriente + EXCLUDED.monto_corriente, " +
+            "monto_especial = resumen_entrega_diario.monto_especial + EXCLUDED.monto_especial, " +
+            "monto_total = resumen_entrega_diario.monto_total + EXCLUDED.monto_total", nativeQuery = true)
+    void acumular(@Param("fecha") LocalDate fecha, @Param("idRuta") Long idRuta, @Param("idCliente") Long idCliente,
+            @Param("kgCorriente") double kgCorriente, @Param("kgEspecial") double kgEspecial,
+            @Param("montoCorriente") double montoCorriente, @Param("montoEspecial") double montoEspecial,
+            @Param("montoTotal") double montoTotal);
+
+    @Modifying
+    @Query(value = "DELETE FROM resumen_entrega_diario WHERE fecha BETWEEN :fechaInicio AND :fechaFin", nativeQuery = true)
+    int deleteByFechaBetween(@Param("fechaInicio") LocalDate fechaInicio, @Param("fechaFin") LocalDate fechaFin);
+
+    @Modifying
+    @Query(value = "DELETE FROM resumen_entrega_diario WHERE id_cliente = :idCliente", nativeQuery = true)
+    void deleteByIdCliente(@Param("idCliente") Long idCliente);
+
+    // Recalcula el acumulado desde registro_entrega; sin id_ruta registrado, la ruta sale de la sesión del driver o de
+    // ruta_cliente con las mismas subconsultas escalares que asignarRutasPendientes, así cada registro cuenta una sola vez
+    @Modifying
+    @Query(value = "INSERT INTO resumen_entrega_diario " +
+            "(fecha, id_ruta, id_cliente, entregas, kg_corriente, kg_especial, monto_corriente, monto_especial, monto_total) " +
+            "SELECT CAST(re.hora_entregada AS DATE), " +
+            "COALESCE(re.id_ruta, " +
+            "(SELECT MIN(r.id) FROM sesion_reparto s JOIN ruta r ON r.id_driver = s.id_driver WHERE s.id = re.id_pedido), " +
+            "(SELECT MIN(rc.id_ruta) FROM ruta_cliente rc WHERE rc.id_cliente = re.id_cliente), 0), " +
+            "COALESCE(re.id_cliente, 0), COUNT(*), " +
+            "COALESCE(SUM(re.corriente_entregado), 0), COALESCE(SUM(re.especial_entregado), 0), " +
+            "COALESCE(SUM(re.monto_corriente), 0), COALESCE(SUM(re.monto_especial), 0), COALESCE(SUM(re.monto_total), 0) " +
+            "FROM registro_entrega re " +
+            "WHERE re.hora_entregada >= :desde AND re.hora_entregada < :hasta " +
+            "GROUP BY 1, 2, 3", nativeQuery = true)
+    int reconstruir(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM resumen_entrega_diario)", nativeQuery = true)
+    boolean existeAlguno();
+
+    @Query(value = "SELECT MIN(hora_entregada), MAX(hora_entregada) FROM registro_entrega", nativeQuery = true)
+    List<Object[]> rangoRegistros();
+
+    @Query(value = "SELECT COALESCE(SUM(entregas), 0) FROM resumen_entrega_diario WHERE fecha = :fecha", nativeQuery = true)
+    Long countByFecha(@Param("fecha") LocalDate fecha);
+
+    @Query(value = "SELECT COALESCE(SUM(kg_corriente + kg_especial), 0) FROM resumen_entrega_diario WHERE fecha = :fecha", nativeQuery = true)
+    Double sumKilosByFecha(@Param("fecha") LocalDate fecha);
+
+    @Query(value = "SELECT fecha, SUM(entregas) as total FROM resumen_entrega_diario " +
+            "WHERE fecha BETWEEN :fechaInicio AND :fechaFin GROUP BY fecha ORDER BY fecha", nativeQuery = true)
+    List<Object[]> countEntregasPorDia(@Param("fechaInicio") LocalDate fechaInicio, @Param("fechaFin") LocalDate fechaFin);
+
+    @Query(value = "SELECT fecha, SUM(entregas) as totalEntregas, " +
+            "SUM(kg_corriente) as kgCorriente, SUM(kg_especial) as kgEspecial " +
+            "FROM resumen_entrega_diario " +
+            "WHERE fecha BETWEEN :fechaInicio AND :fechaFin " +
+            "GROUP BY fecha ORDER BY fecha", nativeQuery = true)
+    List<Object[]> obtenerReporteEntregas(@Param("fechaInicio") LocalDate fechaInicio,
+                                           @Param("fechaFin") LocalDate fechaFin);
+
+    @Query(value = "SELECT fecha, SUM(entregas) as totalEntregas, " +
+            "SUM(kg_corriente) as kgCorriente, SUM(kg_especial) as kgEspecial " +
+            "FROM resumen_entrega_diario " +
+            "WHERE id_ruta = :idRuta AND fecha BETWEEN :fechaInicio AND :fechaFin " +
+            "GROUP BY fecha ORDER BY fecha", nativeQuery = true)
+    List<Object[]> obtenerReporteEntregasPorRuta(@Param("fechaInicio") LocalDate fechaInicio,
+                                                   @Param("fechaFin") LocalDate fechaFin,
+                                                   @Param("idRuta") Long idRuta);
+
+    @Query(value = "SELECT fecha, SUM(monto_total) as totalVentas, " +
+            "SUM(kg_corriente + kg_especial) as totalKilos, " +
+            "SUM(monto_corriente) as ventasCorriente, " +
+            "SUM(monto_especial) as ventasEspecial, " +
+            "COUNT(DISTINCT NULLIF(id_cliente, 0)) as numeroClientes " +
+            "FROM resumen_entrega_diario " +
+            "WHERE fecha BETWEEN :fechaInicio AND :fechaFin " +
+            "GROUP BY fecha ORDER BY fecha", nativeQuery = true)
+    List<Object[]> obtenerReporteVentas(@Param("fechaInicio") LocalDate fechaInicio,
+                                         @Param("fechaFin") LocalDate fechaFin);
+}
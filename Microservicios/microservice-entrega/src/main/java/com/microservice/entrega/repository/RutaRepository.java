@@ -13,6 +13,10 @@ public interface RutaRepository extends JpaRepository<Ruta, Long> {
     @Query("SELECT r FROM Ruta r WHERE r.id_driver = :idDriver")
     Optional<Ruta> findByIdDriver(@Param("idDriver") Long idDriver);
 
+    // Un driver puede tener varias rutas; se toma la de menor id, como en las consultas del resumen de entregas
+    @Query("SELECT MIN(r.id) FROM Ruta r WHERE r.id_driver = :idDriver")
+    Long findPrimerIdByIdDriver(@Param("idDriver") Long idDriver);
+
     /**
      * Verifica si existe una ruta con el nombre dado (case insensitive)
      * @param nombre Nombre de la ruta
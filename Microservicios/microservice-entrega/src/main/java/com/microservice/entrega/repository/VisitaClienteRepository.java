@@ -0,0 +1,18 @@
+package com.microservice.entrega.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.microservice.entrega.entity.VisitaCliente;
+
+public interface VisitaClienteRepository extends JpaRepository<VisitaCliente, Long> {
+
+    // Por cliente: permanencia promedio, mínima, máxima y cantidad de visitas desde la fecha
+    @Query("SELECT v.id_cliente, AVG(v.permanencia_segundos), MIN(v.permanencia_segundos), MAX(v.permanencia_segundos), COUNT(v) " +
+           "FROM VisitaCliente v WHERE v.llegada >= :desde GROUP BY v.id_cliente")
+    List<Object[]> resumenPermanencias(@Param("desde") LocalDateTime desde);
+}
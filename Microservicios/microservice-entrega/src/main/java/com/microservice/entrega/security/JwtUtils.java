@@ -2,6 +2,11 @@ package com.microservice.entrega.security;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -39,4 +44,26 @@ public class JwtUtils {
     public String getRoleFromToken(String token) {
         return getClaims(token).get("role", String.class);
     }
+
+    /**
+     * Rol de los tokens que emite este servicio para sí mismo. No es ADMIN: los demás microservicios
+     * solo lo aceptan en las lecturas que necesitan los procesos internos (clientes por ids).
+     */
+    public static final String ROL_SERVICIO = "SERVICIO";
+
+    /**
+     * Token de corta duración para procesos internos sin usuario (tareas programadas)
+     * que necesitan llamar a otros microservicios.
+     */
+    public String generarTokenServicio(long minutos) {
+        Instant ahora = Instant.now();
+        return Jwts.builder()
+                .setSubject("microservice-entrega")
+                .setIssuedAt(Date.from(ahora))
+                .setExpiration(Date.from(ahora.plus(minutos, ChronoUnit.MINUTES)))
+                .claim("email", "sistema@microservice-entrega")
+                .claim("role", ROL_SERVICIO)
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret)))
+                .compact();
+    }
 }
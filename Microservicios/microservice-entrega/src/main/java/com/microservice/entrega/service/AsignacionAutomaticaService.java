@@ -0,0 +1,362 @@
+package com.microservice.entrega.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.microservice.entrega.client.ClienteServiceClient;
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.entity.Ruta;
+import com.microservice.entrega.entity.RutaCliente;
+import com.microservice.entrega.repository.RutaClienteRepository;
+import com.microservice.entrega.repository.RutaRepository;
+import com.microservice.entrega.service.asignacion.IndiceEspacial;
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Asignación automática de los clientes sin ruta. Cada ruta es un territorio formado por sus clientes actuales
+ * (o por su origen si aún no tiene clientes); un cliente nuevo se propone para la ruta con el cliente más
+ * cercano, buscado en una grilla en memoria. Se asigna primero a quien más pierde si no obtiene su mejor
+ * opción (mayor arrepentimiento), respetando el máximo de paradas por ruta, y cada cliente asignado pasa a
+ * formar parte de su territorio. La propuesta queda guardada unos minutos para aceptarla en una sola transacción.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AsignacionAutomaticaService {
+
+    private final RutaRepository rutaRepository;
+    private final RutaClienteRepository rutaClienteRepository;
+    private final ClienteServiceClient clienteServiceClient;
+    private final ResultadoOptimizacionService resultadoOptimizacionService;
+
+    // Paradas máximas por ruta, contando las que ya tiene
+    @Value("${rutas.auto-asignacion.max-paradas:60}")
+    private int maxParadas = 60;
+
+    @Value("${rutas.auto-asignacion.celda-metros:1000}")
+    private double celdaMetros = 1000;
+
+    // Vecinos que se revisan por cliente antes de comparar contra el centro de las rutas restantes
+    @Value("${rutas.auto-asignacion.vecinos:15}")
+    private int vecinos = 15;
+
+    // Un cliente más lejos que esto de todas las rutas queda sin asignar en vez de forzar un territorio
+    @Value("${rutas.auto-asignacion.distancia-maxima-metros:50000}")
+    private double distanciaMaximaMetros = 50000;
+
+    @Value("${rutas.auto-asignacion.retencion-minutos:30}")
+    private long retencionMinutos = 30;
+
+    private final Map<String, Propuesta> propuestas = new ConcurrentHashMap<>();
+
+    private record Propuesta(String id, LocalDateTime creada, Map<Long, List<Long>> clientesPorRuta) {
+    }
+
+    private static class Territorio {
+        final Ruta ruta;
+        int paradas;
+        int nuevas;
+        double sumaLatitud;
+        double sumaLongitud;
+        int puntos;
+
+        Territorio(Ruta ruta) {
+            this.ruta = ruta;
+        }
+
+        void agregarPunto(double latitud, double longitud) {
+            sumaLatitud += latitud;
+            sumaLongitud += longitud;
+            puntos++;
+        }
+    }
+
+    // Mejor ruta de un cliente según el estado de los territorios en la época en que se evaluó
+    private record Evaluacion(ClienteDTO cliente, Long idRuta, double metros, double arrepentimiento, int epoca) {
+    }
+
+    public Map<String, Object> proponer() {
+        purgarVencidas();
+        long inicio = System.currentTimeMillis();
+
+        Map<Long, Territorio> territorios = new LinkedHashMap<>();
+        for (Ruta ruta : rutaRepository.findAll()) {
+            if (ruta.getLatitud() != null && ruta.getLongitud() != null) {
+                territorios.put(ruta.getId(), new Territorio(ruta));
+            }
+        }
+        if (territorios.isEmpty()) {
+            throw new RuntimeException("No hay rutas con origen configurado");
+        }
+
+        Map<Long, Long> rutaPorCliente = new HashMap<>();
+        for (RutaCliente rc : rutaClienteRepository.findAll()) {
+            rutaPorCliente.putIfAbsent(rc.getId_cliente(), rc.getId_ruta());
+        }
+        List<ClienteDTO> clientes = clienteServiceClient.getAllClientes();
+
+        double latitudReferencia = territorios.values().stream()
+                .mapToDouble(t -> t.ruta.getLatitud()).average().orElse(0.0);
+        IndiceEspacial<Long> indice = new IndiceEspacial<>(celdaMetros, latitudReferencia);
+
+        List<ClienteDTO> pendientes = new ArrayList<>();
+        List<Map<String, Object>> sinAsignar = new ArrayList<>();
+        for (ClienteDTO c : clientes) {
+            Long idRuta = rutaPorCliente.get(c.getId());
+            boolean conCoordenadas = c.getLatitud() != null && c.getLongitud() != null;
+            if (idRuta == null) {
+                if (conCoordenadas) {
+                    pendientes.add(c);
+                } else {
+                    sinAsignar.add(noAsignado(c, "El cliente no tiene coordenadas"));
+                }
+                continue;
+            }
+            Territorio territorio = territorios.get(idRuta);
+            if (territorio != null) {
+                territorio.paradas++;
+                if (conCoordenadas) {
+                    indice.agregar(c.getLatitud(), c.getLongitud(), idRuta);
+                    territorio.agregarPunto(c.getLatitud(), c.getLongitud());
+                }
+            }
+        }
+        // Una ruta sin clientes ubicados se representa por su origen
+        for (Territorio t : territorios.values()) {
+            if (t.puntos == 0) {
+                indice.agregar(t.ruta.getLatitud(), t.ruta.getLongitud(), t.ruta.getId());
+                t.agregarPunto(t.ruta.getLatitud(), t.ruta.getLongitud());
+            }
+        }
+
+        // Cola por arrepentimiento. Una evaluación de una época anterior se recalcula al salir de la cola y
+        // solo vuelve a entrar si dejó de ser la primera, así no se reevalúan todos tras cada asignación
+        Comparator<Evaluacion> prioridad = Comparator.comparingDouble(Evaluacion::arrepentimiento).reversed()
+                .thenComparingDouble(Evaluacion::metros);
+        PriorityQueue<Evaluacion> cola = new PriorityQueue<>(prioridad);
+        int epoca = 0;
+        for (ClienteDTO c : pendientes) {
+            Evaluacion e = evaluar(c, indice, territorios, epoca);
+            if (e != null) {
+                cola.add(e);
+            } else {
+                sinAsignar.add(noAsignado(c, motivoSinRuta(territorios)));
+            }
+        }
+
+        Map<Long, List<ClienteDTO>> asignadosPorRuta = new LinkedHashMap<>();
+        List<Map<String, Object>> asignaciones = new ArrayList<>();
+        while (!cola.isEmpty()) {
+            Evaluacion e = cola.poll();
+            if (e.epoca() != epoca) {
+                ClienteDTO cliente = e.cliente();
+                e = evaluar(cliente, indice, territorios, epoca);
+                if (e == null) {
+                    sinAsignar.add(noAsignado(cliente, motivoSinRuta(territorios)));
+                    continue;
+                }
+                if (!cola.isEmpty() && prioridad.compare(e, cola.peek()) > 0) {
+                    cola.add(e);
+                    continue;
+                }
+            }
+
+            ClienteDTO c = e.cliente();
+            Territorio territorio = territorios.get(e.idRuta());
+            territorio.paradas++;
+            territorio.nuevas++;
+            territorio.agregarPunto(c.getLatitud(), c.getLongitud());
+            indice.agregar(c.getLatitud(), c.getLongitud(), e.idRuta());
+            asignadosPorRuta.computeIfAbsent(e.idRuta(), k -> new ArrayList<>()).add(c);
+            epoca++;
+
+            Map<String, Object> asignacion = new HashMap<>();
+            asignacion.put("id_cliente", c.getId());
+            asignacion.put("nombre", c.getNombre());
+            asignacion.put("direccion", c.getDireccion());
+            asignacion.put("id_ruta", e.idRuta());
+            asignacion.put("nombreRuta", territorio.ruta.getNombre());
+            asignacion.put("distanciaMetros", Math.round(e.metros()));
+            asignaciones.add(asignacion);
+        }
+
+        // Dentro de cada ruta los nuevos van al final, en barrido angular alrededor del origen
+        Map<Long, List<Long>> clientesPorRuta = new LinkedHashMap<>();
+        for (Map.Entry<Long, List<ClienteDTO>> entry : asignadosPorRuta.entrySet()) {
+            Ruta ruta = territorios.get(entry.getKey()).ruta;
+            clientesPorRuta.put(entry.getKey(), entry.getValue().stream()
+                    .sorted(Comparator.comparingDouble(c -> Math.atan2(c.getLatitud() - ruta.getLatitud(),
+                            c.getLongitud() - ruta.getLongitud())))
+                    .map(ClienteDTO::getId)
+                    .toList());
+        }
+
+        Propuesta propuesta = new Propuesta(UUID.randomUUID().toString(), LocalDateTime.now(), clientesPorRuta);
+        if (!asignaciones.isEmpty()) {
+            propuestas.put(propuesta.id(), propuesta);
+        }
+
+        List<Map<String, Object>> rutas = new ArrayList<>();
+        for (Territorio t : territorios.values()) {
+            Map<String, Object> ruta = new HashMap<>();
+            ruta.put("id_ruta", t.ruta.getId());
+            ruta.put("nombre", t.ruta.getNombre());
+            ruta.put("paradasActuales", t.paradas - t.nuevas);
+            ruta.put("nuevas", t.nuevas);
+            ruta.put("cupoRestante", Math.max(0, maxParadas - t.paradas));
+            rutas.add(ruta);
+        }
+
+        long tiempoMs = System.currentTimeMillis() - inicio;
+        log.info("Propuesta de asignación {}: {} clientes asignados, {} sin asignar en {} ms", propuesta.id(),
+                asignaciones.size(), sinAsignar.size(), tiempoMs);
+
+        Map<String, Object> resultado = new HashMap<>();
+        resultado.put("id", asignaciones.isEmpty() ? null : propuesta.id());
+        resultado.put("asignaciones", asignaciones);
+        resultado.put("sinAsignar", sinAsignar);
+        resultado.put("rutas", rutas);
+        resultado.put("maxParadas", maxParadas);
+        resultado.put("tiempoMs", tiempoMs);
+        return resultado;
+    }
+
+    /**
+     * Aplica una propuesta completa o nada: si algún cliente ya recibió ruta o alguna ruta dejó de existir
+     * desde que se generó, no se guarda ninguna asignación y hay que pedir una propuesta nueva.
+     */
+    @Transactional
+    public Map<String, Object> aceptar(String idPropuesta) {
+        Propuesta propuesta = propuestas.get(idPropuesta);
+        if (propuesta != null && vencida(propuesta)) {
+            propuestas.remove(idPropuesta);
+            propuesta = null;
+        }
+        if (propuesta == null) {
+            throw new RuntimeException("Propuesta de asignación no encontrada o vencida: " + idPropuesta);
+        }
+
+        Set<Long> yaAsignados = new HashSet<>(rutaClienteRepository.findAllClienteIds());
+        long conflictos = propuesta.clientesPorRuta().values().stream()
+                .flatMap(List::stream)
+                .filter(yaAsignados::contains)
+                .count();
+        if (conflictos > 0) {
+            throw new IllegalStateException(conflictos
+                    + " clientes de la propuesta ya tienen ruta, genere una propuesta nueva");
+        }
+        for (Long idRuta : propuesta.clientesPorRuta().keySet()) {
+            if (!rutaRepository.existsById(idRuta)) {
+                throw new IllegalStateException("La ruta con ID " + idRuta + " ya no existe, genere una propuesta nueva");
+            }
+        }
+
+        List<RutaCliente> nuevas = new ArrayList<>();
+        for (Map.Entry<Long, List<Long>> entry : propuesta.clientesPorRuta().entrySet()) {
+            int orden = rutaClienteRepository.findById_ruta(entry.getKey()).stream()
+                    .map(RutaCliente::getOrden)
+                    .filter(o -> o != null)
+                    .max(Integer::compare)
+                    .orElse(0);
+            for (Long idCliente : entry.getValue()) {
+                RutaCliente rutaCliente = new RutaCliente();
+                rutaCliente.setId_ruta(entry.getKey());
+                rutaCliente.setId_cliente(idCliente);
+                rutaCliente.setOrden(++orden);
+                nuevas.add(rutaCliente);
+            }
+        }
+        rutaClienteRepository.saveAll(nuevas);
+        propuesta.clientesPorRuta().keySet().forEach(resultadoOptimizacionService::invalidarRuta);
+        propuestas.remove(idPropuesta);
+        log.info("Propuesta de asignación {} aceptada: {} clientes en {} rutas", idPropuesta, nuevas.size(),
+                propuesta.clientesPorRuta().size());
+
+        Map<String, Object> resultado = new HashMap<>();
+        resultado.put("asignados", nuevas.size());
+        resultado.put("rutas", propuesta.clientesPorRuta().size());
+        return resultado;
+    }
+
+    private Evaluacion evaluar(ClienteDTO c, IndiceEspacial<Long> indice, Map<Long, Territorio> territorios,
+            int epoca) {
+        // Distancia al cliente más cercano de cada ruta con cupo, según los vecinos encontrados en la grilla
+        Map<Long, Double> metrosPorRuta = new HashMap<>();
+        for (IndiceEspacial.Vecino<Long> vecino : indice.buscar(c.getLatitud(), c.getLongitud(), vecinos,
+                distanciaMaximaMetros)) {
+            Territorio t = territorios.get(vecino.valor());
+            if (t.paradas < maxParadas) {
+                metrosPorRuta.merge(vecino.valor(), vecino.metros(), Math::min);
+            }
+        }
+        // Las rutas con cupo que no aparecieron entre los vecinos se comparan por su centro
+        for (Territorio t : territorios.values()) {
+            if (t.paradas < maxParadas && !metrosPorRuta.containsKey(t.ruta.getId())) {
+                double metros = HaversineDistanceProvider.haversine(c.getLatitud(), c.getLongitud(),
+                        t.sumaLatitud / t.puntos, t.sumaLongitud / t.puntos);
+                if (metros <= distanciaMaximaMetros) {
+                    metrosPorRuta.put(t.ruta.getId(), metros);
+                }
+            }
+        }
+        if (metrosPorRuta.isEmpty()) {
+            return null;
+        }
+
+        Long mejorRuta = null;
+        double mejor = Double.MAX_VALUE;
+        double segundo = Double.MAX_VALUE;
+        for (Map.Entry<Long, Double> entry : metrosPorRuta.entrySet()) {
+            if (entry.getValue() < mejor) {
+                segundo = mejor;
+                mejor = entry.getValue();
+                mejorRuta = entry.getKey();
+            } else if (entry.getValue() < segundo) {
+                segundo = entry.getValue();
+            }
+        }
+        // Con una sola ruta posible el cliente no tiene alternativa y va primero
+        double arrepentimiento = segundo == Double.MAX_VALUE ? Double.MAX_VALUE : segundo - mejor;
+        return new Evaluacion(c, mejorRuta, mejor, arrepentimiento, epoca);
+    }
+
+    private String motivoSinRuta(Map<Long, Territorio> territorios) {
+        if (territorios.values().stream().allMatch(t -> t.paradas >= maxParadas)) {
+            return "Todas las rutas alcanzaron el máximo de paradas";
+        }
+        return "El cliente está a más de " + Math.round(distanciaMaximaMetros / 1000) + " km de las rutas con cupo";
+    }
+
+    private Map<String, Object> noAsignado(ClienteDTO c, String motivo) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("id_cliente", c.getId());
+        item.put("nombre", c.getNombre());
+        item.put("motivo", motivo);
+        return item;
+    }
+
+    private boolean vencida(Propuesta propuesta) {
+        return propuesta.creada().isBefore(LocalDateTime.now().minusMinutes(retencionMinutos));
+    }
+
+    private void purgarVencidas() {
+        propuestas.values().removeIf(this::vencida);
+    }
+}
@@ -0,0 +1,219 @@
+package com.microservice.entrega.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.microservice.entrega.entity.RegistroEntrega;
+import com.microservice.entrega.repository.ProgramacionEntregaRepository;
+import com.microservice.entrega.repository.ResumenEntregaDiarioRepository;
+import com.microservice.entrega.service.concurrencia.LlamadasParalelas;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Contadores del dashboard (programados y entregados de hoy, kilos y entregas de los últimos 7 días) en
+ * memoria. Se cargan con una consulta por contador y después cada entrega registrada los suma sin ir a la
+ * base; los cambios de programación solo marcan el total de programados para releerlo. Todo se recarga al
+ * cambiar el día o al vencer el refresco, que acota cualquier diferencia con la base. Sin importar cuántos
+ * dashboards consulten, la base recibe a lo sumo una recarga por intervalo.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DashboardService {
+
+    private static final int DIAS_SEMANA = 7;
+
+    private final ProgramacionEntregaRepository programacionEntregaRepository;
+    private final ResumenEntregaDiarioRepository resumenEntregaDiarioRepository;
+    private final LlamadasParalelas llamadasParalelas;
+
+    @Value("${dashboard.refresco-segundos:300}")
+    private long refrescoSegundos = 300;
+
+    private volatile Instantanea instantanea;
+
+    private static class Instantanea {
+        private final LocalDate hoy;
+        private final long cargadaMs;
+        private final List<String> incompleto;
+        private final AtomicLong programados;
+        private final AtomicLong entregados = new AtomicLong();
+        private final DoubleAdder kilos = new DoubleAdder();
+        private final Map<LocalDate, AtomicLong> entregasPorDia = new ConcurrentHashMap<>();
+        private volatile boolean programadosVencido;
+
+        private Instantanea(LocalDate hoy, long cargadaMs, long programados, List<String> incompleto) {
+            this.hoy = hoy;
+            this.cargadaMs = cargadaMs;
+            this.programados = new AtomicLong(programados);
+            this.incompleto = incompleto;
+            for (int i = 0; i < DIAS_SEMANA; i++) {
+                entregasPorDia.put(hoy.minusDays(i), new AtomicLong());
+            }
+        }
+    }
+
+    public Map<String, Object> obtenerEstadisticas() {
+        Instantanea actual = vigente();
+        if (actual.programadosVencido) {
+            actual.programadosVencido = false;
+            Long programados = programacionEntregaRepository.countClientesByFechaProgramada(actual.hoy);
+            actual.programados.set(programados != null ? programados : 0L);
+        }
+        return respuesta(actual);
+    }
+
+    /**
+     * Suma una entrega ya guardada a los contadores, si cae dentro de los días que se muestran.
+     */
+    public void registrarEntrega(RegistroEntrega registro) {
+        Instantanea actual = instantanea;
+        if (actual == null || registro.getHora_entregada() == null) {
+            return;
+        }
+        LocalDate fecha = registro.getHora_entregada().toLocalDate();
+        AtomicLong dia = actual.entregasPorDia.get(fecha);
+        if (dia != null) {
+            dia.incrementAndGet();
+        }
+        if (fecha.equals(actual.hoy)) {
+            actual.entregados.incrementAndGet();
+            actual.kilos.add(valor(registro.getCorriente_entregado()) + valor(registro.getEspecial_entregado()));
+        }
+    }
+
+    /**
+     * La programación de una fecha cambió; el total de hoy se relee en la próxima consulta.
+     */
+    public void programacionCambiada(LocalDate fecha) {
+        Instantanea actual = instantanea;
+        if (actual != null && (fecha == null || fecha.equals(actual.hoy))) {
+            actual.programadosVencido = true;
+        }
+    }
+
+    /**
+     * Descarta los contadores (entregas eliminadas o resumen reconstruido); se recargan en la próxima consulta.
+     */
+    public void invalidar() {
+        instantanea = null;
+    }
+
+    private Instantanea vigente() {
+        Instantanea actual = instantanea;
+        if (!vencida(actual)) {
+            return actual;
+        }
+        synchronized (this) {
+            // Otra consulta pudo recargar mientras se esperaba el bloqueo
+            actual = instantanea;
+            if (vencida(actual)) {
+                actual = cargar();
+                instantanea = actual;
+            }
+            return actual;
+        }
+    }
+
+    private boolean vencida(Instantanea actual) {
+        if (actual == null || !actual.hoy.equals(LocalDate.now())) {
+            return true;
+        }
+        // Una carga incompleta se reintenta en la próxima consulta en vez de servirse todo el intervalo
+        return !actual.incompleto.isEmpty()
+            || System.currentTimeMillis() - actual.cargadaMs > refrescoSegundos * 1000;
+    }
+
+    private Instantanea cargar() {
+        LocalDate hoy = LocalDate.now();
+        LocalDate inicioSemana = hoy.minusDays(DIAS_SEMANA - 1);
+
+        // Las consultas son independientes: van en paralelo y la que falle queda en 0
+        LlamadasParalelas.Grupo llamadas = llamadasParalelas.grupo();
+        CompletableFuture<Long> programadosFuturo = llamadas.enviar("programados",
+            () -> programacionEntregaRepository.countClientesByFechaProgramada(hoy), 0L);
+        CompletableFuture<Long> entregadosFuturo = llamadas.enviar("entregados",
+            () -> resumenEntregaDiarioRepository.countByFecha(hoy), 0L);
+        CompletableFuture<Double> kilosFuturo = llamadas.enviar("kilos",
+            () -> resumenEntregaDiarioRepository.sumKilosByFecha(hoy), 0.0);
+        CompletableFuture<List<Object[]>> semanaFuturo = llamadas.enviar("entregasSemana",
+            () -> resumenEntregaDiarioRepository.countEntregasPorDia(inicioSemana, hoy), List.of());
+        llamadas.esperar();
+
+        Long programados = programadosFuturo.join();
+        Instantanea nueva = new Instantanea(hoy, System.currentTimeMillis(), programados != null ? programados : 0L,
+            llamadas.getFallidas());
+        Long entregados = entregadosFuturo.join();
+        nueva.entregados.set(entregados != null ? entregados : 0L);
+        nueva.kilos.add(valor(kilosFuturo.join()));
+        for (Object[] row : semanaFuturo.join()) {
+            // PostgreSQL devuelve java.sql.Date, necesitamos convertir a LocalDate
+            LocalDate fecha = ((java.sql.Date) row[0]).toLocalDate();
+            AtomicLong dia = nueva.entregasPorDia.get(fecha);
+            if (dia != null) {
+                dia.set(((Number) row[1]).longValue());
+            }
+        }
+        log.debug("Contadores del dashboard recargados para {}", hoy);
+        return nueva;
+    }
+
+    private Map<String, Object> respuesta(Instantanea actual) {
+        Map<String, Object> estadisticas = new HashMap<>();
+
+        Map<String, Object> entregasDelDia = new HashMap<>();
+        entregasDelDia.put("completadas", actual.entregados.get());
+        entregasDelDia.put("total", actual.programados.get());
+        estadisticas.put("entregasDelDia", entregasDelDia);
+        estadisticas.put("productosVendidosHoy", actual.kilos.sum());
+
+        // Entregas de la última semana (7 días incluyendo hoy)
+        List<Map<String, Object>> entregasPorDia = new ArrayList<>();
+        for (int i = DIAS_SEMANA - 1; i >= 0; i--) {
+            LocalDate fecha = actual.hoy.minusDays(i);
+            Map<String, Object> diaData = new HashMap<>();
+            diaData.put("fecha", fecha.toString());
+            diaData.put("dia", obtenerNombreDia(fecha.getDayOfWeek().getValue()));
+            diaData.put("entregas", actual.entregasPorDia.get(fecha).get());
+            entregasPorDia.add(diaData);
+        }
+        estadisticas.put("entregasSemana", entregasPorDia);
+        if (!actual.incompleto.isEmpty()) {
+            estadisticas.put("incompleto", actual.incompleto);
+        }
+
+        return estadisticas;
+    }
+
+    private static double valor(Double numero) {
+        return numero != null ? numero : 0.0;
+    }
+
+    /**
+     * Convierte número de día a nombre en español
+     */
+    private String obtenerNombreDia(int numeroDia) {
+        switch (numeroDia) {
+            case 1: return "Lunes";
+            case 2: return "Martes";
+            case 3: return "Miércoles";
+            case 4: return "Jueves";
+            case 5: return "Viernes";
+            case 6: return "Sábado";
+            case 7: return "Domingo";
+            default: return "";
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package com.microservice.entrega.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.microservice.entrega.entity.DistanciaCache;
+import com.microservice.entrega.repository.DistanciaCacheRepository;
+import com.microservice.entrega.service.distancia.DistanceProvider;
+import com.microservice.entrega.service.distancia.ProveedorNoDisponibleException;
+import com.microservice.entrega.service.distancia.TablaDistancias;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caché persistente de distancias y duraciones entre pares de coordenadas.
+ * Construye las matrices a partir de las celdas conocidas (memoria y luego base de datos)
+ * y solo consulta al proveedor las filas/columnas que faltan. Cada proveedor tiene sus propias celdas.
+ * Si el proveedor no responde, lo que falta se estima con su respaldo sin red y no se persiste.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DistanciaCacheService {
+
+    private final DistanciaCacheRepository distanciaCacheRepository;
+
+    @Value("${osrm.cache.memoria.max-celdas:200000}")
+    private int maxCeldas = 200000;
+
+    // Cada celda guarda { distancia en metros, duración en segundos }; las menos usadas salen primero y,
+    // si se vuelven a pedir, se recuperan de la base
+    private final Map<String, long[]> memoria = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+            return size() > maxCeldas;
+        }
+    };
+
+    @Value("${osrm.cache.decimales:5}")
+    private int decimales = 5;
+
+    /**
+     * Estado de una consulta: las celdas leídas de la base (se usan directo, aunque la memoria ya las haya
+     * descartado), las filas viejas sin duración y las celdas nuevas por guardar, una por clave.
+     */
+    private static final class Consulta {
+        private final Map<String, long[]> leidas = new HashMap<>();
+        private final Map<String, Long> idsSinDuracion = new HashMap<>();
+        private final Map<String, DistanciaCache> nuevas = new LinkedHashMap<>();
+    }
+
+    public TablaDistancias obtenerMatriz(DistanceProvider proveedor, List<double[]> ubicaciones) {
+        int n = ubicaciones.size();
+        List<Integer> todos = IntStream.range(0, n).boxed().toList();
+        if (!proveedor.usaCache()) {
+            return proveedor.calcularTabla(ubicaciones, todos, todos);
+        }
+
+        String nombre = proveedor.getNombre();
+        List<String> claves = ubicaciones.stream().map(this::clave).toList();
+        TablaDistancias matriz = new TablaDistancias(new long[n][n], new long[n][n], new boolean[n][n]);
+
+        Consulta consulta = new Consulta();
+        boolean[][] faltantes = completarDesdeMemoria(nombre, claves, matriz, consulta);
+        if (contar(faltantes) > 0) {
+            cargarDesdeBaseDeDatos(nombre, claves, consulta);
+            faltantes = completarDesdeMemoria(nombre, claves, matriz, consulta);
+        }
+
+        int totalFaltantes = contar(faltantes);
+        if (totalFaltantes == 0) {
+            log.debug("Matriz de {}x{} construida completamente desde caché", n, n);
+            return sinMarcasVacias(matriz);
+        }
+
+        List<Integer> indices = indicesACalcular(faltantes);
+        log.info("Matriz de {}x{} ({}): {} celdas sin caché, consultando {} filas/columnas", n, n,
+                nombre, totalFaltantes, indices.size());
+
+        try {
+            if (indices.size() * 2 >= n) {
+                // Conviene pedir la matriz completa en una sola llamada
+                TablaDistancias completa = proveedor.calcularTabla(ubicaciones, todos, todos);
+                copiar(completa, todos, todos, nombre, claves, matriz, faltantes, consulta);
+            } else {
+                TablaDistancias filas = proveedor.calcularTabla(ubicaciones, indices, todos);
+                copiar(filas, indices, todos, nombre, claves, matriz, faltantes, consulta);
+                TablaDistancias columnas = proveedor.calcularTabla(ubicaciones, todos, indices);
+                copiar(columnas, todos, indices, nombre, claves, matriz, faltantes, consulta);
+            }
+        } catch (ProveedorNoDisponibleException e) {
+            // Las celdas que falten se estiman sin red y no se guardan: la próxima vez se vuelven a pedir
+            TablaDistancias estimada = respaldo(proveedor, e).calcularTabla(ubicaciones, todos, todos);
+            copiar(estimada, todos, todos, null, claves, matriz, faltantes, consulta);
+        } finally {
+            guardar(consulta);
+        }
+        return sinMarcasVacias(matriz);
+    }
+
+    /**
+     * Distancias de pares sueltos (origen, destino) sobre la lista de ubicaciones, sin armar la matriz completa.
+     * Lo que no está en caché se pide agrupado: los pares que comparten origen como una fila, los que comparten
+     * destino como una columna y el resto en un único bloque, así que son a lo sumo unas pocas consultas.
+     */
+    public long[] obtenerDistancias(DistanceProvider proveedor, List<double[]> ubicaciones, List<int[]> pares) {
+        String nombre = proveedor.getNombre();
+        List<String> claves = ubicaciones.stream().map(this::clave).toList();
+        long[] resultado = new long[pares.size()];
+
+        Consulta consulta = new Consulta();
+        List<Integer> faltantes = completarParesDesdeMemoria(proveedor, claves, pares, resultado,
+                IntStream.range(0, pares.size()).boxed().toList(), consulta);
+        if (!faltantes.isEmpty() && proveedor.usaCache()) {
+            Set<String> involucradas = new HashSet<>();
+            for (int p : faltantes) {
+                involucradas.add(claves.get(pares.get(p)[0]));
+                involucradas.add(claves.get(pares.get(p)[1]));
+            }
+            cargarDesdeBaseDeDatos(nombre, new ArrayList<>(involucradas), consulta);
+            faltantes = completarParesDesdeMemoria(proveedor, claves, pares, resultado, faltantes, consulta);
+        }
+        if (faltantes.isEmpty()) {
+            return resultado;
+        }
+
+        List<Integer> restantes = new ArrayList<>(faltantes);
+        while (true) {
+            // La fila (mismo origen) o columna (mismo destino) con más pares pendientes va en una sola consulta
+            List<Integer> grupo = List.of();
+            for (int lado = 0; lado < 2; lado++) {
+                Map<Integer, List<Integer>> grupos = new LinkedHashMap<>();
+                for (int p : restantes) {
+                    grupos.computeIfAbsent(pares.get(p)[lado], k -> new ArrayList<>()).add(p);
+                }
+                for (List<Integer> candidato : grupos.values()) {
+                    if (candidato.size() > grupo.size()) {
+                        grupo = candidato;
+                    }
+                }
+            }
+            if (grupo.size() < 2) {
+                break;
+            }
+            resolverBloque(proveedor, ubicaciones, claves, pares, grupo, resultado, consulta);
+            restantes.removeAll(grupo);
+        }
+        // Lo que queda (por ejemplo los arcos del recorrido) se pide en un único bloque
+        if (!restantes.isEmpty()) {
+            resolverBloque(proveedor, ubicaciones, claves, pares, restantes, resultado, consulta);
+        }
+
+        guardar(consulta);
+        return resultado;
+    }
+
+    /**
+     * Clave de una coordenada redondeada, en formato "latitud,longitud".
+     */
+    public String clave(double[] ubicacion) {
+        return String.format(Locale.ROOT, "%." + decimales + "f,%." + decimales + "f", ubicacion[0], ubicacion[1]);
+    }
+
+    private boolean[][] completarDesdeMemoria(String proveedor, List<String> claves, TablaDistancias matriz,
+            Consulta consulta) {
+        int n = claves.size();
+        boolean[][] faltantes = new boolean[n][n];
+        synchronized (memoria) {
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (claves.get(i).equals(claves.get(j))) {
+                        matriz.distancias()[i][j] = 0L;
+                        matriz.duraciones()[i][j] = 0L;
+                        continue;
+                    }
+                    String clave = claveCelda(proveedor, claves.get(i), claves.get(j));
+                    long[] celda = consulta.leidas.get(clave);
+                    if (celda == null) {
+                        celda = memoria.get(clave);
+                    }
+                    if (celda != null) {
+                        matriz.distancias()[i][j] = celda[0];
+                        matriz.duraciones()[i][j] = celda[1];
+                    } else {
+                        faltantes[i][j] = true;
+                    }
+                }
+            }
+        }
+        return faltantes;
+    }
+
+    private List<Integer> completarParesDesdeMemoria(DistanceProvider proveedor, List<String> claves,
+            List<int[]> pares, long[] resultado, List<Integer> posiciones, Consulta consulta) {
+        List<Integer> faltantes = new ArrayList<>();
+        for (int p : posiciones) {
+            String origen = claves.get(pares.get(p)[0]);
+            String destino = claves.get(pares.get(p)[1]);
+            long[] celda = origen.equals(destino) ? new long[] { 0L, 0L }
+                    : proveedor.usaCache() ? buscar(claveCelda(proveedor.getNombre(), origen, destino), consulta) : null;
+            if (celda != null) {
+                resultado[p] = celda[0];
+            } else {
+                faltantes.add(p);
+            }
+        }
+        return faltantes;
+    }
+
+    private void resolverBloque(DistanceProvider proveedor, List<double[]> ubicaciones, List<String> claves,
+            List<int[]> pares, List<Integer> posiciones, long[] resultado, Consulta consulta) {
+        List<Integer> origenes = posiciones.stream().map(p -> pares.get(p)[0]).distinct().toList();
+        List<Integer> destinos = posiciones.stream().map(p -> pares.get(p)[1]).distinct().toList();
+        TablaDistancias bloque;
+        boolean estimado = false;
+        try {
+            bloque = proveedor.calcularTabla(ubicaciones, origenes, destinos);
+        } catch (ProveedorNoDisponibleException e) {
+            bloque = respaldo(proveedor, e).calcularTabla(ubicaciones, origenes, destinos);
+            estimado = true;
+        }
+        for (int p : posiciones) {
+            int a = origenes.indexOf(pares.get(p)[0]);
+            int b = destinos.indexOf(pares.get(p)[1]);
+            resultado[p] = bloque.distancias()[a][b];
+            if (proveedor.usaCache() && !estimado && bloque.persistible(a, b)) {
+                registrar(proveedor.getNombre(), claves.get(pares.get(p)[0]), claves.get(pares.get(p)[1]),
+                        bloque.distancias()[a][b], bloque.duraciones()[a][b], consulta);
+            }
+        }
+    }
+
+    private DistanceProvider respaldo(DistanceProvider proveedor, ProveedorNoDisponibleException error) {
+        DistanceProvider respaldo = proveedor.getRespaldo();
+        if (respaldo == null) {
+            throw error;
+        }
+        log.warn("{} no disponible, distancias estimadas con {}: {}", proveedor.getNombre(), respaldo.getNombre(),
+                error.getMessage());
+        return respaldo;
+    }
+
+    private void cargarDesdeBaseDeDatos(String proveedor, List<String> claves, Consulta consulta) {
+        try {
+            Set<String> unicas = new HashSet<>(claves);
+            for (DistanciaCache celda : distanciaCacheRepository.findByProveedorAndClaves(proveedor, unicas)) {
+                String clave = claveCelda(proveedor, celda.getOrigen(), celda.getDestino());
+                // Las celdas guardadas antes de registrar duraciones se vuelven a consultar
+                if (celda.getDuracion() != null) {
+                    consulta.leidas.put(clave, new long[] { celda.getDistancia(), celda.getDuracion() });
+                } else {
+                    consulta.idsSinDuracion.put(clave, celda.getId());
+                }
+            }
+            synchronized (memoria) {
+                memoria.putAll(consulta.leidas);
+            }
+        } catch (Exception e) {
+            log.warn("No se pudo leer la caché de distancias: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Elige un conjunto pequeño de índices cuyas filas y columnas cubren todas las celdas faltantes,
+     * tomando primero el índice con más celdas sin resolver.
+     */
+    private List<Integer> indicesACalcular(boolean[][] faltantes) {
+        int n = faltantes.length;
+        boolean[][] pendientes = new boolean[n][];
+        for (int i = 0; i < n; i++) {
+            pendientes[i] = faltantes[i].clone();
+        }
+
+        Set<Integer> elegidos = new LinkedHashSet<>();
+        while (true) {
+            int mejor = -1;
+            int maxPendientes = 0;
+            for (int k = 0; k < n; k++) {
+                int cuenta = 0;
+                for (int j = 0; j < n; j++) {
+                    if (pendientes[k][j]) cuenta++;
+                    if (pendientes[j][k]) cuenta++;
+                }
+                if (cuenta > maxPendientes) {
+                    maxPendientes = cuenta;
+                    mejor = k;
+                }
+            }
+            if (mejor < 0) {
+                break;
+            }
+            elegidos.add(mejor);
+            for (int j = 0; j < n; j++) {
+                pendientes[mejor][j] = false;
+                pendientes[j][mejor] = false;
+            }
+        }
+        return new ArrayList<>(elegidos);
+    }
+
+    private void copiar(TablaDistancias bloque, List<Integer> origenes, List<Integer> destinos, String proveedor,
+            List<String> claves, TablaDistancias matriz, boolean[][] faltantes, Consulta consulta) {
+        for (int a = 0; a < origenes.size(); a++) {
+            int i = origenes.get(a);
+            for (int b = 0; b < destinos.size(); b++) {
+                int j = destinos.get(b);
+                if (!faltantes[i][j]) {
+                    continue;
+                }
+                long distancia = bloque.distancias()[a][b];
+                long duracion = bloque.duraciones()[a][b];
+                matriz.distancias()[i][j] = distancia;
+                matriz.duraciones()[i][j] = duracion;
+                matriz.estimadas()[i][j] = proveedor == null || bloque.estimada(a, b);
+                faltantes[i][j] = false;
+
+                // Las celdas sin camino o estimadas se vuelven a pedir la próxima vez
+                if (proveedor != null && bloque.persistible(a, b)) {
+                    registrar(proveedor, claves.get(i), claves.get(j), distancia, duracion, consulta);
+                }
+            }
+        }
+    }
+
+    private void registrar(String proveedor, String origen, String destino, long distancia, long duracion,
+            Consulta consulta) {
+        String celda = claveCelda(proveedor, origen, destino);
+        synchronized (memoria) {
+            memoria.put(celda, new long[] { distancia, duracion });
+        }
+        // Solo llegan aquí celdas que no estaban en la base al leerla; dos coordenadas con la misma clave
+        // darían la misma celda dos veces
+        if (!consulta.nuevas.containsKey(celda)) {
+            DistanciaCache nueva = new DistanciaCache();
+            nueva.setId(consulta.idsSinDuracion.get(celda));
+            nueva.setProveedor(proveedor);
+            nueva.setOrigen(origen);
+            nueva.setDestino(destino);
+            nueva.setDistancia(distancia);
+            nueva.setDuracion(duracion);
+            consulta.nuevas.put(celda, nueva);
+        }
+    }
+
+    private long[] buscar(String celda, Consulta consulta) {
+        long[] leida = consulta.leidas.get(celda);
+        if (leida != null) {
+            return leida;
+        }
+        synchronized (memoria) {
+            return memoria.get(celda);
+        }
+    }
+
+    int getCeldasEnMemoria() {
+        synchronized (memoria) {
+            return memoria.size();
+        }
+    }
+
+    private void guardar(Consulta consulta) {
+        List<DistanciaCache> nuevas = new ArrayList<>(consulta.nuevas.values());
+        if (nuevas.isEmpty()) {
+            return;
+        }
+        try {
+            distanciaCacheRepository.saveAll(nuevas);
+        } catch (Exception e) {
+            // Otra consulta en paralelo (u otra instancia) pudo guardar algunas de estas celdas y el lote completo
+            // se revierte; se reintenta una vez sin las que ya existen para no perder las demás
+            try {
+                List<DistanciaCache> restantes = sinPersistir(nuevas);
+                if (!restantes.isEmpty()) {
+                    distanciaCacheRepository.saveAll(restantes);
+                }
+                log.debug("{} de {} celdas de distancia ya estaban guardadas", nuevas.size() - restantes.size(),
+                        nuevas.size());
+            } catch (Exception reintento) {
+                log.warn("No se pudieron persistir {} celdas de distancia: {}", nuevas.size(),
+                        reintento.getMessage());
+            }
+        }
+    }
+
+    private List<DistanciaCache> sinPersistir(List<DistanciaCache> nuevas) {
+        String proveedor = nuevas.get(0).getProveedor();
+        Set<String> claves = new HashSet<>();
+        for (DistanciaCache celda : nuevas) {
+            claves.add(celda.getOrigen());
+            claves.add(celda.getDestino());
+        }
+        Set<String> existentes = new HashSet<>();
+        for (DistanciaCache celda : distanciaCacheRepository.findByProveedorAndClaves(proveedor, claves)) {
+            existentes.add(claveCelda(proveedor, celda.getOrigen(), celda.getDestino()));
+        }
+        // Las filas con id son actualizaciones de filas sin duración y siempre se conservan
+        return nuevas.stream()
+                .filter(c -> c.getId() != null || !existentes.contains(claveCelda(proveedor, c.getOrigen(), c.getDestino())))
+                .toList();
+    }
+
+    // Quien recibe la matriz solo ve marcas si alguna celda se estimó con el respaldo
+    private TablaDistancias sinMarcasVacias(TablaDistancias matriz) {
+        return matriz.tieneEstimadas() ? matriz : new TablaDistancias(matriz.distancias(), matriz.duraciones());
+    }
+
+    private int contar(boolean[][] faltantes) {
+        int total = 0;
+        for (boolean[] fila : faltantes) {
+            for (boolean f : fila) {
+                if (f) total++;
+            }
+        }
+        return total;
+    }
+
+    private String claveCelda(String proveedor, String origen, String destino) {
+        return proveedor + ":" + origen + "|" + destino;
+    }
+}
@@ -1,5 +1,6 @@
 package com.microservice.entrega.service;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -12,9 +13,7 @@ import org.springframework.stereotype.Service;
 
 import com.microservice.entrega.client.ClienteServiceClient;
 import com.microservice.entrega.client.InventarioServiceClient;
-import com.microservice.entrega.client.UsuarioServiceClient;
 import com.microservice.entrega.dto.ClienteDTO;
-import com.microservice.entrega.dto.UsuarioDTO;
 import com.microservice.entrega.dto.RegistroEntregaDTO;
 import com.microservice.entrega.entity.SesionReparto;
 import com.microservice.entrega.entity.ProgramacionEntrega;
@@ -24,6 +23,7 @@ import com.microservice.entrega.entity.RutaCliente;
 import com.microservice.entrega.repository.ProgramacionEntregaRepository;
 import com.microservice.entrega.repository.RutaClienteRepository;
 import com.microservice.entrega.repository.RutaRepository;
+import com.microservice.entrega.service.exportacion.EscritorFilas;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -38,13 +38,14 @@ public class EntregaService {
     private final ProgramacionEntregaRepository programacionEntregaRepository;
     private final ClienteServiceClient clienteServiceClient;
     private final InventarioServiceClient inventarioServiceClient;
-    private final UsuarioServiceClient usuarioServiceClient;
+    private final UsuarioCacheService usuarioCacheService;
     
     // Servicios delegados
     private final RutaService rutaService;
     private final ProgramacionService programacionService;
     private final RegistroEntregaService registroEntregaService;
     private final ReporteService reporteService;
+    private final ExportacionService exportacionService;
 
     // Obtener rutas programadas por fecha
     public List<Map<String, Object>> getRutasProgramadasPorFecha(String fecha) {
@@ -92,84 +93,73 @@ public class EntregaService {
     }
 
     /**
-     * Obtiene todas las rutas disponibles para una fecha específica,
-     * usando valores programados cuando existan o valores del día anterior/por
-     * defecto
-     */ // Eliminar
+     * Obtiene todas las rutas disponibles para una fecha específica, con sus clientes, productos
+     * programados y totales. Hace una cantidad fija de consultas sin importar cuántas rutas o clientes
+     * haya (rutas, asignaciones, programaciones de la fecha, un lote de clientes, un lote de lotes y los
+     * drivers desde la caché de usuarios) y arma la respuesta cruzando los resultados en memoria.
+     */
     private List<Map<String, Object>> obtenerTodasLasRutasParaFecha(LocalDate fecha) {
         List<Ruta> todasLasRutas = rutaRepository.findAll();
-        List<Map<String, Object>> resultado = new ArrayList<>();
 
-        for (Ruta ruta : todasLasRutas) {
-            // Obtener todas las programaciones para la ruta y fecha
-            List<ProgramacionEntrega> programacionesFecha = programacionEntregaRepository.findByIdRutaAndFechaProgramada(ruta.getId(), fecha);
+        Map<Long, List<Long>> clientesPorRuta = new HashMap<>();
+        for (RutaCliente rc : rutaClienteRepository.findAll()) {
+            clientesPorRuta.computeIfAbsent(rc.getId_ruta(), k -> new ArrayList<>()).add(rc.getId_cliente());
+        }
 
+        // Programaciones de la fecha agrupadas por ruta y cliente
+        Map<Long, Map<Long, List<ProgramacionEntrega>>> programacionesPorRuta = new HashMap<>();
+        for (ProgramacionEntrega prog : programacionEntregaRepository.findByFechaProgramada(fecha)) {
+            programacionesPorRuta
+                .computeIfAbsent(prog.getId_ruta(), k -> new HashMap<>())
+                .computeIfAbsent(prog.getId_cliente(), k -> new ArrayList<>())
+                .add(prog);
+        }
+
+        Map<Long, ClienteDTO> clientesPorId = obtenerClientesPorId(clientesPorRuta.values().stream()
+            .flatMap(List::stream)
+            .distinct()
+            .toList());
+        List<Long> idsDrivers = todasLasRutas.stream()
+            .map(Ruta::getId_driver)
+            .filter(id -> id != null)
+            .distinct()
+            .toList();
+        Map<Long, String> nombresDrivers = idsDrivers.isEmpty()
+            ? Map.of()
+            : usuarioCacheService.obtenerNombres(idsDrivers);
+        Map<Long, Map<String, Object>> lotesInfoMap = obtenerLotesPorId(programacionesPorRuta.values().stream()
+            .flatMap(m -> m.values().stream())
+            .flatMap(List::stream)
+            .map(ProgramacionEntrega::getId_lote)
+            .filter(id -> id != null)
+            .distinct()
+            .toList());
+
+        List<Map<String, Object>> resultado = new ArrayList<>();
+        for (Ruta ruta : todasLasRutas) {
             Map<String, Object> rutaData = new HashMap<>();
             Map<String, Object> rutaInfo = new HashMap<>();
             rutaInfo.put("id", ruta.getId());
             rutaInfo.put("nombre", ruta.getNombre());
             rutaInfo.put("id_driver", ruta.getId_driver());
-            
-            // Obtener nombre del driver si está asignado
-            if (ruta.getId_driver() != null) {
-                try {
-                    UsuarioDTO driver = usuarioServiceClient.getDriverById(ruta.getId_driver());
-                    rutaInfo.put("nombreDriver", driver.getNombre());
-                } catch (Exception e) {
-                    rutaInfo.put("nombreDriver", null);
-                }
-            } else {
-                rutaInfo.put("nombreDriver", null);
-            }
-            
+            rutaInfo.put("nombreDriver", ruta.getId_driver() != null ? nombresDrivers.get(ruta.getId_driver()) : null);
+
             rutaData.put("ruta", rutaInfo);
             rutaData.put("fecha", fecha.toString());
 
+            Map<Long, List<ProgramacionEntrega>> programacionesPorCliente =
+                programacionesPorRuta.getOrDefault(ruta.getId(), Map.of());
             List<Map<String, Object>> clientesData = new ArrayList<>();
+            double totalCorriente = 0.0;
+            double totalEspecial = 0.0;
 
-            // Agrupa programaciones por cliente
-            Map<Long, List<ProgramacionEntrega>> programacionesPorCliente = new HashMap<>();
-            for (ProgramacionEntrega prog : programacionesFecha) {
-                programacionesPorCliente
-                    .computeIfAbsent(prog.getId_cliente(), k -> new ArrayList<>())
-                    .add(prog);
-            }
-
-            // Obtener todos los clientes de la ruta
-            List<Long> clientesDeLaRuta = rutaClienteRepository.findByIdRuta(ruta.getId())
-                .stream()
-                .map(RutaCliente::getId_cliente)
-                .toList();
-
-            for (Long idCliente : clientesDeLaRuta) {
+            for (Long idCliente : clientesPorRuta.getOrDefault(ruta.getId(), List.of())) {
                 Map<String, Object> clienteData = new HashMap<>();
-
-                // Obtener información del cliente
-                try {
-                    List<Long> clienteIds = List.of(idCliente);
-                    List<ClienteDTO> clientes = clienteServiceClient.getClientesByIds(clienteIds);
-                    
-                    if (!clientes.isEmpty()) {
-                        clienteData.put("cliente", clientes.get(0));
-                    } else {
-                        Map<String, Object> clienteDefault = new HashMap<>();
-                        clienteDefault.put("id", idCliente);
-                        clienteDefault.put("nombre", "Cliente " + idCliente);
-                        clienteDefault.put("nombreNegocio", "Cliente " + idCliente);
-                        clienteDefault.put("direccion", "Dirección no disponible");
-                        clienteData.put("cliente", clienteDefault);
-                    }
-                } catch (Exception e) {
-                    Map<String, Object> clienteDefault = new HashMap<>();
-                    clienteDefault.put("id", idCliente);
-                    clienteDefault.put("nombre", "Cliente " + idCliente);
-                    clienteDefault.put("nombreNegocio", "Cliente " + idCliente);
-                    clienteDefault.put("direccion", "Dirección no disponible");
-                    clienteData.put("cliente", clienteDefault);
-                }
+                ClienteDTO cliente = clientesPorId.get(idCliente);
+                clienteData.put("cliente", cliente != null ? cliente : clienteNoDisponible(idCliente));
 
                 // Programaciones para este cliente en la fecha
-                List<ProgramacionEntrega> productosProgramados = programacionesPorCliente.getOrDefault(idCliente, new ArrayList<>());
+                List<ProgramacionEntrega> productosProgramados = programacionesPorCliente.getOrDefault(idCliente, List.of());
 
                 // Info de ruta para el cliente
                 Map<String, Object> rutaClienteInfo = new HashMap<>();
@@ -178,62 +168,33 @@ public class EntregaService {
                 rutaClienteInfo.put("fecha_programada", fecha.toString());
                 rutaClienteInfo.put("estado", productosProgramados.isEmpty() ? "Sin programar" : productosProgramados.get(0).getEstado());
 
-                // Si tienes campo orden en RutaCliente, puedes obtenerlo así:
-                Optional<ProgramacionEntrega> rutaClienteOpt = programacionEntregaRepository.findByIdRuta(ruta.getId())
-                    .stream()
-                    .filter(rc -> rc.getId_cliente().equals(idCliente))
+                // Orden de visita guardado por el optimizador para esta fecha
+                Optional<Integer> ordenOpt = productosProgramados.stream()
+                    .map(ProgramacionEntrega::getOrden)
+                    .filter(orden -> orden != null)
                     .findFirst();
-                rutaClienteInfo.put("orden", rutaClienteOpt.map(ProgramacionEntrega::getOrden).orElse(0));
+                rutaClienteInfo.put("orden", ordenOpt.orElse(0));
 
                 // Lista de productos programados
                 List<Map<String, Object>> productosList = new ArrayList<>();
                 double kgCorrienteTotal = 0.0;
                 double kgEspecialTotal = 0.0;
-                
-                // Recolecta todos los IDs de lote para hacer batch query
-                List<Long> lotesIds = productosProgramados.stream()
-                    .map(ProgramacionEntrega::getId_lote)
-                    .filter(id -> id != null)
-                    .distinct()
-                    .toList();
-
-                Map<Long, Map<String, Object>> lotesInfoMap = new HashMap<>();
-                if (!lotesIds.isEmpty()) {
-                    try {
-                        ResponseEntity<List<Map<String, Object>>> responseLotesBatch = 
-                            inventarioServiceClient.getLotesConProductosBatch(lotesIds);
-                        
-                        if (responseLotesBatch.getStatusCode().is2xxSuccessful() && 
-                            responseLotesBatch.getBody() != null) {
-                            
-                            // Crear mapa para búsqueda rápida
-                            for (Map<String, Object> loteInfo : responseLotesBatch.getBody()) {
-                                Long idLote = Long.valueOf(loteInfo.get("idLote").toString());
-                                lotesInfoMap.put(idLote, loteInfo);
-                            }
-                        }
-                    } catch (Exception e) {
-                        // Log error pero continuar con datos limitados
-                        log.warn("Error al obtener lotes batch: {}", e.getMessage());
-                    }
-                }
-                
+
                 for (ProgramacionEntrega prod : productosProgramados) {
                     Map<String, Object> prodMap = new HashMap<>();
-                    
+
                     prodMap.put("id_lote", prod.getId_lote());
                     prodMap.put("nombreProducto", prod.getNombreProducto());
                     prodMap.put("cantidad_kg", prod.getCantidadProducto());
                     prodMap.put("estado", prod.getEstado());
 
-                    // Obtener info del mapa precargado
-                    Map<String, Object> loteInfo = lotesInfoMap.get(prod.getId_lote());
+                    Map<String, Object> loteInfo = prod.getId_lote() != null ? lotesInfoMap.get(prod.getId_lote()) : null;
                     if (loteInfo != null) {
                         prodMap.put("id_producto", loteInfo.get("idProducto"));
-                        
+
                         String tipoProducto = (String) loteInfo.get("tipoProducto");
                         prodMap.put("tipoProducto", tipoProducto);
-                        
+
                         // Sumar kg según el tipo de producto
                         Integer cantidadKgInt = prod.getCantidadProducto();
                         if (cantidadKgInt != null) {
@@ -248,14 +209,14 @@ public class EntregaService {
 
                     productosList.add(prodMap);
                 }
-                
-                // Agregar los totales calculados a rutaClienteInfo
+
                 rutaClienteInfo.put("kg_corriente_programado", kgCorrienteTotal);
                 rutaClienteInfo.put("kg_especial_programado", kgEspecialTotal);
-                
+                totalCorriente += kgCorrienteTotal;
+                totalEspecial += kgEspecialTotal;
+
                 clienteData.put("rutaCliente", rutaClienteInfo);
                 clienteData.put("productosProgramados", productosList);
-
                 clientesData.add(clienteData);
             }
 
@@ -265,27 +226,11 @@ public class EntregaService {
                 Map<String, Object> rutaClienteA = (Map<String, Object>) a.get("rutaCliente");
                 @SuppressWarnings("unchecked")
                 Map<String, Object> rutaClienteB = (Map<String, Object>) b.get("rutaCliente");
-                Integer ordenA = (Integer) rutaClienteA.get("orden");
-                Integer ordenB = (Integer) rutaClienteB.get("orden");
-                if (ordenA == null) ordenA = 0;
-                if (ordenB == null) ordenB = 0;
-                return ordenA.compareTo(ordenB);
+                return ((Integer) rutaClienteA.get("orden")).compareTo((Integer) rutaClienteB.get("orden"));
             });
 
             rutaData.put("clientes", clientesData);
             rutaData.put("totalClientes", clientesData.size());
-
-            // Calcular totales
-            double totalCorriente = 0.0;
-            double totalEspecial = 0.0;
-            for (Map<String, Object> clienteData : clientesData) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> rutaCliente = (Map<String, Object>) clienteData.get("rutaCliente");
-                Double kgCorriente = (Double) rutaCliente.get("kg_corriente_programado");
-                Double kgEspecial = (Double) rutaCliente.get("kg_especial_programado");
-                totalCorriente += (kgCorriente != null ? kgCorriente : 0.0);
-                totalEspecial += (kgEspecial != null ? kgEspecial : 0.0);
-            }
             rutaData.put("totalKgCorriente", totalCorriente);
             rutaData.put("totalKgEspecial", totalEspecial);
 
@@ -295,6 +240,56 @@ public class EntregaService {
         return resultado;
     }
 
+    /**
+     * Todos los clientes en una sola llamada; si cliente-service falla se responde con datos por defecto.
+     */
+    private Map<Long, ClienteDTO> obtenerClientesPorId(List<Long> idClientes) {
+        Map<Long, ClienteDTO> clientesPorId = new HashMap<>();
+        if (idClientes.isEmpty()) {
+            return clientesPorId;
+        }
+        try {
+            for (ClienteDTO cliente : clienteServiceClient.getClientesByIds(idClientes)) {
+                clientesPorId.put(cliente.getId(), cliente);
+            }
+        } catch (Exception e) {
+            log.warn("Error al obtener clientes batch: {}", e.getMessage());
+        }
+        return clientesPorId;
+    }
+
+    private Map<Long, Map<String, Object>> obtenerLotesPorId(List<Long> lotesIds) {
+        Map<Long, Map<String, Object>> lotesInfoMap = new HashMap<>();
+        if (lotesIds.isEmpty()) {
+            return lotesInfoMap;
+        }
+        try {
+            ResponseEntity<List<Map<String, Object>>> responseLotesBatch =
+                inventarioServiceClient.getLotesConProductosBatch(lotesIds);
+
+            if (responseLotesBatch.getStatusCode().is2xxSuccessful() &&
+                responseLotesBatch.getBody() != null) {
+                for (Map<String, Object> loteInfo : responseLotesBatch.getBody()) {
+                    Long idLote = Long.valueOf(loteInfo.get("idLote").toString());
+                    lotesInfoMap.put(idLote, loteInfo);
+                }
+            }
+        } catch (Exception e) {
+            // Log error pero continuar con datos limitados
+            log.warn("Error al obtener lotes batch: {}", e.getMessage());
+        }
+        return lotesInfoMap;
+    }
+
+    private Map<String, Object> clienteNoDisponible(Long idCliente) {
+        Map<String, Object> clienteDefault = new HashMap<>();
+        clienteDefault.put("id", idCliente);
+        clienteDefault.put("nombre", "Cliente " + idCliente);
+        clienteDefault.put("nombreNegocio", "Cliente " + idCliente);
+        clienteDefault.put("direccion", "Dirección no disponible");
+        return clienteDefault;
+    }
+
     /**
      * Crear nueva ruta con los datos proporcionados
      */
@@ -345,6 +340,28 @@ public class EntregaService {
         return reporteService.generarReporteVentas(fechaInicio, fechaFin);
     }
 
+    /**
+     * Exportar el detalle de entregas del periodo fila por fila en el formato del escritor
+     */
+    public long exportarEntregas(LocalDate fechaInicio, LocalDate fechaFin, Long idRuta, EscritorFilas escritor)
+            throws IOException {
+        return exportacionService.exportarEntregas(fechaInicio, fechaFin, idRuta, escritor);
+    }
+
+    /**
+     * Exportar el detalle de ventas del periodo fila por fila en el formato del escritor
+     */
+    public long exportarVentas(LocalDate fechaInicio, LocalDate fechaFin, EscritorFilas escritor) throws IOException {
+        return exportacionService.exportarVentas(fechaInicio, fechaFin, escritor);
+    }
+
+    /**
+     * Reconstruir el resumen diario de entregas que leen los reportes
+     */
+    public Map<String, Object> reconstruirResumenDiario(LocalDate fechaInicio, LocalDate fechaFin) {
+        return reporteService.reconstruirResumenDiario(fechaInicio, fechaFin);
+    }
+
     /**
      * Eliminar una ruta y todas sus relaciones
      */
@@ -0,0 +1,223 @@
+package com.microservice.entrega.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.microservice.entrega.client.ClienteServiceClient;
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.entity.ProgramacionEntrega;
+import com.microservice.entrega.entity.RegistroEntrega;
+import com.microservice.entrega.entity.Ruta;
+import com.microservice.entrega.entity.RutaCliente;
+import com.microservice.entrega.entity.SesionReparto;
+import com.microservice.entrega.repository.ProgramacionEntregaRepository;
+import com.microservice.entrega.repository.RegistroEntregaRepository;
+import com.microservice.entrega.repository.RutaClienteRepository;
+import com.microservice.entrega.repository.RutaRepository;
+import com.microservice.entrega.repository.SesionRepartoRepository;
+import com.microservice.entrega.service.distancia.DistanceProviderRegistry;
+import com.microservice.entrega.service.distancia.TablaDistancias;
+import com.microservice.entrega.service.seguimiento.Posicion;
+import com.microservice.entrega.service.seguimiento.RecorridoEnVivo;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ETAs en vivo de las sesiones de reparto en curso. El recorrido y la matriz de duraciones se cargan una
+ * vez por sesión (al iniciar la ruta o con el primer evento); después cada entrega registrada o posición
+ * GPS solo actualiza el estado en memoria de la sesión.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EtaEnVivoService {
+
+    private final SesionRepartoRepository sesionRepartoRepository;
+    private final RutaRepository rutaRepository;
+    private final RutaClienteRepository rutaClienteRepository;
+    private final ProgramacionEntregaRepository programacionEntregaRepository;
+    private final RegistroEntregaRepository registroEntregaRepository;
+    private final ClienteServiceClient clienteServiceClient;
+    private final DistanceProviderRegistry distanceProviderRegistry;
+    private final DistanciaCacheService distanciaCacheService;
+
+    // Peso de la última entrega en el ritmo observado del driver
+    @Value("${eta.ritmo.suavizado:0.3}")
+    private double suavizado = 0.3;
+
+    @Value("${eta.sesion.inactividad-minutos:120}")
+    private long inactividadMinutos = 120;
+
+    // Tras un fallo al cargar una sesión no se reintenta en cada ping
+    @Value("${eta.sesion.reintento-minutos:5}")
+    private long reintentoMinutos = 5;
+
+    private final Map<Long, RecorridoEnVivo> sesiones = new ConcurrentHashMap<>();
+    private final Map<Long, LocalDateTime> sinSeguimiento = new ConcurrentHashMap<>();
+
+    public void iniciarSesion(Long idSesion) {
+        sinSeguimiento.remove(idSesion);
+        obtener(idSesion);
+    }
+
+    public void terminarSesion(Long idSesion) {
+        sesiones.remove(idSesion);
+        sinSeguimiento.remove(idSesion);
+    }
+
+    public void registrarEntrega(Long idSesion, Long idCliente, LocalDateTime hora) {
+        RecorridoEnVivo recorrido = obtener(idSesion);
+        if (recorrido != null && !recorrido.registrarEntrega(idCliente, hora != null ? hora : LocalDateTime.now())) {
+            log.debug("Cliente {} no está en el recorrido de la sesión {}", idCliente, idSesion);
+        }
+    }
+
+    public void registrarPosicion(Posicion posicion) {
+        RecorridoEnVivo recorrido = obtener(posicion.idSesion());
+        if (recorrido != null) {
+            recorrido.registrarPosicion(posicion.latitud(), posicion.longitud(), posicion.hora());
+        }
+    }
+
+    /**
+     * Recorrido en memoria de la sesión (lo carga si hace falta), o null si la sesión no tiene seguimiento.
+     */
+    public RecorridoEnVivo getRecorrido(Long idSesion) {
+        return obtener(idSesion);
+    }
+
+    /**
+     * ETAs vigentes de una sesión, o null si la sesión no tiene seguimiento.
+     */
+    public Map<String, Object> getEtas(Long idSesion) {
+        RecorridoEnVivo recorrido = sesiones.get(idSesion);
+        return recorrido != null ? respuesta(recorrido) : null;
+    }
+
+    public List<Map<String, Object>> getEtasActivas() {
+        List<Map<String, Object>> activas = new ArrayList<>();
+        for (RecorridoEnVivo recorrido : sesiones.values()) {
+            activas.add(respuesta(recorrido));
+        }
+        return activas;
+    }
+
+    @Scheduled(fixedDelayString = "${eta.sesion.limpieza-ms:600000}")
+    public void limpiar() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(inactividadMinutos);
+        sesiones.values().removeIf(r -> r.getActualizado().isBefore(limite));
+        LocalDateTime limiteFallos = LocalDateTime.now().minusMinutes(reintentoMinutos);
+        sinSeguimiento.values().removeIf(fallo -> fallo.isBefore(limiteFallos));
+    }
+
+    private RecorridoEnVivo obtener(Long idSesion) {
+        RecorridoEnVivo recorrido = sesiones.get(idSesion);
+        if (recorrido != null || sinSeguimiento.containsKey(idSesion)) {
+            return recorrido;
+        }
+        try {
+            recorrido = cargar(idSesion);
+        } catch (Exception e) {
+            log.warn("No se pudo cargar el recorrido de la sesión {} para las ETAs: {}", idSesion, e.getMessage());
+            recorrido = null;
+        }
+        if (recorrido == null) {
+            sinSeguimiento.put(idSesion, LocalDateTime.now());
+            return null;
+        }
+        RecorridoEnVivo existente = sesiones.putIfAbsent(idSesion, recorrido);
+        return existente != null ? existente : recorrido;
+    }
+
+    /**
+     * Arma el recorrido del día de la sesión: orden de ProgramacionEntrega (el del último plan optimizado)
+     * o, si no lo tiene, el orden base de RutaCliente. Reaplica las entregas ya registradas.
+     */
+    private RecorridoEnVivo cargar(Long idSesion) {
+        SesionReparto sesion = sesionRepartoRepository.findById(idSesion)
+                .orElseThrow(() -> new RuntimeException("Sesión de reparto no encontrada con ID: " + idSesion));
+        if (sesion.getHora_retorno() != null) {
+            return null;
+        }
+        Ruta ruta = rutaRepository.findByIdDriver(sesion.getId_driver())
+                .orElseThrow(() -> new RuntimeException("El driver de la sesión " + idSesion + " no tiene ruta"));
+
+        Map<Long, Integer> orden = new HashMap<>();
+        for (ProgramacionEntrega pe : programacionEntregaRepository.findByIdRutaAndFechaProgramada(ruta.getId(),
+                sesion.getFecha())) {
+            orden.merge(pe.getId_cliente(), pe.getOrden() != null ? pe.getOrden() : Integer.MAX_VALUE, Math::min);
+        }
+        if (orden.isEmpty()) {
+            return null;
+        }
+        if (orden.containsValue(Integer.MAX_VALUE)) {
+            Map<Long, Integer> ordenBase = new HashMap<>();
+            for (RutaCliente rc : rutaClienteRepository.findById_ruta(ruta.getId())) {
+                if (rc.getOrden() != null) {
+                    ordenBase.put(rc.getId_cliente(), rc.getOrden());
+                }
+            }
+            orden.replaceAll((idCliente, o) -> ordenBase.getOrDefault(idCliente, Integer.MAX_VALUE));
+        }
+
+        List<ClienteDTO> clientes = new ArrayList<>(clienteServiceClient.getClientesByIds(new ArrayList<>(orden.keySet())));
+        clientes.removeIf(c -> c.getLatitud() == null || c.getLongitud() == null);
+        clientes.sort(Comparator.comparing((ClienteDTO c) -> orden.get(c.getId())).thenComparing(ClienteDTO::getId));
+
+        List<double[]> ubicaciones = new ArrayList<>();
+        ubicaciones.add(new double[] { ruta.getLatitud(), ruta.getLongitud() });
+        long[] servicio = new long[clientes.size() + 1];
+        for (int i = 0; i < clientes.size(); i++) {
+            ClienteDTO c = clientes.get(i);
+            ubicaciones.add(new double[] { c.getLatitud(), c.getLongitud() });
+            servicio[i + 1] = c.getTiempoServicioMinutos() != null ? c.getTiempoServicioMinutos() * 60L : 0L;
+        }
+        TablaDistancias tabla = distanciaCacheService.obtenerMatriz(
+                distanceProviderRegistry.resolver(ruta.getProveedor_distancias()), ubicaciones);
+
+        RecorridoEnVivo recorrido = new RecorridoEnVivo(idSesion, ruta.getId(),
+                clientes.stream().map(ClienteDTO::getId).toList(), tabla.duraciones(), servicio,
+                ubicaciones.toArray(new double[0][]), suavizado, LocalDateTime.now());
+
+        List<RegistroEntrega> entregas = new ArrayList<>(registroEntregaRepository.findByIdPedido(idSesion));
+        entregas.removeIf(e -> e.getId_cliente() == null || e.getHora_entregada() == null);
+        entregas.sort(Comparator.comparing(RegistroEntrega::getHora_entregada));
+        for (RegistroEntrega entrega : entregas) {
+            recorrido.registrarEntrega(entrega.getId_cliente(), entrega.getHora_entregada());
+        }
+        log.info("Seguimiento de ETAs iniciado para la sesión {} (ruta {}, {} paradas)", idSesion, ruta.getId(),
+                clientes.size());
+        return recorrido;
+    }
+
+    private Map<String, Object> respuesta(RecorridoEnVivo recorrido) {
+        List<Map<String, Object>> paradas = new ArrayList<>();
+        for (RecorridoEnVivo.EtaParada parada : recorrido.getEtas()) {
+            Map<String, Object> p = new LinkedHashMap<>();
+            p.put("id_cliente", parada.idCliente());
+            p.put("orden", parada.orden());
+            p.put("eta", parada.eta());
+            paradas.add(p);
+        }
+        Map<String, Object> respuesta = new HashMap<>();
+        respuesta.put("id_sesion", recorrido.getIdSesion());
+        respuesta.put("id_ruta", recorrido.getIdRuta());
+        respuesta.put("paradas", paradas);
+        respuesta.put("pendientes", paradas.size());
+        respuesta.put("totalParadas", recorrido.getTotalParadas());
+        respuesta.put("ritmo", Math.round(recorrido.getRitmo() * 100) / 100.0);
+        respuesta.put("actualizado", recorrido.getActualizado());
+        return respuesta;
+    }
+}
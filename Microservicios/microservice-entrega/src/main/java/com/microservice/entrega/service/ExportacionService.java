@@ -0,0 +1,136 @@
+package com.microservice.entrega.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.microservice.entrega.service.exportacion.EscritorFilas;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exportación del detalle de entregas y ventas. Las filas se leen con un cursor de solo avance y se
+ * escriben en el destino a medida que llegan, sin armar listas: el consumo de memoria no depende del rango.
+ * PostgreSQL solo usa el cursor con fetch size dentro de una transacción, por eso los métodos son transaccionales.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExportacionService {
+
+    private static final List<String> COLUMNAS_ENTREGAS = List.of("Fecha", "Hora", "Sesión", "Ruta", "Nombre ruta",
+            "Cliente", "Tipo", "Kg corriente", "Kg especial", "Kg total", "Comentario");
+
+    private static final List<String> COLUMNAS_VENTAS = List.of("Fecha", "Hora", "Sesión", "Ruta", "Cliente", "Tipo",
+            "Kg corriente", "Kg especial", "Monto corriente", "Monto especial", "Monto total");
+
+    private static final String SELECT_ENTREGAS = "SELECT re.hora_entregada, re.id_pedido, re.id_ruta, r.nombre, re.id_cliente, "
+            + "re.tipo, re.corriente_entregado, re.especial_entregado, re.comentario "
+            + "FROM registro_entrega re LEFT JOIN ruta r ON r.id = re.id_ruta "
+            + "WHERE re.hora_entregada >= ? AND re.hora_entregada < ? ";
+
+    private static final String SELECT_VENTAS = "SELECT re.hora_entregada, re.id_pedido, re.id_ruta, re.id_cliente, re.tipo, "
+            + "re.corriente_entregado, re.especial_entregado, re.monto_corriente, re.monto_especial, re.monto_total "
+            + "FROM registro_entrega re "
+            + "WHERE re.hora_entregada >= ? AND re.hora_entregada < ? "
+            + "ORDER BY re.hora_entregada, re.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${reportes.exportacion.fetch-size:1000}")
+    private int fetchSize = 1000;
+
+    @Transactional(readOnly = true)
+    public long exportarEntregas(LocalDate fechaInicio, LocalDate fechaFin, Long idRuta, EscritorFilas escritor)
+            throws IOException {
+        validarRango(fechaInicio, fechaFin);
+        String sql = SELECT_ENTREGAS + (idRuta != null ? "AND re.id_ruta = ? " : "") + "ORDER BY re.hora_entregada, re.id";
+        escritor.encabezado(COLUMNAS_ENTREGAS);
+        long filas = recorrer(sql, fechaInicio, fechaFin, idRuta, rs -> {
+            Double corriente = numero(rs, "corriente_entregado");
+            Double especial = numero(rs, "especial_entregado");
+            LocalDateTime hora = rs.getTimestamp("hora_entregada").toLocalDateTime();
+            escritor.fila(new Object[] {
+                    hora.toLocalDate(), hora, rs.getObject("id_pedido"), rs.getObject("id_ruta"), rs.getString("nombre"),
+                    rs.getObject("id_cliente"), rs.getString("tipo"), corriente, especial,
+                    (corriente != null ? corriente : 0.0) + (especial != null ? especial : 0.0), rs.getString("comentario")
+            });
+        });
+        escritor.terminar();
+        log.info("Exportación de entregas del {} al {}: {} filas", fechaInicio, fechaFin, filas);
+        return filas;
+    }
+
+    @Transactional(readOnly = true)
+    public long exportarVentas(LocalDate fechaInicio, LocalDate fechaFin, EscritorFilas escritor) throws IOException {
+        validarRango(fechaInicio, fechaFin);
+        escritor.encabezado(COLUMNAS_VENTAS);
+        long filas = recorrer(SELECT_VENTAS, fechaInicio, fechaFin, null, rs -> {
+            LocalDateTime hora = rs.getTimestamp("hora_entregada").toLocalDateTime();
+            escritor.fila(new Object[] {
+                    hora.toLocalDate(), hora, rs.getObject("id_pedido"), rs.getObject("id_ruta"), rs.getObject("id_cliente"),
+                    rs.getString("tipo"), numero(rs, "corriente_entregado"), numero(rs, "especial_entregado"),
+                    numero(rs, "monto_corriente"), numero(rs, "monto_especial"), numero(rs, "monto_total")
+            });
+        });
+        escritor.terminar();
+        log.info("Exportación de ventas del {} al {}: {} filas", fechaInicio, fechaFin, filas);
+        return filas;
+    }
+
+    private interface Fila {
+        void escribir(ResultSet rs) throws Exception;
+    }
+
+    private long recorrer(String sql, LocalDate fechaInicio, LocalDate fechaFin, Long idRuta, Fila fila) throws IOException {
+        long[] total = { 0 };
+        try {
+            jdbcTemplate.query(conexion -> {
+                PreparedStatement ps = conexion.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                ps.setTimestamp(1, Timestamp.valueOf(fechaInicio.atStartOfDay()));
+                ps.setTimestamp(2, Timestamp.valueOf(fechaFin.plusDays(1).atStartOfDay()));
+                if (idRuta != null) {
+                    ps.setLong(3, idRuta);
+                }
+                return ps;
+            }, rs -> {
+                try {
+                    fila.escribir(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Error al exportar la fila: " + e.getMessage(), e);
+                }
+                total[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            // El cliente cortó la descarga o falló la escritura de la respuesta
+            throw e.getCause();
+        }
+        return total[0];
+    }
+
+    private static Double numero(ResultSet rs, String columna) throws SQLException {
+        double valor = rs.getDouble(columna);
+        return rs.wasNull() ? null : valor;
+    }
+
+    private static void validarRango(LocalDate fechaInicio, LocalDate fechaFin) {
+        if (fechaFin.isBefore(fechaInicio)) {
+            throw new IllegalArgumentException("La fecha de fin no puede ser anterior a la de inicio");
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.microservice.entrega.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.microservice.entrega.entity.VisitaCliente;
+import com.microservice.entrega.repository.VisitaClienteRepository;
+import com.microservice.entrega.service.seguimiento.EventoGeocerca;
+import com.microservice.entrega.service.seguimiento.GeocercasSesion;
+import com.microservice.entrega.service.seguimiento.Posicion;
+import com.microservice.entrega.service.seguimiento.RecorridoEnVivo;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Detección de llegadas y salidas en las ubicaciones de los clientes de las sesiones en curso. Las
+ * geocercas se arman en memoria con el mismo recorrido que usan las ETAs en vivo, así que cada posición
+ * se evalúa sin consultar la base. La hora de llegada completa RegistroEntrega.hora_entregada cuando el
+ * dispositivo no la envía, y cada salida guarda una VisitaCliente con el tiempo que el driver estuvo ahí.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GeocercaService {
+
+    private final EtaEnVivoService etaEnVivoService;
+    private final VisitaClienteRepository visitaClienteRepository;
+
+    @Value("${geocerca.radio-llegada-metros:40}")
+    private double radioLlegada = 40;
+
+    @Value("${geocerca.radio-salida-metros:80}")
+    private double radioSalida = 80;
+
+    // Posiciones con un error mayor a este no alcanzan para decidir si el driver llegó
+    @Value("${geocerca.precision-maxima-metros:50}")
+    private double precisionMaxima = 50;
+
+    @Value("${eta.sesion.inactividad-minutos:120}")
+    private long inactividadMinutos = 120;
+
+    private final Map<Long, GeocercasSesion> sesiones = new ConcurrentHashMap<>();
+
+    public List<EventoGeocerca> procesar(Posicion posicion) {
+        if (posicion.precisionMetros() != null && posicion.precisionMetros() > precisionMaxima) {
+            return List.of();
+        }
+        GeocercasSesion geocercas = obtener(posicion.idSesion());
+        if (geocercas == null) {
+            return List.of();
+        }
+        List<EventoGeocerca> eventos = geocercas.procesar(posicion.latitud(), posicion.longitud(), posicion.hora());
+        for (EventoGeocerca evento : eventos) {
+            log.debug("Geocerca: {} del driver de la sesión {} al cliente {}", evento.tipo(), evento.idSesion(),
+                    evento.idCliente());
+            if (evento.tipo() == EventoGeocerca.Tipo.SALIDA) {
+                guardarVisita(geocercas, evento);
+            }
+        }
+        return eventos;
+    }
+
+    /**
+     * Hora en que el driver llegó al cliente en la sesión, o null si no se detectó.
+     */
+    public LocalDateTime getHoraLlegada(Long idSesion, Long idCliente) {
+        GeocercasSesion geocercas = sesiones.get(idSesion);
+        return geocercas != null ? geocercas.getLlegada(idCliente) : null;
+    }
+
+    public List<EventoGeocerca> getEventos(Long idSesion) {
+        GeocercasSesion geocercas = sesiones.get(idSesion);
+        return geocercas != null ? geocercas.getEventos() : List.of();
+    }
+
+    /**
+     * Permanencia observada por cliente en los últimos días, para ajustar los tiempos de servicio del optimizador.
+     */
+    public List<Map<String, Object>> getPermanencias(int dias) {
+        List<Map<String, Object>> permanencias = new ArrayList<>();
+        for (Object[] fila : visitaClienteRepository.resumenPermanencias(LocalDateTime.now().minusDays(dias))) {
+            double promedio = fila[1] != null ? ((Number) fila[1]).doubleValue() : 0.0;
+            Map<String, Object> p = new HashMap<>();
+            p.put("id_cliente", fila[0]);
+            p.put("promedioSegundos", Math.round(promedio));
+            p.put("minimoSegundos", fila[2]);
+            p.put("maximoSegundos", fila[3]);
+            p.put("visitas", fila[4]);
+            p.put("tiempoServicioSugeridoMinutos", (int) Math.ceil(promedio / 60.0));
+            permanencias.add(p);
+        }
+        return permanencias;
+    }
+
+    public void terminarSesion(Long idSesion) {
+        sesiones.remove(idSesion);
+    }
+
+    @Scheduled(fixedDelayString = "${eta.sesion.limpieza-ms:600000}")
+    public void limpiar() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(inactividadMinutos);
+        sesiones.values().removeIf(g -> g.getUltimaPosicion() == null || g.getUltimaPosicion().isBefore(limite));
+    }
+
+    private GeocercasSesion obtener(Long idSesion) {
+        GeocercasSesion geocercas = sesiones.get(idSesion);
+        if (geocercas != null) {
+            return geocercas;
+        }
+        RecorridoEnVivo recorrido = etaEnVivoService.getRecorrido(idSesion);
+        if (recorrido == null) {
+            return null;
+        }
+        return sesiones.computeIfAbsent(idSesion, id -> new GeocercasSesion(id, recorrido, radioLlegada, radioSalida));
+    }
+
+    private void guardarVisita(GeocercasSesion geocercas, EventoGeocerca salida) {
+        try {
+            VisitaCliente visita = new VisitaCliente();
+            visita.setId_sesion(salida.idSesion());
+            visita.setId_ruta(geocercas.getIdRuta());
+            visita.setId_cliente(salida.idCliente());
+            visita.setLlegada(geocercas.getLlegada(salida.idCliente()));
+            visita.setSalida(salida.hora());
+            visita.setPermanencia_segundos(salida.permanenciaSegundos());
+            visitaClienteRepository.save(visita);
+        } catch (Exception e) {
+            log.warn("No se pudo guardar la visita al cliente {} de la sesión {}: {}", salida.idCliente(),
+                    salida.idSesion(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.microservice.entrega.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.entity.Ruta;
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+import com.microservice.entrega.service.distancia.OsrmGateway;
+import com.microservice.entrega.service.distancia.ProveedorNoDisponibleException;
+import com.microservice.entrega.service.geometria.FormatoGeometria;
+import com.microservice.entrega.service.geometria.Polyline;
+import com.microservice.entrega.service.geometria.SimplificadorGeometria;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Geometría de las rutas optimizadas. Pide el recorrido al servicio "route" de OSRM, se queda solo con
+ * distancia, duración y una línea simplificada (Douglas-Peucker), y guarda el resultado por secuencia de paradas.
+ * La respuesta conserva la forma de OSRM ({"routes":[{distance, duration, geometry}]}) para no romper a los clientes.
+ * Si OSRM no está disponible se devuelve una línea recta entre paradas con distancia estimada ("estimada": true).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GeometriaRutaService {
+
+    private final ObjectMapper objectMapper;
+    private final OsrmGateway osrmGateway;
+    private final HaversineDistanceProvider haversine;
+
+    // Desviación máxima de la línea simplificada respecto de la original (0 = sin simplificar)
+    @Value("${rutas.geometria.tolerancia-metros:5}")
+    private double toleranciaMetros = 5;
+
+    @Value("${rutas.geometria.cache.max-entradas:500}")
+    private int maxEntradas = 500;
+
+    // Geometrías por secuencia de coordenadas (origen, paradas, origen), las menos usadas salen primero
+    private final Map<String, String> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > maxEntradas;
+        }
+    };
+
+    /**
+     * Geometría GeoJSON simplificada del recorrido origen -> clientes en orden -> origen.
+     */
+    public String obtenerRuta(List<ClienteDTO> orderedClients, Ruta origen) {
+        StringBuilder coords = new StringBuilder();
+        // Agrega primero el punto de partida (driver)
+        coords.append(origen.getLongitud()).append(",").append(origen.getLatitud());
+        // Luego los clientes en el orden óptimo
+        for (ClienteDTO c : orderedClients) {
+            coords.append(";").append(c.getLongitud()).append(",").append(c.getLatitud());
+        }
+        coords.append(";").append(origen.getLongitud()).append(",").append(origen.getLatitud());
+
+        String clave = coords.toString();
+        synchronized (cache) {
+            String guardada = cache.get(clave);
+            if (guardada != null) {
+                return guardada;
+            }
+        }
+
+        String respuesta;
+        try {
+            respuesta = osrmGateway.consultar("route", clave, "?overview=full&geometries=geojson");
+        } catch (ProveedorNoDisponibleException e) {
+            // La estimación no se guarda aquí ni en los resultados de optimización (ver esEstimada): cuando
+            // OSRM vuelva se pide la geometría real
+            log.warn("Geometría de ruta estimada en línea recta: {}", e.getMessage());
+            return lineaRecta(orderedClients, origen);
+        }
+
+        String simplificada = simplificar(respuesta);
+        synchronized (cache) {
+            cache.put(clave, simplificada);
+        }
+        return simplificada;
+    }
+
+    /**
+     * Si la geometría es la línea recta que se arma cuando OSRM no responde.
+     */
+    public boolean esEstimada(String osrmRoute) {
+        if (osrmRoute == null) {
+            return false;
+        }
+        try {
+            return objectMapper.readTree(osrmRoute).path("estimada").asBoolean(false);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Deja la respuesta de OSRM solo con la primera ruta (distancia, duración y geometría simplificada).
+     */
+    public String simplificar(String respuestaOsrm) {
+        if (respuestaOsrm == null) {
+            return null;
+        }
+        try {
+            JsonNode ruta = objectMapper.readTree(respuestaOsrm).path("routes").path(0);
+            if (ruta.isMissingNode()) {
+                return respuestaOsrm;
+            }
+            List<double[]> puntos = leerCoordenadas(ruta.path("geometry").path("coordinates"));
+            List<double[]> simplificados = SimplificadorGeometria.simplificar(puntos, toleranciaMetros);
+            log.debug("Geometría simplificada de {} a {} puntos", puntos.size(), simplificados.size());
+
+            ObjectNode geometria = objectMapper.createObjectNode();
+            geometria.put("type", "LineString");
+            ArrayNode coordenadas = geometria.putArray("coordinates");
+            for (double[] punto : simplificados) {
+                coordenadas.addArray().add(punto[1]).add(punto[0]);
+            }
+            return serializar(ruta, geometria);
+        } catch (Exception e) {
+            log.warn("No se pudo simplificar la geometría de OSRM: {}", e.getMessage());
+            return respuestaOsrm;
+        }
+    }
+
+    /**
+     * Convierte una geometría GeoJSON (como la guarda el servicio) al formato pedido por el cliente.
+     */
+    public String convertir(String osrmRoute, FormatoGeometria formato) {
+        if (osrmRoute == null || formato == null || formato == FormatoGeometria.GEOJSON) {
+            return osrmRoute;
+        }
+        try {
+            JsonNode raiz = objectMapper.readTree(osrmRoute);
+            JsonNode ruta = raiz.path("routes").path(0);
+            if (ruta.isMissingNode()) {
+                return osrmRoute;
+            }
+            List<double[]> puntos = leerCoordenadas(ruta.path("geometry").path("coordinates"));
+            ObjectNode respuesta = respuesta(ruta, objectMapper.getNodeFactory().textNode(Polyline.codificar(puntos)));
+            if (raiz.path("estimada").asBoolean(false)) {
+                respuesta.put("estimada", true);
+            }
+            return objectMapper.writeValueAsString(respuesta);
+        } catch (Exception e) {
+            throw new RuntimeException("No se pudo convertir la geometría de la ruta: " + e.getMessage());
+        }
+    }
+
+    private String lineaRecta(List<ClienteDTO> orderedClients, Ruta origen) {
+        List<double[]> puntos = new ArrayList<>();
+        puntos.add(new double[] { origen.getLatitud(), origen.getLongitud() });
+        for (ClienteDTO c : orderedClients) {
+            puntos.add(new double[] { c.getLatitud(), c.getLongitud() });
+        }
+        puntos.add(puntos.get(0));
+
+        long distancia = 0;
+        ObjectNode geometria = objectMapper.createObjectNode();
+        geometria.put("type", "LineString");
+        ArrayNode coordenadas = geometria.putArray("coordinates");
+        for (int i = 0; i < puntos.size(); i++) {
+            coordenadas.addArray().add(puntos.get(i)[1]).add(puntos.get(i)[0]);
+            if (i > 0) {
+                distancia += haversine.distanciaVial(puntos.get(i - 1), puntos.get(i));
+            }
+        }
+
+        ObjectNode ruta = objectMapper.createObjectNode();
+        ruta.put("distance", distancia);
+        ruta.put("duration", haversine.duracion(distancia));
+        try {
+            return objectMapper.writeValueAsString(respuesta(ruta, geometria).put("estimada", true));
+        } catch (Exception e) {
+            throw new RuntimeException("No se pudo armar la geometría estimada: " + e.getMessage());
+        }
+    }
+
+    private List<double[]> leerCoordenadas(JsonNode coordinates) {
+        List<double[]> puntos = new ArrayList<>(coordinates.size());
+        for (JsonNode punto : coordinates) {
+            // GeoJSON usa [longitud, latitud]
+            puntos.add(new double[] { punto.get(1).asDouble(), punto.get(0).asDouble() });
+        }
+        return puntos;
+    }
+
+    private String serializar(JsonNode ruta, JsonNode geometria) throws Exception {
+        return objectMapper.writeValueAsString(respuesta(ruta, geometria));
+    }
+
+    private ObjectNode respuesta(JsonNode ruta, JsonNode geometria) {
+        ObjectNode resumen = objectMapper.createObjectNode();
+        resumen.set("distance", ruta.path("distance"));
+        resumen.set("duration", ruta.path("duration"));
+        resumen.set("geometry", geometria);
+
+        ObjectNode respuesta = objectMapper.createObjectNode();
+        respuesta.put("code", "Ok");
+        respuesta.putArray("routes").add(resumen);
+        return respuesta;
+    }
+}
@@ -0,0 +1,246 @@
+package com.microservice.entrega.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.ortools.Loader;
+import com.google.ortools.constraintsolver.Assignment;
+import com.google.ortools.constraintsolver.FirstSolutionStrategy;
+import com.google.ortools.constraintsolver.LocalSearchMetaheuristic;
+import com.google.ortools.constraintsolver.RoutingIndexManager;
+import com.google.ortools.constraintsolver.RoutingModel;
+import com.google.ortools.constraintsolver.RoutingSearchParameters;
+import com.google.ortools.constraintsolver.main;
+import com.google.protobuf.Duration;
+import com.microservice.entrega.client.ClienteServiceClient;
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.entity.ProgramacionEntrega;
+import com.microservice.entrega.entity.Ruta;
+import com.microservice.entrega.repository.ProgramacionEntregaRepository;
+import com.microservice.entrega.repository.RutaRepository;
+import com.microservice.entrega.service.distancia.DistanceProvider;
+import com.microservice.entrega.service.distancia.DistanceProviderRegistry;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Optimización de toda la flota para una fecha: resuelve un único VRP capacitado
+ * con un vehículo por driver (cada uno parte y vuelve al origen de su ruta) y
+ * propone reasignaciones de clientes entre rutas.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OptimizacionFlotaService {
+    static {
+        Loader.loadNativeLibraries();
+    }
+
+    // Los kilos se modelan en gramos para trabajar con enteros en OR-Tools
+    private static final long GRAMOS_POR_KG = 1000L;
+
+    private final RutaRepository rutaRepository;
+    private final ProgramacionEntregaRepository programacionEntregaRepository;
+    private final ClienteServiceClient clienteServiceClient;
+    private final DistanciaCacheService distanciaCacheService;
+    private final DistanceProviderRegistry distanceProviderRegistry;
+
+    @Value("${flota.capacidad.kg-corriente:500}")
+    private double capacidadKgCorriente = 500;
+
+    @Value("${flota.capacidad.kg-especial:500}")
+    private double capacidadKgEspecial = 500;
+
+    @Value("${flota.tiempo-limite-segundos:10}")
+    private long tiempoLimiteSegundos = 10;
+
+    // Penalización por dejar un cliente sin atender (metros equivalentes)
+    @Value("${flota.penalizacion-no-atendido:10000000}")
+    private long penalizacionNoAtendido = 10_000_000L;
+
+    public Map<String, Object> optimizarFlota(LocalDate fecha, String proveedor) {
+        // Un vehículo por driver: la primera ruta con coordenadas de origen de cada driver
+        Map<Long, Ruta> rutaPorDriver = new LinkedHashMap<>();
+        for (Ruta ruta : rutaRepository.findAll()) {
+            if (ruta.getId_driver() != null && ruta.getLatitud() != null && ruta.getLongitud() != null) {
+                rutaPorDriver.putIfAbsent(ruta.getId_driver(), ruta);
+            }
+        }
+        List<Ruta> vehiculos = new ArrayList<>(rutaPorDriver.values());
+
+        // Demanda por cliente (una programación por producto)
+        List<ProgramacionEntrega> programaciones = programacionEntregaRepository.findByFechaProgramada(fecha);
+        Map<Long, double[]> kgPorCliente = new LinkedHashMap<>();
+        Map<Long, Long> rutaActualPorCliente = new HashMap<>();
+        for (ProgramacionEntrega prog : programaciones) {
+            double[] kg = kgPorCliente.computeIfAbsent(prog.getId_cliente(), k -> new double[2]);
+            kg[0] += prog.getKg_corriente_programado() != null ? prog.getKg_corriente_programado() : 0.0;
+            kg[1] += prog.getKg_especial_programado() != null ? prog.getKg_especial_programado() : 0.0;
+            rutaActualPorCliente.putIfAbsent(prog.getId_cliente(), prog.getId_ruta());
+        }
+
+        Map<String, Object> resultado = new HashMap<>();
+        resultado.put("fecha", fecha.toString());
+        if (vehiculos.isEmpty() || kgPorCliente.isEmpty()) {
+            resultado.put("rutas", new ArrayList<>());
+            resultado.put("reasignaciones", new ArrayList<>());
+            resultado.put("noAtendidos", new ArrayList<>());
+            resultado.put("message", vehiculos.isEmpty()
+                    ? "No hay rutas con driver y origen configurado"
+                    : "No hay entregas programadas para esta fecha");
+            return resultado;
+        }
+
+        List<ClienteDTO> clientes = clienteServiceClient.getClientesByIds(new ArrayList<>(kgPorCliente.keySet()))
+                .stream()
+                .filter(c -> c.getLatitud() != null && c.getLongitud() != null)
+                .sorted((c1, c2) -> c1.getId().compareTo(c2.getId()))
+                .toList();
+
+        // Nodos: primero un depósito por vehículo, luego los clientes
+        int numVehiculos = vehiculos.size();
+        int size = numVehiculos + clientes.size();
+        List<double[]> locations = new ArrayList<>();
+        int[] starts = new int[numVehiculos];
+        int[] ends = new int[numVehiculos];
+        for (int v = 0; v < numVehiculos; v++) {
+            Ruta ruta = vehiculos.get(v);
+            locations.add(new double[] { ruta.getLatitud(), ruta.getLongitud() });
+            starts[v] = v;
+            ends[v] = v;
+        }
+        long[] demandaCorriente = new long[size];
+        long[] demandaEspecial = new long[size];
+        for (int i = 0; i < clientes.size(); i++) {
+            ClienteDTO c = clientes.get(i);
+            locations.add(new double[] { c.getLatitud(), c.getLongitud() });
+            double[] kg = kgPorCliente.get(c.getId());
+            demandaCorriente[numVehiculos + i] = Math.round(kg[0] * GRAMOS_POR_KG);
+            demandaEspecial[numVehiculos + i] = Math.round(kg[1] * GRAMOS_POR_KG);
+        }
+
+        DistanceProvider distanceProvider = distanceProviderRegistry.resolver(proveedor);
+        long[][] distanceMatrix = distanciaCacheService.obtenerMatriz(distanceProvider, locations).distancias();
+
+        RoutingIndexManager manager = new RoutingIndexManager(size, numVehiculos, starts, ends);
+        RoutingModel routing = new RoutingModel(manager);
+
+        final int transitCallbackIndex = routing.registerTransitCallback((long fromIndex, long toIndex) -> {
+            int fromNode = manager.indexToNode(fromIndex);
+            int toNode = manager.indexToNode(toIndex);
+            return distanceMatrix[fromNode][toNode];
+        });
+        routing.setArcCostEvaluatorOfAllVehicles(transitCallbackIndex);
+
+        // Dimensiones de capacidad: kg corriente y kg especial por vehículo
+        long[] capacidadesCorriente = new long[numVehiculos];
+        long[] capacidadesEspecial = new long[numVehiculos];
+        Arrays.fill(capacidadesCorriente, Math.round(capacidadKgCorriente * GRAMOS_POR_KG));
+        Arrays.fill(capacidadesEspecial, Math.round(capacidadKgEspecial * GRAMOS_POR_KG));
+
+        final int corrienteCallbackIndex = routing.registerUnaryTransitCallback(
+                (long fromIndex) -> demandaCorriente[manager.indexToNode(fromIndex)]);
+        routing.addDimensionWithVehicleCapacity(corrienteCallbackIndex, 0, capacidadesCorriente, true, "KgCorriente");
+
+        final int especialCallbackIndex = routing.registerUnaryTransitCallback(
+                (long fromIndex) -> demandaEspecial[manager.indexToNode(fromIndex)]);
+        routing.addDimensionWithVehicleCapacity(especialCallbackIndex, 0, capacidadesEspecial, true, "KgEspecial");
+
+        // Si la flota no alcanza, se permite dejar clientes fuera con una penalización alta
+        for (int node = numVehiculos; node < size; node++) {
+            routing.addDisjunction(new long[] { manager.nodeToIndex(node) }, penalizacionNoAtendido);
+        }
+
+        RoutingSearchParameters searchParameters = main.defaultRoutingSearchParameters().toBuilder()
+                .setFirstSolutionStrategy(FirstSolutionStrategy.Value.PATH_CHEAPEST_ARC)
+                .setLocalSearchMetaheuristic(LocalSearchMetaheuristic.Value.GUIDED_LOCAL_SEARCH)
+                .setTimeLimit(Duration.newBuilder().setSeconds(tiempoLimiteSegundos).build())
+                .build();
+
+        long inicio = System.currentTimeMillis();
+        Assignment solution = routing.solveWithParameters(searchParameters);
+        log.info("Optimización de flota {} ({} vehículos, {} clientes) resuelta en {} ms", fecha, numVehiculos,
+                clientes.size(), System.currentTimeMillis() - inicio);
+
+        if (solution == null) {
+            throw new RuntimeException("No se encontró solución para la flota en la fecha " + fecha);
+        }
+
+        Map<Long, Ruta> rutasPorId = vehiculos.stream().collect(Collectors.toMap(Ruta::getId, Function.identity()));
+        List<Map<String, Object>> rutas = new ArrayList<>();
+        List<Map<String, Object>> reasignaciones = new ArrayList<>();
+        Set<Long> atendidos = new HashSet<>();
+        long distanciaTotal = 0;
+
+        for (int v = 0; v < numVehiculos; v++) {
+            Ruta ruta = vehiculos.get(v);
+            List<ClienteDTO> orderedClients = new ArrayList<>();
+            double kgCorriente = 0.0;
+            double kgEspecial = 0.0;
+            long distancia = 0;
+
+            long index = routing.start(v);
+            while (!routing.isEnd(index)) {
+                int nodeIndex = manager.indexToNode(index);
+                if (nodeIndex >= numVehiculos) {
+                    ClienteDTO cliente = clientes.get(nodeIndex - numVehiculos);
+                    orderedClients.add(cliente);
+                    atendidos.add(cliente.getId());
+                    kgCorriente += kgPorCliente.get(cliente.getId())[0];
+                    kgEspecial += kgPorCliente.get(cliente.getId())[1];
+
+                    Long rutaActual = rutaActualPorCliente.get(cliente.getId());
+                    if (!ruta.getId().equals(rutaActual)) {
+                        Map<String, Object> reasignacion = new HashMap<>();
+                        reasignacion.put("id_cliente", cliente.getId());
+                        reasignacion.put("nombreCliente", cliente.getNombre());
+                        reasignacion.put("id_ruta_actual", rutaActual);
+                        reasignacion.put("rutaActual", rutaActual != null && rutasPorId.containsKey(rutaActual)
+                                ? rutasPorId.get(rutaActual).getNombre() : null);
+                        reasignacion.put("id_ruta_propuesta", ruta.getId());
+                        reasignacion.put("rutaPropuesta", ruta.getNombre());
+                        reasignaciones.add(reasignacion);
+                    }
+                }
+                long previousIndex = index;
+                index = solution.value(routing.nextVar(index));
+                distancia += routing.getArcCostForVehicle(previousIndex, index, v);
+            }
+            distanciaTotal += distancia;
+
+            Map<String, Object> rutaData = new HashMap<>();
+            rutaData.put("id_ruta", ruta.getId());
+            rutaData.put("nombre", ruta.getNombre());
+            rutaData.put("id_driver", ruta.getId_driver());
+            rutaData.put("orderedClients", orderedClients);
+            rutaData.put("distanciaMetros", distancia);
+            rutaData.put("kgCorriente", kgCorriente);
+            rutaData.put("kgEspecial", kgEspecial);
+            rutas.add(rutaData);
+        }
+
+        List<Long> noAtendidos = kgPorCliente.keySet().stream()
+                .filter(id -> !atendidos.contains(id))
+                .toList();
+
+        resultado.put("rutas", rutas);
+        resultado.put("reasignaciones", reasignaciones);
+        resultado.put("noAtendidos", noAtendidos);
+        resultado.put("distanciaTotalMetros", distanciaTotal);
+        resultado.put("proveedor", distanceProvider.getNombre());
+        return resultado;
+    }
+}
@@ -0,0 +1,168 @@
+package com.microservice.entrega.service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.microservice.entrega.config.FeignClientInterceptor;
+import com.microservice.entrega.config.PoolOptimizacion;
+import com.microservice.entrega.service.optimizacion.PerfilBusqueda;
+import com.microservice.entrega.service.optimizacion.TrabajoOptimizacion;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cola de trabajos de optimización de rutas. Las resoluciones corren en un pool acotado
+ * (optimizacionExecutor) y no en los hilos de Tomcat. Un envío idéntico a un trabajo aún en curso
+ * devuelve ese mismo trabajo en vez de encolar otro.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OptimizacionJobService {
+
+    private final RutaService rutaService;
+    private final PoolOptimizacion optimizacionExecutor;
+
+    private final Map<String, TrabajoOptimizacion> trabajos = new ConcurrentHashMap<>();
+    // clave del trabajo -> id del trabajo en cola o en proceso
+    private final Map<String, String> enCurso = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+
+    @Value("${optimizacion.jobs.retencion-minutos:30}")
+    private long retencionMinutos = 30;
+
+    @Value("${optimizacion.jobs.sse-timeout-ms:300000}")
+    private long sseTimeoutMs = 300000;
+
+    public TrabajoOptimizacion enviar(Long idRuta, LocalDate fecha, String proveedor, PerfilBusqueda perfil) {
+        purgarFinalizados();
+        String clave = idRuta + "|" + fecha + "|" + (proveedor != null ? proveedor : "") + "|" + perfil;
+        // El request termina antes que el trabajo, así que el token se captura ahora
+        String token = FeignClientInterceptor.tokenActual();
+
+        synchronized (lock) {
+            String idExistente = enCurso.get(clave);
+            if (idExistente != null && trabajos.containsKey(idExistente)) {
+                log.debug("Trabajo de optimización {} reutilizado para {}", idExistente, clave);
+                return trabajos.get(idExistente);
+            }
+
+            TrabajoOptimizacion trabajo = new TrabajoOptimizacion(UUID.randomUUID().toString(), clave, idRuta,
+                    fecha, proveedor, perfil);
+            trabajos.put(trabajo.getId(), trabajo);
+            enCurso.put(clave, trabajo.getId());
+            try {
+                trabajo.setFuturo(optimizacionExecutor.submit(() -> ejecutar(trabajo, token)));
+            } catch (RejectedExecutionException e) {
+                trabajos.remove(trabajo.getId());
+                enCurso.remove(clave);
+                throw new IllegalStateException("La cola de optimización está llena, intente nuevamente más tarde");
+            }
+            log.info("Trabajo de optimización {} encolado para la ruta {} (fecha {}, perfil {})", trabajo.getId(),
+                    idRuta, fecha, perfil);
+            return trabajo;
+        }
+    }
+
+    public TrabajoOptimizacion obtener(String id) {
+        TrabajoOptimizacion trabajo = trabajos.get(id);
+        if (trabajo == null) {
+            throw new RuntimeException("Trabajo de optimización no encontrado: " + id);
+        }
+        return trabajo;
+    }
+
+    /**
+     * Cancela un trabajo. Si aún estaba en cola no llega a ejecutarse; si ya estaba resolviendo,
+     * el solver nativo no se puede interrumpir y su resultado se descarta.
+     */
+    public TrabajoOptimizacion cancelar(String id) {
+        TrabajoOptimizacion trabajo = obtener(id);
+        if (trabajo.cancelar()) {
+            if (trabajo.getFuturo() != null) {
+                trabajo.getFuturo().cancel(true);
+                optimizacionExecutor.purge();
+            }
+            liberar(trabajo);
+            notificar(trabajo);
+            log.info("Trabajo de optimización {} cancelado", id);
+        }
+        return trabajo;
+    }
+
+    /**
+     * Suscribe un cliente a los cambios de estado del trabajo (Server-Sent Events).
+     */
+    public SseEmitter suscribir(String id) {
+        TrabajoOptimizacion trabajo = obtener(id);
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        trabajo.getSuscriptores().add(emitter);
+        emitter.onCompletion(() -> trabajo.getSuscriptores().remove(emitter));
+        emitter.onTimeout(() -> trabajo.getSuscriptores().remove(emitter));
+        emitter.onError(e -> trabajo.getSuscriptores().remove(emitter));
+
+        enviarEstado(emitter, trabajo);
+        return emitter;
+    }
+
+    private void ejecutar(TrabajoOptimizacion trabajo, String token) {
+        if (!trabajo.iniciar()) {
+            return;
+        }
+        notificar(trabajo);
+        long inicio = System.currentTimeMillis();
+        try {
+            Map<String, Object> resultado = FeignClientInterceptor.conToken(token, () -> rutaService
+                    .optimizarRuta(trabajo.getIdRuta(), trabajo.getFecha(), trabajo.getProveedor(), trabajo.getPerfil()));
+            trabajo.completar(resultado);
+            log.info("Trabajo de optimización {} completado en {} ms", trabajo.getId(),
+                    System.currentTimeMillis() - inicio);
+        } catch (Exception e) {
+            log.error("Error en el trabajo de optimización {}: {}", trabajo.getId(), e.getMessage(), e);
+            trabajo.fallar(e.getMessage());
+        } finally {
+            liberar(trabajo);
+            notificar(trabajo);
+        }
+    }
+
+    private void liberar(TrabajoOptimizacion trabajo) {
+        synchronized (lock) {
+            enCurso.remove(trabajo.getClave(), trabajo.getId());
+        }
+    }
+
+    private void notificar(TrabajoOptimizacion trabajo) {
+        for (SseEmitter emitter : trabajo.getSuscriptores()) {
+            enviarEstado(emitter, trabajo);
+        }
+    }
+
+    private void enviarEstado(SseEmitter emitter, TrabajoOptimizacion trabajo) {
+        try {
+            emitter.send(SseEmitter.event().name("estado").data(trabajo.resumen()));
+            if (trabajo.getEstado().esFinal()) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // El cliente cerró la conexión
+            trabajo.getSuscriptores().remove(emitter);
+        }
+    }
+
+    private void purgarFinalizados() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(retencionMinutos);
+        trabajos.values().removeIf(t -> t.getEstado().esFinal() && t.getFinalizado() != null
+                && t.getFinalizado().isBefore(limite));
+    }
+}
@@ -0,0 +1,240 @@
+package com.microservice.entrega.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservice.entrega.config.FeignClientInterceptor;
+import com.microservice.entrega.repository.ProgramacionEntregaRepository;
+import com.microservice.entrega.security.JwtUtils;
+import com.microservice.entrega.service.optimizacion.PerfilBusqueda;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pre-optimización nocturna: resuelve con el perfil NOCTURNO todas las rutas con entregas programadas
+ * para el día siguiente, de modo que en la mañana el plan ya esté en la caché de resultados.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PreOptimizacionNocturnaService {
+
+    private final ProgramacionEntregaRepository programacionEntregaRepository;
+    private final RutaService rutaService;
+    private final JwtUtils jwtUtils;
+    private final ObjectMapper objectMapper;
+
+    @Value("${optimizacion.nocturna.habilitada:true}")
+    private boolean habilitada = true;
+
+    // Rutas resueltas en paralelo (0 = un hilo por núcleo)
+    @Value("${optimizacion.nocturna.hilos:0}")
+    private int hilos = 0;
+
+    // Tiempo total disponible para el lote; las rutas que no alcancen quedan para resolverse a demanda
+    @Value("${optimizacion.nocturna.presupuesto-minutos:60}")
+    private long presupuestoMinutos = 60;
+
+    private volatile Map<String, Object> ultimoReporte;
+
+    // Evita dos lotes simultáneos (el programado y uno lanzado a mano)
+    private final AtomicBoolean enEjecucion = new AtomicBoolean(false);
+
+    // Hilo propio para los lotes lanzados sin esperar: duran minutos y no deben ocupar el ForkJoinPool común
+    private final ExecutorService segundoPlano = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "pre-optimizacion-nocturna");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    @Scheduled(cron = "${optimizacion.nocturna.cron:0 0 2 * * *}")
+    public void preOptimizarRutasDeManana() {
+        if (!habilitada) {
+            return;
+        }
+        try {
+            preOptimizar(LocalDate.now().plusDays(1));
+        } catch (IllegalStateException e) {
+            log.warn("Pre-optimización nocturna omitida: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> preOptimizar(LocalDate fecha) {
+        if (!enEjecucion.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una pre-optimización en curso");
+        }
+        try {
+            return ejecutar(fecha);
+        } finally {
+            enEjecucion.set(false);
+        }
+    }
+
+    /**
+     * Lanza el lote sin esperar su resultado; devuelve false si ya hay uno en curso.
+     */
+    public boolean iniciarEnSegundoPlano(LocalDate fecha) {
+        if (!enEjecucion.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            segundoPlano.execute(() -> {
+                try {
+                    ejecutar(fecha);
+                } catch (Exception e) {
+                    log.error("Error en la pre-optimización de {}: {}", fecha, e.getMessage(), e);
+                } finally {
+                    enEjecucion.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            enEjecucion.set(false);
+            throw new IllegalStateException("El servicio se está deteniendo, no se puede iniciar la pre-optimización");
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        segundoPlano.shutdownNow();
+    }
+
+    private Map<String, Object> ejecutar(LocalDate fecha) {
+        List<Long> idRutas = programacionEntregaRepository.findIdRutasByFechaProgramada(fecha);
+        log.info("Pre-optimización nocturna para {}: {} rutas con entregas programadas", fecha, idRutas.size());
+
+        // No hay request de usuario: las llamadas a otros microservicios usan un token de servicio
+        String token = "Bearer " + jwtUtils.generarTokenServicio(presupuestoMinutos + 5);
+        int tamano = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(tamano, idRutas.size())));
+
+        long inicio = System.currentTimeMillis();
+        long limite = inicio + TimeUnit.MINUTES.toMillis(presupuestoMinutos);
+        Map<Long, Future<Map<String, Object>>> futuros = new LinkedHashMap<>();
+        for (Long idRuta : idRutas) {
+            futuros.put(idRuta, pool.submit(() -> FeignClientInterceptor.conToken(token,
+                    () -> optimizarRuta(idRuta, fecha))));
+        }
+        pool.shutdown();
+
+        List<Map<String, Object>> rutas = new ArrayList<>();
+        for (Map.Entry<Long, Future<Map<String, Object>>> entry : futuros.entrySet()) {
+            Map<String, Object> metricas;
+            try {
+                long restante = Math.max(0, limite - System.currentTimeMillis());
+                metricas = entry.getValue().get(restante, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                entry.getValue().cancel(true);
+                metricas = metricasError(entry.getKey(), "SIN_TIEMPO", "Presupuesto de tiempo agotado");
+            } catch (Exception e) {
+                metricas = metricasError(entry.getKey(), "ERROR", e.getMessage());
+            }
+            rutas.add(metricas);
+        }
+        pool.shutdownNow();
+
+        Map<String, Object> reporte = resumir(fecha, rutas, System.currentTimeMillis() - inicio);
+        ultimoReporte = reporte;
+        log.info("Pre-optimización nocturna para {} terminada: {} de {} rutas en {} ms, {} m en total", fecha,
+                reporte.get("exitosas"), idRutas.size(), reporte.get("tiempoTotalMs"),
+                reporte.get("distanciaTotalMetros"));
+        return reporte;
+    }
+
+    public Map<String, Object> getUltimoReporte() {
+        return ultimoReporte;
+    }
+
+    private Map<String, Object> optimizarRuta(Long idRuta, LocalDate fecha) {
+        long inicio = System.currentTimeMillis();
+        try {
+            Map<String, Object> resultado = rutaService.optimizarRuta(idRuta, fecha, null, PerfilBusqueda.NOCTURNO);
+            long tiempoMs = System.currentTimeMillis() - inicio;
+
+            Map<String, Object> metricas = new HashMap<>();
+            metricas.put("id_ruta", idRuta);
+            metricas.put("estado", "OK");
+            metricas.put("tiempoMs", tiempoMs);
+            metricas.put("desdeCache", resultado.get("desdeCache"));
+            Object clientes = resultado.get("orderedClients");
+            metricas.put("clientes", clientes instanceof List<?> lista ? lista.size() : 0);
+            leerLargoRecorrido((String) resultado.get("osrmRoute"), metricas);
+
+            log.info("Ruta {} pre-optimizada en {} ms: {} clientes, {} m", idRuta, tiempoMs, metricas.get("clientes"),
+                    metricas.get("distanciaMetros"));
+            return metricas;
+        } catch (Exception e) {
+            log.error("Error al pre-optimizar la ruta {} para {}: {}", idRuta, fecha, e.getMessage(), e);
+            return metricasError(idRuta, "ERROR", e.getMessage());
+        }
+    }
+
+    // Largo y duración del recorrido según la geometría de OSRM (routes[0])
+    private void leerLargoRecorrido(String osrmRoute, Map<String, Object> metricas) {
+        if (osrmRoute == null) {
+            return;
+        }
+        try {
+            JsonNode ruta = objectMapper.readTree(osrmRoute).path("routes").path(0);
+            if (!ruta.isMissingNode()) {
+                metricas.put("distanciaMetros", Math.round(ruta.path("distance").asDouble()));
+                metricas.put("duracionSegundos", Math.round(ruta.path("duration").asDouble()));
+            }
+        } catch (Exception e) {
+            log.warn("No se pudo leer el largo del recorrido: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, Object> metricasError(Long idRuta, String estado, String error) {
+        Map<String, Object> metricas = new HashMap<>();
+        metricas.put("id_ruta", idRuta);
+        metricas.put("estado", estado);
+        metricas.put("error", error);
+        return metricas;
+    }
+
+    private Map<String, Object> resumir(LocalDate fecha, List<Map<String, Object>> rutas, long tiempoTotalMs) {
+        long exitosas = rutas.stream().filter(r -> "OK".equals(r.get("estado"))).count();
+        long distanciaTotal = rutas.stream()
+                .map(r -> r.get("distanciaMetros"))
+                .filter(d -> d instanceof Number)
+                .mapToLong(d -> ((Number) d).longValue())
+                .sum();
+        long tiempoMaximo = rutas.stream()
+                .map(r -> r.get("tiempoMs"))
+                .filter(t -> t instanceof Number)
+                .mapToLong(t -> ((Number) t).longValue())
+                .max()
+                .orElse(0L);
+
+        Map<String, Object> reporte = new HashMap<>();
+        reporte.put("fecha", fecha.toString());
+        reporte.put("rutas", rutas);
+        reporte.put("totalRutas", rutas.size());
+        reporte.put("exitosas", exitosas);
+        reporte.put("fallidas", rutas.size() - exitosas);
+        reporte.put("tiempoTotalMs", tiempoTotalMs);
+        reporte.put("tiempoMaximoRutaMs", tiempoMaximo);
+        reporte.put("distanciaTotalMetros", distanciaTotal);
+        return reporte;
+    }
+}
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,6 +14,7 @@ import com.microservice.entrega.client.ClienteServiceClient;
 import com.microservice.entrega.dto.ClienteDTO;
 import com.microservice.entrega.entity.ProgramacionEntrega;
 import com.microservice.entrega.repository.ProgramacionEntregaRepository;
+import com.microservice.entrega.service.concurrencia.LlamadasParalelas;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +26,12 @@ public class ProgramacionService {
 
     private final ProgramacionEntregaRepository programacionEntregaRepository;
     private final ClienteServiceClient clienteServiceClient;
+    private final ResultadoOptimizacionService resultadoOptimizacionService;
+    private final LlamadasParalelas llamadasParalelas;
+    private final DashboardService dashboardService;
+
+    // Ids por llamada a cliente-service; van en la URL
+    private static final int LOTE_CLIENTES = 100;
 
     /**
      * Actualizar programación individual de un cliente específico
@@ -78,6 +86,8 @@ public class ProgramacionService {
                         programacionEntregaRepository.save(nuevaProgramacion);
                     }
                 }
+                resultadoOptimizacionService.invalidar(idRuta, fechaProgramada);
+                dashboardService.programacionCambiada(fechaProgramada);
 
                 return "Programación creada exitosamente para toda la ruta. Cliente " + idCliente + " actualizado.";
             } else {
@@ -91,6 +101,8 @@ public class ProgramacionService {
                     programacionCliente.setKg_especial_programado(kgEspecial);
                     programacionCliente.setEstado("PROGRAMADO");
                     programacionEntregaRepository.save(programacionCliente);
+                    resultadoOptimizacionService.invalidar(idRuta, fechaProgramada);
+                    dashboardService.programacionCambiada(fechaProgramada);
 
                     return "Programación actualizada exitosamente para el cliente " + idCliente;
                 } else {
@@ -113,6 +125,18 @@ public class ProgramacionService {
         List<ProgramacionEntrega> programacionAnterior = programacionEntregaRepository
                 .findByIdRutaAndFechaProgramada(idRuta, fechaAnterior);
 
+        // Todos los clientes de una vez, en lotes paralelos; si cliente-service no responde se devuelve sin ellos
+        List<Long> idClientes = programacionAnterior.stream().map(ProgramacionEntrega::getId_cliente).distinct().toList();
+        LlamadasParalelas.Grupo llamadas = llamadasParalelas.grupo();
+        CompletableFuture<List<ClienteDTO>> clientesFuturo = llamadas.enviarPorLotes("clientes", idClientes,
+                LOTE_CLIENTES, clienteServiceClient::getClientesByIds);
+        llamadas.esperar();
+
+        Map<Long, ClienteDTO> clientesPorId = new HashMap<>();
+        for (ClienteDTO cliente : clientesFuturo.join()) {
+            clientesPorId.put(cliente.getId(), cliente);
+        }
+
         List<Map<String, Object>> resultado = new ArrayList<>();
 
         for (ProgramacionEntrega prog : programacionAnterior) {
@@ -122,15 +146,9 @@ public class ProgramacionService {
             programacion.put("kg_especial_programado", prog.getKg_especial_programado());
             programacion.put("orden", prog.getOrden());
 
-            // Obtener información del cliente
-            try {
-                List<Long> clienteIds = List.of(prog.getId_cliente());
-                List<ClienteDTO> clientes = clienteServiceClient.getClientesByIds(clienteIds);
-                if (!clientes.isEmpty()) {
-                    programacion.put("cliente", clientes.get(0));
-                }
-            } catch (Exception e) {
-                log.warn("Error al obtener cliente {}: {}", prog.getId_cliente(), e.getMessage());
+            ClienteDTO cliente = clientesPorId.get(prog.getId_cliente());
+            if (cliente != null) {
+                programacion.put("cliente", cliente);
             }
 
             resultado.add(programacion);
@@ -183,6 +201,8 @@ public class ProgramacionService {
 
                 programacionEntregaRepository.save(programacion);
             }
+            resultadoOptimizacionService.invalidar(idRuta, fechaProgramacion);
+            dashboardService.programacionCambiada(fechaProgramacion);
             
             return "Entrega programada exitosamente";
         } catch (Exception e) {
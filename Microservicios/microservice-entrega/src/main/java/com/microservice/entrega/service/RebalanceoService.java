@@ -0,0 +1,435 @@
+package com.microservice.entrega.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.microservice.entrega.client.ClienteServiceClient;
+import com.microservice.entrega.config.FeignClientInterceptor;
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.entity.Ruta;
+import com.microservice.entrega.entity.RutaCliente;
+import com.microservice.entrega.repository.ProgramacionEntregaRepository;
+import com.microservice.entrega.repository.RutaClienteRepository;
+import com.microservice.entrega.repository.RutaRepository;
+import com.microservice.entrega.service.asignacion.IndiceEspacial;
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rebalanceo de carga entre drivers. Proyecta la jornada de cada ruta (recorrido guardado con distancias
+ * estimadas más el tiempo de servicio) y los kilos diarios según el historial de programaciones, y mueve
+ * clientes de borde desde la ruta más larga a una ruta vecina mientras baje la duración máxima (makespan).
+ * Solo propone: el resultado es la lista de cambios de RutaCliente con las métricas antes y después.
+ * Corre en segundo plano sobre datos leídos una sola vez, sin tomar locks ni escribir en la base.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RebalanceoService {
+
+    private final RutaRepository rutaRepository;
+    private final RutaClienteRepository rutaClienteRepository;
+    private final ProgramacionEntregaRepository programacionEntregaRepository;
+    private final ClienteServiceClient clienteServiceClient;
+    private final HaversineDistanceProvider haversine;
+
+    // Días de programaciones usados para estimar los kilos diarios de cada cliente
+    @Value("${rutas.rebalanceo.dias-historia:28}")
+    private int diasHistoria = 28;
+
+    // Tiempo de servicio de los clientes que no tienen uno configurado
+    @Value("${rutas.rebalanceo.servicio-minutos:5}")
+    private int servicioMinutos = 5;
+
+    @Value("${rutas.rebalanceo.max-movimientos:100}")
+    private int maxMovimientos = 100;
+
+    // Clientes cercanos revisados para decidir qué rutas son vecinas de un cliente
+    @Value("${rutas.rebalanceo.vecinos:8}")
+    private int vecinos = 8;
+
+    @Value("${rutas.auto-asignacion.celda-metros:1000}")
+    private double celdaMetros = 1000;
+
+    @Value("${flota.capacidad.kg-corriente:500}")
+    private double capacidadKgCorriente = 500;
+
+    @Value("${flota.capacidad.kg-especial:500}")
+    private double capacidadKgEspecial = 500;
+
+    private volatile Map<String, Object> ultimoResultado;
+
+    private final AtomicBoolean enEjecucion = new AtomicBoolean(false);
+
+    // Hilo propio para el rebalanceo lanzado sin esperar, fuera del ForkJoinPool común
+    private final ExecutorService segundoPlano = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "rebalanceo-rutas");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    private static class EstadoRuta {
+        final Ruta ruta;
+        final List<Long> recorrido = new ArrayList<>();
+        long metros;
+        long servicioSegundos;
+        double kgCorriente;
+        double kgEspecial;
+
+        EstadoRuta(Ruta ruta) {
+            this.ruta = ruta;
+        }
+    }
+
+    private record Movimiento(Long idCliente, EstadoRuta origen, EstadoRuta destino, int posicion, long metrosOrigen,
+            long metrosDestino, long duracionMaxima) {
+    }
+
+    /**
+     * Lanza el rebalanceo sin esperar su resultado; devuelve false si ya hay uno en curso.
+     */
+    public boolean iniciarEnSegundoPlano() {
+        if (!enEjecucion.compareAndSet(false, true)) {
+            return false;
+        }
+        // El request termina antes que el cálculo, así que el token se captura ahora
+        String token = FeignClientInterceptor.tokenActual();
+        try {
+            segundoPlano.execute(() -> {
+                try {
+                    FeignClientInterceptor.conToken(token, this::ejecutar);
+                } catch (Exception e) {
+                    log.error("Error en el rebalanceo de rutas: {}", e.getMessage(), e);
+                    Map<String, Object> error = new HashMap<>();
+                    error.put("estado", "ERROR");
+                    error.put("error", e.getMessage());
+                    error.put("generado", LocalDateTime.now().toString());
+                    ultimoResultado = error;
+                } finally {
+                    enEjecucion.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            enEjecucion.set(false);
+            throw new IllegalStateException("El servicio se está deteniendo, no se puede iniciar el rebalanceo");
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        segundoPlano.shutdownNow();
+    }
+
+    public Map<String, Object> rebalancear() {
+        if (!enEjecucion.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay un rebalanceo en curso");
+        }
+        try {
+            return ejecutar();
+        } finally {
+            enEjecucion.set(false);
+        }
+    }
+
+    public boolean isEnEjecucion() {
+        return enEjecucion.get();
+    }
+
+    public Map<String, Object> getUltimoResultado() {
+        return ultimoResultado;
+    }
+
+    private Map<String, Object> ejecutar() {
+        long inicio = System.currentTimeMillis();
+
+        Map<Long, EstadoRuta> rutas = new LinkedHashMap<>();
+        for (Ruta ruta : rutaRepository.findAll()) {
+            if (ruta.getLatitud() != null && ruta.getLongitud() != null) {
+                rutas.put(ruta.getId(), new EstadoRuta(ruta));
+            }
+        }
+
+        Map<Long, ClienteDTO> clientes = new HashMap<>();
+        for (ClienteDTO c : clienteServiceClient.getAllClientes()) {
+            if (c.getLatitud() != null && c.getLongitud() != null) {
+                clientes.put(c.getId(), c);
+            }
+        }
+
+        Map<Long, double[]> kgDiarios = kgDiariosPorCliente();
+
+        // Recorrido guardado de cada ruta (RutaCliente.orden); los clientes sin orden van al final
+        Map<Long, Integer> ordenPorCliente = new HashMap<>();
+        Map<Long, Long> rutaOriginal = new HashMap<>();
+        for (RutaCliente rc : rutaClienteRepository.findAll()) {
+            if (!rutas.containsKey(rc.getId_ruta()) || !clientes.containsKey(rc.getId_cliente())
+                    || rutaOriginal.putIfAbsent(rc.getId_cliente(), rc.getId_ruta()) != null) {
+                continue;
+            }
+            ordenPorCliente.put(rc.getId_cliente(), rc.getOrden() != null ? rc.getOrden() : Integer.MAX_VALUE);
+            rutas.get(rc.getId_ruta()).recorrido.add(rc.getId_cliente());
+        }
+
+        double latitudReferencia = rutas.values().stream().mapToDouble(r -> r.ruta.getLatitud()).average().orElse(0.0);
+        IndiceEspacial<Long> indice = new IndiceEspacial<>(celdaMetros, latitudReferencia);
+        Map<Long, EstadoRuta> rutaActual = new HashMap<>();
+        for (EstadoRuta estado : rutas.values()) {
+            estado.recorrido.sort((a, b) -> {
+                int comparacion = ordenPorCliente.get(a).compareTo(ordenPorCliente.get(b));
+                return comparacion != 0 ? comparacion : a.compareTo(b);
+            });
+            for (Long idCliente : estado.recorrido) {
+                ClienteDTO c = clientes.get(idCliente);
+                indice.agregar(c.getLatitud(), c.getLongitud(), idCliente);
+                rutaActual.put(idCliente, estado);
+                estado.servicioSegundos += servicio(c);
+                double[] kg = kgDiarios.getOrDefault(idCliente, new double[2]);
+                estado.kgCorriente += kg[0];
+                estado.kgEspecial += kg[1];
+            }
+            estado.metros = largo(estado, estado.recorrido, clientes);
+        }
+
+        List<Map<String, Object>> antes = metricas(rutas.values());
+        long makespanAntes = makespan(rutas.values());
+
+        int movimientos = 0;
+        while (movimientos < maxMovimientos) {
+            Movimiento movimiento = mejorMovimiento(rutas.values(), rutaActual, indice, clientes, kgDiarios);
+            if (movimiento == null) {
+                break;
+            }
+            aplicar(movimiento, rutaActual, clientes, kgDiarios);
+            movimientos++;
+        }
+
+        List<Map<String, Object>> cambios = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : rutaOriginal.entrySet()) {
+            EstadoRuta destino = rutaActual.get(entry.getKey());
+            if (!destino.ruta.getId().equals(entry.getValue())) {
+                Map<String, Object> cambio = new HashMap<>();
+                cambio.put("id_cliente", entry.getKey());
+                cambio.put("nombre", clientes.get(entry.getKey()).getNombre());
+                cambio.put("id_ruta_anterior", entry.getValue());
+                cambio.put("nombreRutaAnterior", rutas.get(entry.getValue()).ruta.getNombre());
+                cambio.put("id_ruta_nueva", destino.ruta.getId());
+                cambio.put("nombreRutaNueva", destino.ruta.getNombre());
+                cambio.put("orden", destino.recorrido.indexOf(entry.getKey()) + 1);
+                cambios.add(cambio);
+            }
+        }
+
+        long makespanDespues = makespan(rutas.values());
+        Map<String, Object> resultado = new HashMap<>();
+        resultado.put("estado", "OK");
+        resultado.put("generado", LocalDateTime.now().toString());
+        resultado.put("cambios", cambios);
+        resultado.put("antes", resumen(antes, makespanAntes));
+        resultado.put("despues", resumen(metricas(rutas.values()), makespanDespues));
+        resultado.put("tiempoMs", System.currentTimeMillis() - inicio);
+        ultimoResultado = resultado;
+        log.info("Rebalanceo terminado: {} clientes movidos, jornada máxima de {} s a {} s en {} ms", cambios.size(),
+                makespanAntes, makespanDespues, resultado.get("tiempoMs"));
+        return resultado;
+    }
+
+    /**
+     * Desde la ruta de mayor duración, el movimiento de un cliente de borde (con vecinos de otra ruta) que
+     * deja más corta la mayor de las dos rutas involucradas. Null si ninguno baja la jornada máxima.
+     */
+    private Movimiento mejorMovimiento(Iterable<EstadoRuta> rutas, Map<Long, EstadoRuta> rutaActual,
+            IndiceEspacial<Long> indice, Map<Long, ClienteDTO> clientes, Map<Long, double[]> kgDiarios) {
+        EstadoRuta mayor = null;
+        for (EstadoRuta estado : rutas) {
+            if (mayor == null || duracion(estado) > duracion(mayor)) {
+                mayor = estado;
+            }
+        }
+        if (mayor == null || mayor.recorrido.isEmpty()) {
+            return null;
+        }
+
+        long duracionMayor = duracion(mayor);
+        Movimiento mejor = null;
+        for (int i = 0; i < mayor.recorrido.size(); i++) {
+            Long idCliente = mayor.recorrido.get(i);
+            ClienteDTO c = clientes.get(idCliente);
+            double[] kg = kgDiarios.getOrDefault(idCliente, new double[2]);
+
+            Set<EstadoRuta> vecinas = new HashSet<>();
+            for (IndiceEspacial.Vecino<Long> vecino : indice.buscar(c.getLatitud(), c.getLongitud(), vecinos)) {
+                EstadoRuta otra = rutaActual.get(vecino.valor());
+                if (otra != mayor) {
+                    vecinas.add(otra);
+                }
+            }
+            if (vecinas.isEmpty()) {
+                continue;
+            }
+
+            double[] anterior = i == 0 ? origen(mayor) : punto(clientes.get(mayor.recorrido.get(i - 1)));
+            double[] siguiente = i == mayor.recorrido.size() - 1 ? origen(mayor)
+                    : punto(clientes.get(mayor.recorrido.get(i + 1)));
+            long metrosOrigen = mayor.metros - haversine.distanciaVial(anterior, punto(c))
+                    - haversine.distanciaVial(punto(c), siguiente) + haversine.distanciaVial(anterior, siguiente);
+            long duracionOrigen = haversine.duracion(metrosOrigen) + mayor.servicioSegundos - servicio(c);
+
+            for (EstadoRuta destino : vecinas) {
+                if (excedeCapacidad(destino, kg)) {
+                    continue;
+                }
+                int[] posicion = new int[1];
+                long metrosDestino = destino.metros + costoInsercion(destino, c, clientes, posicion);
+                long duracionDestino = haversine.duracion(metrosDestino) + destino.servicioSegundos + servicio(c);
+                long duracionMaxima = Math.max(duracionOrigen, duracionDestino);
+                if (duracionMaxima < duracionMayor && (mejor == null || duracionMaxima < mejor.duracionMaxima())) {
+                    mejor = new Movimiento(idCliente, mayor, destino, posicion[0], metrosOrigen, metrosDestino,
+                            duracionMaxima);
+                }
+            }
+        }
+        return mejor;
+    }
+
+    private void aplicar(Movimiento m, Map<Long, EstadoRuta> rutaActual, Map<Long, ClienteDTO> clientes,
+            Map<Long, double[]> kgDiarios) {
+        ClienteDTO c = clientes.get(m.idCliente());
+        double[] kg = kgDiarios.getOrDefault(m.idCliente(), new double[2]);
+
+        m.origen().recorrido.remove(m.idCliente());
+        m.origen().metros = m.metrosOrigen();
+        m.origen().servicioSegundos -= servicio(c);
+        m.origen().kgCorriente -= kg[0];
+        m.origen().kgEspecial -= kg[1];
+
+        m.destino().recorrido.add(m.posicion(), m.idCliente());
+        m.destino().metros = m.metrosDestino();
+        m.destino().servicioSegundos += servicio(c);
+        m.destino().kgCorriente += kg[0];
+        m.destino().kgEspecial += kg[1];
+
+        rutaActual.put(m.idCliente(), m.destino());
+        log.debug("Cliente {} movido de la ruta {} a la {}", m.idCliente(), m.origen().ruta.getId(),
+                m.destino().ruta.getId());
+    }
+
+    // Menor distancia adicional de insertar al cliente en el recorrido; deja la posición en posicion[0]
+    private long costoInsercion(EstadoRuta estado, ClienteDTO c, Map<Long, ClienteDTO> clientes, int[] posicion) {
+        long mejor = Long.MAX_VALUE;
+        double[] nuevo = punto(c);
+        for (int hueco = 0; hueco <= estado.recorrido.size(); hueco++) {
+            double[] anterior = hueco == 0 ? origen(estado) : punto(clientes.get(estado.recorrido.get(hueco - 1)));
+            double[] siguiente = hueco == estado.recorrido.size() ? origen(estado)
+                    : punto(clientes.get(estado.recorrido.get(hueco)));
+            long costo = haversine.distanciaVial(anterior, nuevo) + haversine.distanciaVial(nuevo, siguiente)
+                    - haversine.distanciaVial(anterior, siguiente);
+            if (costo < mejor) {
+                mejor = costo;
+                posicion[0] = hueco;
+            }
+        }
+        return mejor;
+    }
+
+    private boolean excedeCapacidad(EstadoRuta destino, double[] kg) {
+        return (capacidadKgCorriente > 0 && destino.kgCorriente + kg[0] > capacidadKgCorriente)
+                || (capacidadKgEspecial > 0 && destino.kgEspecial + kg[1] > capacidadKgEspecial);
+    }
+
+    /**
+     * Kilos promedio por día de reparto de cada cliente en el periodo de historia.
+     */
+    private Map<Long, double[]> kgDiariosPorCliente() {
+        LocalDate hasta = LocalDate.now();
+        LocalDate desde = hasta.minusDays(diasHistoria);
+        Long dias = programacionEntregaRepository.countDiasConEntregas(desde, hasta);
+        Map<Long, double[]> kg = new HashMap<>();
+        if (dias == null || dias == 0) {
+            return kg;
+        }
+        for (Object[] fila : programacionEntregaRepository.sumKgPorCliente(desde, hasta)) {
+            double corriente = fila[1] != null ? ((Number) fila[1]).doubleValue() : 0.0;
+            double especial = fila[2] != null ? ((Number) fila[2]).doubleValue() : 0.0;
+            kg.put(((Number) fila[0]).longValue(), new double[] { corriente / dias, especial / dias });
+        }
+        return kg;
+    }
+
+    private long largo(EstadoRuta estado, List<Long> recorrido, Map<Long, ClienteDTO> clientes) {
+        long metros = 0;
+        double[] anterior = origen(estado);
+        for (Long idCliente : recorrido) {
+            double[] actual = punto(clientes.get(idCliente));
+            metros += haversine.distanciaVial(anterior, actual);
+            anterior = actual;
+        }
+        return metros + haversine.distanciaVial(anterior, origen(estado));
+    }
+
+    private long duracion(EstadoRuta estado) {
+        return haversine.duracion(estado.metros) + estado.servicioSegundos;
+    }
+
+    private long servicio(ClienteDTO c) {
+        return (c.getTiempoServicioMinutos() != null ? c.getTiempoServicioMinutos() : servicioMinutos) * 60L;
+    }
+
+    private long makespan(Iterable<EstadoRuta> rutas) {
+        long maximo = 0;
+        for (EstadoRuta estado : rutas) {
+            maximo = Math.max(maximo, duracion(estado));
+        }
+        return maximo;
+    }
+
+    private List<Map<String, Object>> metricas(Iterable<EstadoRuta> rutas) {
+        List<Map<String, Object>> metricas = new ArrayList<>();
+        for (EstadoRuta estado : rutas) {
+            Map<String, Object> m = new HashMap<>();
+            m.put("id_ruta", estado.ruta.getId());
+            m.put("nombre", estado.ruta.getNombre());
+            m.put("paradas", estado.recorrido.size());
+            m.put("distanciaMetros", estado.metros);
+            m.put("duracionSegundos", duracion(estado));
+            m.put("kgCorriente", Math.round(estado.kgCorriente * 10) / 10.0);
+            m.put("kgEspecial", Math.round(estado.kgEspecial * 10) / 10.0);
+            metricas.add(m);
+        }
+        return metricas;
+    }
+
+    private Map<String, Object> resumen(List<Map<String, Object>> rutas, long makespan) {
+        Map<String, Object> resumen = new HashMap<>();
+        resumen.put("rutas", rutas);
+        resumen.put("makespanSegundos", makespan);
+        resumen.put("maxParadas", rutas.stream().mapToInt(r -> (Integer) r.get("paradas")).max().orElse(0));
+        resumen.put("minParadas", rutas.stream().mapToInt(r -> (Integer) r.get("paradas")).min().orElse(0));
+        return resumen;
+    }
+
+    private double[] origen(EstadoRuta estado) {
+        return new double[] { estado.ruta.getLatitud(), estado.ruta.getLongitud() };
+    }
+
+    private double[] punto(ClienteDTO c) {
+        return new double[] { c.getLatitud(), c.getLongitud() };
+    }
+}
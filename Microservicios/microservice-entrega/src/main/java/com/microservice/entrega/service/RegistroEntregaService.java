@@ -1,5 +1,6 @@
 package com.microservice.entrega.service;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,6 +16,7 @@ import com.microservice.entrega.dto.ProductoEntregadoDTO;
 import com.microservice.entrega.dto.RegistroEntregaDTO;
 import com.microservice.entrega.entity.ProgramacionEntrega;
 import com.microservice.entrega.entity.RegistroEntrega;
+import com.microservice.entrega.entity.RutaCliente;
 import com.microservice.entrega.entity.SesionReparto;
 import com.microservice.entrega.entity.TipoMovimiento;
 import com.microservice.entrega.repository.ProgramacionEntregaRepository;
@@ -39,6 +41,11 @@ public class RegistroEntregaService {
     private final InventarioServiceClient inventarioServiceClient;
     private final EmailService emailService;
     private final EmailTemplateGenerator emailTemplateGenerator;
+    private final ResultadoOptimizacionService resultadoOptimizacionService;
+    private final EtaEnVivoService etaEnVivoService;
+    private final GeocercaService geocercaService;
+    private final ResumenEntregaService resumenEntregaService;
+    private final DashboardService dashboardService;
 
     /**
      * Registra una entrega de tipo VENTA, MERMA o AJUSTE.
@@ -63,6 +70,7 @@ public class RegistroEntregaService {
 
             if (tipo == TipoMovimiento.VENTA) {
                 procesarVenta(dto, datosCliente);
+                actualizarEtas(registroEntrega);
             }
         } catch (RuntimeException e) {
             // Re-lanzar excepciones de negocio sin envolver (stock insuficiente, etc.)
@@ -127,7 +135,10 @@ public class RegistroEntregaService {
         registroEntrega.setTipo(tipo);
         registroEntrega.setId_pedido(dto.getId_pedido());
         registroEntrega.setId_cliente(dto.getId_cliente());
-        registroEntrega.setHora_entregada(dto.getHora_entregada());
+        // Sin hora del dispositivo se usa la llegada detectada por geocerca, si la hay
+        registroEntrega.setHora_entregada(dto.getHora_entregada() != null
+            ? dto.getHora_entregada()
+            : horaLlegadaDetectada(dto));
         registroEntrega.setComentario(dto.getComentario());
         registroEntrega.setCorriente_entregado(dto.getCorriente_entregado());
         registroEntrega.setEspecial_entregado(dto.getEspecial_entregado());
@@ -135,7 +146,33 @@ public class RegistroEntregaService {
         registroEntrega.setMonto_especial(montoEspecial);
         registroEntrega.setMonto_total(montoTotal);
 
-        return registroEntregaRepository.save(registroEntrega);
+        // El registro y su suma al resumen diario van en la misma transacción
+        RegistroEntrega guardado = resumenEntregaService.guardar(registroEntrega);
+        dashboardService.registrarEntrega(guardado);
+        return guardado;
+    }
+
+    private LocalDateTime horaLlegadaDetectada(RegistroEntregaDTO dto) {
+        if (dto.getId_pedido() == null || dto.getId_cliente() == null) {
+            return null;
+        }
+        return geocercaService.getHoraLlegada(dto.getId_pedido(), dto.getId_cliente());
+    }
+
+    /**
+     * Avisa la entrega al seguimiento en vivo para recalcular las ETAs de las paradas que quedan.
+     * Un fallo aquí no debe deshacer la entrega ya registrada.
+     */
+    private void actualizarEtas(RegistroEntrega registroEntrega) {
+        if (registroEntrega.getId_pedido() == null || registroEntrega.getId_cliente() == null) {
+            return;
+        }
+        try {
+            etaEnVivoService.registrarEntrega(registroEntrega.getId_pedido(), registroEntrega.getId_cliente(),
+                registroEntrega.getHora_entregada());
+        } catch (Exception e) {
+            log.warn("No se pudieron actualizar las ETAs de la sesión {}: {}", registroEntrega.getId_pedido(), e.getMessage());
+        }
     }
 
     /**
@@ -368,11 +405,19 @@ public class RegistroEntregaService {
     public void eliminarRelacionesCliente(Long idCliente) {
         try {
             log.info("Eliminando relaciones para el cliente ID: {}", idCliente);
+            // Las rutas del cliente dejan de tener un resultado de optimización válido
+            rutaClienteRepository.findByIdClienteIn(List.of(idCliente)).stream()
+                .map(RutaCliente::getId_ruta)
+                .distinct()
+                .forEach(resultadoOptimizacionService::invalidarRuta);
+
             // Eliminar programaciones de entrega
             programacionEntregaRepository.deleteByIdCliente(idCliente);
             
             // Eliminar registros de entregas
             registroEntregaRepository.deleteByIdCliente(idCliente);
+            resumenEntregaService.eliminarCliente(idCliente);
+            dashboardService.invalidar();
             
             // Eliminar relaciones ruta-cliente
             rutaClienteRepository.deleteByIdCliente(idCliente);
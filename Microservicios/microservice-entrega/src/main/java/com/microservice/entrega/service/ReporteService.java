@@ -6,7 +6,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
@@ -16,8 +19,9 @@ import com.microservice.entrega.dto.ClienteDTO;
 import com.microservice.entrega.entity.ProgramacionEntrega;
 import com.microservice.entrega.entity.Ruta;
 import com.microservice.entrega.repository.ProgramacionEntregaRepository;
-import com.microservice.entrega.repository.RegistroEntregaRepository;
+import com.microservice.entrega.repository.ResumenEntregaDiarioRepository;
 import com.microservice.entrega.repository.RutaRepository;
+import com.microservice.entrega.service.concurrencia.LlamadasParalelas;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -27,70 +31,64 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class ReporteService {
 
-    private final RegistroEntregaRepository registroEntregaRepository;
+    private final ResumenEntregaDiarioRepository resumenEntregaDiarioRepository;
+    private final ResumenEntregaService resumenEntregaService;
+    private final DashboardService dashboardService;
     private final ProgramacionEntregaRepository programacionEntregaRepository;
     private final RutaRepository rutaRepository;
     private final ClienteServiceClient clienteServiceClient;
     private final InventarioServiceClient inventarioServiceClient;
+    private final LlamadasParalelas llamadasParalelas;
+
+    // Ids por llamada a cliente-service; van en la URL
+    private static final int LOTE_CLIENTES = 100;
 
     /**
-     * Obtener estadísticas para el dashboard
+     * Los reportes leen resumen_entrega_diario; en el primer arranque se llena con las entregas ya registradas.
+     * Antes se completa por lotes la ruta de los registros históricos que no la tienen.
      */
-    public Map<String, Object> obtenerEstadisticasDashboard() {
-        Map<String, Object> estadisticas = new HashMap<>();
-        
-        LocalDate hoy = LocalDate.now();
-        LocalDateTime finHoy = hoy.plusDays(1).atStartOfDay();
-        
-        // Estadísticas del día actual
-        Long totalProgramadosHoy = programacionEntregaRepository.countClientesByFechaProgramada(hoy);
-        Long totalEntregadosHoy = registroEntregaRepository.countByFecha(hoy);
-        Double totalKilosHoy = 0.0;
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararResumenDiario() {
         try {
-            Double suma = registroEntregaRepository.sumKilosByFecha(hoy);
-            totalKilosHoy = (suma != null) ? suma : 0.0;
+            int total = 0;
+            int actualizados;
+            while ((actualizados = resumenEntregaService.asignarRutasPendientes()) > 0) {
+                total += actualizados;
+            }
+            if (total > 0) {
+                log.info("Ruta asignada a {} registros de entrega históricos", total);
+            }
+
+            LocalDate[] pendiente = resumenEntregaService.historialPendiente();
+            if (pendiente != null) {
+                resumenEntregaService.reconstruir(pendiente[0], pendiente[1]);
+                dashboardService.invalidar();
+            }
         } catch (Exception e) {
-            // En caso de error, dejar en 0 y seguir
-            totalKilosHoy = 0.0;
-        }
-        
-        Map<String, Object> entregasDelDia = new HashMap<>();
-        entregasDelDia.put("completadas", totalEntregadosHoy != null ? totalEntregadosHoy : 0L);
-        entregasDelDia.put("total", totalProgramadosHoy != null ? totalProgramadosHoy : 0L);
-        estadisticas.put("entregasDelDia", entregasDelDia);
-        estadisticas.put("productosVendidosHoy", totalKilosHoy);
-        
-        // Entregas de la última semana (7 días incluyendo hoy)
-        List<Map<String, Object>> entregasPorDia = new ArrayList<>();
-        LocalDate inicioSemana = hoy.minusDays(6); // Últimos 7 días
-        LocalDateTime inicioRango = inicioSemana.atStartOfDay();
-        LocalDateTime finRango = finHoy;
-        
-        // Obtener datos de entregas completadas por día
-        List<Object[]> datosEntregas = registroEntregaRepository.countEntregasPorDia(inicioRango, finRango);
-        Map<LocalDate, Long> entregasMap = new HashMap<>();
-        for (Object[] row : datosEntregas) {
-            // PostgreSQL devuelve java.sql.Date, necesitamos convertir a LocalDate
-            java.sql.Date sqlDate = (java.sql.Date) row[0];
-            LocalDate fecha = sqlDate.toLocalDate();
-            // El COUNT puede ser Long o BigInteger dependiendo de la DB
-            Long cantidad = ((Number) row[1]).longValue();
-            entregasMap.put(fecha, cantidad);
-        }
-        
-        // Crear array con todos los días de la semana
-        for (int i = 0; i < 7; i++) {
-            LocalDate fecha = inicioSemana.plusDays(i);
-            Map<String, Object> diaData = new HashMap<>();
-            diaData.put("fecha", fecha.toString());
-            diaData.put("dia", obtenerNombreDia(fecha.getDayOfWeek().getValue()));
-            diaData.put("entregas", entregasMap.getOrDefault(fecha, 0L));
-            entregasPorDia.add(diaData);
+            log.warn("No se pudo cargar el historial en el resumen diario de entregas: {}", e.getMessage());
         }
-        
-        estadisticas.put("entregasSemana", entregasPorDia);
-        
-        return estadisticas;
+    }
+
+    /**
+     * Reconstruye el resumen diario del rango a partir de registro_entrega
+     */
+    public Map<String, Object> reconstruirResumenDiario(LocalDate fechaInicio, LocalDate fechaFin) {
+        long inicio = System.currentTimeMillis();
+        int filas = resumenEntregaService.reconstruir(fechaInicio, fechaFin);
+        dashboardService.invalidar();
+        Map<String, Object> respuesta = new HashMap<>();
+        respuesta.put("fechaInicio", fechaInicio.toString());
+        respuesta.put("fechaFin", fechaFin.toString());
+        respuesta.put("filas", filas);
+        respuesta.put("tiempoMs", System.currentTimeMillis() - inicio);
+        return respuesta;
+    }
+
+    /**
+     * Obtener estadísticas para el dashboard
+     */
+    public Map<String, Object> obtenerEstadisticasDashboard() {
+        return dashboardService.obtenerEstadisticas();
     }
 
     /**
@@ -103,9 +101,9 @@ public class ReporteService {
             // Obtener datos de entregas realizadas
             List<Object[]> datosEntregas;
             if (idRuta != null) {
-                datosEntregas = registroEntregaRepository.obtenerReporteEntregasPorRuta(fechaInicio, fechaFin, idRuta);
+                datosEntregas = resumenEntregaDiarioRepository.obtenerReporteEntregasPorRuta(fechaInicio, fechaFin, idRuta);
             } else {
-                datosEntregas = registroEntregaRepository.obtenerReporteEntregas(fechaInicio, fechaFin);
+                datosEntregas = resumenEntregaDiarioRepository.obtenerReporteEntregas(fechaInicio, fechaFin);
             }
             
             // Obtener entregas programadas por día
@@ -184,7 +182,7 @@ public class ReporteService {
         
         try {
             // Obtener datos de ventas (ahora con montos guardados en BD)
-            List<Object[]> datosVentas = registroEntregaRepository.obtenerReporteVentas(fechaInicio, fechaFin);
+            List<Object[]> datosVentas = resumenEntregaDiarioRepository.obtenerReporteVentas(fechaInicio, fechaFin);
             
             // Procesar datos
             List<Map<String, Object>> datos = new ArrayList<>();
@@ -250,45 +248,40 @@ public class ReporteService {
     }
 
     /**
-     * Obtener plan de producción para una fecha específica
+     * Obtener plan de producción para una fecha específica. Productos, clientes y rutas se piden en paralelo
+     * y una sola vez; si alguno no responde, el plan sale igual con valores por defecto y la lista de
+     * fuentes que faltaron en "incompleto".
      */
     public Map<String, Object> getPlanProduccion(LocalDate fecha) {
         // Obtener todas las programaciones para la fecha
         List<ProgramacionEntrega> programaciones = programacionEntregaRepository.findByFechaProgramada(fecha);
-        
-        Map<String, Map<String, Object>> productosAgrupados = new HashMap<>();
-        
-        // Obtener todos los productos una sola vez antes del loop
-        Map<String, String> unidadesPorProducto = new HashMap<>();
-        try {
-            ResponseEntity<?> productosResp = inventarioServiceClient.getProductos();
-            
-            if (productosResp.getStatusCode().is2xxSuccessful() && productosResp.getBody() != null) {
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> productos = (List<Map<String, Object>>) productosResp.getBody();
-                
-                // Crear mapa de búsqueda rápida: nombreProducto -> unidadMedida
-                for (Map<String, Object> producto : productos) {
-                    String nombreProducto = (String) producto.get("nombre");
-                    String unidadMedida = "Kg"; // default
-                    
-                    // Si tiene recetaMaestra, obtener unidadBase
-                    if (producto.containsKey("recetaMaestra") && producto.get("recetaMaestra") != null) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> receta = (Map<String, Object>) producto.get("recetaMaestra");
-                        if (receta.containsKey("unidadBase") && receta.get("unidadBase") != null) {
-                            unidadMedida = receta.get("unidadBase").toString();
-                        }
-                    }
-                    
-                    unidadesPorProducto.put(nombreProducto, unidadMedida);
-                }
+
+        List<Long> idClientes = programaciones.stream().map(ProgramacionEntrega::getId_cliente).distinct().toList();
+        List<Long> idRutas = programaciones.stream().map(ProgramacionEntrega::getId_ruta).distinct().toList();
+
+        LlamadasParalelas.Grupo llamadas = llamadasParalelas.grupo();
+        CompletableFuture<Map<String, String>> unidadesFuturo = llamadas.enviar("inventario.productos",
+            this::obtenerUnidadesPorProducto, Map.of());
+        CompletableFuture<List<ClienteDTO>> clientesFuturo = llamadas.enviarPorLotes("clientes", idClientes,
+            LOTE_CLIENTES, clienteServiceClient::getClientesByIds);
+        CompletableFuture<List<Ruta>> rutasFuturo = llamadas.enviar("rutas",
+            () -> rutaRepository.findAllById(idRutas), List.of());
+        llamadas.esperar();
+
+        Map<String, String> unidadesPorProducto = unidadesFuturo.join();
+        Map<Long, String> nombresClientes = new HashMap<>();
+        for (ClienteDTO cliente : clientesFuturo.join()) {
+            if (cliente.getNombre() != null) {
+                nombresClientes.put(cliente.getId(), cliente.getNombre());
             }
-        } catch (Exception e) {
-            log.warn("Error al obtener productos del inventario: {}", e.getMessage());
-            // Continuar con valores por defecto
         }
-        
+        Map<Long, String> nombresRutas = new HashMap<>();
+        for (Ruta ruta : rutasFuturo.join()) {
+            nombresRutas.put(ruta.getId(), ruta.getNombre());
+        }
+
+        Map<String, Map<String, Object>> productosAgrupados = new HashMap<>();
+
         for (ProgramacionEntrega prog : programaciones) {
             String nombreProducto = prog.getNombreProducto();
             
@@ -315,22 +308,14 @@ public class ReporteService {
             productoData.put("cantidadTotal", cantidadActual + prog.getCantidadProducto());
             
             // Agregar información del cliente
-            try {
-                ClienteDTO cliente = clienteServiceClient.getClienteById(prog.getId_cliente());
-                Ruta ruta = rutaRepository.findById(prog.getId_ruta()).orElse(null);
-                
-                Map<String, Object> clienteInfo = new HashMap<>();
-                clienteInfo.put("nombreCliente", cliente.getNombre() != null ? cliente.getNombre() : "Cliente " + prog.getId_cliente());
-                clienteInfo.put("cantidad", prog.getCantidadProducto());
-                clienteInfo.put("ruta", ruta != null ? ruta.getNombre() : "Sin ruta");
-                
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> clientes = (List<Map<String, Object>>) productoData.get("clientes");
-                clientes.add(clienteInfo);
-                
-            } catch (Exception e) {
-                log.warn("Error al obtener info del cliente {}: {}", prog.getId_cliente(), e.getMessage());
-            }
+            Map<String, Object> clienteInfo = new HashMap<>();
+            clienteInfo.put("nombreCliente", nombresClientes.getOrDefault(prog.getId_cliente(), "Cliente " + prog.getId_cliente()));
+            clienteInfo.put("cantidad", prog.getCantidadProducto());
+            clienteInfo.put("ruta", nombresRutas.getOrDefault(prog.getId_ruta(), "Sin ruta"));
+
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> clientes = (List<Map<String, Object>>) productoData.get("clientes");
+            clientes.add(clienteInfo);
         }
         
         // Construir respuesta
@@ -344,23 +329,40 @@ public class ReporteService {
             .mapToInt(p -> (Integer) p.get("cantidadTotal"))
             .sum();
         respuesta.put("cantidadTotal", cantidadTotal);
+        if (!llamadas.isCompleto()) {
+            respuesta.put("incompleto", llamadas.getFallidas());
+        }
         
         return respuesta;
     }
 
     /**
-     * Convierte número de día a nombre en español
+     * Unidad de medida de cada producto del inventario (nombreProducto -> unidadBase de la receta o "Kg").
      */
-    private String obtenerNombreDia(int numeroDia) {
-        switch (numeroDia) {
-            case 1: return "Lunes";
-            case 2: return "Martes";
-            case 3: return "Miércoles";
-            case 4: return "Jueves";
-            case 5: return "Viernes";
-            case 6: return "Sábado";
-            case 7: return "Domingo";
-            default: return "";
+    private Map<String, String> obtenerUnidadesPorProducto() {
+        Map<String, String> unidadesPorProducto = new HashMap<>();
+        ResponseEntity<?> productosResp = inventarioServiceClient.getProductos();
+
+        if (productosResp.getStatusCode().is2xxSuccessful() && productosResp.getBody() != null) {
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> productos = (List<Map<String, Object>>) productosResp.getBody();
+
+            for (Map<String, Object> producto : productos) {
+                String nombreProducto = (String) producto.get("nombre");
+                String unidadMedida = "Kg"; // default
+
+                // Si tiene recetaMaestra, obtener unidadBase
+                if (producto.containsKey("recetaMaestra") && producto.get("recetaMaestra") != null) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> receta = (Map<String, Object>) producto.get("recetaMaestra");
+                    if (receta.containsKey("unidadBase") && receta.get("unidadBase") != null) {
+                        unidadMedida = receta.get("unidadBase").toString();
+                    }
+                }
+
+                unidadesPorProducto.put(nombreProducto, unidadMedida);
+            }
         }
+        return unidadesPorProducto;
     }
 }
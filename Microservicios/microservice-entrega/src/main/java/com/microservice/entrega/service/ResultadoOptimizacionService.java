@@ -0,0 +1,172 @@
+package com.microservice.entrega.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.entity.ResultadoOptimizacion;
+import com.microservice.entrega.entity.Ruta;
+import com.microservice.entrega.repository.ResultadoOptimizacionRepository;
+import com.microservice.entrega.service.optimizacion.PerfilBusqueda;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caché de resultados de optimización por (ruta, fecha), en memoria y en base de datos.
+ * Un resultado solo se reutiliza si la huella de los datos de entrada coincide; además se invalida
+ * cuando cambian las programaciones o las asignaciones de clientes de la ruta.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ResultadoOptimizacionService {
+
+    private final ResultadoOptimizacionRepository resultadoOptimizacionRepository;
+
+    @Value("${optimizacion.resultados.cache.max-entradas:500}")
+    private int maxEntradas = 500;
+
+    // Resultados por (ruta, fecha), los menos usados salen primero; la fila en base es la copia durable
+    private final Map<String, ResultadoOptimizacion> memoria = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ResultadoOptimizacion> eldest) {
+            return size() > maxEntradas;
+        }
+    };
+
+    /**
+     * Huella SHA-256 de los datos que determinan el resultado: origen, proveedor, hora de salida y,
+     * por cada cliente (ordenados por id), su id, coordenadas, ventana horaria y tiempo de servicio.
+     */
+    public String huella(Ruta origen, List<ClienteDTO> clientes, String proveedor, String horaSalida) {
+        StringBuilder datos = new StringBuilder();
+        datos.append(origen.getLatitud()).append(',').append(origen.getLongitud())
+                .append('|').append(proveedor)
+                .append('|').append(horaSalida);
+        clientes.stream()
+                .sorted((c1, c2) -> c1.getId().compareTo(c2.getId()))
+                .forEach(c -> datos.append('|').append(c.getId())
+                        .append(',').append(c.getLatitud())
+                        .append(',').append(c.getLongitud())
+                        .append(',').append(c.getVentanaInicio())
+                        .append(',').append(c.getVentanaFin())
+                        .append(',').append(c.getTiempoServicioMinutos()));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(datos.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Busca un resultado vigente. Uno calculado con el perfil NOCTURNO también sirve para pedidos
+     * interactivos, pero no al revés.
+     */
+    public Optional<ResultadoOptimizacion> buscar(Long idRuta, LocalDate fecha, String huella, PerfilBusqueda perfil) {
+        ResultadoOptimizacion resultado = obtener(idRuta, fecha);
+        if (resultado == null || !huella.equals(resultado.getHuella())) {
+            return Optional.empty();
+        }
+        PerfilBusqueda perfilGuardado = PerfilBusqueda.desde(resultado.getPerfil());
+        if (perfilGuardado.ordinal() < perfil.ordinal()) {
+            return Optional.empty();
+        }
+        return Optional.of(resultado);
+    }
+
+    public void guardar(Long idRuta, LocalDate fecha, String huella, String proveedor, PerfilBusqueda perfil,
+            List<ClienteDTO> orderedClients, String osrmRoute) {
+        ResultadoOptimizacion resultado = obtener(idRuta, fecha);
+        if (resultado == null) {
+            resultado = new ResultadoOptimizacion();
+            resultado.setId_ruta(idRuta);
+            resultado.setFecha(fecha);
+        }
+        resultado.setHuella(huella);
+        resultado.setProveedor(proveedor);
+        resultado.setPerfil(perfil.name());
+        resultado.setOrden_clientes(orderedClients.stream()
+                .map(c -> c.getId().toString())
+                .collect(Collectors.joining(",")));
+        resultado.setEtas(orderedClients.stream()
+                .map(c -> c.getEta() != null ? c.getEta().toString() : "")
+                .collect(Collectors.joining(",")));
+        resultado.setOsrm_route(osrmRoute);
+
+        try {
+            resultado = resultadoOptimizacionRepository.save(resultado);
+        } catch (Exception e) {
+            // La caché en memoria sigue sirviendo aunque no se haya podido persistir
+            log.warn("No se pudo guardar el resultado de optimización de la ruta {} ({}): {}", idRuta, fecha,
+                    e.getMessage());
+        }
+        synchronized (memoria) {
+            memoria.put(claveMemoria(idRuta, fecha), resultado);
+        }
+    }
+
+    /**
+     * Ids de clientes del resultado, en orden de visita.
+     */
+    public List<Long> getOrdenClientes(ResultadoOptimizacion resultado) {
+        List<Long> ids = new ArrayList<>();
+        if (resultado.getOrden_clientes() != null && !resultado.getOrden_clientes().isBlank()) {
+            for (String id : resultado.getOrden_clientes().split(",")) {
+                ids.add(Long.valueOf(id));
+            }
+        }
+        return ids;
+    }
+
+    @Transactional
+    public void invalidar(Long idRuta, LocalDate fecha) {
+        synchronized (memoria) {
+            memoria.remove(claveMemoria(idRuta, fecha));
+        }
+        resultadoOptimizacionRepository.deleteByIdRutaAndFecha(idRuta, fecha);
+    }
+
+    @Transactional
+    public void invalidarRuta(Long idRuta) {
+        synchronized (memoria) {
+            memoria.keySet().removeIf(clave -> clave.startsWith(idRuta + "|"));
+        }
+        resultadoOptimizacionRepository.deleteByIdRuta(idRuta);
+    }
+
+    private ResultadoOptimizacion obtener(Long idRuta, LocalDate fecha) {
+        String clave = claveMemoria(idRuta, fecha);
+        ResultadoOptimizacion resultado;
+        synchronized (memoria) {
+            resultado = memoria.get(clave);
+        }
+        if (resultado == null) {
+            resultado = resultadoOptimizacionRepository.findByIdRutaAndFecha(idRuta, fecha).orElse(null);
+            if (resultado != null) {
+                synchronized (memoria) {
+                    memoria.put(clave, resultado);
+                }
+            }
+        }
+        return resultado;
+    }
+
+    private String claveMemoria(Long idRuta, LocalDate fecha) {
+        return idRuta + "|" + fecha;
+    }
+}
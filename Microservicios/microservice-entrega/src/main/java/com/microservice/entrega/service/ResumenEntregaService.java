@@ -0,0 +1,151 @@
+package com.microservice.entrega.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.microservice.entrega.entity.RegistroEntrega;
+import com.microservice.entrega.entity.RutaCliente;
+import com.microservice.entrega.repository.RegistroEntregaRepository;
+import com.microservice.entrega.repository.ResumenEntregaDiarioRepository;
+import com.microservice.entrega.repository.RutaClienteRepository;
+import com.microservice.entrega.repository.RutaRepository;
+import com.microservice.entrega.repository.SesionRepartoRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mantiene resumen_entrega_diario: cada registro de entrega se guarda junto con su suma al acumulado del
+ * día, en la misma transacción. La reconstrucción recalcula un rango desde registro_entrega para cargar
+ * el historial previo o corregir diferencias.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ResumenEntregaService {
+
+    private static final Long SIN_ID = 0L;
+
+    private final RegistroEntregaRepository registroEntregaRepository;
+    private final ResumenEntregaDiarioRepository resumenEntregaDiarioRepository;
+    private final SesionRepartoRepository sesionRepartoRepository;
+    private final RutaRepository rutaRepository;
+    private final RutaClienteRepository rutaClienteRepository;
+
+    // Al arrancar con el resumen vacío y entregas registradas, se reconstruye todo el historial
+    @Value("${reportes.resumen.reconstruir-al-iniciar:true}")
+    private boolean reconstruirAlIniciar = true;
+
+    // Registros por transacción al completar la ruta de las entregas históricas
+    @Value("${reportes.rutas.lote:1000}")
+    private int loteRutas = 1000;
+
+    /**
+     * Guarda el registro con su ruta y lo suma al acumulado diario; si algo falla no queda ninguno de los dos.
+     */
+    @Transactional
+    public RegistroEntrega guardar(RegistroEntrega registro) {
+        if (registro.getId_ruta() == null) {
+            registro.setId_ruta(resolverRuta(registro));
+        }
+        RegistroEntrega guardado = registroEntregaRepository.save(registro);
+        if (guardado.getHora_entregada() != null) {
+            resumenEntregaDiarioRepository.acumular(
+                guardado.getHora_entregada().toLocalDate(),
+                guardado.getId_ruta(),
+                guardado.getId_cliente() != null ? guardado.getId_cliente() : SIN_ID,
+                valor(guardado.getCorriente_entregado()),
+                valor(guardado.getEspecial_entregado()),
+                valor(guardado.getMonto_corriente()),
+                valor(guardado.getMonto_especial()),
+                valor(guardado.getMonto_total()));
+        }
+        return guardado;
+    }
+
+    /**
+     * Recalcula el acumulado de las fechas indicadas (ambas incluidas) a partir de registro_entrega.
+     * @return filas del resumen generadas
+     */
+    @Transactional
+    public int reconstruir(LocalDate fechaInicio, LocalDate fechaFin) {
+        if (fechaFin.isBefore(fechaInicio)) {
+            throw new IllegalArgumentException("La fecha de fin no puede ser anterior a la de inicio");
+        }
+        int eliminadas = resumenEntregaDiarioRepository.deleteByFechaBetween(fechaInicio, fechaFin);
+        int creadas = resumenEntregaDiarioRepository.reconstruir(fechaInicio.atStartOfDay(),
+            fechaFin.plusDays(1).atStartOfDay());
+        log.info("Resumen diario de entregas reconstruido del {} al {}: {} filas (antes {})", fechaInicio, fechaFin,
+            creadas, eliminadas);
+        return creadas;
+    }
+
+    /**
+     * Completa id_ruta en un lote de registros guardados antes de que existiera la columna.
+     * @return registros actualizados; 0 cuando ya no quedan pendientes
+     */
+    @Transactional
+    public int asignarRutasPendientes() {
+        return registroEntregaRepository.asignarRutasPendientes(loteRutas);
+    }
+
+    @Transactional
+    public void eliminarCliente(Long idCliente) {
+        resumenEntregaDiarioRepository.deleteByIdCliente(idCliente);
+    }
+
+    /**
+     * Rango de fechas con entregas registradas que el resumen todavía no tiene, o null si no hay nada que cargar.
+     * Solo aplica con el resumen vacío (primer arranque después de crear la tabla).
+     */
+    public LocalDate[] historialPendiente() {
+        if (!reconstruirAlIniciar || resumenEntregaDiarioRepository.existeAlguno()) {
+            return null;
+        }
+        List<Object[]> rango = resumenEntregaDiarioRepository.rangoRegistros();
+        if (rango.isEmpty() || rango.get(0)[0] == null) {
+            return null;
+        }
+        return new LocalDate[] { aFecha(rango.get(0)[0]), aFecha(rango.get(0)[1]) };
+    }
+
+    /**
+     * Ruta de la entrega: la del driver de la sesión o, si no se conoce, la asignada al cliente. Con varias
+     * candidatas se toma la de menor id, igual que asignarRutasPendientes y la reconstrucción del resumen.
+     */
+    private Long resolverRuta(RegistroEntrega registro) {
+        if (registro.getId_pedido() != null) {
+            Long idRuta = sesionRepartoRepository.findById(registro.getId_pedido())
+                .filter(sesion -> sesion.getId_driver() != null)
+                .map(sesion -> rutaRepository.findPrimerIdByIdDriver(sesion.getId_driver()))
+                .orElse(null);
+            if (idRuta != null) {
+                return idRuta;
+            }
+        }
+        if (registro.getId_cliente() != null) {
+            return rutaClienteRepository.findByIdClienteIn(List.of(registro.getId_cliente())).stream()
+                .map(RutaCliente::getId_ruta)
+                .min(Long::compare)
+                .orElse(SIN_ID);
+        }
+        return SIN_ID;
+    }
+
+    private static double valor(Double numero) {
+        return numero != null ? numero : 0.0;
+    }
+
+    private static LocalDate aFecha(Object valor) {
+        if (valor instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toLocalDate();
+        }
+        return ((LocalDateTime) valor).toLocalDate();
+    }
+}
@@ -8,21 +8,18 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpMethod;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
 import com.google.ortools.Loader;
 import com.google.ortools.constraintsolver.Assignment;
-import com.google.ortools.constraintsolver.FirstSolutionStrategy;
 import com.google.ortools.constraintsolver.RoutingIndexManager;
 import com.google.ortools.constraintsolver.RoutingModel;
+import com.google.ortools.constraintsolver.RoutingDimension;
 import com.google.ortools.constraintsolver.RoutingSearchParameters;
-import com.google.ortools.constraintsolver.main;
 import com.microservice.entrega.client.ClienteServiceClient;
 import com.microservice.entrega.dto.ClienteDTO;
 import com.microservice.entrega.dto.ClienteConRutaDTO;
@@ -31,6 +28,7 @@ import com.microservice.entrega.entity.ProgramacionEntrega;
 import com.microservice.entrega.entity.RegistroEntrega;
 import com.microservice.entrega.entity.TipoMovimiento;
 import com.microservice.entrega.entity.RegistroEntrega;
+import com.microservice.entrega.entity.ResultadoOptimizacion;
 import com.microservice.entrega.entity.Ruta;
 import com.microservice.entrega.entity.RutaCliente;
 import com.microservice.entrega.repository.RutaClienteRepository;
@@ -38,6 +36,12 @@ import com.microservice.entrega.repository.RutaRepository;
 import com.microservice.entrega.repository.SesionRepartoRepository;
 import com.microservice.entrega.repository.ProgramacionEntregaRepository;
 import com.microservice.entrega.repository.RegistroEntregaRepository;
+import com.microservice.entrega.service.distancia.DistanceProvider;
+import com.microservice.entrega.service.distancia.DistanceProviderRegistry;
+import com.microservice.entrega.service.distancia.TablaDistancias;
+import com.microservice.entrega.service.geometria.FormatoGeometria;
+import com.microservice.entrega.service.optimizacion.PerfilBusqueda;
+import com.microservice.entrega.service.optimizacion.PerfilesBusqueda;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -66,7 +70,179 @@ public class RutaService {
     @Autowired
     private ProgramacionEntregaRepository programacionEntregaRepository;
 
+    @Autowired
+    private DistanciaCacheService distanciaCacheService;
+
+    @Autowired
+    private DistanceProviderRegistry distanceProviderRegistry;
+
+    @Autowired
+    private PerfilesBusqueda perfilesBusqueda;
+
+    @Autowired
+    private ResultadoOptimizacionService resultadoOptimizacionService;
+
+    @Autowired
+    private GeometriaRutaService geometriaRutaService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    // Hora a la que el vehículo sale del origen; los tiempos se modelan en segundos desde medianoche
+    @Value("${rutas.hora-salida:06:00}")
+    private String horaSalida = "06:00";
+
+    // Costo (en metros equivalentes) por cada segundo de llegada después del cierre de la ventana
+    @Value("${rutas.ventana.penalizacion-segundo:20}")
+    private long penalizacionRetrasoPorSegundo = 20;
+
+    private static final long SEGUNDOS_DIA = 24 * 60 * 60;
+
+    /**
+     * Optimiza una ruta completa y arma la respuesta con el orden de clientes, la geometría OSRM y el origen.
+     * Con fecha, el resultado se guarda en caché por (ruta, fecha, huella de los datos) y el orden se
+     * escribe en ProgramacionEntrega.orden, salvo que la matriz o la geometría se hayan estimado sin OSRM.
+     * @param fecha Si no es null, solo se consideran los clientes con entregas programadas en esa fecha
+     */
+    public Map<String, Object> optimizarRuta(Long id_ruta, LocalDate fecha, String proveedor, PerfilBusqueda perfil) {
+        return optimizarRuta(id_ruta, fecha, proveedor, perfil, FormatoGeometria.GEOJSON);
+    }
+
+    /**
+     * Igual que {@link #optimizarRuta(Long, LocalDate, String, PerfilBusqueda)}, con la geometría en el formato pedido
+     * (la caché de resultados siempre guarda GeoJSON).
+     */
+    public Map<String, Object> optimizarRuta(Long id_ruta, LocalDate fecha, String proveedor, PerfilBusqueda perfil,
+            FormatoGeometria formato) {
+        List<ClienteDTO> clientes = fecha != null ? getClientesConProgramacion(id_ruta, fecha) : getClientesDeRuta(id_ruta);
+
+        Map<String, Object> result = new HashMap<>();
+        if (fecha != null && clientes.isEmpty()) {
+            result.put("orderedClients", new ArrayList<>());
+            result.put("osrmRoute", null);
+            result.put("message", "No hay entregas programadas para esta fecha");
+            return result;
+        }
+
+        Ruta origen = getOrigenRuta(id_ruta);
+        List<ClienteDTO> orderedClients = null;
+        String osrmRoute = null;
+        String huella = null;
+        String nombreProveedor = null;
+
+        if (fecha != null) {
+            nombreProveedor = distanceProviderRegistry.resolver(proveedor, origen.getProveedor_distancias()).getNombre();
+            huella = resultadoOptimizacionService.huella(origen, clientes, nombreProveedor, horaSalida);
+            Optional<ResultadoOptimizacion> guardado = resultadoOptimizacionService.buscar(id_ruta, fecha, huella,
+                    perfil);
+            if (guardado.isPresent()) {
+                orderedClients = ordenarSegunResultado(clientes, guardado.get());
+                osrmRoute = guardado.get().getOsrm_route();
+            }
+        }
+
+        boolean desdeCache = orderedClients != null;
+        boolean estimada = false;
+        if (!desdeCache) {
+            Solucion solucion = resolver(id_ruta, clientes, proveedor, perfil, fecha);
+            orderedClients = solucion.orden();
+            osrmRoute = getOsrmRoute(orderedClients, origen);
+            estimada = solucion.estimada() || geometriaRutaService.esEstimada(osrmRoute);
+            if (fecha != null && estimada) {
+                // Un orden o una geometría aproximados se responden, pero no quedan fijos para el día: la próxima
+                // consulta, con OSRM de vuelta, optimiza de nuevo
+                log.warn("Ruta {} del {} optimizada con distancias o geometría estimadas; el resultado no se guarda",
+                        id_ruta, fecha);
+            } else if (fecha != null) {
+                resultadoOptimizacionService.guardar(id_ruta, fecha, huella, nombreProveedor, perfil, orderedClients,
+                        osrmRoute);
+                actualizarOrdenProgramacion(id_ruta, fecha, orderedClients);
+            } else if (solucion.estimada()) {
+                log.warn("Ruta {} optimizada con distancias estimadas; se conserva el recorrido base", id_ruta);
+            } else {
+                // La re-optimización completa fija el recorrido base sobre el que trabajan las inserciones
+                renumerarRecorrido(rutaClienteRepository.findById_ruta(id_ruta),
+                        orderedClients.stream().map(ClienteDTO::getId).toList());
+            }
+        }
+
+        result.put("orderedClients", orderedClients);
+        result.put("osrmRoute", geometriaRutaService.convertir(osrmRoute, formato));
+        result.put("formatoGeometria", formato.name().toLowerCase());
+        result.put("desdeCache", desdeCache);
+        result.put("estimada", estimada);
+
+        Map<String, Object> origenInfo = new HashMap<>();
+        origenInfo.put("latitud", origen.getLatitud());
+        origenInfo.put("longitud", origen.getLongitud());
+        result.put("origen", origenInfo);
+
+        return result;
+    }
+
+    private List<ClienteDTO> ordenarSegunResultado(List<ClienteDTO> clientes, ResultadoOptimizacion resultado) {
+        Map<Long, ClienteDTO> clientesPorId = clientes.stream()
+                .collect(Collectors.toMap(ClienteDTO::getId, c -> c, (a, b) -> a));
+        String[] etas = resultado.getEtas() != null ? resultado.getEtas().split(",", -1) : new String[0];
+        List<Long> orden = resultadoOptimizacionService.getOrdenClientes(resultado);
+
+        List<ClienteDTO> orderedClients = new ArrayList<>();
+        for (int i = 0; i < orden.size(); i++) {
+            ClienteDTO cliente = clientesPorId.get(orden.get(i));
+            if (cliente != null) {
+                if (i < etas.length && !etas[i].isEmpty()) {
+                    cliente.setEta(LocalTime.parse(etas[i]));
+                }
+                orderedClients.add(cliente);
+            }
+        }
+        return orderedClients;
+    }
+
+    /**
+     * Escribe la posición de cada cliente (desde 1) en sus programaciones de la fecha.
+     */
+    private void actualizarOrdenProgramacion(Long id_ruta, LocalDate fecha, List<ClienteDTO> orderedClients) {
+        Map<Long, Integer> posiciones = new HashMap<>();
+        for (int i = 0; i < orderedClients.size(); i++) {
+            posiciones.put(orderedClients.get(i).getId(), i + 1);
+        }
+        List<ProgramacionEntrega> programaciones = programacionEntregaRepository.findByIdRutaAndFechaProgramada(id_ruta,
+                fecha);
+        for (ProgramacionEntrega prog : programaciones) {
+            prog.setOrden(posiciones.get(prog.getId_cliente()));
+        }
+        programacionEntregaRepository.saveAll(programaciones);
+    }
+
     public List<ClienteDTO> getOptimizedRouteORTools(Long id_ruta, List<ClienteDTO> clientes) {
+        return getOptimizedRouteORTools(id_ruta, clientes, null);
+    }
+
+    public List<ClienteDTO> getOptimizedRouteORTools(Long id_ruta, List<ClienteDTO> clientes, String proveedor) {
+        return getOptimizedRouteORTools(id_ruta, clientes, proveedor, PerfilBusqueda.INTERACTIVO, null);
+    }
+
+    /**
+     * Optimiza el orden de visita de los clientes de una ruta.
+     * La búsqueda parte del último orden guardado para la ruta (programación anterior a la fecha o RutaCliente).
+     * @param proveedor Proveedor de distancias a usar; si es null se usa el de la ruta o el por defecto
+     * @param perfil Perfil de búsqueda (tiempo límite y metaheurística)
+     * @param fecha Fecha de reparto; si es null solo se usa el orden de RutaCliente como punto de partida
+     */
+    public List<ClienteDTO> getOptimizedRouteORTools(Long id_ruta, List<ClienteDTO> clientes, String proveedor,
+            PerfilBusqueda perfil, LocalDate fecha) {
+        return resolver(id_ruta, clientes, proveedor, perfil, fecha).orden();
+    }
+
+    /**
+     * Orden de visita y si la matriz usada tenía celdas estimadas con el respaldo del proveedor.
+     */
+    private record Solucion(List<ClienteDTO> orden, boolean estimada) {
+    }
+
+    private Solucion resolver(Long id_ruta, List<ClienteDTO> clientes, String proveedor, PerfilBusqueda perfil,
+            LocalDate fecha) {
 
         // Ordenar clientes por ID para garantizar consistencia en el orden de entrada
         List<ClienteDTO> clientesOrdenados = new ArrayList<>(clientes);
@@ -83,7 +259,18 @@ public class RutaService {
             locations.add(new double[] { c.getLatitud(), c.getLongitud() });
         }
 
-        long[][] distanceMatrix = getDistanceMatrixFromOSRM(locations);
+        DistanceProvider distanceProvider = distanceProviderRegistry.resolver(proveedor,
+                origen.getProveedor_distancias());
+        TablaDistancias tabla = getDistanceMatrix(distanceProvider, locations);
+        long[][] distanceMatrix = tabla.distancias();
+        long[][] durationMatrix = tabla.duraciones();
+
+        // Tiempo de servicio (segundos) en cada nodo; el origen no tiene
+        long[] servicio = new long[size];
+        for (int i = 0; i < clientesOrdenados.size(); i++) {
+            Integer minutos = clientesOrdenados.get(i).getTiempoServicioMinutos();
+            servicio[i + 1] = minutos != null ? minutos * 60L : 0L;
+        }
 
         RoutingIndexManager manager = new RoutingIndexManager(size, 1, 0);
         RoutingModel routing = new RoutingModel(manager);
@@ -96,10 +283,47 @@ public class RutaService {
 
         routing.setArcCostEvaluatorOfAllVehicles(transitCallbackIndex);
 
-        RoutingSearchParameters searchParameters = main.defaultRoutingSearchParameters().toBuilder()
-                .setFirstSolutionStrategy(FirstSolutionStrategy.Value.PATH_CHEAPEST_ARC).build();
+        // Dimensión de tiempo: viaje según el proveedor más el servicio en el nodo de partida.
+        // Se permite esperar (slack) hasta que abra la ventana del cliente.
+        final int timeCallbackIndex = routing.registerTransitCallback((long fromIndex, long toIndex) -> {
+            int fromNode = manager.indexToNode(fromIndex);
+            int toNode = manager.indexToNode(toIndex);
+            return durationMatrix[fromNode][toNode] + servicio[fromNode];
+        });
+        routing.addDimension(timeCallbackIndex, SEGUNDOS_DIA, SEGUNDOS_DIA, false, "Tiempo");
+        RoutingDimension timeDimension = routing.getMutableDimension("Tiempo");
 
-        Assignment solution = routing.solveWithParameters(searchParameters);
+        long salida = LocalTime.parse(horaSalida).toSecondOfDay();
+        timeDimension.cumulVar(routing.start(0)).setRange(salida, salida);
+
+        for (int i = 0; i < clientesOrdenados.size(); i++) {
+            ClienteDTO c = clientesOrdenados.get(i);
+            long index = manager.nodeToIndex(i + 1);
+            if (c.getVentanaInicio() != null) {
+                timeDimension.cumulVar(index).setMin(c.getVentanaInicio().toSecondOfDay());
+            }
+            if (c.getVentanaFin() != null) {
+                // Llegar tarde no invalida la ruta, pero se penaliza por sobre los kilómetros extra
+                timeDimension.setCumulVarSoftUpperBound(index, c.getVentanaFin().toSecondOfDay(),
+                        penalizacionRetrasoPorSegundo);
+            }
+        }
+
+        RoutingSearchParameters searchParameters = perfilesBusqueda.parametros(perfil);
+        routing.closeModelWithParameters(searchParameters);
+
+        // Arranque en caliente: el orden anterior suele estar cerca del óptimo
+        Assignment solution = null;
+        long[][] rutaPrevia = getRutaPrevia(id_ruta, fecha, clientesOrdenados);
+        if (rutaPrevia != null) {
+            Assignment inicial = routing.readAssignmentFromRoutes(rutaPrevia, true);
+            if (inicial != null) {
+                solution = routing.solveFromAssignmentWithParameters(inicial, searchParameters);
+            }
+        }
+        if (solution == null) {
+            solution = routing.solveWithParameters(searchParameters);
+        }
 
         List<ClienteDTO> orderedClients = new ArrayList<>();
         if (solution != null) {
@@ -107,75 +331,195 @@ public class RutaService {
             while (!routing.isEnd(index)) {
                 int nodeIndex = manager.indexToNode(index);
                 if (nodeIndex != 0) {
-                    orderedClients.add(clientesOrdenados.get(nodeIndex - 1));
+                    ClienteDTO cliente = clientesOrdenados.get(nodeIndex - 1);
+                    long llegada = solution.min(timeDimension.cumulVar(index));
+                    cliente.setEta(LocalTime.ofSecondOfDay(llegada % SEGUNDOS_DIA));
+                    orderedClients.add(cliente);
                 }
                 index = solution.value(routing.nextVar(index));
             }
         }
-        return orderedClients;
+        return new Solucion(orderedClients, tabla.tieneEstimadas());
     }
 
-    public String getOsrmRoute(List<ClienteDTO> orderedClients, Ruta origen) {
-        StringBuilder coords = new StringBuilder();
-        // Agrega primero el punto de partida (driver)
-        coords.append(origen.getLongitud()).append(",").append(origen.getLatitud());
-        // Luego los clientes en el orden óptimo
-        for (ClienteDTO c : orderedClients) {
-            coords.append(";").append(c.getLongitud()).append(",").append(c.getLatitud());
+    /**
+     * Orden de visita previo expresado en nodos del modelo (1..n). Los clientes sin orden guardado
+     * se agregan al final por ID, para que la ruta inicial visite a todos.
+     */
+    private long[][] getRutaPrevia(Long id_ruta, LocalDate fecha, List<ClienteDTO> clientesOrdenados) {
+        Map<Long, Integer> ordenPorCliente = new HashMap<>();
+        if (fecha != null) {
+            for (ProgramacionEntrega prog : programacionEntregaRepository.findUltimoOrdenAnterior(id_ruta, fecha)) {
+                ordenPorCliente.putIfAbsent(prog.getId_cliente(), prog.getOrden());
+            }
+        }
+        if (ordenPorCliente.isEmpty()) {
+            for (RutaCliente rc : rutaClienteRepository.findById_ruta(id_ruta)) {
+                if (rc.getOrden() != null) {
+                    ordenPorCliente.putIfAbsent(rc.getId_cliente(), rc.getOrden());
+                }
+            }
+        }
+        if (ordenPorCliente.isEmpty()) {
+            return null;
         }
 
-        coords.append(";").append(origen.getLongitud()).append(",").append(origen.getLatitud());
-
-        String url = "http://router.project-osrm.org/route/v1/driving/" + coords +
-                "?overview=full&geometries=geojson";
-
-        RestTemplate restTemplate = new RestTemplate();
-        return restTemplate.getForObject(url, String.class);
+        List<Integer> nodos = new ArrayList<>();
+        for (int i = 0; i < clientesOrdenados.size(); i++) {
+            nodos.add(i + 1);
+        }
+        nodos.sort((a, b) -> {
+            Integer ordenA = ordenPorCliente.getOrDefault(clientesOrdenados.get(a - 1).getId(), Integer.MAX_VALUE);
+            Integer ordenB = ordenPorCliente.getOrDefault(clientesOrdenados.get(b - 1).getId(), Integer.MAX_VALUE);
+            return ordenA.compareTo(ordenB);
+        });
+        return new long[][] { nodos.stream().mapToLong(Integer::longValue).toArray() };
     }
 
-    private long[][] getDistanceMatrixFromOSRM(List<double[]> locations) {
-        if (locations == null || locations.isEmpty()) {
-            throw new IllegalArgumentException("La lista de ubicaciones no puede ser nula o vacía");
-        }
-        StringBuilder coords = new StringBuilder();
-        for (double[] loc : locations) {
-            if (loc.length != 2) {
-                throw new IllegalArgumentException("Cada ubicación debe tener exactamente dos coordenadas");
+    /**
+     * Inserta un cliente en el recorrido guardado de la ruta (RutaCliente.orden) sin volver a resolverla:
+     * se prueba cada hueco entre paradas consecutivas y se elige el de menor distancia adicional.
+     * Solo hacen falta la fila y la columna del cliente nuevo y los arcos actuales del recorrido, que
+     * normalmente ya están en la caché. No considera ventanas horarias; para eso está la optimización completa.
+     * Si no se pueden obtener las distancias, el cliente queda al final del recorrido.
+     * @return Orden (desde 1) que le corresponde al cliente; el resto de la ruta ya queda renumerado
+     */
+    public int insertarEnRecorrido(Long idRuta, Long idCliente) {
+        List<RutaCliente> filas = rutaClienteRepository.findById_ruta(idRuta);
+        List<Long> recorrido = getRecorrido(filas);
+        recorrido.remove(idCliente);
+
+        int posicion = recorrido.size();
+        if (!recorrido.isEmpty()) {
+            try {
+                posicion = getPosicionInsercion(idRuta, idCliente, recorrido);
+            } catch (Exception e) {
+                log.warn("No se pudo calcular la inserción del cliente {} en la ruta {}, se agrega al final: {}",
+                        idCliente, idRuta, e.getMessage());
             }
-            coords.append(loc[1]) // Longitud
-                    .append(",")
-                    .append(loc[0]) // Latitud
-                    .append(";");
         }
+        recorrido.add(posicion, idCliente);
+        renumerarRecorrido(filas, recorrido);
+        return posicion + 1;
+    }
 
-        coords.setLength(coords.length() - 1);
+    /**
+     * Saca un cliente del recorrido guardado de la ruta y cierra el hueco: el anterior pasa a ir directo al siguiente.
+     */
+    public void quitarDeRecorrido(Long idRuta, Long idCliente) {
+        List<RutaCliente> filas = rutaClienteRepository.findById_ruta(idRuta).stream()
+                .filter(rc -> !idCliente.equals(rc.getId_cliente()))
+                .toList();
+        renumerarRecorrido(filas, getRecorrido(filas));
+    }
 
-        String url = "http://router.project-osrm.org/table/v1/driving/" + coords.toString() + "?annotations=distance";
+    /**
+     * Clientes de la ruta en el orden guardado; los que no tienen orden van al final por ID.
+     */
+    private List<Long> getRecorrido(List<RutaCliente> filas) {
+        Map<Long, Integer> ordenPorCliente = new HashMap<>();
+        for (RutaCliente rc : filas) {
+            int orden = rc.getOrden() != null ? rc.getOrden() : Integer.MAX_VALUE;
+            ordenPorCliente.merge(rc.getId_cliente(), orden, Math::min);
+        }
+        List<Long> recorrido = new ArrayList<>(ordenPorCliente.keySet());
+        recorrido.sort((a, b) -> {
+            int comparacion = ordenPorCliente.get(a).compareTo(ordenPorCliente.get(b));
+            return comparacion != 0 ? comparacion : a.compareTo(b);
+        });
+        return recorrido;
+    }
 
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<Map<String, Object>> responseEntity = restTemplate.exchange(url, HttpMethod.GET, null,
-                new ParameterizedTypeReference<Map<String, Object>>() {
-                });
+    private void renumerarRecorrido(List<RutaCliente> filas, List<Long> recorrido) {
+        Map<Long, Integer> posiciones = new HashMap<>();
+        for (int i = 0; i < recorrido.size(); i++) {
+            posiciones.put(recorrido.get(i), i + 1);
+        }
+        List<RutaCliente> modificadas = new ArrayList<>();
+        for (RutaCliente rc : filas) {
+            Integer orden = posiciones.get(rc.getId_cliente());
+            if (orden != null && !orden.equals(rc.getOrden())) {
+                rc.setOrden(orden);
+                modificadas.add(rc);
+            }
+        }
+        if (!modificadas.isEmpty()) {
+            rutaClienteRepository.saveAll(modificadas);
+        }
+    }
 
-        Map<String, Object> response = responseEntity.getBody();
-        if (response == null) {
-            throw new RuntimeException("Respuesta vacía de OSRM");
+    /**
+     * Hueco del recorrido (0 = justo después del origen) donde insertar al cliente con menor costo:
+     * d(anterior, nuevo) + d(nuevo, siguiente) - d(anterior, siguiente). Los clientes sin coordenadas no
+     * participan del cálculo.
+     */
+    private int getPosicionInsercion(Long idRuta, Long idCliente, List<Long> recorrido) {
+        Ruta origen = getOrigenRuta(idRuta);
+        List<Long> ids = new ArrayList<>(recorrido);
+        ids.add(idCliente);
+        Map<Long, ClienteDTO> clientesPorId = clienteServiceClient.getClientesByIds(ids).stream()
+                .filter(c -> c.getLatitud() != null && c.getLongitud() != null)
+                .collect(Collectors.toMap(ClienteDTO::getId, c -> c, (a, b) -> a));
+        ClienteDTO nuevo = clientesPorId.get(idCliente);
+        if (nuevo == null) {
+            throw new RuntimeException("El cliente " + idCliente + " no tiene coordenadas");
         }
 
-        // Extraer la matriz de distancias desde el JSON
-        List<List<Number>> distances = (List<List<Number>>) response.get("distances");
-        if (distances == null) {
-            throw new RuntimeException("Matriz de distancias vacía");
+        // Nodos: 0 = origen, 1..m = paradas con coordenadas en el orden guardado, m + 1 = cliente nuevo
+        List<double[]> ubicaciones = new ArrayList<>();
+        ubicaciones.add(new double[] { origen.getLatitud(), origen.getLongitud() });
+        List<Integer> posicionEnRecorrido = new ArrayList<>();
+        for (int i = 0; i < recorrido.size(); i++) {
+            ClienteDTO c = clientesPorId.get(recorrido.get(i));
+            if (c != null) {
+                ubicaciones.add(new double[] { c.getLatitud(), c.getLongitud() });
+                posicionEnRecorrido.add(i);
+            }
         }
-        int size = distances.size();
-        long[][] distanceMatrix = new long[size][size];
+        int paradas = posicionEnRecorrido.size();
+        int nodoNuevo = paradas + 1;
+        ubicaciones.add(new double[] { nuevo.getLatitud(), nuevo.getLongitud() });
+
+        List<int[]> pares = new ArrayList<>();
+        for (int hueco = 0; hueco <= paradas; hueco++) {
+            int anterior = hueco;
+            int siguiente = hueco == paradas ? 0 : hueco + 1;
+            pares.add(new int[] { anterior, nodoNuevo });
+            pares.add(new int[] { nodoNuevo, siguiente });
+            pares.add(new int[] { anterior, siguiente });
+        }
+        DistanceProvider proveedor = distanceProviderRegistry.resolver(null, origen.getProveedor_distancias());
+        long[] distancias = distanciaCacheService.obtenerDistancias(proveedor, ubicaciones, pares);
+
+        int mejorHueco = 0;
+        long mejorCosto = Long.MAX_VALUE;
+        for (int hueco = 0; hueco <= paradas; hueco++) {
+            long costo = distancias[3 * hueco] + distancias[3 * hueco + 1] - distancias[3 * hueco + 2];
+            if (costo < mejorCosto) {
+                mejorCosto = costo;
+                mejorHueco = hueco;
+            }
+        }
+        log.debug("Cliente {} insertado en el hueco {} de la ruta {} (+{} m)", idCliente, mejorHueco, idRuta, mejorCosto);
+        return mejorHueco == 0 ? 0 : posicionEnRecorrido.get(mejorHueco - 1) + 1;
+    }
+
+    public String getOsrmRoute(List<ClienteDTO> orderedClients, Ruta origen) {
+        return geometriaRutaService.obtenerRuta(orderedClients, origen);
+    }
 
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                distanceMatrix[i][j] = distances.get(i).get(j).longValue();
+    private TablaDistancias getDistanceMatrix(DistanceProvider proveedor, List<double[]> locations) {
+        if (locations == null || locations.isEmpty()) {
+            throw new IllegalArgumentException("La lista de ubicaciones no puede ser nula o vacía");
+        }
+        for (double[] loc : locations) {
+            if (loc.length != 2) {
+                throw new IllegalArgumentException("Cada ubicación debe tener exactamente dos coordenadas");
             }
         }
-        return distanceMatrix;
+
+        // Solo se consultan al proveedor las filas/columnas que no están en la caché
+        return distanciaCacheService.obtenerMatriz(proveedor, locations);
     }
 
     public Ruta getOrigenRuta(Long id_ruta) {
@@ -273,9 +617,10 @@ public class RutaService {
             RutaCliente rutaCliente = new RutaCliente();
             rutaCliente.setId_ruta(idRuta);
             rutaCliente.setId_cliente(idCliente);
-            rutaCliente.setOrden(1); // Revisar si el orden afecta en algo
+            rutaCliente.setOrden(insertarEnRecorrido(idRuta, idCliente));
 
             rutaClienteRepository.save(rutaCliente);
+            resultadoOptimizacionService.invalidarRuta(idRuta);
         } catch (Exception e) {
             throw new RuntimeException("Error al asignar cliente a ruta: " + e.getMessage());
         }
@@ -290,15 +635,26 @@ public class RutaService {
             }
 
             // Eliminar las asignaciones existentes del cliente (de todas las rutas y fechas)
+            List<Long> rutasAnteriores = rutaClienteRepository.findByIdClienteIn(List.of(idCliente)).stream()
+                    .map(RutaCliente::getId_ruta)
+                    .distinct()
+                    .toList();
+            rutasAnteriores.forEach(resultadoOptimizacionService::invalidarRuta);
             rutaClienteRepository.deleteByIdCliente(idCliente);
+            for (Long rutaAnterior : rutasAnteriores) {
+                if (!rutaAnterior.equals(idRuta)) {
+                    quitarDeRecorrido(rutaAnterior, idCliente);
+                }
+            }
 
             // Crear nueva asignación
             RutaCliente rutaCliente = new RutaCliente();
             rutaCliente.setId_ruta(idRuta);
             rutaCliente.setId_cliente(idCliente);
-            rutaCliente.setOrden(1);
+            rutaCliente.setOrden(insertarEnRecorrido(idRuta, idCliente));
 
             rutaClienteRepository.save(rutaCliente);
+            resultadoOptimizacionService.invalidarRuta(idRuta);
         } catch (Exception e) {
             throw new RuntimeException("Error al reasignar cliente a ruta: " + e.getMessage());
         }
@@ -319,6 +675,7 @@ public class RutaService {
             }
 
             // Ahora eliminar la ruta
+            resultadoOptimizacionService.invalidarRuta(idRuta);
             rutaRepository.deleteById(idRuta);
         } catch (Exception e) {
             throw new RuntimeException("Error al eliminar ruta: " + e.getMessage());
@@ -664,6 +1021,8 @@ public class RutaService {
         rutaClienteRepository.deleteAll(rutasClientes);
         
         // Eliminar la ruta
+        resultadoOptimizacionService.invalidarRuta(idRuta);
+        dashboardService.programacionCambiada(null);
         rutaRepository.delete(ruta);
         
         log.info("Ruta eliminada exitosamente: {}", idRuta);
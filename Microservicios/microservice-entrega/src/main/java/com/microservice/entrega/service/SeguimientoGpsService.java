@@ -0,0 +1,191 @@
+package com.microservice.entrega.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.microservice.entrega.dto.PosicionDTO;
+import com.microservice.entrega.entity.SesionReparto;
+import com.microservice.entrega.repository.SesionRepartoRepository;
+import com.microservice.entrega.service.seguimiento.BufferPosiciones;
+import com.microservice.entrega.service.seguimiento.Posicion;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ingesta de posiciones GPS de los drivers. Cada sesión de reparto tiene un buffer circular en memoria
+ * donde caen los pings; un vaciado periódico los escribe por lotes con JDBC. La última posición de cada
+ * sesión se responde desde memoria, sin consultar la base.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SeguimientoGpsService {
+
+    static final String INSERT_POSICION = "INSERT INTO posicion_driver "
+            + "(id_sesion, id_driver, latitud, longitud, velocidad_kmh, precision_metros, hora) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final SesionRepartoRepository sesionRepartoRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EtaEnVivoService etaEnVivoService;
+    private final GeocercaService geocercaService;
+
+    // Pings retenidos por sesión entre vaciados; con un ping cada 5 s alcanza para más de una hora
+    @Value("${gps.buffer.capacidad:1024}")
+    private int capacidad = 1024;
+
+    @Value("${gps.flush.lote:500}")
+    private int tamanoLote = 500;
+
+    // Sesiones sin pings por este tiempo se sacan de memoria después de vaciarlas
+    @Value("${gps.sesion.inactividad-minutos:30}")
+    private long inactividadMinutos = 30;
+
+    // Adelanto aceptado en la hora que informa el dispositivo; más que esto se toma la hora del servidor
+    @Value("${gps.hora.tolerancia-segundos:30}")
+    private long toleranciaSegundos = 30;
+
+    private final Map<Long, BufferPosiciones> buffers = new ConcurrentHashMap<>();
+
+    public Posicion registrar(Long idSesion, PosicionDTO dto) {
+        if (dto.getLatitud() == null || dto.getLongitud() == null
+                || Math.abs(dto.getLatitud()) > 90 || Math.abs(dto.getLongitud()) > 180) {
+            throw new IllegalArgumentException("Coordenadas inválidas");
+        }
+        BufferPosiciones buffer = buffers.get(idSesion);
+        if (buffer == null) {
+            // Solo el primer ping de cada sesión consulta la base
+            SesionReparto sesion = sesionRepartoRepository.findById(idSesion)
+                    .orElseThrow(() -> new RuntimeException("Sesión de reparto no encontrada con ID: " + idSesion));
+            if (sesion.getHora_retorno() != null) {
+                throw new IllegalStateException("La sesión de reparto " + idSesion + " ya terminó");
+            }
+            buffer = buffers.computeIfAbsent(idSesion, id -> new BufferPosiciones(id, sesion.getId_driver(), capacidad));
+        }
+        // Un reloj adelantado dejaría fija la última posición (la de hora más reciente) el resto de la sesión
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime hora = dto.getHora() == null || dto.getHora().isAfter(ahora.plusSeconds(toleranciaSegundos))
+                ? ahora : dto.getHora();
+        Posicion posicion = new Posicion(idSesion, buffer.getIdDriver(), dto.getLatitud(), dto.getLongitud(),
+                dto.getVelocidad_kmh(), dto.getPrecision_metros(), hora);
+        buffer.agregar(posicion);
+        try {
+            etaEnVivoService.registrarPosicion(posicion);
+            geocercaService.procesar(posicion);
+        } catch (Exception e) {
+            log.warn("No se pudo procesar la posición de la sesión {}: {}", idSesion, e.getMessage());
+        }
+        return posicion;
+    }
+
+    public Posicion getUltimaPosicion(Long idSesion) {
+        BufferPosiciones buffer = buffers.get(idSesion);
+        return buffer != null ? buffer.getUltima() : null;
+    }
+
+    /**
+     * Última posición de cada sesión con pings recientes, para el mapa de administración.
+     */
+    public List<Posicion> getUltimasPosiciones() {
+        List<Posicion> posiciones = new ArrayList<>();
+        for (BufferPosiciones buffer : buffers.values()) {
+            if (buffer.getUltima() != null) {
+                posiciones.add(buffer.getUltima());
+            }
+        }
+        return posiciones;
+    }
+
+    /**
+     * Cierra el seguimiento de una sesión que terminó: guarda lo pendiente de su buffer y lo libera. El siguiente
+     * ping de esa sesión vuelve a consultar la base, ve la hora de retorno y se rechaza.
+     */
+    public synchronized void terminarSesion(Long idSesion) {
+        BufferPosiciones buffer = buffers.remove(idSesion);
+        if (buffer == null) {
+            return;
+        }
+        List<Posicion> lote = new ArrayList<>();
+        buffer.drenar(lote::add);
+        guardar(lote);
+        log.info("Sesión {} terminada, se libera su buffer de posiciones", idSesion);
+    }
+
+    /**
+     * Escribe en la base todo lo pendiente de los buffers y libera las sesiones inactivas.
+     */
+    @Scheduled(fixedDelayString = "${gps.flush.intervalo-ms:5000}")
+    public synchronized int volcar() {
+        List<Posicion> lote = new ArrayList<>();
+        long limiteInactividad = System.currentTimeMillis() - inactividadMinutos * 60_000;
+        for (BufferPosiciones buffer : buffers.values()) {
+            buffer.drenar(lote::add);
+            if (buffer.getUltimaRecepcionMs() < limiteInactividad && buffers.remove(buffer.getIdSesion(), buffer)) {
+                // Un ping pudo tomar el buffer justo antes de sacarlo
+                buffer.drenar(lote::add);
+                log.info("Sesión {} sin posiciones recientes, se libera su buffer ({} descartadas)",
+                        buffer.getIdSesion(), buffer.getDescartadas());
+            }
+        }
+        return guardar(lote);
+    }
+
+    private int guardar(List<Posicion> lote) {
+        if (lote.isEmpty()) {
+            return 0;
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_POSICION, lote, tamanoLote, (ps, p) -> {
+                ps.setLong(1, p.idSesion());
+                ps.setObject(2, p.idDriver());
+                ps.setDouble(3, p.latitud());
+                ps.setDouble(4, p.longitud());
+                ps.setObject(5, p.velocidadKmh());
+                ps.setObject(6, p.precisionMetros());
+                ps.setTimestamp(7, Timestamp.valueOf(p.hora()));
+            });
+            log.debug("{} posiciones GPS guardadas", lote.size());
+            return lote.size();
+        } catch (Exception e) {
+            // Se devuelven a su buffer para el próximo intento; si la base sigue caída se pisan las más antiguas
+            log.error("No se pudieron guardar {} posiciones GPS: {}", lote.size(), e.getMessage());
+            for (Posicion p : lote) {
+                BufferPosiciones buffer = buffers.get(p.idSesion());
+                if (buffer != null) {
+                    buffer.agregar(p);
+                }
+            }
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        volcar();
+    }
+
+    public Map<String, Object> getEstado() {
+        Map<String, Object> estado = new HashMap<>();
+        long pendientes = 0;
+        long descartadas = 0;
+        for (BufferPosiciones buffer : buffers.values()) {
+            pendientes += buffer.pendientes();
+            descartadas += buffer.getDescartadas();
+        }
+        estado.put("sesionesActivas", buffers.size());
+        estado.put("pendientes", pendientes);
+        estado.put("descartadas", descartadas);
+        return estado;
+    }
+}
@@ -0,0 +1,112 @@
+package com.microservice.entrega.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.microservice.entrega.client.UsuarioServiceClient;
+import com.microservice.entrega.dto.UsuarioDTO;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caché cercana y de vida corta de los usuarios (drivers) que se muestran junto a las rutas. Los ids que
+ * faltan o vencieron se piden a usuario-service en una sola llamada batch; los ids que no existen también
+ * se recuerdan para no volver a pedirlos en cada listado. Si usuario-service no responde se usa lo que
+ * haya en memoria, aunque esté vencido. Pasado el máximo de entradas se descartan las menos usadas.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UsuarioCacheService {
+
+    private record Entrada(UsuarioDTO usuario, long expira) {
+    }
+
+    private final UsuarioServiceClient usuarioServiceClient;
+
+    @Value("${usuarios.cache.ttl-segundos:60}")
+    private long ttlSegundos = 60;
+
+    @Value("${usuarios.cache.max-entradas:5000}")
+    private int maxEntradas = 5000;
+
+    private final Map<Long, Entrada> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entrada> eldest) {
+            return size() > maxEntradas;
+        }
+    };
+
+    /**
+     * Usuarios por id; los ids que usuario-service no conoce no aparecen en el mapa.
+     */
+    public Map<Long, UsuarioDTO> obtenerUsuarios(Collection<Long> ids) {
+        long ahora = System.currentTimeMillis();
+        Map<Long, UsuarioDTO> usuarios = new HashMap<>();
+        Set<Long> faltantes = new LinkedHashSet<>();
+        synchronized (cache) {
+            for (Long id : ids) {
+                if (id == null) {
+                    continue;
+                }
+                Entrada entrada = cache.get(id);
+                if (entrada == null || entrada.expira() < ahora) {
+                    faltantes.add(id);
+                } else if (entrada.usuario() != null) {
+                    usuarios.put(id, entrada.usuario());
+                }
+            }
+        }
+        if (faltantes.isEmpty()) {
+            return usuarios;
+        }
+
+        try {
+            List<UsuarioDTO> encontrados = usuarioServiceClient.getUsuariosByIds(new ArrayList<>(faltantes));
+            long expira = ahora + ttlSegundos * 1000;
+            synchronized (cache) {
+                for (UsuarioDTO usuario : encontrados) {
+                    cache.put(usuario.getId(), new Entrada(usuario, expira));
+                    usuarios.put(usuario.getId(), usuario);
+                    faltantes.remove(usuario.getId());
+                }
+                for (Long id : faltantes) {
+                    cache.put(id, new Entrada(null, expira));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Error al obtener usuarios {}: {}", faltantes, e.getMessage());
+            synchronized (cache) {
+                for (Long id : faltantes) {
+                    Entrada vencida = cache.get(id);
+                    if (vencida != null && vencida.usuario() != null) {
+                        usuarios.put(id, vencida.usuario());
+                    }
+                }
+            }
+        }
+        return usuarios;
+    }
+
+    public Map<Long, String> obtenerNombres(Collection<Long> ids) {
+        Map<Long, String> nombres = new HashMap<>();
+        obtenerUsuarios(ids).forEach((id, usuario) -> nombres.put(id, usuario.getNombre()));
+        return nombres;
+    }
+
+    public void invalidar(Long id) {
+        synchronized (cache) {
+            cache.remove(id);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.microservice.entrega.service.asignacion;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+
+/**
+ * Grilla en memoria de puntos [latitud, longitud] con celdas de tamaño fijo en metros.
+ * Buscar los vecinos de un punto solo recorre las celdas cercanas (anillos crecientes),
+ * en vez de comparar contra todos los puntos.
+ */
+public class IndiceEspacial<T> {
+
+    private static final double METROS_POR_GRADO = 111_320.0;
+
+    public record Vecino<T>(T valor, double latitud, double longitud, double metros) {
+    }
+
+    private record Entrada<T>(T valor, double latitud, double longitud) {
+    }
+
+    private final double altoCelda;
+    private final double anchoCelda;
+    private final double celdaMetros;
+    private final Map<Long, List<Entrada<T>>> celdas = new HashMap<>();
+    private int tamano;
+    // Rectángulo de celdas ocupadas
+    private int filaMin = Integer.MAX_VALUE;
+    private int filaMax = Integer.MIN_VALUE;
+    private int columnaMin = Integer.MAX_VALUE;
+    private int columnaMax = Integer.MIN_VALUE;
+
+    /**
+     * @param latitudReferencia latitud de la zona; fija el ancho de las celdas en grados de longitud
+     */
+    public IndiceEspacial(double celdaMetros, double latitudReferencia) {
+        this.celdaMetros = celdaMetros;
+        this.altoCelda = celdaMetros / METROS_POR_GRADO;
+        this.anchoCelda = celdaMetros / (METROS_POR_GRADO * Math.max(0.01, Math.cos(Math.toRadians(latitudReferencia))));
+    }
+
+    public void agregar(double latitud, double longitud, T valor) {
+        int fila = fila(latitud);
+        int columna = columna(longitud);
+        celdas.computeIfAbsent(clave(fila, columna), k -> new ArrayList<>())
+                .add(new Entrada<>(valor, latitud, longitud));
+        tamano++;
+        filaMin = Math.min(filaMin, fila);
+        filaMax = Math.max(filaMax, fila);
+        columnaMin = Math.min(columnaMin, columna);
+        columnaMax = Math.max(columnaMax, columna);
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    /**
+     * Al menos {@code minimo} vecinos (si los hay) ordenados por distancia; ver {@link #buscar(double, double, int, double)}.
+     */
+    public List<Vecino<T>> buscar(double latitud, double longitud, int minimo) {
+        return buscar(latitud, longitud, minimo, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Al menos {@code minimo} vecinos a no más de {@code maxMetros} (si los hay), ordenados por distancia. Se
+     * recorre solo el borde de cada anillo de celdas, recortado al rectángulo de celdas ocupadas, empezando por el
+     * primer anillo que lo toca. La búsqueda termina cuando ningún punto del anillo siguiente puede estar más cerca
+     * que el vecino número {@code minimo}, cuando supera {@code maxMetros} o cuando ya cubrió todo el rectángulo,
+     * así un punto lejos de todos no recorre miles de anillos vacíos.
+     */
+    public List<Vecino<T>> buscar(double latitud, double longitud, int minimo, double maxMetros) {
+        List<Vecino<T>> vecinos = new ArrayList<>();
+        if (tamano == 0) {
+            return vecinos;
+        }
+        int fila = fila(latitud);
+        int columna = columna(longitud);
+        int primerAnillo = Math.max(0, Math.max(Math.max(filaMin - fila, fila - filaMax),
+                Math.max(columnaMin - columna, columna - columnaMax)));
+        int ultimoAnillo = Math.max(Math.max(Math.abs(filaMin - fila), Math.abs(filaMax - fila)),
+                Math.max(Math.abs(columnaMin - columna), Math.abs(columnaMax - columna)));
+
+        for (int anillo = primerAnillo; anillo <= ultimoAnillo; anillo++) {
+            // Entre el punto y una celda del anillo hay al menos (anillo - 1) celdas completas
+            double minimoAnillo = Math.max(0, anillo - 1) * celdaMetros;
+            if (minimoAnillo > maxMetros) {
+                break;
+            }
+            if (minimo > 0 && vecinos.size() >= minimo) {
+                vecinos.sort(Comparator.comparingDouble(Vecino::metros));
+                if (minimoAnillo > vecinos.get(minimo - 1).metros()) {
+                    break;
+                }
+            }
+            int desdeColumna = Math.max(columna - anillo, columnaMin);
+            int hastaColumna = Math.min(columna + anillo, columnaMax);
+            // Filas superior e inferior completas
+            for (int f : anillo == 0 ? new int[] { fila } : new int[] { fila - anillo, fila + anillo }) {
+                if (f < filaMin || f > filaMax) {
+                    continue;
+                }
+                for (int c = desdeColumna; c <= hastaColumna; c++) {
+                    agregarCelda(f, c, latitud, longitud, vecinos);
+                }
+            }
+            if (anillo == 0) {
+                continue;
+            }
+            // Columnas izquierda y derecha sin las esquinas
+            int desdeFila = Math.max(fila - anillo + 1, filaMin);
+            int hastaFila = Math.min(fila + anillo - 1, filaMax);
+            for (int c : new int[] { columna - anillo, columna + anillo }) {
+                if (c < columnaMin || c > columnaMax) {
+                    continue;
+                }
+                for (int f = desdeFila; f <= hastaFila; f++) {
+                    agregarCelda(f, c, latitud, longitud, vecinos);
+                }
+            }
+        }
+        if (maxMetros != Double.POSITIVE_INFINITY) {
+            vecinos.removeIf(v -> v.metros() > maxMetros);
+        }
+        vecinos.sort(Comparator.comparingDouble(Vecino::metros));
+        return vecinos;
+    }
+
+    private void agregarCelda(int fila, int columna, double latitud, double longitud, List<Vecino<T>> vecinos) {
+        List<Entrada<T>> celda = celdas.get(clave(fila, columna));
+        if (celda == null) {
+            return;
+        }
+        for (Entrada<T> e : celda) {
+            vecinos.add(new Vecino<>(e.valor(), e.latitud(), e.longitud(),
+                    HaversineDistanceProvider.haversine(latitud, longitud, e.latitud(), e.longitud())));
+        }
+    }
+
+    /**
+     * Puntos a no más de {@code metros}; solo revisa las celdas que alcanza el radio.
+     */
+    public List<Vecino<T>> dentroDeRadio(double latitud, double longitud, double metros) {
+        List<Vecino<T>> vecinos = new ArrayList<>();
+        int fila = fila(latitud);
+        int columna = columna(longitud);
+        // Las celdas miden lo mismo en metros hacia ambos lados
+        int anillos = (int) Math.ceil(metros / (altoCelda * METROS_POR_GRADO));
+        for (int df = -anillos; df <= anillos; df++) {
+            for (int dc = -anillos; dc <= anillos; dc++) {
+                List<Entrada<T>> celda = celdas.get(clave(fila + df, columna + dc));
+                if (celda == null) {
+                    continue;
+                }
+                for (Entrada<T> e : celda) {
+                    double distancia = HaversineDistanceProvider.haversine(latitud, longitud, e.latitud(), e.longitud());
+                    if (distancia <= metros) {
+                        vecinos.add(new Vecino<>(e.valor(), e.latitud(), e.longitud(), distancia));
+                    }
+                }
+            }
+        }
+        vecinos.sort(Comparator.comparingDouble(Vecino::metros));
+        return vecinos;
+    }
+
+    private int fila(double latitud) {
+        return (int) Math.floor(latitud / altoCelda);
+    }
+
+    private int columna(double longitud) {
+        return (int) Math.floor(longitud / anchoCelda);
+    }
+
+    private long clave(int fila, int columna) {
+        return ((long) fila << 32) | (columna & 0xffffffffL);
+    }
+}
@@ -0,0 +1,138 @@
+package com.microservice.entrega.service.concurrencia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.microservice.entrega.config.FeignClientInterceptor;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ejecuta en paralelo, en hilos virtuales, las llamadas independientes que arma un endpoint (Feign o
+ * consultas a la base). Cada llamada tiene su propio tiempo límite y un valor por defecto: si falla o
+ * no responde a tiempo, el grupo sigue con el valor por defecto y la anota como fallida, así la
+ * respuesta sale parcial en vez de fallar entera. La latencia total queda en la de la llamada más lenta.
+ */
+@Slf4j
+@Component
+public class LlamadasParalelas {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${llamadas.paralelas.timeout-ms:3000}")
+    private long timeoutMs = 3000;
+
+    /**
+     * Nuevo grupo de llamadas; toma el token del request actual para propagarlo a los hilos virtuales.
+     */
+    public Grupo grupo() {
+        return new Grupo(FeignClientInterceptor.tokenActual());
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    public class Grupo {
+
+        private final String token;
+        private final List<CompletableFuture<?>> llamadas = new ArrayList<>();
+        private final List<String> fallidas = Collections.synchronizedList(new ArrayList<>());
+
+        private Grupo(String token) {
+            this.token = token;
+        }
+
+        public <T> CompletableFuture<T> enviar(String nombre, Supplier<T> tarea, T porDefecto) {
+            return enviar(nombre, tarea, porDefecto, timeoutMs);
+        }
+
+        /**
+         * Lanza la llamada y devuelve un futuro que siempre termina bien: con el resultado, o con
+         * {@code porDefecto} si la llamada lanzó una excepción o superó {@code limiteMs}.
+         */
+        public <T> CompletableFuture<T> enviar(String nombre, Supplier<T> tarea, T porDefecto, long limiteMs) {
+            CompletableFuture<T> resultado = new CompletableFuture<>();
+            Future<?> hilo = executor.submit(() -> {
+                try {
+                    resultado.complete(FeignClientInterceptor.conToken(token, tarea));
+                } catch (Throwable e) {
+                    resultado.completeExceptionally(e);
+                }
+            });
+            CompletableFuture<T> conDefecto = resultado
+                    .orTimeout(limiteMs, TimeUnit.MILLISECONDS)
+                    .exceptionally(e -> {
+                        Throwable causa = e.getCause() != null ? e.getCause() : e;
+                        if (causa instanceof TimeoutException) {
+                            hilo.cancel(true);
+                            log.warn("Llamada '{}' sin respuesta en {} ms, se sigue sin sus datos", nombre, limiteMs);
+                        } else {
+                            log.warn("Llamada '{}' falló, se sigue sin sus datos: {}", nombre, causa.getMessage());
+                        }
+                        fallidas.add(nombre);
+                        return porDefecto;
+                    });
+            llamadas.add(conDefecto);
+            return conDefecto;
+        }
+
+        /**
+         * Parte {@code ids} en lotes y lanza una llamada por lote; el futuro junta los resultados de los
+         * lotes que respondieron.
+         */
+        public <T> CompletableFuture<List<T>> enviarPorLotes(String nombre, List<Long> ids, int tamanoLote,
+                Function<List<Long>, List<T>> tarea) {
+            List<CompletableFuture<List<T>>> lotes = new ArrayList<>();
+            for (int desde = 0; desde < ids.size(); desde += tamanoLote) {
+                List<Long> lote = List.copyOf(ids.subList(desde, Math.min(ids.size(), desde + tamanoLote)));
+                lotes.add(enviar(nombre, () -> tarea.apply(lote), List.of()));
+            }
+            return CompletableFuture.allOf(lotes.toArray(new CompletableFuture[0]))
+                    .thenApply(v -> {
+                        List<T> todos = new ArrayList<>();
+                        for (CompletableFuture<List<T>> lote : lotes) {
+                            List<T> parte = lote.join();
+                            if (parte != null) {
+                                todos.addAll(parte);
+                            }
+                        }
+                        return todos;
+                    });
+        }
+
+        /**
+         * Espera a que terminen (o venzan) todas las llamadas enviadas.
+         */
+        public void esperar() {
+            CompletableFuture.allOf(llamadas.toArray(new CompletableFuture[0])).join();
+        }
+
+        /**
+         * Nombres de las llamadas que se completaron con su valor por defecto, sin repetir.
+         */
+        public List<String> getFallidas() {
+            synchronized (fallidas) {
+                return fallidas.stream().distinct().toList();
+            }
+        }
+
+        public boolean isCompleto() {
+            return fallidas.isEmpty();
+        }
+    }
+}
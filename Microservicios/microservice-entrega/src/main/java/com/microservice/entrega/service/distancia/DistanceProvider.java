@@ -0,0 +1,35 @@
+package com.microservice.entrega.service.distancia;
+
+import java.util.List;
+
+/**
+ * Motor de cálculo de distancias entre ubicaciones ([latitud, longitud]).
+ */
+public interface DistanceProvider {
+
+    /**
+     * Nombre con el que se selecciona el proveedor (por request o por ruta).
+     */
+    String getNombre();
+
+    /**
+     * Devuelve matrices de origenes.size() x destinos.size() con distancias (metros) y
+     * duraciones (segundos). Los índices hacen referencia a la lista de ubicaciones.
+     */
+    TablaDistancias calcularTabla(List<double[]> ubicaciones, List<Integer> origenes, List<Integer> destinos);
+
+    /**
+     * Indica si conviene guardar los resultados en la caché persistente de distancias.
+     */
+    default boolean usaCache() {
+        return true;
+    }
+
+    /**
+     * Proveedor sin red con el que estimar las distancias si este no responde (null = sin respaldo).
+     * Lo estimado no se guarda en la caché persistente de este proveedor.
+     */
+    default DistanceProvider getRespaldo() {
+        return null;
+    }
+}
@@ -0,0 +1,52 @@
+package com.microservice.entrega.service.distancia;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registro de proveedores de distancia disponibles, indexados por nombre.
+ */
+@Component
+public class DistanceProviderRegistry {
+
+    private final Map<String, DistanceProvider> proveedores = new LinkedHashMap<>();
+
+    @Value("${distancia.proveedor.defecto:osrm}")
+    private String proveedorPorDefecto = "osrm";
+
+    public DistanceProviderRegistry(List<DistanceProvider> disponibles) {
+        for (DistanceProvider proveedor : disponibles) {
+            proveedores.put(proveedor.getNombre().toLowerCase(), proveedor);
+        }
+    }
+
+    /**
+     * Devuelve el primer proveedor indicado (request, ruta, ...) o el proveedor por defecto.
+     */
+    public DistanceProvider resolver(String... preferencias) {
+        for (String nombre : preferencias) {
+            if (nombre != null && !nombre.isBlank()) {
+                return obtener(nombre);
+            }
+        }
+        return obtener(proveedorPorDefecto);
+    }
+
+    public DistanceProvider obtener(String nombre) {
+        DistanceProvider proveedor = proveedores.get(nombre.trim().toLowerCase());
+        if (proveedor == null) {
+            throw new IllegalArgumentException("Proveedor de distancias desconocido: " + nombre
+                    + ". Disponibles: " + proveedores.keySet());
+        }
+        return proveedor;
+    }
+
+    public Set<String> getNombres() {
+        return proveedores.keySet();
+    }
+}
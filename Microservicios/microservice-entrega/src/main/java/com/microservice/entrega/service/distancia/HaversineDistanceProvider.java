@@ -0,0 +1,71 @@
+package com.microservice.entrega.service.distancia;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Proveedor en proceso: distancia de círculo máximo multiplicada por un factor de
+ * circuidad que aproxima el recorrido real por calles. No requiere red.
+ */
+@Component
+public class HaversineDistanceProvider implements DistanceProvider {
+
+    public static final String NOMBRE = "haversine";
+
+    private static final double RADIO_TIERRA_METROS = 6_371_000.0;
+
+    @Value("${distancia.haversine.factor-circuito:1.3}")
+    private double factorCircuito = 1.3;
+
+    @Value("${distancia.haversine.velocidad-kmh:30}")
+    private double velocidadKmh = 30;
+
+    @Override
+    public String getNombre() {
+        return NOMBRE;
+    }
+
+    @Override
+    public boolean usaCache() {
+        return false;
+    }
+
+    @Override
+    public TablaDistancias calcularTabla(List<double[]> ubicaciones, List<Integer> origenes, List<Integer> destinos) {
+        long[][] distancias = new long[origenes.size()][destinos.size()];
+        long[][] duraciones = new long[origenes.size()][destinos.size()];
+        for (int a = 0; a < origenes.size(); a++) {
+            double[] origen = ubicaciones.get(origenes.get(a));
+            for (int b = 0; b < destinos.size(); b++) {
+                distancias[a][b] = distanciaVial(origen, ubicaciones.get(destinos.get(b)));
+                duraciones[a][b] = duracion(distancias[a][b]);
+            }
+        }
+        return new TablaDistancias(distancias, duraciones);
+    }
+
+    /**
+     * Tiempo de viaje estimado (segundos) para una distancia vial, a la velocidad media configurada.
+     */
+    public long duracion(long metros) {
+        return Math.round(metros / (velocidadKmh / 3.6));
+    }
+
+    /**
+     * Distancia estimada por calles (metros) entre dos puntos [latitud, longitud].
+     */
+    public long distanciaVial(double[] origen, double[] destino) {
+        return Math.round(haversine(origen[0], origen[1], destino[0], destino[1]) * factorCircuito);
+    }
+
+    public static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                        * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RADIO_TIERRA_METROS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
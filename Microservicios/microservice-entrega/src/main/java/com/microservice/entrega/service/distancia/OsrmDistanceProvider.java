@@ -0,0 +1,234 @@
+package com.microservice.entrega.service.distancia;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Proveedor basado en el servicio "table" de un servidor OSRM
+ * (el servidor público o uno propio, según la URL base).
+ * Las tablas grandes se dividen en bloques de origenes x destinos que no superan el máximo de
+ * coordenadas por consulta; los bloques se piden en paralelo (con un límite) a través del
+ * {@link OsrmGateway} compartido, que reintenta cada bloque por separado. Si un bloque agota sus reintentos,
+ * solo sus celdas se estiman con el respaldo y quedan marcadas como estimadas.
+ */
+@Slf4j
+public class OsrmDistanceProvider implements DistanceProvider, AutoCloseable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final String nombre;
+    private final OsrmGateway gateway;
+    private final int maxCoordenadas;
+    private final DistanceProvider respaldo;
+    private final ExecutorService pool;
+
+    public OsrmDistanceProvider(String nombre, OsrmGateway gateway) {
+        this(nombre, gateway, 100, 4, null);
+    }
+
+    public OsrmDistanceProvider(String nombre, OsrmGateway gateway, int maxCoordenadas, int paralelismo,
+            DistanceProvider respaldo) {
+        if (maxCoordenadas < 2) {
+            throw new IllegalArgumentException("El máximo de coordenadas por consulta debe ser al menos 2");
+        }
+        this.nombre = nombre;
+        this.gateway = gateway;
+        this.maxCoordenadas = maxCoordenadas;
+        this.respaldo = respaldo;
+        AtomicInteger contador = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, paralelismo), tarea -> {
+            Thread hilo = new Thread(tarea, nombre + "-tabla-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @Override
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getUrlBase() {
+        return gateway.getUrlBase();
+    }
+
+    @Override
+    public DistanceProvider getRespaldo() {
+        return respaldo;
+    }
+
+    @Override
+    public TablaDistancias calcularTabla(List<double[]> ubicaciones, List<Integer> origenes, List<Integer> destinos) {
+        long[][] distancias = new long[origenes.size()][destinos.size()];
+        long[][] duraciones = new long[origenes.size()][destinos.size()];
+
+        // Si la unión de origenes y destinos cabe en una consulta, no se divide
+        int tamanoBloque = new LinkedHashSet<Integer>(origenes).size() + new LinkedHashSet<Integer>(destinos).size()
+                <= maxCoordenadas ? Math.max(origenes.size(), destinos.size()) : maxCoordenadas / 2;
+
+        List<int[]> bloques = new ArrayList<>();
+        for (int o = 0; o < origenes.size(); o += tamanoBloque) {
+            for (int d = 0; d < destinos.size(); d += tamanoBloque) {
+                bloques.add(new int[] { o, Math.min(o + tamanoBloque, origenes.size()),
+                        d, Math.min(d + tamanoBloque, destinos.size()) });
+            }
+        }
+        if (bloques.size() > 1) {
+            log.info("Tabla {}x{} ({}) dividida en {} bloques de hasta {}x{}", origenes.size(), destinos.size(),
+                    nombre, bloques.size(), tamanoBloque, tamanoBloque);
+        }
+
+        List<Future<TablaDistancias>> futuros = new ArrayList<>();
+        for (int[] b : bloques) {
+            List<Integer> origenesBloque = origenes.subList(b[0], b[1]);
+            List<Integer> destinosBloque = destinos.subList(b[2], b[3]);
+            futuros.add(pool.submit(() -> consultarBloque(ubicaciones, origenesBloque, destinosBloque)));
+        }
+
+        // Un bloque que no responde se estima con el respaldo; los demás conservan lo que trajo OSRM
+        boolean[][] estimadas = null;
+        ProveedorNoDisponibleException ultimoFallo = null;
+        int fallidos = 0;
+        try {
+            for (int k = 0; k < bloques.size(); k++) {
+                int[] b = bloques.get(k);
+                TablaDistancias bloque;
+                try {
+                    bloque = obtener(futuros.get(k));
+                } catch (ProveedorNoDisponibleException e) {
+                    if (respaldo == null) {
+                        throw e;
+                    }
+                    ultimoFallo = e;
+                    fallidos++;
+                    bloque = respaldo.calcularTabla(ubicaciones, origenes.subList(b[0], b[1]),
+                            destinos.subList(b[2], b[3]));
+                    if (estimadas == null) {
+                        estimadas = new boolean[origenes.size()][destinos.size()];
+                    }
+                    for (int i = b[0]; i < b[1]; i++) {
+                        Arrays.fill(estimadas[i], b[2], b[3], true);
+                    }
+                }
+                for (int i = b[0]; i < b[1]; i++) {
+                    System.arraycopy(bloque.distancias()[i - b[0]], 0, distancias[i], b[2], b[3] - b[2]);
+                    System.arraycopy(bloque.duraciones()[i - b[0]], 0, duraciones[i], b[2], b[3] - b[2]);
+                }
+            }
+        } finally {
+            // Si se abandonó la tabla por un error, los bloques aún pendientes ya no sirven
+            futuros.forEach(f -> f.cancel(true));
+        }
+
+        if (fallidos == bloques.size()) {
+            // Nada vino de OSRM: quien llama decide cómo estimar la tabla completa
+            throw ultimoFallo;
+        }
+        if (fallidos > 0) {
+            log.warn("{} de {} bloques de la tabla ({}) no respondieron; sus celdas se estimaron con {}", fallidos,
+                    bloques.size(), nombre, respaldo.getNombre());
+        }
+        return new TablaDistancias(distancias, duraciones, estimadas);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private TablaDistancias obtener(Future<TablaDistancias> futuro) {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Consulta a OSRM interrumpida (" + nombre + ")");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re
+                    : new RuntimeException("Error al consultar OSRM (" + nombre + "): " + e.getCause().getMessage());
+        }
+    }
+
+    private TablaDistancias consultarBloque(List<double[]> ubicaciones, List<Integer> origenes,
+            List<Integer> destinos) {
+        try {
+            return consultar(ubicaciones, origenes, destinos);
+        } catch (ProveedorNoDisponibleException e) {
+            throw new ProveedorNoDisponibleException("No se pudo obtener un bloque de la tabla de OSRM (" + nombre
+                    + "): " + e.getMessage());
+        }
+    }
+
+    /**
+     * Una consulta "table" que solo incluye las coordenadas del bloque; sources/destinations
+     * se expresan como posiciones dentro de esa lista reducida.
+     */
+    private TablaDistancias consultar(List<double[]> ubicaciones, List<Integer> origenes, List<Integer> destinos) {
+        List<Integer> indices = new ArrayList<>(new LinkedHashSet<>(origenes));
+        for (Integer d : destinos) {
+            if (!indices.contains(d)) {
+                indices.add(d);
+            }
+        }
+        Map<Integer, Integer> posicion = new HashMap<>();
+        StringBuilder coords = new StringBuilder();
+        for (Integer indice : indices) {
+            posicion.put(indice, posicion.size());
+            double[] loc = ubicaciones.get(indice);
+            coords.append(loc[1]) // Longitud
+                    .append(",")
+                    .append(loc[0]) // Latitud
+                    .append(";");
+        }
+
+        coords.setLength(coords.length() - 1);
+
+        String query = "?annotations=distance,duration"
+                + "&sources=" + origenes.stream().map(o -> String.valueOf(posicion.get(o))).collect(Collectors.joining(";"))
+                + "&destinations=" + destinos.stream().map(d -> String.valueOf(posicion.get(d))).collect(Collectors.joining(";"));
+
+        JsonNode response;
+        try {
+            response = OBJECT_MAPPER.readTree(gateway.consultar("table", coords.toString(), query));
+        } catch (IOException e) {
+            throw new RuntimeException("Respuesta inválida de OSRM (" + nombre + "): " + e.getMessage());
+        }
+
+        // Extraer las matrices de distancias y duraciones desde el JSON
+        JsonNode distances = response.get("distances");
+        JsonNode durations = response.get("durations");
+        if (distances == null || durations == null) {
+            throw new RuntimeException("Matriz de distancias vacía");
+        }
+        return new TablaDistancias(convertir(distances, origenes.size(), destinos.size()),
+                convertir(durations, origenes.size(), destinos.size()));
+    }
+
+    private long[][] convertir(JsonNode valores, int filas, int columnas) {
+        long[][] matriz = new long[filas][columnas];
+        for (int i = 0; i < filas; i++) {
+            for (int j = 0; j < columnas; j++) {
+                JsonNode valor = valores.get(i).get(j);
+                // OSRM devuelve null cuando no encuentra camino entre dos puntos
+                matriz[i][j] = valor != null && !valor.isNull() ? Math.round(valor.asDouble())
+                        : TablaDistancias.SIN_CAMINO;
+            }
+        }
+        return matriz;
+    }
+}
@@ -0,0 +1,257 @@
+package com.microservice.entrega.service.distancia;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cliente HTTP compartido para un servidor OSRM. Reutiliza las conexiones (keep-alive), limita cuántas
+ * peticiones hay en vuelo, reintenta con espera exponencial y jitter, y corta con un circuito cuando el
+ * servidor falla seguido: mientras está abierto las peticiones fallan al instante con
+ * {@link ProveedorNoDisponibleException} para que quien llama use una estimación sin red.
+ * Cada intento queda medido en el timer "osrm.peticiones" (servidor, servicio, resultado).
+ */
+@Slf4j
+public class OsrmGateway implements AutoCloseable {
+
+    /**
+     * Límites del cliente. Los tiempos van en milisegundos.
+     */
+    public record Configuracion(long timeoutConexionMs, long timeoutRespuestaMs, int maxConcurrentes,
+            long esperaCupoMs, int reintentos, long esperaBaseMs, int umbralFallos, long aperturaMs) {
+
+        public static Configuracion porDefecto() {
+            return new Configuracion(2000, 10000, 8, 2000, 2, 200, 5, 30000);
+        }
+    }
+
+    private enum Paso {
+        NORMAL, PRUEBA, RECHAZADA
+    }
+
+    private final String nombre;
+    private final String urlBase;
+    private final Configuracion configuracion;
+    private final HttpClient httpClient;
+    private final Semaphore cupos;
+    private final MeterRegistry registry;
+
+    // Circuito: fallos seguidos, momento de apertura (0 = cerrado) y si ya salió la petición de prueba
+    private final AtomicInteger fallosSeguidos = new AtomicInteger();
+    private final AtomicLong abiertoDesde = new AtomicLong();
+    private final AtomicBoolean pruebaEnCurso = new AtomicBoolean();
+
+    public OsrmGateway(String nombre, String urlBase) {
+        this(nombre, urlBase, Configuracion.porDefecto(), new SimpleMeterRegistry());
+    }
+
+    public OsrmGateway(String nombre, String urlBase, Configuracion configuracion, MeterRegistry registry) {
+        this.nombre = nombre;
+        this.urlBase = urlBase.endsWith("/") ? urlBase.substring(0, urlBase.length() - 1) : urlBase;
+        this.configuracion = configuracion;
+        this.registry = registry;
+        this.cupos = new Semaphore(Math.max(1, configuracion.maxConcurrentes()));
+        // OSRM responde en HTTP/1.1; el cliente mantiene las conexiones abiertas entre peticiones
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(configuracion.timeoutConexionMs()))
+                .build();
+        Gauge.builder("osrm.circuito.abierto", this, g -> g.circuitoAbierto() ? 1 : 0)
+                .tag("servidor", nombre)
+                .register(registry);
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getUrlBase() {
+        return urlBase;
+    }
+
+    public boolean circuitoAbierto() {
+        return abiertoDesde.get() != 0;
+    }
+
+    /**
+     * GET a {urlBase}/{servicio}/v1/driving/{coordenadas}{query}; devuelve el cuerpo de la respuesta.
+     */
+    public String consultar(String servicio, String coordenadas, String query) {
+        URI uri = URI.create(urlBase + "/" + servicio + "/v1/driving/" + coordenadas + query);
+        String ultimoError = null;
+        for (int intento = 0; intento <= configuracion.reintentos(); intento++) {
+            if (intento > 0) {
+                esperar(intento);
+            }
+            Paso paso = permitirPeticion();
+            if (paso == Paso.RECHAZADA) {
+                rechazar(servicio, "circuito-abierto");
+                throw new ProveedorNoDisponibleException("Circuito abierto para OSRM (" + nombre + ")");
+            }
+            if (!tomarCupo()) {
+                if (paso == Paso.PRUEBA) {
+                    liberarPrueba();
+                }
+                rechazar(servicio, "saturado");
+                throw new ProveedorNoDisponibleException("OSRM (" + nombre + ") sin cupo para nuevas peticiones");
+            }
+
+            long inicio = System.nanoTime();
+            String resultado = "error";
+            // Si el intento termina sin éxito ni fallo registrado (interrupción, error inesperado), la prueba se
+            // libera para que el circuito pueda volver a probar
+            boolean registrado = false;
+            try {
+                HttpResponse<InputStream> respuesta = httpClient.send(peticion(uri),
+                        HttpResponse.BodyHandlers.ofInputStream());
+                int estado = respuesta.statusCode();
+                String cuerpo = leer(respuesta);
+                if (estado == 429 || estado >= 500) {
+                    ultimoError = "HTTP " + estado;
+                    registrado = true;
+                } else if (estado >= 400) {
+                    // Petición inválida (coordenadas fuera del mapa, etc.): reintentar no sirve
+                    resultado = "invalida";
+                    registrado = true;
+                    registrarExito();
+                    throw new RuntimeException("OSRM (" + nombre + ") rechazó la petición: HTTP " + estado + " " + cuerpo);
+                } else {
+                    resultado = "ok";
+                    registrado = true;
+                    registrarExito();
+                    return cuerpo;
+                }
+            } catch (IOException e) {
+                ultimoError = e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+                registrado = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProveedorNoDisponibleException("Consulta a OSRM interrumpida (" + nombre + ")");
+            } finally {
+                cupos.release();
+                if (paso == Paso.PRUEBA && !registrado) {
+                    liberarPrueba();
+                }
+                Timer.builder("osrm.peticiones")
+                        .tag("servidor", nombre)
+                        .tag("servicio", servicio)
+                        .tag("resultado", resultado)
+                        .register(registry)
+                        .record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            }
+
+            registrarFallo();
+            log.warn("Petición {} a OSRM ({}) falló en el intento {}: {}", servicio, nombre, intento + 1, ultimoError);
+        }
+        throw new ProveedorNoDisponibleException("OSRM (" + nombre + ") no respondió tras "
+                + (configuracion.reintentos() + 1) + " intentos: " + ultimoError);
+    }
+
+    @Override
+    public void close() {
+        httpClient.shutdownNow();
+    }
+
+    private HttpRequest peticion(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(configuracion.timeoutRespuestaMs()))
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+    }
+
+    private String leer(HttpResponse<InputStream> respuesta) throws IOException {
+        boolean gzip = respuesta.headers().firstValue("Content-Encoding").map("gzip"::equalsIgnoreCase).orElse(false);
+        try (InputStream cuerpo = gzip ? new GZIPInputStream(respuesta.body()) : respuesta.body()) {
+            return new String(cuerpo.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Espera exponencial con jitter (entre la mitad y 1,5 veces la base) para no reintentar todos a la vez
+    private void esperar(int intento) {
+        long base = configuracion.esperaBaseMs() << Math.min(intento - 1, 10);
+        long espera = (long) (base * ThreadLocalRandom.current().nextDouble(0.5, 1.5));
+        try {
+            Thread.sleep(espera);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProveedorNoDisponibleException("Consulta a OSRM interrumpida (" + nombre + ")");
+        }
+    }
+
+    private boolean tomarCupo() {
+        try {
+            return cupos.tryAcquire(configuracion.esperaCupoMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Cerrado: pasa todo. Abierto: rechaza hasta cumplir el tiempo de apertura y luego deja pasar
+     * una sola petición de prueba; si responde, el circuito se cierra.
+     */
+    private Paso permitirPeticion() {
+        long desde = abiertoDesde.get();
+        if (desde == 0) {
+            return Paso.NORMAL;
+        }
+        if (System.currentTimeMillis() - desde < configuracion.aperturaMs()) {
+            return Paso.RECHAZADA;
+        }
+        return pruebaEnCurso.compareAndSet(false, true) ? Paso.PRUEBA : Paso.RECHAZADA;
+    }
+
+    private void registrarExito() {
+        fallosSeguidos.set(0);
+        if (abiertoDesde.getAndSet(0) != 0) {
+            log.info("Circuito de OSRM ({}) cerrado: el servidor volvió a responder", nombre);
+        }
+        pruebaEnCurso.set(false);
+    }
+
+    private void registrarFallo() {
+        int fallos = fallosSeguidos.incrementAndGet();
+        if (pruebaEnCurso.compareAndSet(true, false)) {
+            // Falló la petición de prueba: otro periodo completo abierto
+            abiertoDesde.set(System.currentTimeMillis());
+        } else if (fallos >= configuracion.umbralFallos() && abiertoDesde.compareAndSet(0, System.currentTimeMillis())) {
+            log.warn("Circuito de OSRM ({}) abierto tras {} fallos seguidos; se usarán estimaciones por {} ms",
+                    nombre, fallos, configuracion.aperturaMs());
+        }
+    }
+
+    private void liberarPrueba() {
+        pruebaEnCurso.set(false);
+    }
+
+    private void rechazar(String servicio, String motivo) {
+        Counter.builder("osrm.rechazos")
+                .tag("servidor", nombre)
+                .tag("servicio", servicio)
+                .tag("motivo", motivo)
+                .register(registry)
+                .increment();
+    }
+}
@@ -0,0 +1,12 @@
+package com.microservice.entrega.service.distancia;
+
+/**
+ * El servidor de distancias no respondió (caído, saturado o con el circuito abierto).
+ * Quien la recibe puede seguir con una estimación sin red en vez de fallar.
+ */
+public class ProveedorNoDisponibleException extends RuntimeException {
+
+    public ProveedorNoDisponibleException(String mensaje) {
+        super(mensaje);
+    }
+}
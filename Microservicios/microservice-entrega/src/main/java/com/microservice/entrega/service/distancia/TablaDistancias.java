@@ -0,0 +1,43 @@
+package com.microservice.entrega.service.distancia;
+
+/**
+ * Resultado de un proveedor de distancias: distancias en metros y duraciones de viaje
+ * en segundos, con las mismas dimensiones (origenes x destinos). {@code estimadas} marca las celdas
+ * que el proveedor no pudo obtener y calculó con su respaldo (null = ninguna).
+ */
+public record TablaDistancias(long[][] distancias, long[][] duraciones, boolean[][] estimadas) {
+
+    /**
+     * Valor de una celda entre dos puntos sin camino conocido.
+     */
+    public static final long SIN_CAMINO = Integer.MAX_VALUE;
+
+    public TablaDistancias(long[][] distancias, long[][] duraciones) {
+        this(distancias, duraciones, null);
+    }
+
+    /**
+     * Una celda se puede guardar en la caché persistente si tiene camino y no es una estimación.
+     */
+    public boolean persistible(int origen, int destino) {
+        return distancias[origen][destino] != SIN_CAMINO && (estimadas == null || !estimadas[origen][destino]);
+    }
+
+    public boolean estimada(int origen, int destino) {
+        return estimadas != null && estimadas[origen][destino];
+    }
+
+    public boolean tieneEstimadas() {
+        if (estimadas == null) {
+            return false;
+        }
+        for (boolean[] fila : estimadas) {
+            for (boolean estimada : fila) {
+                if (estimada) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,58 @@
+package com.microservice.entrega.service.exportacion;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * CSV en UTF-8 (con BOM para que Excel respete los acentos), separado por comas y con comillas según RFC 4180.
+ * Cada fila pasa por un buffer y sale a la respuesta a medida que se llena.
+ */
+public class EscritorCsv implements EscritorFilas {
+
+    private final Writer salida;
+
+    public EscritorCsv(OutputStream salida) throws IOException {
+        this.salida = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 16 * 1024);
+        this.salida.write('\uFEFF');
+    }
+
+    @Override
+    public void encabezado(List<String> columnas) throws IOException {
+        fila(columnas.toArray());
+    }
+
+    @Override
+    public void fila(Object[] valores) throws IOException {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                salida.write(',');
+            }
+            if (valores[i] != null) {
+                salida.write(campo(valores[i]));
+            }
+        }
+        salida.write("\r\n");
+    }
+
+    @Override
+    public void terminar() throws IOException {
+        salida.flush();
+    }
+
+    static String campo(Object valor) {
+        String texto = valor.toString();
+        // Un texto que empieza como fórmula no debe ejecutarse al abrir el archivo en una planilla
+        if (valor instanceof String && !texto.isEmpty() && "=+-@".indexOf(texto.charAt(0)) >= 0) {
+            texto = "'" + texto;
+        }
+        if (texto.indexOf(',') >= 0 || texto.indexOf('"') >= 0 || texto.indexOf('\n') >= 0 || texto.indexOf('\r') >= 0) {
+            return '"' + texto.replace("\"", "\"\"") + '"';
+        }
+        return texto;
+    }
+}
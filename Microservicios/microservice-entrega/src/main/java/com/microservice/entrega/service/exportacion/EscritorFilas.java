@@ -0,0 +1,29 @@
+package com.microservice.entrega.service.exportacion;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destino de una exportación que se escribe fila por fila, sin juntar el resultado en memoria.
+ * Los valores pueden ser String, Number, LocalDate, LocalDateTime o null. Se cierra siempre, aunque la
+ * exportación falle a mitad de camino, para liberar lo que el escritor haya tomado (archivos temporales).
+ */
+public interface EscritorFilas extends Closeable {
+
+    void encabezado(List<String> columnas) throws IOException;
+
+    void fila(Object[] valores) throws IOException;
+
+    /**
+     * Completa el archivo en la salida; no cierra el stream de la respuesta.
+     */
+    void terminar() throws IOException;
+
+    /**
+     * Libera los recursos del escritor; tampoco cierra el stream de la respuesta.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
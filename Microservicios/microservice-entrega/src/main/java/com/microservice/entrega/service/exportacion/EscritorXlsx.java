@@ -0,0 +1,125 @@
+package com.microservice.entrega.service.exportacion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * XLSX con el libro en modo streaming de POI: solo las últimas filas quedan en memoria y el resto se baja a
+ * un archivo temporal comprimido, así el tamaño del reporte no cambia el consumo de memoria. El libro
+ * se arma completo al terminar, porque el formato zip necesita todas las hojas antes de escribirse.
+ * Los temporales se borran al cerrar el escritor, haya terminado o no.
+ */
+public class EscritorXlsx implements EscritorFilas {
+
+    private static final int FILAS_EN_MEMORIA = 100;
+    // Límite de filas de una hoja de Excel; al llegar se sigue en una hoja nueva
+    private static final int MAX_FILAS_HOJA = 1_048_576;
+
+    private final OutputStream salida;
+    private final String nombreHoja;
+    private final SXSSFWorkbook libro;
+    private final CellStyle estiloEncabezado;
+    private final CellStyle estiloFecha;
+    private final CellStyle estiloFechaHora;
+    private SXSSFSheet hoja;
+    private List<String> columnas;
+    private int siguienteFila;
+    private int hojas;
+    private boolean cerrado;
+
+    public EscritorXlsx(OutputStream salida, String nombreHoja) {
+        this.salida = salida;
+        this.nombreHoja = nombreHoja;
+        this.libro = new SXSSFWorkbook(FILAS_EN_MEMORIA);
+        this.libro.setCompressTempFiles(true);
+
+        Font negrita = libro.createFont();
+        negrita.setBold(true);
+        this.estiloEncabezado = libro.createCellStyle();
+        this.estiloEncabezado.setFont(negrita);
+        this.estiloFecha = libro.createCellStyle();
+        this.estiloFecha.setDataFormat(libro.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+        this.estiloFechaHora = libro.createCellStyle();
+        this.estiloFechaHora.setDataFormat(libro.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+    }
+
+    @Override
+    public void encabezado(List<String> columnas) {
+        this.columnas = List.copyOf(columnas);
+        nuevaHoja();
+    }
+
+    @Override
+    public void fila(Object[] valores) {
+        if (hoja == null || siguienteFila >= MAX_FILAS_HOJA) {
+            nuevaHoja();
+        }
+        Row fila = hoja.createRow(siguienteFila++);
+        for (int i = 0; i < valores.length; i++) {
+            Object valor = valores[i];
+            if (valor == null) {
+                continue;
+            }
+            Cell celda = fila.createCell(i);
+            if (valor instanceof Number numero) {
+                celda.setCellValue(numero.doubleValue());
+            } else if (valor instanceof LocalDateTime fechaHora) {
+                celda.setCellValue(fechaHora);
+                celda.setCellStyle(estiloFechaHora);
+            } else if (valor instanceof LocalDate fecha) {
+                celda.setCellValue(fecha);
+                celda.setCellStyle(estiloFecha);
+            } else {
+                celda.setCellValue(valor.toString());
+            }
+        }
+    }
+
+    @Override
+    public void terminar() throws IOException {
+        if (hoja == null) {
+            nuevaHoja();
+        }
+        libro.write(salida);
+        salida.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (cerrado) {
+            return;
+        }
+        cerrado = true;
+        // close() de POI no borra los temporales de las hojas; dispose() sí
+        try {
+            libro.dispose();
+        } finally {
+            libro.close();
+        }
+    }
+
+    private void nuevaHoja() {
+        hojas++;
+        hoja = libro.createSheet(hojas == 1 ? nombreHoja : nombreHoja + " " + hojas);
+        siguienteFila = 0;
+        if (columnas != null) {
+            Row encabezado = hoja.createRow(siguienteFila++);
+            for (int i = 0; i < columnas.size(); i++) {
+                Cell celda = encabezado.createCell(i);
+                celda.setCellValue(columnas.get(i));
+                celda.setCellStyle(estiloEncabezado);
+            }
+            hoja.createFreezePane(0, 1);
+        }
+    }
+}
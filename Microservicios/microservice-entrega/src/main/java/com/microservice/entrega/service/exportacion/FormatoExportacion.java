@@ -0,0 +1,39 @@
+package com.microservice.entrega.service.exportacion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+public enum FormatoExportacion {
+
+    CSV("text/csv; charset=UTF-8", "csv"),
+    XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+    private final String contentType;
+    private final String extension;
+
+    FormatoExportacion(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public static FormatoExportacion desde(String formato) {
+        try {
+            return valueOf(formato.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Formato de exportación no soportado: " + formato + " (csv o xlsx)");
+        }
+    }
+
+    public EscritorFilas escritor(OutputStream salida, String nombreHoja) throws IOException {
+        return this == CSV ? new EscritorCsv(salida) : new EscritorXlsx(salida, nombreHoja);
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,25 @@
+package com.microservice.entrega.service.geometria;
+
+/**
+ * Formato en que se entrega la geometría de una ruta.
+ * GEOJSON mantiene la forma de la respuesta de OSRM (coordenadas [longitud, latitud]);
+ * POLYLINE usa el "encoded polyline" de precisión 5, igual que OSRM con geometries=polyline.
+ */
+public enum FormatoGeometria {
+    GEOJSON,
+    POLYLINE;
+
+    /**
+     * Resuelve el formato a partir de un parámetro de request; si viene vacío se usa GEOJSON.
+     */
+    public static FormatoGeometria desde(String nombre) {
+        if (nombre == null || nombre.isBlank()) {
+            return GEOJSON;
+        }
+        try {
+            return valueOf(nombre.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Formato de geometría desconocido: " + nombre);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.microservice.entrega.service.geometria;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Codificación "encoded polyline" (algoritmo de Google, precisión 5), la misma que usa OSRM.
+ */
+public final class Polyline {
+
+    private static final double FACTOR = 1e5;
+
+    private Polyline() {
+    }
+
+    /**
+     * @param puntos Puntos [latitud, longitud]
+     */
+    public static String codificar(List<double[]> puntos) {
+        StringBuilder resultado = new StringBuilder();
+        long latitudAnterior = 0;
+        long longitudAnterior = 0;
+        for (double[] punto : puntos) {
+            long latitud = Math.round(punto[0] * FACTOR);
+            long longitud = Math.round(punto[1] * FACTOR);
+            codificarValor(latitud - latitudAnterior, resultado);
+            codificarValor(longitud - longitudAnterior, resultado);
+            latitudAnterior = latitud;
+            longitudAnterior = longitud;
+        }
+        return resultado.toString();
+    }
+
+    /**
+     * @return Puntos [latitud, longitud]
+     */
+    public static List<double[]> decodificar(String polyline) {
+        List<double[]> puntos = new ArrayList<>();
+        int indice = 0;
+        long latitud = 0;
+        long longitud = 0;
+        while (indice < polyline.length()) {
+            long[] valor = decodificarValor(polyline, indice);
+            latitud += valor[0];
+            valor = decodificarValor(polyline, (int) valor[1]);
+            longitud += valor[0];
+            indice = (int) valor[1];
+            puntos.add(new double[] { latitud / FACTOR, longitud / FACTOR });
+        }
+        return puntos;
+    }
+
+    private static void codificarValor(long valor, StringBuilder resultado) {
+        long v = valor < 0 ? ~(valor << 1) : valor << 1;
+        while (v >= 0x20) {
+            resultado.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        resultado.append((char) (v + 63));
+    }
+
+    // Devuelve { valor, índice siguiente }
+    private static long[] decodificarValor(String polyline, int indice) {
+        long resultado = 0;
+        int desplazamiento = 0;
+        int b;
+        do {
+            b = polyline.charAt(indice++) - 63;
+            resultado |= (long) (b & 0x1f) << desplazamiento;
+            desplazamiento += 5;
+        } while (b >= 0x20);
+        return new long[] { (resultado & 1) != 0 ? ~(resultado >> 1) : resultado >> 1, indice };
+    }
+}
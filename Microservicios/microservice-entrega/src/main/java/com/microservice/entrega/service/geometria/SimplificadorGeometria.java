@@ -0,0 +1,84 @@
+package com.microservice.entrega.service.geometria;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Simplificación de polilíneas con Douglas-Peucker. Las distancias se miden en metros sobre una
+ * proyección equirectangular local, suficiente para el tamaño de una ruta de reparto.
+ */
+public final class SimplificadorGeometria {
+
+    private static final double METROS_POR_GRADO = 111_320.0;
+
+    private SimplificadorGeometria() {
+    }
+
+    /**
+     * @param puntos Puntos [latitud, longitud] en orden de recorrido
+     * @param toleranciaMetros Desviación máxima permitida respecto de la línea original
+     * @return Subconjunto de los puntos originales; siempre conserva el primero y el último
+     */
+    public static List<double[]> simplificar(List<double[]> puntos, double toleranciaMetros) {
+        int n = puntos.size();
+        if (n <= 2 || toleranciaMetros <= 0) {
+            return puntos;
+        }
+
+        double cosLatitud = Math.cos(Math.toRadians(puntos.get(0)[0]));
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = puntos.get(i)[1] * METROS_POR_GRADO * cosLatitud;
+            y[i] = puntos.get(i)[0] * METROS_POR_GRADO;
+        }
+
+        boolean[] conservar = new boolean[n];
+        conservar[0] = true;
+        conservar[n - 1] = true;
+
+        // Pila explícita: las geometrías de OSRM pueden tener miles de puntos
+        Deque<int[]> tramos = new ArrayDeque<>();
+        tramos.push(new int[] { 0, n - 1 });
+        while (!tramos.isEmpty()) {
+            int[] tramo = tramos.pop();
+            int inicio = tramo[0];
+            int fin = tramo[1];
+            double maxDistancia = -1;
+            int indiceMax = -1;
+            for (int i = inicio + 1; i < fin; i++) {
+                double d = distanciaASegmento(x[i], y[i], x[inicio], y[inicio], x[fin], y[fin]);
+                if (d > maxDistancia) {
+                    maxDistancia = d;
+                    indiceMax = i;
+                }
+            }
+            if (indiceMax >= 0 && maxDistancia > toleranciaMetros) {
+                conservar[indiceMax] = true;
+                tramos.push(new int[] { inicio, indiceMax });
+                tramos.push(new int[] { indiceMax, fin });
+            }
+        }
+
+        List<double[]> resultado = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (conservar[i]) {
+                resultado.add(puntos.get(i));
+            }
+        }
+        return resultado;
+    }
+
+    private static double distanciaASegmento(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double largo2 = dx * dx + dy * dy;
+        if (largo2 == 0) {
+            return Math.hypot(px - ax, py - ay);
+        }
+        double t = Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / largo2));
+        return Math.hypot(px - (ax + t * dx), py - (ay + t * dy));
+    }
+}
@@ -0,0 +1,24 @@
+package com.microservice.entrega.service.optimizacion;
+
+/**
+ * Perfiles de búsqueda del solver de rutas.
+ * INTERACTIVO prioriza una latencia predecible; NOCTURNO dedica más tiempo a mejorar el recorrido.
+ */
+public enum PerfilBusqueda {
+    INTERACTIVO,
+    NOCTURNO;
+
+    /**
+     * Resuelve el perfil a partir de un parámetro de request; si viene vacío se usa INTERACTIVO.
+     */
+    public static PerfilBusqueda desde(String nombre) {
+        if (nombre == null || nombre.isBlank()) {
+            return INTERACTIVO;
+        }
+        try {
+            return valueOf(nombre.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Perfil de búsqueda desconocido: " + nombre);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.microservice.entrega.service.optimizacion;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.ortools.constraintsolver.FirstSolutionStrategy;
+import com.google.ortools.constraintsolver.LocalSearchMetaheuristic;
+import com.google.ortools.constraintsolver.RoutingSearchParameters;
+import com.google.ortools.constraintsolver.main;
+import com.google.protobuf.Duration;
+
+/**
+ * Construye los parámetros de búsqueda de OR-Tools para cada perfil configurado.
+ * Todos los perfiles tienen un tiempo límite duro, ya que las metaheurísticas no terminan por sí solas.
+ */
+@Component
+public class PerfilesBusqueda {
+
+    @Value("${optimizacion.perfil.interactivo.tiempo-limite-ms:2000}")
+    private long interactivoTiempoLimiteMs = 2000;
+
+    @Value("${optimizacion.perfil.interactivo.metaheuristica:GUIDED_LOCAL_SEARCH}")
+    private String interactivoMetaheuristica = "GUIDED_LOCAL_SEARCH";
+
+    @Value("${optimizacion.perfil.nocturno.tiempo-limite-ms:60000}")
+    private long nocturnoTiempoLimiteMs = 60000;
+
+    @Value("${optimizacion.perfil.nocturno.metaheuristica:GUIDED_LOCAL_SEARCH}")
+    private String nocturnoMetaheuristica = "GUIDED_LOCAL_SEARCH";
+
+    public RoutingSearchParameters parametros(PerfilBusqueda perfil) {
+        long tiempoLimiteMs = getTiempoLimiteMs(perfil);
+        String metaheuristica = perfil == PerfilBusqueda.NOCTURNO ? nocturnoMetaheuristica : interactivoMetaheuristica;
+
+        return main.defaultRoutingSearchParameters().toBuilder()
+                .setFirstSolutionStrategy(FirstSolutionStrategy.Value.PATH_CHEAPEST_ARC)
+                .setLocalSearchMetaheuristic(LocalSearchMetaheuristic.Value.valueOf(metaheuristica))
+                .setTimeLimit(Duration.newBuilder()
+                        .setSeconds(tiempoLimiteMs / 1000)
+                        .setNanos((int) (tiempoLimiteMs % 1000) * 1_000_000)
+                        .build())
+                .build();
+    }
+
+    public long getTiempoLimiteMs(PerfilBusqueda perfil) {
+        return perfil == PerfilBusqueda.NOCTURNO ? nocturnoTiempoLimiteMs : interactivoTiempoLimiteMs;
+    }
+}
@@ -0,0 +1,116 @@
+package com.microservice.entrega.service.optimizacion;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Trabajo de optimización de una ruta ejecutado en el pool del solver.
+ * Las transiciones de estado son sincronizadas: un trabajo cancelado no pasa a completado aunque
+ * la resolución nativa termine después.
+ */
+@Getter
+public class TrabajoOptimizacion {
+
+    public enum Estado {
+        EN_COLA, EN_PROCESO, COMPLETADO, FALLIDO, CANCELADO;
+
+        public boolean esFinal() {
+            return this == COMPLETADO || this == FALLIDO || this == CANCELADO;
+        }
+    }
+
+    private final String id;
+    private final String clave;
+    private final Long idRuta;
+    private final LocalDate fecha;
+    private final String proveedor;
+    private final PerfilBusqueda perfil;
+    private final LocalDateTime creado = LocalDateTime.now();
+
+    private volatile Estado estado = Estado.EN_COLA;
+    private volatile LocalDateTime iniciado;
+    private volatile LocalDateTime finalizado;
+    private volatile Map<String, Object> resultado;
+    private volatile String error;
+
+    @Setter
+    private volatile Future<?> futuro;
+
+    private final List<SseEmitter> suscriptores = new CopyOnWriteArrayList<>();
+
+    public TrabajoOptimizacion(String id, String clave, Long idRuta, LocalDate fecha, String proveedor,
+            PerfilBusqueda perfil) {
+        this.id = id;
+        this.clave = clave;
+        this.idRuta = idRuta;
+        this.fecha = fecha;
+        this.proveedor = proveedor;
+        this.perfil = perfil;
+    }
+
+    public synchronized boolean iniciar() {
+        if (estado != Estado.EN_COLA) {
+            return false;
+        }
+        estado = Estado.EN_PROCESO;
+        iniciado = LocalDateTime.now();
+        return true;
+    }
+
+    public synchronized void completar(Map<String, Object> resultado) {
+        if (!estado.esFinal()) {
+            this.resultado = resultado;
+            finalizar(Estado.COMPLETADO);
+        }
+    }
+
+    public synchronized void fallar(String error) {
+        if (!estado.esFinal()) {
+            this.error = error;
+            finalizar(Estado.FALLIDO);
+        }
+    }
+
+    public synchronized boolean cancelar() {
+        if (estado.esFinal()) {
+            return false;
+        }
+        finalizar(Estado.CANCELADO);
+        return true;
+    }
+
+    private void finalizar(Estado estadoFinal) {
+        estado = estadoFinal;
+        finalizado = LocalDateTime.now();
+    }
+
+    public Map<String, Object> resumen() {
+        Map<String, Object> resumen = new HashMap<>();
+        resumen.put("id", id);
+        resumen.put("id_ruta", idRuta);
+        resumen.put("fecha", fecha != null ? fecha.toString() : null);
+        resumen.put("proveedor", proveedor);
+        resumen.put("perfil", perfil.name());
+        resumen.put("estado", estado.name());
+        resumen.put("creado", creado.toString());
+        resumen.put("iniciado", iniciado != null ? iniciado.toString() : null);
+        resumen.put("finalizado", finalizado != null ? finalizado.toString() : null);
+        if (estado == Estado.COMPLETADO) {
+            resumen.put("resultado", resultado);
+        }
+        if (error != null) {
+            resumen.put("error", error);
+        }
+        return resumen;
+    }
+}
@@ -0,0 +1,103 @@
+package com.microservice.entrega.service.seguimiento;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Buffer circular de posiciones de una sesión de reparto. Los requests de los dispositivos escriben sin
+ * bloquearse (reservan una secuencia con un contador atómico y publican la celda), y un único vaciado
+ * periódico lee lo pendiente. Si el vaciado se atrasa más que la capacidad, las posiciones más antiguas
+ * se pisan y se cuentan como descartadas en vez de frenar a los dispositivos.
+ */
+public class BufferPosiciones {
+
+    private record Celda(long secuencia, Posicion posicion) {
+    }
+
+    private final Long idSesion;
+    private final Long idDriver;
+    private final AtomicReferenceArray<Celda> celdas;
+    private final int mascara;
+    private final AtomicLong escritura = new AtomicLong();
+    private final AtomicReference<Posicion> ultima = new AtomicReference<>();
+    private final AtomicLong descartadas = new AtomicLong();
+    private volatile long ultimaRecepcionMs = System.currentTimeMillis();
+
+    // Solo la modifica quien vacía, siempre dentro de drenar
+    private long lectura;
+
+    public BufferPosiciones(Long idSesion, Long idDriver, int capacidad) {
+        int tamano = Integer.highestOneBit(Math.max(2, capacidad - 1)) << 1;
+        this.idSesion = idSesion;
+        this.idDriver = idDriver;
+        this.celdas = new AtomicReferenceArray<>(tamano);
+        this.mascara = tamano - 1;
+    }
+
+    public void agregar(Posicion posicion) {
+        long secuencia = escritura.getAndIncrement();
+        celdas.set((int) (secuencia & mascara), new Celda(secuencia, posicion));
+        // Los dispositivos pueden reenviar posiciones atrasadas; la última es la de hora más reciente
+        ultima.accumulateAndGet(posicion,
+                (actual, nueva) -> actual == null || !nueva.hora().isBefore(actual.hora()) ? nueva : actual);
+        ultimaRecepcionMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Entrega al consumidor las posiciones publicadas desde el último vaciado, en orden de llegada.
+     * Se detiene en la primera celda reservada que todavía no se publica; esa queda para la próxima vez.
+     */
+    public synchronized int drenar(Consumer<Posicion> destino) {
+        long hasta = escritura.get();
+        if (hasta - lectura > celdas.length()) {
+            descartadas.addAndGet(hasta - celdas.length() - lectura);
+            lectura = hasta - celdas.length();
+        }
+        int leidas = 0;
+        while (lectura < hasta) {
+            Celda celda = celdas.get((int) (lectura & mascara));
+            if (celda == null || celda.secuencia() < lectura) {
+                break;
+            }
+            if (celda.secuencia() > lectura) {
+                // Un productor dio la vuelta completa y pisó esta celda
+                descartadas.incrementAndGet();
+            } else {
+                destino.accept(celda.posicion());
+                leidas++;
+            }
+            lectura++;
+        }
+        return leidas;
+    }
+
+    public synchronized int pendientes() {
+        return (int) Math.min(escritura.get() - lectura, celdas.length());
+    }
+
+    public Posicion getUltima() {
+        return ultima.get();
+    }
+
+    public long getDescartadas() {
+        return descartadas.get();
+    }
+
+    public long getUltimaRecepcionMs() {
+        return ultimaRecepcionMs;
+    }
+
+    public Long getIdSesion() {
+        return idSesion;
+    }
+
+    public Long getIdDriver() {
+        return idDriver;
+    }
+
+    public int getCapacidad() {
+        return celdas.length();
+    }
+}
@@ -0,0 +1,14 @@
+package com.microservice.entrega.service.seguimiento;
+
+import java.time.LocalDateTime;
+
+/**
+ * Llegada a la ubicación de un cliente o salida de ella, detectada con las posiciones GPS del driver.
+ * En las salidas lleva la permanencia desde la llegada.
+ */
+public record EventoGeocerca(Long idSesion, Long idCliente, Tipo tipo, LocalDateTime hora, Long permanenciaSegundos) {
+
+    public enum Tipo {
+        LLEGADA, SALIDA
+    }
+}
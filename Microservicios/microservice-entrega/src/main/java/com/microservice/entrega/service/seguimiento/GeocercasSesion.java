@@ -0,0 +1,99 @@
+package com.microservice.entrega.service.seguimiento;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.microservice.entrega.service.asignacion.IndiceEspacial;
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+
+/**
+ * Geocercas circulares de los clientes de una sesión de reparto, en una grilla con celdas del tamaño del
+ * radio de salida: cada posición solo se compara con los clientes de las celdas vecinas. Se entra al
+ * bajar del radio de llegada y se sale al superar el radio de salida (más amplio), para que el ruido
+ * del GPS en el borde no genere llegadas y salidas repetidas.
+ */
+public class GeocercasSesion {
+
+    private final Long idSesion;
+    private final Long idRuta;
+    private final IndiceEspacial<Long> indice;
+    private final Map<Long, double[]> ubicaciones = new HashMap<>();
+    private final double radioLlegada;
+    private final double radioSalida;
+
+    // Clientes donde el driver está ahora, con la hora de llegada
+    private final Map<Long, LocalDateTime> dentro = new HashMap<>();
+    // Última llegada detectada por cliente, aunque ya haya salido
+    private final Map<Long, LocalDateTime> llegadas = new HashMap<>();
+    private LocalDateTime ultimaPosicion;
+    private final List<EventoGeocerca> eventos = new ArrayList<>();
+
+    public GeocercasSesion(Long idSesion, RecorridoEnVivo recorrido, double radioLlegada, double radioSalida) {
+        this.idSesion = idSesion;
+        this.idRuta = recorrido.getIdRuta();
+        this.radioLlegada = radioLlegada;
+        this.radioSalida = radioSalida;
+        List<Long> clientes = recorrido.getClientes();
+        double latitudReferencia = clientes.isEmpty() ? 0.0 : recorrido.getCoordenadasCliente(0)[0];
+        this.indice = new IndiceEspacial<>(radioSalida, latitudReferencia);
+        for (int i = 0; i < clientes.size(); i++) {
+            double[] ubicacion = recorrido.getCoordenadasCliente(i);
+            indice.agregar(ubicacion[0], ubicacion[1], clientes.get(i));
+            ubicaciones.put(clientes.get(i), ubicacion);
+        }
+    }
+
+    public synchronized List<EventoGeocerca> procesar(double latitud, double longitud, LocalDateTime hora) {
+        List<EventoGeocerca> nuevos = new ArrayList<>();
+        if (ultimaPosicion != null && hora.isBefore(ultimaPosicion)) {
+            // Posición atrasada: ya se evaluó el estado con una más nueva
+            return nuevos;
+        }
+        ultimaPosicion = hora;
+
+        Iterator<Map.Entry<Long, LocalDateTime>> it = dentro.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, LocalDateTime> entrada = it.next();
+            double[] ubicacion = ubicaciones.get(entrada.getKey());
+            if (HaversineDistanceProvider.haversine(latitud, longitud, ubicacion[0], ubicacion[1]) > radioSalida) {
+                long permanencia = Duration.between(entrada.getValue(), hora).getSeconds();
+                nuevos.add(new EventoGeocerca(idSesion, entrada.getKey(), EventoGeocerca.Tipo.SALIDA, hora, permanencia));
+                it.remove();
+            }
+        }
+        for (IndiceEspacial.Vecino<Long> vecino : indice.dentroDeRadio(latitud, longitud, radioLlegada)) {
+            if (!dentro.containsKey(vecino.valor())) {
+                dentro.put(vecino.valor(), hora);
+                llegadas.put(vecino.valor(), hora);
+                nuevos.add(new EventoGeocerca(idSesion, vecino.valor(), EventoGeocerca.Tipo.LLEGADA, hora, null));
+            }
+        }
+        eventos.addAll(nuevos);
+        return nuevos;
+    }
+
+    public synchronized List<EventoGeocerca> getEventos() {
+        return List.copyOf(eventos);
+    }
+
+    public synchronized LocalDateTime getLlegada(Long idCliente) {
+        return llegadas.get(idCliente);
+    }
+
+    public synchronized LocalDateTime getUltimaPosicion() {
+        return ultimaPosicion;
+    }
+
+    public Long getIdSesion() {
+        return idSesion;
+    }
+
+    public Long getIdRuta() {
+        return idRuta;
+    }
+}
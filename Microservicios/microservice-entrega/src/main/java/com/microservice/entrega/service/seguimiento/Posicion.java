@@ -0,0 +1,10 @@
+package com.microservice.entrega.service.seguimiento;
+
+import java.time.LocalDateTime;
+
+/**
+ * Posición del driver tal como se guarda en memoria hasta volcarla a la tabla posicion_driver.
+ */
+public record Posicion(Long idSesion, Long idDriver, double latitud, double longitud, Double velocidadKmh,
+        Double precisionMetros, LocalDateTime hora) {
+}
@@ -0,0 +1,189 @@
+package com.microservice.entrega.service.seguimiento;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+
+/**
+ * Estado en memoria de una sesión de reparto en curso: el recorrido guardado, las duraciones de la matriz
+ * entre sus paradas y el ritmo observado del driver. Cada entrega o posición mueve el punto de partida
+ * y recalcula las ETAs de las paradas pendientes recorriendo la matriz, sin volver a resolver la ruta
+ * ni consultar al proveedor de distancias. Las lecturas toman la última foto publicada sin bloquearse.
+ */
+public class RecorridoEnVivo {
+
+    public record EtaParada(Long idCliente, int orden, LocalDateTime eta) {
+    }
+
+    // Límites del ritmo: una entrega muy rápida o muy lenta no debe mover las ETAs de golpe
+    private static final double RITMO_MINIMO = 0.5;
+    private static final double RITMO_MAXIMO = 3.0;
+    private static final long PLANIFICADO_MINIMO_SEGUNDOS = 60;
+
+    private final Long idSesion;
+    private final Long idRuta;
+    private final List<Long> clientes;
+    private final Map<Long, Integer> nodoPorCliente = new HashMap<>();
+    private final long[][] duraciones;
+    private final long[] servicio;
+    private final double[][] coordenadas;
+    private final boolean[] entregado;
+    private final double suavizado;
+
+    // Nodo de la matriz desde el que sigue el recorrido (0 = origen) y cuándo salió de ahí
+    private int nodoActual;
+    private LocalDateTime salida;
+    private double ritmo = 1.0;
+
+    private volatile List<EtaParada> etas = List.of();
+    private volatile LocalDateTime actualizado;
+
+    /**
+     * @param clientes    clientes en el orden del recorrido; el cliente i es el nodo i + 1
+     * @param duraciones  segundos de viaje entre nodos, con el origen en el nodo 0
+     * @param servicio    segundos de atención en cada nodo
+     * @param coordenadas [latitud, longitud] de cada nodo
+     */
+    public RecorridoEnVivo(Long idSesion, Long idRuta, List<Long> clientes, long[][] duraciones, long[] servicio,
+            double[][] coordenadas, double suavizado, LocalDateTime inicio) {
+        this.idSesion = idSesion;
+        this.idRuta = idRuta;
+        this.clientes = List.copyOf(clientes);
+        for (int i = 0; i < clientes.size(); i++) {
+            nodoPorCliente.put(clientes.get(i), i + 1);
+        }
+        this.duraciones = duraciones;
+        this.servicio = servicio;
+        this.coordenadas = coordenadas;
+        this.entregado = new boolean[clientes.size() + 1];
+        this.suavizado = suavizado;
+        this.salida = inicio;
+        recalcular(inicio, 0);
+    }
+
+    /**
+     * El driver terminó de atender a un cliente. Si era la siguiente parada del recorrido, el tiempo real
+     * contra el planificado ajusta el ritmo con un promedio móvil. Devuelve false si el cliente no está en la sesión.
+     */
+    public synchronized boolean registrarEntrega(Long idCliente, LocalDateTime hora) {
+        Integer nodo = nodoPorCliente.get(idCliente);
+        if (nodo == null) {
+            return false;
+        }
+        if (!entregado[nodo]) {
+            if (nodoActual != 0 && nodo == siguientePendiente()) {
+                long planificado = duraciones[nodoActual][nodo] + servicio[nodo];
+                long observado = Duration.between(salida, hora).getSeconds();
+                if (planificado >= PLANIFICADO_MINIMO_SEGUNDOS && observado > 0) {
+                    double razon = Math.max(RITMO_MINIMO, Math.min(RITMO_MAXIMO, (double) observado / planificado));
+                    ritmo = ritmo * (1 - suavizado) + razon * suavizado;
+                }
+            }
+            entregado[nodo] = true;
+        }
+        if (!hora.isBefore(salida)) {
+            nodoActual = nodo;
+            salida = hora;
+        }
+        recalcular(hora, 0);
+        return true;
+    }
+
+    /**
+     * Posición GPS del driver: la parte que falta del tramo hacia la siguiente parada se estima por la
+     * distancia en línea recta que le queda respecto del largo del tramo.
+     */
+    public synchronized void registrarPosicion(double latitud, double longitud, LocalDateTime hora) {
+        int siguiente = siguientePendiente();
+        if (siguiente < 0 || hora.isBefore(salida)) {
+            return;
+        }
+        double[] desde = coordenadas[nodoActual];
+        double[] hacia = coordenadas[siguiente];
+        double tramo = HaversineDistanceProvider.haversine(desde[0], desde[1], hacia[0], hacia[1]);
+        double falta = HaversineDistanceProvider.haversine(latitud, longitud, hacia[0], hacia[1]);
+        double fraccion = tramo > 0 ? Math.min(1.0, falta / tramo) : 0.0;
+        recalcular(hora, Math.round(duraciones[nodoActual][siguiente] * fraccion * ritmo));
+    }
+
+    /**
+     * Recorre las paradas pendientes en el orden del recorrido desde el nodo actual.
+     * @param primerTramo segundos hasta la siguiente parada si se conocen por GPS; 0 para usar la matriz
+     */
+    private void recalcular(LocalDateTime ahora, long primerTramo) {
+        List<EtaParada> nuevas = new ArrayList<>();
+        int anterior = nodoActual;
+        LocalDateTime hora = salida;
+        boolean primero = true;
+        for (int nodo = 1; nodo < entregado.length; nodo++) {
+            if (entregado[nodo]) {
+                continue;
+            }
+            if (primero && primerTramo > 0) {
+                hora = ahora.plusSeconds(primerTramo);
+            } else {
+                long viaje = Math.round(duraciones[anterior][nodo] * ritmo);
+                hora = hora.plusSeconds((primero ? 0 : Math.round(servicio[anterior] * ritmo)) + viaje);
+                // Si el driver va atrasado respecto del plan, la parada no puede quedar en el pasado
+                if (hora.isBefore(ahora)) {
+                    hora = ahora;
+                }
+            }
+            primero = false;
+            nuevas.add(new EtaParada(clientes.get(nodo - 1), nodo, hora));
+            anterior = nodo;
+        }
+        etas = Collections.unmodifiableList(nuevas);
+        actualizado = ahora;
+    }
+
+    private int siguientePendiente() {
+        for (int nodo = 1; nodo < entregado.length; nodo++) {
+            if (!entregado[nodo]) {
+                return nodo;
+            }
+        }
+        return -1;
+    }
+
+    public List<EtaParada> getEtas() {
+        return etas;
+    }
+
+    public LocalDateTime getActualizado() {
+        return actualizado;
+    }
+
+    public synchronized double getRitmo() {
+        return ritmo;
+    }
+
+    public Long getIdSesion() {
+        return idSesion;
+    }
+
+    public Long getIdRuta() {
+        return idRuta;
+    }
+
+    public int getTotalParadas() {
+        return clientes.size();
+    }
+
+    public List<Long> getClientes() {
+        return clientes;
+    }
+
+    /**
+     * [latitud, longitud] del cliente en la posición {@code indice} del recorrido (desde 0).
+     */
+    public double[] getCoordenadasCliente(int indice) {
+        return coordenadas[indice + 1];
+    }
+}
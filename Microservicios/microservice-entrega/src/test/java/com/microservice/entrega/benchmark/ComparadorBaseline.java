@@ -0,0 +1,114 @@
+package com.microservice.entrega.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compara una corrida de benchmarks con la baseline guardada en el repositorio.
+ * Falla (código de salida 1) si algún tiempo o el largo promedio de algún recorrido empeora más que la tolerancia,
+ * o si el solver deja más corridas sin solución completa que en la baseline.
+ * Uso: ComparadorBaseline {resultados} {baseline} [tolerancia]
+ * Para fijar una nueva baseline basta con copiar el contenido de target/jmh a benchmark/baseline.
+ */
+public final class ComparadorBaseline {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Los recorridos son casi deterministas con la semilla fija, así que la calidad tolera menos que el tiempo
+    private static final double TOLERANCIA_CALIDAD = 0.05;
+
+    private ComparadorBaseline() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path actual = Paths.get(args[0]);
+        Path baseline = Paths.get(args[1]);
+        double tolerancia = args.length > 2 ? Double.parseDouble(args[2]) : 0.25;
+
+        if (!Files.exists(baseline.resolve("resultados.json"))) {
+            System.out.println("Sin baseline en " + baseline + "; para fijarla copiar " + actual + " a esa carpeta");
+            return;
+        }
+
+        List<String> regresiones = new ArrayList<>();
+        Map<String, double[]> tiemposActuales = leerTiempos(actual.resolve("resultados.json"));
+        for (Map.Entry<String, double[]> base : leerTiempos(baseline.resolve("resultados.json")).entrySet()) {
+            double[] medido = tiemposActuales.get(base.getKey());
+            if (medido == null) {
+                continue;
+            }
+            // [0] = puntaje, [1] = 1 si más alto es mejor (throughput)
+            boolean masEsMejor = base.getValue()[1] > 0;
+            double cambio = (medido[0] - base.getValue()[0]) / base.getValue()[0];
+            if (masEsMejor ? cambio < -tolerancia : cambio > tolerancia) {
+                regresiones.add(String.format("%s: %.3f -> %.3f (%+.1f%%)", base.getKey(), base.getValue()[0],
+                        medido[0], cambio * 100));
+            }
+        }
+
+        Map<String, JsonNode> calidadActual = leerCalidad(actual.resolve("calidad"));
+        for (Map.Entry<String, JsonNode> base : leerCalidad(baseline.resolve("calidad")).entrySet()) {
+            JsonNode medido = calidadActual.get(base.getKey());
+            if (medido == null) {
+                continue;
+            }
+            double metrosBase = base.getValue().path("metrosPromedio").asDouble();
+            double metrosMedidos = medido.path("metrosPromedio").asDouble();
+            if (metrosMedidos > metrosBase * (1 + TOLERANCIA_CALIDAD)) {
+                regresiones.add(String.format("%s: recorrido promedio %.0f m -> %.0f m", base.getKey(), metrosBase,
+                        metrosMedidos));
+            }
+            if (medido.path("incompletos").asLong() > base.getValue().path("incompletos").asLong()) {
+                regresiones.add(String.format("%s: %d corridas sin solución completa (baseline %d)", base.getKey(),
+                        medido.path("incompletos").asLong(), base.getValue().path("incompletos").asLong()));
+            }
+        }
+
+        if (regresiones.isEmpty()) {
+            System.out.println("Sin regresiones respecto de la baseline (tolerancia " + tolerancia + ")");
+            return;
+        }
+        System.out.println("Regresiones respecto de la baseline:");
+        regresiones.forEach(r -> System.out.println("  " + r));
+        System.exit(1);
+    }
+
+    private static Map<String, double[]> leerTiempos(Path archivo) throws IOException {
+        Map<String, double[]> tiempos = new LinkedHashMap<>();
+        if (!Files.exists(archivo)) {
+            return tiempos;
+        }
+        for (JsonNode resultado : MAPPER.readTree(archivo.toFile())) {
+            Map<String, String> parametros = new TreeMap<>();
+            resultado.path("params").properties().forEach(p -> parametros.put(p.getKey(), p.getValue().asText()));
+            String clave = resultado.path("benchmark").asText() + parametros;
+            boolean masEsMejor = "thrpt".equals(resultado.path("mode").asText());
+            tiempos.put(clave, new double[] { resultado.path("primaryMetric").path("score").asDouble(), masEsMejor ? 1 : 0 });
+        }
+        return tiempos;
+    }
+
+    private static Map<String, JsonNode> leerCalidad(Path directorio) throws IOException {
+        Map<String, JsonNode> calidad = new LinkedHashMap<>();
+        File[] archivos = directorio.toFile().listFiles((dir, nombre) -> nombre.endsWith(".json"));
+        if (archivos == null) {
+            return calidad;
+        }
+        for (File archivo : archivos) {
+            JsonNode registro = MAPPER.readTree(archivo);
+            calidad.put(registro.path("nombre").asText(), registro);
+        }
+        return calidad;
+    }
+}
@@ -0,0 +1,36 @@
+package com.microservice.entrega.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada del perfil "benchmark": corre los benchmarks que coinciden con el filtro y deja
+ * los tiempos en {salida}/resultados.json (formato JSON de JMH) junto a la calidad de los recorridos.
+ */
+public final class EjecutorBenchmarks {
+
+    private EjecutorBenchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String filtro = args.length > 0 ? args[0] : EjecutorBenchmarks.class.getPackageName() + ".*";
+        Path salida = RegistroCalidad.directorioSalida().toAbsolutePath();
+        Files.createDirectories(salida);
+
+        Options opciones = new OptionsBuilder()
+                .include(filtro)
+                .resultFormat(ResultFormatType.JSON)
+                .result(salida.resolve("resultados.json").toString())
+                // Los forks heredan la salida y los tiempos límite configurados
+                .jvmArgsAppend("-Dbenchmark.salida=" + salida,
+                        "-Dbenchmark.interactivo-ms=" + Long.getLong("benchmark.interactivo-ms", 2000L),
+                        "-Dbenchmark.nocturno-ms=" + Long.getLong("benchmark.nocturno-ms", 10000L))
+                .build();
+        new Runner(opciones).run();
+    }
+}
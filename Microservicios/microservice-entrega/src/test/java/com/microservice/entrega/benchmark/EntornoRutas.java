@@ -0,0 +1,144 @@
+package com.microservice.entrega.benchmark;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservice.entrega.client.ClienteServiceClient;
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.entity.Ruta;
+import com.microservice.entrega.entity.RutaCliente;
+import com.microservice.entrega.repository.DistanciaCacheRepository;
+import com.microservice.entrega.repository.ProgramacionEntregaRepository;
+import com.microservice.entrega.repository.RutaClienteRepository;
+import com.microservice.entrega.repository.RutaRepository;
+import com.microservice.entrega.service.DistanciaCacheService;
+import com.microservice.entrega.service.GeometriaRutaService;
+import com.microservice.entrega.service.ResultadoOptimizacionService;
+import com.microservice.entrega.service.RutaService;
+import com.microservice.entrega.service.distancia.DistanceProvider;
+import com.microservice.entrega.service.distancia.DistanceProviderRegistry;
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+import com.microservice.entrega.service.distancia.OsrmDistanceProvider;
+import com.microservice.entrega.service.distancia.OsrmGateway;
+import com.microservice.entrega.service.optimizacion.PerfilesBusqueda;
+
+/**
+ * RutaService armado sin Spring para los benchmarks: repositorios y cliente Feign simulados,
+ * y caché de distancias, proveedores y perfiles de búsqueda reales.
+ */
+public class EntornoRutas implements AutoCloseable {
+
+    public static final Long ID_RUTA = 1L;
+
+    private final RutaService rutaService = new RutaService();
+    private final PerfilesBusqueda perfilesBusqueda = new PerfilesBusqueda();
+    private final OsrmGateway gateway;
+    private final GeometriaRutaService geometriaRutaService;
+    private final List<DistanceProvider> proveedores = new ArrayList<>();
+    private final Ruta deposito;
+    private final List<ClienteDTO> clientes;
+
+    /**
+     * @param urlOsrm URL del servidor OSRM (simulado); si es null solo se registra el proveedor haversine
+     */
+    public EntornoRutas(int nodos, String urlOsrm) {
+        deposito = GeneradorEscenarios.deposito(ID_RUTA);
+        clientes = GeneradorEscenarios.clientes(nodos, nodos);
+
+        // Sin servidor la geometría apunta a un puerto cerrado y cae en la línea recta estimada
+        gateway = new OsrmGateway("osrm", urlOsrm != null ? urlOsrm : "http://127.0.0.1:1");
+        geometriaRutaService = new GeometriaRutaService(new ObjectMapper(), gateway, new HaversineDistanceProvider());
+        proveedores.add(new HaversineDistanceProvider());
+        if (urlOsrm != null) {
+            proveedores.add(new OsrmDistanceProvider("osrm", gateway));
+        }
+        DistanceProviderRegistry registry = new DistanceProviderRegistry(proveedores);
+        ReflectionTestUtils.setField(registry, "proveedorPorDefecto", urlOsrm != null ? "osrm" : HaversineDistanceProvider.NOMBRE);
+
+        RutaRepository rutaRepository = mock(RutaRepository.class);
+        when(rutaRepository.findById(ID_RUTA)).thenReturn(Optional.of(deposito));
+
+        List<RutaCliente> filas = new ArrayList<>();
+        for (ClienteDTO c : clientes) {
+            filas.add(new RutaCliente(c.getId(), ID_RUTA, c.getId(), null, null, null, null, null, null));
+        }
+        RutaClienteRepository rutaClienteRepository = mock(RutaClienteRepository.class);
+        when(rutaClienteRepository.findById_ruta(ID_RUTA)).thenReturn(filas);
+
+        ClienteServiceClient clienteServiceClient = mock(ClienteServiceClient.class);
+        when(clienteServiceClient.getClientesByIds(anyList()))
+                .thenAnswer(invocation -> GeneradorEscenarios.copiar(clientes));
+
+        ReflectionTestUtils.setField(rutaService, "rutaRepository", rutaRepository);
+        ReflectionTestUtils.setField(rutaService, "rutaClienteRepository", rutaClienteRepository);
+        ReflectionTestUtils.setField(rutaService, "clienteServiceClient", clienteServiceClient);
+        ReflectionTestUtils.setField(rutaService, "programacionEntregaRepository", mock(ProgramacionEntregaRepository.class));
+        ReflectionTestUtils.setField(rutaService, "resultadoOptimizacionService", mock(ResultadoOptimizacionService.class));
+        ReflectionTestUtils.setField(rutaService, "distanceProviderRegistry", registry);
+        ReflectionTestUtils.setField(rutaService, "perfilesBusqueda", perfilesBusqueda);
+        ReflectionTestUtils.setField(rutaService, "geometriaRutaService", geometriaRutaService);
+        vaciarCacheDistancias();
+    }
+
+    /**
+     * Reemplaza la caché de distancias por una vacía (sin filas persistidas).
+     */
+    public void vaciarCacheDistancias() {
+        ReflectionTestUtils.setField(rutaService, "distanciaCacheService",
+                new DistanciaCacheService(mock(DistanciaCacheRepository.class)));
+    }
+
+    public void setTiemposLimite(long interactivoMs, long nocturnoMs) {
+        ReflectionTestUtils.setField(perfilesBusqueda, "interactivoTiempoLimiteMs", interactivoMs);
+        ReflectionTestUtils.setField(perfilesBusqueda, "nocturnoTiempoLimiteMs", nocturnoMs);
+    }
+
+    public RutaService getRutaService() {
+        return rutaService;
+    }
+
+    public Ruta getDeposito() {
+        return deposito;
+    }
+
+    public List<ClienteDTO> getClientes() {
+        return clientes;
+    }
+
+    /**
+     * Largo (metros, haversine) del recorrido depósito -> clientes en orden -> depósito; mide la calidad de un orden.
+     */
+    public long largoRecorrido(List<ClienteDTO> orden) {
+        HaversineDistanceProvider haversine = new HaversineDistanceProvider();
+        double[] anterior = { deposito.getLatitud(), deposito.getLongitud() };
+        long metros = 0;
+        for (ClienteDTO c : orden) {
+            double[] actual = { c.getLatitud(), c.getLongitud() };
+            metros += haversine.distanciaVial(anterior, actual);
+            anterior = actual;
+        }
+        return metros + haversine.distanciaVial(anterior, new double[] { deposito.getLatitud(), deposito.getLongitud() });
+    }
+
+    @Override
+    public void close() {
+        for (DistanceProvider proveedor : proveedores) {
+            if (proveedor instanceof AutoCloseable cerrable) {
+                try {
+                    cerrable.close();
+                } catch (Exception e) {
+                    // Solo libera el pool de bloques del proveedor OSRM
+                }
+            }
+        }
+        gateway.close();
+    }
+}
@@ -0,0 +1,97 @@
+package com.microservice.entrega.benchmark;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.entity.Ruta;
+
+/**
+ * Escenarios sintéticos para los benchmarks: un depósito y n clientes repartidos alrededor,
+ * con una semilla fija para que cada corrida vea exactamente los mismos puntos.
+ */
+public final class GeneradorEscenarios {
+
+    // Centro de Chillán, donde operan las rutas reales
+    public static final double LATITUD_DEPOSITO = -36.6066;
+    public static final double LONGITUD_DEPOSITO = -72.1034;
+
+    // Radio aproximado del área de reparto hasta 50 clientes, en grados (~10 km)
+    private static final double RADIO_GRADOS = 0.09;
+    private static final int CLIENTES_RADIO_COMPLETO = 50;
+
+    private GeneradorEscenarios() {
+    }
+
+    public static Ruta deposito(Long idRuta) {
+        Ruta ruta = new Ruta();
+        ruta.setId(idRuta);
+        ruta.setNombre("Ruta benchmark " + idRuta);
+        ruta.setLatitud(LATITUD_DEPOSITO);
+        ruta.setLongitud(LONGITUD_DEPOSITO);
+        return ruta;
+    }
+
+    /**
+     * Genera n clientes; cerca de un tercio tiene ventana horaria de dos horas y todos tienen
+     * entre 1 y 3 minutos de servicio. Con más de 50 clientes el área se achica (densidad creciente,
+     * como en una ruta urbana), porque si no un solo vehículo no alcanza a cubrirla en el día.
+     */
+    public static List<ClienteDTO> clientes(int n, long semilla) {
+        Random random = new Random(semilla);
+        double radioArea = RADIO_GRADOS * Math.min(1.0, Math.sqrt((double) CLIENTES_RADIO_COMPLETO / Math.max(n, 1)));
+        List<ClienteDTO> clientes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            // Raíz cuadrada para que la densidad sea uniforme dentro del círculo
+            double radio = radioArea * Math.sqrt(random.nextDouble());
+            double angulo = random.nextDouble() * 2 * Math.PI;
+
+            ClienteDTO cliente = new ClienteDTO();
+            cliente.setId((long) i + 1);
+            cliente.setNombre("Cliente " + (i + 1));
+            cliente.setLatitud(LATITUD_DEPOSITO + radio * Math.sin(angulo));
+            cliente.setLongitud(LONGITUD_DEPOSITO + radio * Math.cos(angulo));
+            cliente.setTiempoServicioMinutos(1 + random.nextInt(3));
+            if (random.nextInt(3) == 0) {
+                LocalTime inicio = LocalTime.of(7 + random.nextInt(5), 0);
+                cliente.setVentanaInicio(inicio);
+                cliente.setVentanaFin(inicio.plusHours(2));
+            }
+            clientes.add(cliente);
+        }
+        return clientes;
+    }
+
+    /**
+     * Ubicaciones [latitud, longitud] con el depósito en la posición 0, como las arma RutaService.
+     */
+    public static List<double[]> ubicaciones(Ruta deposito, List<ClienteDTO> clientes) {
+        List<double[]> ubicaciones = new ArrayList<>(clientes.size() + 1);
+        ubicaciones.add(new double[] { deposito.getLatitud(), deposito.getLongitud() });
+        for (ClienteDTO c : clientes) {
+            ubicaciones.add(new double[] { c.getLatitud(), c.getLongitud() });
+        }
+        return ubicaciones;
+    }
+
+    /**
+     * Copia de los clientes, ya que la optimización escribe la ETA en cada uno.
+     */
+    public static List<ClienteDTO> copiar(List<ClienteDTO> clientes) {
+        List<ClienteDTO> copia = new ArrayList<>(clientes.size());
+        for (ClienteDTO c : clientes) {
+            ClienteDTO nuevo = new ClienteDTO();
+            nuevo.setId(c.getId());
+            nuevo.setNombre(c.getNombre());
+            nuevo.setLatitud(c.getLatitud());
+            nuevo.setLongitud(c.getLongitud());
+            nuevo.setTiempoServicioMinutos(c.getTiempoServicioMinutos());
+            nuevo.setVentanaInicio(c.getVentanaInicio());
+            nuevo.setVentanaFin(c.getVentanaFin());
+            copia.add(nuevo);
+        }
+        return copia;
+    }
+}
@@ -0,0 +1,91 @@
+package com.microservice.entrega.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservice.entrega.service.distancia.OsrmDistanceProvider;
+import com.microservice.entrega.service.distancia.OsrmGateway;
+import com.microservice.entrega.service.distancia.TablaDistancias;
+
+/**
+ * Costo de obtener una matriz de OSRM: solo el parseo del JSON (como lo hace RestTemplate con Jackson)
+ * y la consulta completa contra el servidor simulado, que incluye la división en bloques y el HTTP local.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatrizJsonBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int nodos;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private String json;
+    private List<double[]> ubicaciones;
+    private List<Integer> todos;
+    private ServidorOsrmSimulado servidor;
+    private OsrmGateway gateway;
+    private OsrmDistanceProvider proveedor;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        ubicaciones = GeneradorEscenarios.ubicaciones(GeneradorEscenarios.deposito(1L),
+                GeneradorEscenarios.clientes(nodos - 1, nodos));
+        todos = IntStream.range(0, ubicaciones.size()).boxed().collect(Collectors.toList());
+        json = ServidorOsrmSimulado.tablaJson(ubicaciones, todos, todos);
+        servidor = new ServidorOsrmSimulado();
+        gateway = new OsrmGateway("osrm", servidor.getUrl());
+        proveedor = new OsrmDistanceProvider("osrm", gateway);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        proveedor.close();
+        gateway.close();
+        servidor.close();
+    }
+
+    @Benchmark
+    public long[][] parsearTabla() throws Exception {
+        Map<String, Object> respuesta = mapper.readValue(json, new TypeReference<Map<String, Object>>() {
+        });
+        @SuppressWarnings("unchecked")
+        List<List<Number>> distancias = (List<List<Number>>) respuesta.get("distances");
+        long[][] matriz = new long[distancias.size()][];
+        for (int i = 0; i < matriz.length; i++) {
+            List<Number> fila = distancias.get(i);
+            matriz[i] = new long[fila.size()];
+            for (int j = 0; j < matriz[i].length; j++) {
+                matriz[i][j] = Math.round(fila.get(j).doubleValue());
+            }
+        }
+        return matriz;
+    }
+
+    @Benchmark
+    public TablaDistancias consultarServidorSimulado() {
+        return proveedor.calcularTabla(ubicaciones, todos, todos);
+    }
+}
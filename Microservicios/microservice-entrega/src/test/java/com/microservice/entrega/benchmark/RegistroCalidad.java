@@ -0,0 +1,53 @@
+package com.microservice.entrega.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * JMH solo mide tiempos; la calidad de los recorridos (metros, solo de las corridas completas) de cada
+ * combinación de parámetros se guarda aparte en {salida}/calidad/{nombre}.json para poder compararla con la baseline.
+ */
+public final class RegistroCalidad {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private RegistroCalidad() {
+    }
+
+    public static Path directorioSalida() {
+        return Paths.get(System.getProperty("benchmark.salida", "target/jmh"));
+    }
+
+    /**
+     * @param incompletos Corridas en las que el solver no devolvió a todos los clientes (sin solución dentro del tiempo límite)
+     */
+    public static void escribir(String nombre, Map<String, Object> parametros, LongSummaryStatistics metros,
+            long incompletos) {
+        if (metros.getCount() == 0 && incompletos == 0) {
+            return;
+        }
+        Map<String, Object> registro = new LinkedHashMap<>();
+        registro.put("nombre", nombre);
+        registro.put("parametros", parametros);
+        registro.put("muestras", metros.getCount() + incompletos);
+        registro.put("incompletos", incompletos);
+        registro.put("metrosPromedio", metros.getAverage());
+        registro.put("metrosMinimo", metros.getMin());
+        registro.put("metrosMaximo", metros.getMax());
+        try {
+            Path directorio = directorioSalida().resolve("calidad");
+            Files.createDirectories(directorio);
+            MAPPER.writeValue(directorio.resolve(nombre + ".json").toFile(), registro);
+        } catch (IOException e) {
+            throw new RuntimeException("No se pudo escribir la calidad del benchmark " + nombre + ": " + e.getMessage());
+        }
+    }
+}
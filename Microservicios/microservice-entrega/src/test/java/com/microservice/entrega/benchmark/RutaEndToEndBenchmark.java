@@ -0,0 +1,67 @@
+package com.microservice.entrega.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microservice.entrega.service.optimizacion.PerfilBusqueda;
+
+/**
+ * Latencia de punta a punta de optimizarRuta (clientes de la ruta, matriz, solver y geometría)
+ * contra el servidor OSRM simulado, con la caché de distancias vacía o caliente.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RutaEndToEndBenchmark {
+
+    @Param({ "10", "50", "100" })
+    public int nodos;
+
+    @Param({ "fria", "caliente" })
+    public String cache;
+
+    private ServidorOsrmSimulado servidor;
+    private EntornoRutas entorno;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        servidor = new ServidorOsrmSimulado();
+        entorno = new EntornoRutas(nodos, servidor.getUrl());
+        entorno.setTiemposLimite(Long.getLong("benchmark.interactivo-ms", 2000L), 60000L);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepararCache() {
+        if ("fria".equals(cache)) {
+            entorno.vaciarCacheDistancias();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        entorno.close();
+        servidor.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> optimizarRuta() {
+        return entorno.getRutaService().optimizarRuta(EntornoRutas.ID_RUTA, null, null, PerfilBusqueda.INTERACTIVO);
+    }
+}
@@ -0,0 +1,123 @@
+package com.microservice.entrega.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Servidor local que imita los servicios "table" y "route" de OSRM con distancias haversine,
+ * para medir el flujo completo sin depender de la red ni del servidor público.
+ */
+public class ServidorOsrmSimulado implements AutoCloseable {
+
+    private static final HaversineDistanceProvider HAVERSINE = new HaversineDistanceProvider();
+
+    private final HttpServer servidor;
+
+    public ServidorOsrmSimulado() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.createContext("/table/v1/driving/", exchange -> responder(exchange, true));
+        servidor.createContext("/route/v1/driving/", exchange -> responder(exchange, false));
+        servidor.setExecutor(Executors.newFixedThreadPool(8, tarea -> {
+            Thread hilo = new Thread(tarea, "osrm-simulado");
+            hilo.setDaemon(true);
+            return hilo;
+        }));
+        servidor.start();
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + servidor.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+    }
+
+    private void responder(HttpExchange exchange, boolean tabla) throws IOException {
+        String ruta = exchange.getRequestURI().getPath();
+        List<double[]> ubicaciones = new ArrayList<>();
+        for (String coord : ruta.substring(ruta.lastIndexOf('/') + 1).split(";")) {
+            String[] partes = coord.split(",");
+            ubicaciones.add(new double[] { Double.parseDouble(partes[1]), Double.parseDouble(partes[0]) });
+        }
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String par : query.split("&")) {
+                String[] kv = par.split("=", 2);
+                params.put(kv[0], kv.length > 1 ? kv[1] : "");
+            }
+        }
+
+        String json = tabla
+                ? tablaJson(ubicaciones, indices(params.get("sources"), ubicaciones.size()),
+                        indices(params.get("destinations"), ubicaciones.size()))
+                : rutaJson(ubicaciones);
+        byte[] cuerpo = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, cuerpo.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(cuerpo);
+        }
+    }
+
+    private static List<Integer> indices(String valor, int total) {
+        List<Integer> indices = new ArrayList<>();
+        if (valor == null || valor.isEmpty() || valor.equals("all")) {
+            for (int i = 0; i < total; i++) {
+                indices.add(i);
+            }
+            return indices;
+        }
+        for (String i : valor.split(";")) {
+            indices.add(Integer.parseInt(i));
+        }
+        return indices;
+    }
+
+    /**
+     * Respuesta del servicio "table" con el mismo formato que OSRM (annotations=distance,duration).
+     */
+    public static String tablaJson(List<double[]> ubicaciones, List<Integer> origenes, List<Integer> destinos) {
+        StringBuilder distancias = new StringBuilder();
+        StringBuilder duraciones = new StringBuilder();
+        for (int a = 0; a < origenes.size(); a++) {
+            distancias.append(a > 0 ? ",[" : "[");
+            duraciones.append(a > 0 ? ",[" : "[");
+            for (int b = 0; b < destinos.size(); b++) {
+                long metros = HAVERSINE.distanciaVial(ubicaciones.get(origenes.get(a)), ubicaciones.get(destinos.get(b)));
+                distancias.append(b > 0 ? "," : "").append(metros).append(".4");
+                duraciones.append(b > 0 ? "," : "").append(HAVERSINE.duracion(metros)).append(".7");
+            }
+            distancias.append("]");
+            duraciones.append("]");
+        }
+        return "{\"code\":\"Ok\",\"distances\":[" + distancias + "],\"durations\":[" + duraciones + "]}";
+    }
+
+    private static String rutaJson(List<double[]> ubicaciones) {
+        long metros = 0;
+        StringBuilder coordenadas = new StringBuilder();
+        for (int i = 0; i < ubicaciones.size(); i++) {
+            double[] loc = ubicaciones.get(i);
+            coordenadas.append(i > 0 ? "," : "").append("[").append(loc[1]).append(",").append(loc[0]).append("]");
+            if (i > 0) {
+                metros += HAVERSINE.distanciaVial(ubicaciones.get(i - 1), loc);
+            }
+        }
+        return "{\"code\":\"Ok\",\"routes\":[{\"distance\":" + metros + ",\"duration\":" + HAVERSINE.duracion(metros)
+                + ",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[" + coordenadas + "]}}]}";
+    }
+}
@@ -0,0 +1,79 @@
+package com.microservice.entrega.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.service.optimizacion.PerfilBusqueda;
+
+/**
+ * Tiempo de getOptimizedRouteORTools frente a la calidad del recorrido, por perfil de búsqueda.
+ * Usa distancias haversine para aislar el solver; la calidad queda en calidad/solver-{perfil}-{nodos}.json.
+ * Los tiempos límite se pueden ajustar con -Dbenchmark.interactivo-ms y -Dbenchmark.nocturno-ms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SolverBenchmark {
+
+    @Param({ "INTERACTIVO", "NOCTURNO" })
+    public String perfil;
+
+    @Param({ "10", "50", "200" })
+    public int nodos;
+
+    private EntornoRutas entorno;
+    private final LongSummaryStatistics metros = new LongSummaryStatistics();
+    private long incompletos;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        entorno = new EntornoRutas(nodos, null);
+        entorno.setTiemposLimite(Long.getLong("benchmark.interactivo-ms", 2000L),
+                Long.getLong("benchmark.nocturno-ms", 10000L));
+        // Calienta la caché de distancias para medir solo el solver
+        entorno.getRutaService().getOptimizedRouteORTools(EntornoRutas.ID_RUTA,
+                GeneradorEscenarios.copiar(entorno.getClientes()), null, PerfilBusqueda.INTERACTIVO, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void registrarCalidad() {
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        parametros.put("perfil", perfil);
+        parametros.put("nodos", nodos);
+        RegistroCalidad.escribir("solver-" + perfil + "-" + nodos, parametros, metros, incompletos);
+        entorno.close();
+    }
+
+    @Benchmark
+    public List<ClienteDTO> resolver() {
+        List<ClienteDTO> orden = entorno.getRutaService().getOptimizedRouteORTools(EntornoRutas.ID_RUTA,
+                GeneradorEscenarios.copiar(entorno.getClientes()), null, PerfilBusqueda.valueOf(perfil), null);
+        if (orden.size() < nodos) {
+            incompletos++;
+        } else {
+            metros.accept(entorno.largoRecorrido(orden));
+        }
+        return orden;
+    }
+}
@@ -5,7 +5,14 @@ import com.microservice.entrega.client.ClienteServiceClient;
 import com.microservice.entrega.client.UsuarioServiceClient;
 import com.microservice.entrega.dto.ClienteDTO;
 import com.microservice.entrega.entity.Ruta;
+import com.microservice.entrega.service.AsignacionAutomaticaService;
+import com.microservice.entrega.service.EtaEnVivoService;
+import com.microservice.entrega.service.GeocercaService;
+import com.microservice.entrega.service.OptimizacionFlotaService;
+import com.microservice.entrega.service.PreOptimizacionNocturnaService;
+import com.microservice.entrega.service.RebalanceoService;
 import com.microservice.entrega.service.RutaService;
+import com.microservice.entrega.service.SeguimientoGpsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -36,6 +43,27 @@ class RutaControllerTest {
     @MockBean
     private RutaService rutaService;
 
+    @MockBean
+    private OptimizacionFlotaService optimizacionFlotaService;
+
+    @MockBean
+    private PreOptimizacionNocturnaService preOptimizacionNocturnaService;
+
+    @MockBean
+    private AsignacionAutomaticaService asignacionAutomaticaService;
+
+    @MockBean
+    private RebalanceoService rebalanceoService;
+
+    @MockBean
+    private EtaEnVivoService etaEnVivoService;
+
+    @MockBean
+    private SeguimientoGpsService seguimientoGpsService;
+
+    @MockBean
+    private GeocercaService geocercaService;
+
     @MockBean
     private ClienteServiceClient clienteServiceClient;
 
@@ -68,10 +96,11 @@ class RutaControllerTest {
         @Test
         @DisplayName("Debería optimizar ruta con OR-Tools exitosamente")
         void deberiaOptimizarRutaConORTools() throws Exception {
-            when(rutaService.getClientesDeRuta(1L)).thenReturn(clientesTest);
-            when(rutaService.getOptimizedRouteORTools(anyList())).thenReturn(clientesTest);
-            when(rutaService.getOrigenRuta(1L)).thenReturn(rutaTest);
-            when(rutaService.getOsrmRoute(anyList(), any())).thenReturn("{}");
+            Map<String, Object> resultado = new HashMap<>();
+            resultado.put("orderedClients", clientesTest);
+            resultado.put("osrmRoute", "{}");
+            resultado.put("origen", Map.of("latitud", -34.6, "longitud", -58.4));
+            when(rutaService.optimizarRuta(eq(1L), isNull(), any(), any(), any())).thenReturn(resultado);
 
             mockMvc.perform(get("/rutas/optimized-ortools/1"))
                     .andExpect(status().isOk())
@@ -79,17 +108,16 @@ class RutaControllerTest {
                     .andExpect(jsonPath("$.osrmRoute").exists())
                     .andExpect(jsonPath("$.origen").exists());
 
-            verify(rutaService).getClientesDeRuta(1L);
-            verify(rutaService).getOptimizedRouteORTools(anyList());
+            verify(rutaService).optimizarRuta(eq(1L), isNull(), any(), any(), any());
         }
 
         @Test
         @DisplayName("Debería retornar lista vacía cuando no hay clientes en la ruta")
         void deberiaRetornarListaVaciaCuandoNoHayClientes() throws Exception {
-            when(rutaService.getClientesDeRuta(1L)).thenReturn(new ArrayList<>());
-            when(rutaService.getOptimizedRouteORTools(anyList())).thenReturn(new ArrayList<>());
-            when(rutaService.getOrigenRuta(1L)).thenReturn(rutaTest);
-            when(rutaService.getOsrmRoute(anyList(), any())).thenReturn("{}");
+            Map<String, Object> resultado = new HashMap<>();
+            resultado.put("orderedClients", new ArrayList<>());
+            resultado.put("osrmRoute", "{}");
+            when(rutaService.optimizarRuta(eq(1L), isNull(), any(), any(), any())).thenReturn(resultado);
 
             mockMvc.perform(get("/rutas/optimized-ortools/1"))
                     .andExpect(status().isOk())
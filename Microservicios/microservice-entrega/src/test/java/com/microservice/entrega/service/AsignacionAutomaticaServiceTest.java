@@ -0,0 +1,208 @@
+package com.microservice.entrega.service;
+
+import com.microservice.entrega.client.ClienteServiceClient;
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.entity.Ruta;
+import com.microservice.entrega.entity.RutaCliente;
+import com.microservice.entrega.repository.RutaClienteRepository;
+import com.microservice.entrega.repository.RutaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsignacionAutomaticaServiceTest {
+
+    @Mock
+    private RutaRepository rutaRepository;
+
+    @Mock
+    private RutaClienteRepository rutaClienteRepository;
+
+    @Mock
+    private ClienteServiceClient clienteServiceClient;
+
+    @Mock
+    private ResultadoOptimizacionService resultadoOptimizacionService;
+
+    @InjectMocks
+    private AsignacionAutomaticaService asignacionAutomaticaService;
+
+    private List<ClienteDTO> clientes;
+    private List<RutaCliente> asignaciones;
+
+    @BeforeEach
+    void setUp() {
+        // Dos rutas que salen de la misma panadería: la 1 atiende el este y la 2 el oeste
+        when(rutaRepository.findAll()).thenReturn(List.of(createRuta(1L), createRuta(2L)));
+        clientes = new ArrayList<>();
+        asignaciones = new ArrayList<>();
+        agregarAsignado(10L, 1L, -72.05);
+        agregarAsignado(11L, 1L, -72.04);
+        agregarAsignado(20L, 2L, -72.15);
+        agregarAsignado(21L, 2L, -72.16);
+        when(rutaClienteRepository.findAll()).thenReturn(asignaciones);
+        when(clienteServiceClient.getAllClientes()).thenReturn(clientes);
+    }
+
+    private Ruta createRuta(Long id) {
+        Ruta ruta = new Ruta();
+        ruta.setId(id);
+        ruta.setNombre("Ruta " + id);
+        ruta.setLatitud(-36.6);
+        ruta.setLongitud(-72.1);
+        return ruta;
+    }
+
+    private ClienteDTO createCliente(Long id, double longitud) {
+        ClienteDTO cliente = new ClienteDTO();
+        cliente.setId(id);
+        cliente.setNombre("Cliente " + id);
+        cliente.setLatitud(-36.6);
+        cliente.setLongitud(longitud);
+        clientes.add(cliente);
+        return cliente;
+    }
+
+    private void agregarAsignado(Long idCliente, Long idRuta, double longitud) {
+        createCliente(idCliente, longitud);
+        asignaciones.add(new RutaCliente(idCliente, idRuta, idCliente, asignaciones.size() + 1, null, null, null, null, null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Long> rutaPorCliente(Map<String, Object> propuesta) {
+        return ((List<Map<String, Object>>) propuesta.get("asignaciones")).stream()
+            .collect(Collectors.toMap(a -> (Long) a.get("id_cliente"), a -> (Long) a.get("id_ruta")));
+    }
+
+    @Test
+    void testProponer_AsignaAlTerritorioMasCercano() {
+        createCliente(30L, -72.045);
+        createCliente(31L, -72.155);
+        ClienteDTO sinCoordenadas = createCliente(32L, 0);
+        sinCoordenadas.setLatitud(null);
+
+        Map<String, Object> propuesta = asignacionAutomaticaService.proponer();
+
+        Map<Long, Long> rutas = rutaPorCliente(propuesta);
+        assertEquals(1L, rutas.get(30L));
+        assertEquals(2L, rutas.get(31L));
+        assertNotNull(propuesta.get("id"));
+        assertEquals(1, ((List<?>) propuesta.get("sinAsignar")).size());
+        verify(rutaClienteRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testProponer_RespetaMaximoDeParadas() {
+        ReflectionTestUtils.setField(asignacionAutomaticaService, "maxParadas", 3);
+        createCliente(30L, -72.045);
+        createCliente(31L, -72.046);
+        createCliente(32L, -72.047);
+
+        Map<String, Object> propuesta = asignacionAutomaticaService.proponer();
+
+        // La ruta 1 solo tiene un cupo; el resto va a la ruta 2 y lo que no cabe queda sin asignar
+        Map<Long, Long> rutas = rutaPorCliente(propuesta);
+        assertEquals(1, rutas.values().stream().filter(r -> r == 1L).count());
+        assertEquals(1, rutas.values().stream().filter(r -> r == 2L).count());
+        assertEquals(1, ((List<?>) propuesta.get("sinAsignar")).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testProponer_ClienteLejanoQuedaSinAsignar() {
+        createCliente(30L, -72.045);
+        // Geocodificado en 0,0: a miles de kilómetros de todas las rutas
+        ClienteDTO lejano = createCliente(31L, 0);
+        lejano.setLatitud(0.0);
+
+        long inicio = System.currentTimeMillis();
+        Map<String, Object> propuesta = asignacionAutomaticaService.proponer();
+
+        assertTrue(System.currentTimeMillis() - inicio < 3000);
+        Map<Long, Long> rutas = rutaPorCliente(propuesta);
+        assertEquals(1L, rutas.get(30L));
+        assertFalse(rutas.containsKey(31L));
+        List<Map<String, Object>> sinAsignar = (List<Map<String, Object>>) propuesta.get("sinAsignar");
+        assertEquals(1, sinAsignar.size());
+        assertEquals(31L, sinAsignar.get(0).get("id_cliente"));
+    }
+
+    @Test
+    void testProponer_CientosDeClientesEnPocoTiempo() {
+        Random random = new Random(7);
+        for (long id = 100; id < 700; id++) {
+            createCliente(id, -72.2 + random.nextDouble() * 0.2).setLatitud(-36.65 + random.nextDouble() * 0.1);
+        }
+        ReflectionTestUtils.setField(asignacionAutomaticaService, "maxParadas", 400);
+
+        long inicio = System.currentTimeMillis();
+        Map<String, Object> propuesta = asignacionAutomaticaService.proponer();
+
+        assertTrue(System.currentTimeMillis() - inicio < 3000);
+        assertEquals(600, ((List<?>) propuesta.get("asignaciones")).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAceptar_GuardaAlFinalDelRecorridoEInvalidaCache() {
+        createCliente(30L, -72.045);
+        String id = (String) asignacionAutomaticaService.proponer().get("id");
+        when(rutaClienteRepository.findAllClienteIds()).thenReturn(List.of(10L, 11L, 20L, 21L));
+        when(rutaRepository.existsById(1L)).thenReturn(true);
+        when(rutaClienteRepository.findById_ruta(1L)).thenReturn(asignaciones.subList(0, 2));
+
+        Map<String, Object> resultado = asignacionAutomaticaService.aceptar(id);
+
+        ArgumentCaptor<List<RutaCliente>> captor = ArgumentCaptor.forClass(List.class);
+        verify(rutaClienteRepository).saveAll(captor.capture());
+        RutaCliente nueva = captor.getValue().get(0);
+        assertEquals(30L, nueva.getId_cliente());
+        assertEquals(1L, nueva.getId_ruta());
+        assertEquals(3, nueva.getOrden());
+        assertEquals(1, resultado.get("asignados"));
+        verify(resultadoOptimizacionService).invalidarRuta(1L);
+        // Una propuesta aceptada no se puede volver a aplicar
+        assertThrows(RuntimeException.class, () -> asignacionAutomaticaService.aceptar(id));
+    }
+
+    @Test
+    void testAceptar_ClienteYaAsignadoRechazaTodaLaPropuesta() {
+        createCliente(30L, -72.045);
+        createCliente(31L, -72.155);
+        String id = (String) asignacionAutomaticaService.proponer().get("id");
+        when(rutaClienteRepository.findAllClienteIds()).thenReturn(List.of(10L, 11L, 20L, 21L, 31L));
+
+        assertThrows(IllegalStateException.class, () -> asignacionAutomaticaService.aceptar(id));
+
+        verify(rutaClienteRepository, never()).saveAll(anyList());
+        verify(resultadoOptimizacionService, never()).invalidarRuta(any());
+    }
+
+    @Test
+    void testAceptar_PropuestaVencidaSeRechaza() {
+        createCliente(30L, -72.045);
+        String id = (String) asignacionAutomaticaService.proponer().get("id");
+        // Retención negativa: cualquier propuesta ya generada quedó fuera de la ventana
+        ReflectionTestUtils.setField(asignacionAutomaticaService, "retencionMinutos", -1L);
+
+        assertThrows(RuntimeException.class, () -> asignacionAutomaticaService.aceptar(id));
+
+        verify(rutaClienteRepository, never()).saveAll(anyList());
+    }
+}
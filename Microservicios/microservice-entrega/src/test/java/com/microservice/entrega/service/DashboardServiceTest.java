@@ -0,0 +1,107 @@
+package com.microservice.entrega.service;
+
+import com.microservice.entrega.entity.RegistroEntrega;
+import com.microservice.entrega.repository.ProgramacionEntregaRepository;
+import com.microservice.entrega.repository.ResumenEntregaDiarioRepository;
+import com.microservice.entrega.service.concurrencia.LlamadasParalelas;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardServiceTest {
+
+    @Mock
+    private ProgramacionEntregaRepository programacionEntregaRepository;
+
+    @Mock
+    private ResumenEntregaDiarioRepository resumenEntregaDiarioRepository;
+
+    @Spy
+    private LlamadasParalelas llamadasParalelas = new LlamadasParalelas();
+
+    @InjectMocks
+    private DashboardService dashboardService;
+
+    private final LocalDate hoy = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        List<Object[]> semana = new ArrayList<>();
+        semana.add(new Object[] { java.sql.Date.valueOf(hoy.minusDays(1)), 4L });
+        semana.add(new Object[] { java.sql.Date.valueOf(hoy), 2L });
+        when(programacionEntregaRepository.countClientesByFechaProgramada(hoy)).thenReturn(10L);
+        when(resumenEntregaDiarioRepository.countByFecha(hoy)).thenReturn(2L);
+        when(resumenEntregaDiarioRepository.sumKilosByFecha(hoy)).thenReturn(30.0);
+        when(resumenEntregaDiarioRepository.countEntregasPorDia(hoy.minusDays(6), hoy)).thenReturn(semana);
+    }
+
+    @AfterEach
+    void tearDown() {
+        llamadasParalelas.cerrar();
+    }
+
+    @Test
+    void testObtenerEstadisticas_CargaUnaVezYSumaEntregas() {
+        dashboardService.obtenerEstadisticas();
+        RegistroEntrega registro = new RegistroEntrega();
+        registro.setHora_entregada(hoy.atTime(10, 0));
+        registro.setCorriente_entregado(5.0);
+        registro.setEspecial_entregado(2.5);
+        dashboardService.registrarEntrega(registro);
+
+        Map<String, Object> estadisticas = dashboardService.obtenerEstadisticas();
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> delDia = (Map<String, Object>) estadisticas.get("entregasDelDia");
+        assertEquals(3L, delDia.get("completadas"));
+        assertEquals(10L, delDia.get("total"));
+        assertEquals(37.5, (Double) estadisticas.get("productosVendidosHoy"), 0.001);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> semana = (List<Map<String, Object>>) estadisticas.get("entregasSemana");
+        assertEquals(7, semana.size());
+        assertEquals(hoy.toString(), semana.get(6).get("fecha"));
+        assertEquals(3L, semana.get(6).get("entregas"));
+        assertEquals(4L, semana.get(5).get("entregas"));
+        assertFalse(estadisticas.containsKey("incompleto"));
+        verify(resumenEntregaDiarioRepository, times(1)).countByFecha(any());
+    }
+
+    @Test
+    void testProgramacionCambiada_SoloReleeProgramados() {
+        dashboardService.obtenerEstadisticas();
+        when(programacionEntregaRepository.countClientesByFechaProgramada(hoy)).thenReturn(12L);
+
+        dashboardService.programacionCambiada(hoy);
+        Map<String, Object> estadisticas = dashboardService.obtenerEstadisticas();
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> delDia = (Map<String, Object>) estadisticas.get("entregasDelDia");
+        assertEquals(12L, delDia.get("total"));
+        verify(programacionEntregaRepository, times(2)).countClientesByFechaProgramada(hoy);
+        verify(resumenEntregaDiarioRepository, times(1)).countByFecha(any());
+    }
+
+    @Test
+    void testInvalidar_RecargaEnLaSiguienteConsulta() {
+        dashboardService.obtenerEstadisticas();
+        dashboardService.invalidar();
+        dashboardService.obtenerEstadisticas();
+
+        verify(resumenEntregaDiarioRepository, times(2)).countByFecha(hoy);
+    }
+}
@@ -0,0 +1,338 @@
+package com.microservice.entrega.service;
+
+import com.microservice.entrega.entity.DistanciaCache;
+import com.microservice.entrega.repository.DistanciaCacheRepository;
+import com.microservice.entrega.service.distancia.DistanceProvider;
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+import com.microservice.entrega.service.distancia.ProveedorNoDisponibleException;
+import com.microservice.entrega.service.distancia.TablaDistancias;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DistanciaCacheServiceTest {
+
+    @Mock
+    private DistanciaCacheRepository distanciaCacheRepository;
+
+    @InjectMocks
+    private DistanciaCacheService distanciaCacheService;
+
+    private List<double[]> ubicaciones;
+    private List<List<Integer>> llamadas;
+
+    @BeforeEach
+    void setUp() {
+        ubicaciones = new ArrayList<>(Arrays.asList(
+            new double[] { -36.610930, -72.110828 },
+            new double[] { -36.612484, -72.082953 },
+            new double[] { -36.602133, -72.078198 }
+        ));
+        llamadas = new ArrayList<>();
+    }
+
+    // Distancia ficticia: 100 * |i - j| sobre los índices originales; la duración es la décima parte
+    private DistanceProvider fuenteFicticia() {
+        return new DistanceProvider() {
+            @Override
+            public String getNombre() {
+                return "ficticio";
+            }
+
+            @Override
+            public TablaDistancias calcularTabla(List<double[]> ubicaciones, List<Integer> origenes, List<Integer> destinos) {
+                llamadas.add(origenes);
+                long[][] distancias = new long[origenes.size()][destinos.size()];
+                long[][] duraciones = new long[origenes.size()][destinos.size()];
+                for (int a = 0; a < origenes.size(); a++) {
+                    for (int b = 0; b < destinos.size(); b++) {
+                        distancias[a][b] = 100L * Math.abs(origenes.get(a) - destinos.get(b));
+                        duraciones[a][b] = distancias[a][b] / 10;
+                    }
+                }
+                return new TablaDistancias(distancias, duraciones);
+            }
+        };
+    }
+
+    @Test
+    void testObtenerMatriz_SinCacheConsultaMatrizCompleta() {
+        when(distanciaCacheRepository.findByProveedorAndClaves(anyString(), anyCollection())).thenReturn(new ArrayList<>());
+
+        TablaDistancias matriz = distanciaCacheService.obtenerMatriz(fuenteFicticia(), ubicaciones);
+
+        assertEquals(1, llamadas.size());
+        assertEquals(200L, matriz.distancias()[0][2]);
+        assertEquals(100L, matriz.distancias()[2][1]);
+        assertEquals(0L, matriz.distancias()[1][1]);
+        assertFalse(matriz.tieneEstimadas());
+        assertEquals(20L, matriz.duraciones()[0][2]);
+        verify(distanciaCacheRepository).saveAll(anyList());
+    }
+
+    @Test
+    void testObtenerMatriz_ProveedorCaidoUsaRespaldoSinGuardar() {
+        when(distanciaCacheRepository.findByProveedorAndClaves(anyString(), anyCollection())).thenReturn(new ArrayList<>());
+        HaversineDistanceProvider haversine = new HaversineDistanceProvider();
+        DistanceProvider caido = new DistanceProvider() {
+            @Override
+            public String getNombre() {
+                return "caido";
+            }
+
+            @Override
+            public TablaDistancias calcularTabla(List<double[]> ubicaciones, List<Integer> origenes, List<Integer> destinos) {
+                llamadas.add(origenes);
+                throw new ProveedorNoDisponibleException("Circuito abierto");
+            }
+
+            @Override
+            public DistanceProvider getRespaldo() {
+                return haversine;
+            }
+        };
+
+        TablaDistancias matriz = distanciaCacheService.obtenerMatriz(caido, ubicaciones);
+        distanciaCacheService.obtenerMatriz(caido, ubicaciones);
+
+        // La estimación no queda en caché: la segunda vez se vuelve a intentar con el proveedor
+        assertEquals(2, llamadas.size());
+        assertEquals(haversine.distanciaVial(ubicaciones.get(0), ubicaciones.get(2)), matriz.distancias()[0][2]);
+        assertTrue(matriz.estimada(0, 2));
+        verify(distanciaCacheRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testObtenerMatriz_CeldasSinCaminoOEstimadasNoSeGuardan() {
+        when(distanciaCacheRepository.findByProveedorAndClaves(anyString(), anyCollection())).thenReturn(new ArrayList<>());
+        DistanceProvider parcial = new DistanceProvider() {
+            @Override
+            public String getNombre() {
+                return "parcial";
+            }
+
+            @Override
+            public TablaDistancias calcularTabla(List<double[]> ubicaciones, List<Integer> origenes, List<Integer> destinos) {
+                llamadas.add(origenes);
+                TablaDistancias base = fuenteFicticia().calcularTabla(ubicaciones, origenes, destinos);
+                boolean[][] estimadas = new boolean[origenes.size()][destinos.size()];
+                if (origenes.size() == 3 && destinos.size() == 3) {
+                    base.distancias()[0][1] = TablaDistancias.SIN_CAMINO;
+                    estimadas[1][2] = true;
+                }
+                return new TablaDistancias(base.distancias(), base.duraciones(), estimadas);
+            }
+        };
+
+        TablaDistancias matriz = distanciaCacheService.obtenerMatriz(parcial, ubicaciones);
+        llamadas.clear();
+        distanciaCacheService.obtenerMatriz(parcial, ubicaciones);
+
+        assertEquals(TablaDistancias.SIN_CAMINO, matriz.distancias()[0][1]);
+        // Sin camino es un dato real; solo la celda que el proveedor estimó queda marcada
+        assertFalse(matriz.estimada(0, 1));
+        assertTrue(matriz.estimada(1, 2));
+        ArgumentCaptor<List<DistanciaCache>> captor = ArgumentCaptor.forClass(List.class);
+        verify(distanciaCacheRepository, atLeastOnce()).saveAll(captor.capture());
+        assertEquals(4, captor.getAllValues().get(0).size());
+        // Las dos celdas que no se guardaron se vuelven a pedir
+        assertFalse(llamadas.isEmpty());
+    }
+
+    @Test
+    void testObtenerMatriz_CacheCalienteNoConsultaFuente() {
+        when(distanciaCacheRepository.findByProveedorAndClaves(anyString(), anyCollection())).thenReturn(new ArrayList<>());
+        distanciaCacheService.obtenerMatriz(fuenteFicticia(), ubicaciones);
+        llamadas.clear();
+
+        TablaDistancias matriz = distanciaCacheService.obtenerMatriz(fuenteFicticia(), ubicaciones);
+
+        assertTrue(llamadas.isEmpty());
+        assertEquals(200L, matriz.distancias()[2][0]);
+        assertEquals(20L, matriz.duraciones()[2][0]);
+        verify(distanciaCacheRepository, times(1)).findByProveedorAndClaves(anyString(), anyCollection());
+    }
+
+    @Test
+    void testObtenerMatriz_MemoriaLimitadaDescartaLasMenosUsadas() {
+        ReflectionTestUtils.setField(distanciaCacheService, "maxCeldas", 4);
+        when(distanciaCacheRepository.findByProveedorAndClaves(anyString(), anyCollection())).thenReturn(new ArrayList<>());
+
+        distanciaCacheService.obtenerMatriz(fuenteFicticia(), ubicaciones);
+        assertEquals(4, distanciaCacheService.getCeldasEnMemoria());
+        llamadas.clear();
+
+        // Las celdas descartadas se vuelven a buscar en la base y, si no están, en el proveedor
+        TablaDistancias matriz = distanciaCacheService.obtenerMatriz(fuenteFicticia(), ubicaciones);
+
+        assertFalse(llamadas.isEmpty());
+        assertEquals(200L, matriz.distancias()[0][2]);
+        assertEquals(4, distanciaCacheService.getCeldasEnMemoria());
+        verify(distanciaCacheRepository, times(2)).findByProveedorAndClaves(anyString(), anyCollection());
+    }
+
+    @Test
+    void testObtenerMatriz_NuevoClienteSoloConsultaSuFilaYColumna() {
+        when(distanciaCacheRepository.findByProveedorAndClaves(anyString(), anyCollection())).thenReturn(new ArrayList<>());
+        List<double[]> conNuevo = new ArrayList<>(ubicaciones);
+        distanciaCacheService.obtenerMatriz(fuenteFicticia(), ubicaciones);
+        conNuevo.add(new double[] { -36.620000, -72.090000 });
+        conNuevo.add(new double[] { -36.630000, -72.100000 });
+        conNuevo.add(new double[] { -36.640000, -72.110000 });
+        distanciaCacheService.obtenerMatriz(fuenteFicticia(), conNuevo);
+        llamadas.clear();
+
+        List<double[]> ampliada = new ArrayList<>(conNuevo);
+        ampliada.add(new double[] { -36.650000, -72.120000 });
+        TablaDistancias matriz = distanciaCacheService.obtenerMatriz(fuenteFicticia(), ampliada);
+
+        // Una llamada para la fila del nuevo cliente y otra para su columna
+        assertEquals(2, llamadas.size());
+        assertEquals(List.of(6), llamadas.get(0));
+        assertEquals(600L, matriz.distancias()[6][0]);
+        assertEquals(300L, matriz.distancias()[3][6]);
+    }
+
+    @Test
+    void testObtenerMatriz_UsaCeldasPersistidas() {
+        List<DistanciaCache> persistidas = new ArrayList<>();
+        for (int i = 0; i < ubicaciones.size(); i++) {
+            for (int j = 0; j < ubicaciones.size(); j++) {
+                if (i != j) {
+                    persistidas.add(new DistanciaCache(null, "ficticio", distanciaCacheService.clave(ubicaciones.get(i)),
+                        distanciaCacheService.clave(ubicaciones.get(j)), 42L, 7L, null));
+                }
+            }
+        }
+        when(distanciaCacheRepository.findByProveedorAndClaves(anyString(), anyCollection())).thenReturn(persistidas);
+
+        TablaDistancias matriz = distanciaCacheService.obtenerMatriz(fuenteFicticia(), ubicaciones);
+
+        assertTrue(llamadas.isEmpty());
+        assertEquals(42L, matriz.distancias()[0][1]);
+        assertEquals(7L, matriz.duraciones()[0][1]);
+        verify(distanciaCacheRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testObtenerMatriz_CeldasPersistidasNoCabenEnMemoriaYNoSeReinsertan() {
+        ReflectionTestUtils.setField(distanciaCacheService, "maxCeldas", 2);
+        List<DistanciaCache> persistidas = new ArrayList<>();
+        for (int i = 0; i < ubicaciones.size(); i++) {
+            for (int j = 0; j < ubicaciones.size(); j++) {
+                if (i != j) {
+                    persistidas.add(new DistanciaCache((long) (i * 3 + j), "ficticio",
+                        distanciaCacheService.clave(ubicaciones.get(i)), distanciaCacheService.clave(ubicaciones.get(j)),
+                        42L, 7L, null));
+                }
+            }
+        }
+        when(distanciaCacheRepository.findByProveedorAndClaves(anyString(), anyCollection())).thenReturn(persistidas);
+
+        TablaDistancias matriz = distanciaCacheService.obtenerMatriz(fuenteFicticia(), ubicaciones);
+
+        // La memoria solo retiene 2 de las 6 celdas, pero la matriz se arma con lo leído de la base
+        assertTrue(llamadas.isEmpty());
+        assertEquals(42L, matriz.distancias()[2][0]);
+        assertEquals(2, distanciaCacheService.getCeldasEnMemoria());
+        verify(distanciaCacheRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testObtenerMatriz_LoteConCeldasYaGuardadasSeReintentaSinEllas() {
+        DistanciaCache guardadaEnParalelo = new DistanciaCache(5L, "ficticio",
+            distanciaCacheService.clave(ubicaciones.get(0)), distanciaCacheService.clave(ubicaciones.get(1)), 100L, 10L, null);
+        when(distanciaCacheRepository.findByProveedorAndClaves(anyString(), anyCollection()))
+            .thenReturn(new ArrayList<>(), List.of(guardadaEnParalelo));
+        when(distanciaCacheRepository.saveAll(anyList()))
+            .thenThrow(new RuntimeException("duplicate key value violates unique constraint"))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+
+        distanciaCacheService.obtenerMatriz(fuenteFicticia(), ubicaciones);
+
+        ArgumentCaptor<List<DistanciaCache>> captor = ArgumentCaptor.forClass(List.class);
+        verify(distanciaCacheRepository, times(2)).saveAll(captor.capture());
+        assertEquals(6, captor.getAllValues().get(0).size());
+        assertEquals(5, captor.getAllValues().get(1).size());
+        assertTrue(captor.getAllValues().get(1).stream()
+            .noneMatch(c -> c.getOrigen().equals(guardadaEnParalelo.getOrigen())
+                && c.getDestino().equals(guardadaEnParalelo.getDestino())));
+    }
+
+    @Test
+    void testObtenerMatriz_CeldaSinDuracionSeRecalculaYActualiza() {
+        // Celda persistida antes de que existieran las duraciones
+        DistanciaCache antigua = new DistanciaCache(99L, "ficticio", distanciaCacheService.clave(ubicaciones.get(0)),
+            distanciaCacheService.clave(ubicaciones.get(1)), 100L, null, null);
+        when(distanciaCacheRepository.findByProveedorAndClaves(anyString(), anyCollection())).thenReturn(List.of(antigua));
+
+        TablaDistancias matriz = distanciaCacheService.obtenerMatriz(fuenteFicticia(), ubicaciones);
+
+        assertEquals(10L, matriz.duraciones()[0][1]);
+        verify(distanciaCacheRepository).saveAll(argThat(celdas -> {
+            for (DistanciaCache celda : celdas) {
+                if (Long.valueOf(99L).equals(celda.getId())) {
+                    return celda.getDuracion() == 10L;
+                }
+            }
+            return false;
+        }));
+    }
+
+    @Test
+    void testObtenerDistancias_AgrupaFilaColumnaYArcos() {
+        when(distanciaCacheRepository.findByProveedorAndClaves(anyString(), anyCollection())).thenReturn(new ArrayList<>());
+        List<double[]> conNuevo = new ArrayList<>(ubicaciones);
+        conNuevo.add(new double[] { -36.620000, -72.090000 });
+        // Inserción del nodo 3 en el ciclo 0 -> 1 -> 2 -> 0
+        List<int[]> pares = new ArrayList<>();
+        int[][] huecos = { { 0, 1 }, { 1, 2 }, { 2, 0 } };
+        for (int[] hueco : huecos) {
+            pares.add(new int[] { hueco[0], 3 });
+            pares.add(new int[] { 3, hueco[1] });
+            pares.add(new int[] { hueco[0], hueco[1] });
+        }
+
+        long[] distancias = distanciaCacheService.obtenerDistancias(fuenteFicticia(), conNuevo, pares);
+
+        // Una fila del nodo nuevo, una columna y un bloque con los arcos del recorrido
+        assertEquals(3, llamadas.size());
+        assertEquals(300L, distancias[0]);
+        assertEquals(100L, distancias[4]);
+        assertEquals(200L, distancias[8]);
+
+        llamadas.clear();
+        distanciaCacheService.obtenerDistancias(fuenteFicticia(), conNuevo, pares);
+        assertTrue(llamadas.isEmpty());
+    }
+
+    @Test
+    void testObtenerMatriz_ProveedorSinCacheNoTocaRepositorio() {
+        HaversineDistanceProvider haversine = new HaversineDistanceProvider();
+
+        TablaDistancias matriz = distanciaCacheService.obtenerMatriz(haversine, ubicaciones);
+
+        // ~2.5 km en línea recta entre A y B, por el factor de circuidad 1.3
+        assertTrue(matriz.distancias()[0][1] > 3000 && matriz.distancias()[0][1] < 3500);
+        assertEquals(matriz.distancias()[0][1], matriz.distancias()[1][0]);
+        // A 30 km/h: unos 6 a 7 minutos
+        assertTrue(matriz.duraciones()[0][1] > 360 && matriz.duraciones()[0][1] < 420);
+        verifyNoInteractions(distanciaCacheRepository);
+    }
+}
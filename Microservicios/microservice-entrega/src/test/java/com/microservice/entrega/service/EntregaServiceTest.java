@@ -55,6 +55,12 @@ class EntregaServiceTest {
     @Mock
     private EmailTemplateGenerator emailTemplateGenerator;
 
+    @Mock
+    private UsuarioCacheService usuarioCacheService;
+
+    @Mock
+    private ReporteService reporteService;
+
     @InjectMocks
     private EntregaService entregaService;
 
@@ -254,12 +260,11 @@ class EntregaServiceTest {
 
     @Test
     void testObtenerEstadisticasDashboard() {
-        LocalDate hoy = LocalDate.now();
-        when(programacionEntregaRepository.countClientesByFechaProgramada(hoy)).thenReturn(10L);
-        when(registroEntregaRepository.countByFecha(hoy)).thenReturn(7L);
-        when(registroEntregaRepository.sumKilosByFecha(hoy)).thenReturn(150.0);
-        when(registroEntregaRepository.countEntregasPorDia(any(), any()))
-            .thenReturn(new ArrayList<>());
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("entregasDelDia", 7L);
+        estadisticas.put("productosVendidosHoy", 150.0);
+        estadisticas.put("entregasSemana", new ArrayList<>());
+        when(reporteService.obtenerEstadisticasDashboard()).thenReturn(estadisticas);
 
         Map<String, Object> resultado = entregaService.obtenerEstadisticasDashboard();
 
@@ -301,6 +306,46 @@ class EntregaServiceTest {
         assertDoesNotThrow(() -> entregaService.getRutasProgramadasPorFecha(fecha));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetRutasProgramadasPorFecha_ResuelveNombreDriver() {
+        Ruta conDriver = new Ruta();
+        conDriver.setId(1L);
+        conDriver.setNombre("Ruta Norte");
+        conDriver.setId_driver(100L);
+        Ruta sinDriver = new Ruta();
+        sinDriver.setId(2L);
+        sinDriver.setNombre("Ruta Sur");
+
+        when(rutaRepository.findAll()).thenReturn(List.of(conDriver, sinDriver));
+        when(rutaClienteRepository.findAll()).thenReturn(new ArrayList<>());
+        when(usuarioCacheService.obtenerNombres(List.of(100L))).thenReturn(Map.of(100L, "Juan Pérez"));
+
+        List<Map<String, Object>> resultado = entregaService.getRutasProgramadasPorFecha("2026-01-15");
+
+        assertEquals(2, resultado.size());
+        Map<String, Object> rutaNorte = (Map<String, Object>) resultado.get(0).get("ruta");
+        Map<String, Object> rutaSur = (Map<String, Object>) resultado.get(1).get("ruta");
+        assertEquals("Juan Pérez", rutaNorte.get("nombreDriver"));
+        assertNull(rutaSur.get("nombreDriver"));
+        verify(usuarioCacheService).obtenerNombres(List.of(100L));
+    }
+
+    @Test
+    void testGetRutasProgramadasPorFecha_SinDriversNoConsultaUsuarios() {
+        Ruta sinDriver = new Ruta();
+        sinDriver.setId(1L);
+        sinDriver.setNombre("Ruta Sur");
+
+        when(rutaRepository.findAll()).thenReturn(List.of(sinDriver));
+        when(rutaClienteRepository.findAll()).thenReturn(new ArrayList<>());
+
+        List<Map<String, Object>> resultado = entregaService.getRutasProgramadasPorFecha("2026-01-15");
+
+        assertEquals(1, resultado.size());
+        verifyNoInteractions(usuarioCacheService);
+    }
+
     @Test
     void testActualizarProgramacionCliente_CrearNueva() {
         // Arrange
@@ -0,0 +1,132 @@
+package com.microservice.entrega.service;
+
+import com.microservice.entrega.client.ClienteServiceClient;
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.entity.ProgramacionEntrega;
+import com.microservice.entrega.entity.RegistroEntrega;
+import com.microservice.entrega.entity.Ruta;
+import com.microservice.entrega.entity.SesionReparto;
+import com.microservice.entrega.repository.ProgramacionEntregaRepository;
+import com.microservice.entrega.repository.RegistroEntregaRepository;
+import com.microservice.entrega.repository.RutaClienteRepository;
+import com.microservice.entrega.repository.RutaRepository;
+import com.microservice.entrega.repository.SesionRepartoRepository;
+import com.microservice.entrega.service.distancia.DistanceProviderRegistry;
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+import com.microservice.entrega.service.distancia.TablaDistancias;
+import com.microservice.entrega.service.seguimiento.Posicion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EtaEnVivoServiceTest {
+
+    @Mock
+    private SesionRepartoRepository sesionRepartoRepository;
+
+    @Mock
+    private RutaRepository rutaRepository;
+
+    @Mock
+    private RutaClienteRepository rutaClienteRepository;
+
+    @Mock
+    private ProgramacionEntregaRepository programacionEntregaRepository;
+
+    @Mock
+    private RegistroEntregaRepository registroEntregaRepository;
+
+    @Mock
+    private ClienteServiceClient clienteServiceClient;
+
+    @Mock
+    private DistanceProviderRegistry distanceProviderRegistry;
+
+    @Mock
+    private DistanciaCacheService distanciaCacheService;
+
+    @InjectMocks
+    private EtaEnVivoService etaEnVivoService;
+
+    @BeforeEach
+    void setUp() {
+        SesionReparto sesion = new SesionReparto();
+        sesion.setId(1L);
+        sesion.setId_driver(7L);
+        sesion.setFecha(LocalDate.now());
+        when(sesionRepartoRepository.findById(1L)).thenReturn(Optional.of(sesion));
+
+        Ruta ruta = new Ruta();
+        ruta.setId(5L);
+        ruta.setLatitud(-36.6);
+        ruta.setLongitud(-72.1);
+        when(rutaRepository.findByIdDriver(7L)).thenReturn(Optional.of(ruta));
+
+        // El plan del día visita primero al 11 y después al 10
+        when(programacionEntregaRepository.findByIdRutaAndFechaProgramada(5L, sesion.getFecha()))
+            .thenReturn(List.of(createProgramacion(10L, 2), createProgramacion(11L, 1)));
+        when(clienteServiceClient.getClientesByIds(anyList()))
+            .thenReturn(List.of(createCliente(10L, -72.08), createCliente(11L, -72.09)));
+        when(distanceProviderRegistry.resolver(any())).thenReturn(new HaversineDistanceProvider());
+        long[][] duraciones = { { 0, 1200, 600 }, { 1200, 0, 600 }, { 600, 600, 0 } };
+        when(distanciaCacheService.obtenerMatriz(any(), anyList())).thenReturn(new TablaDistancias(new long[3][3], duraciones));
+    }
+
+    private ProgramacionEntrega createProgramacion(Long idCliente, int orden) {
+        ProgramacionEntrega pe = new ProgramacionEntrega();
+        pe.setId_cliente(idCliente);
+        pe.setOrden(orden);
+        return pe;
+    }
+
+    private ClienteDTO createCliente(Long id, double longitud) {
+        ClienteDTO cliente = new ClienteDTO();
+        cliente.setId(id);
+        cliente.setLatitud(-36.6);
+        cliente.setLongitud(longitud);
+        return cliente;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testIniciarSesion_SigueElOrdenDelPlanYReaplicaEntregas() {
+        RegistroEntrega entrega = new RegistroEntrega();
+        entrega.setId_cliente(11L);
+        entrega.setHora_entregada(LocalDateTime.now().minusMinutes(1));
+        when(registroEntregaRepository.findByIdPedido(1L)).thenReturn(List.of(entrega));
+
+        etaEnVivoService.iniciarSesion(1L);
+
+        Map<String, Object> etas = etaEnVivoService.getEtas(1L);
+        List<Map<String, Object>> paradas = (List<Map<String, Object>>) etas.get("paradas");
+        assertEquals(1, paradas.size());
+        assertEquals(10L, paradas.get(0).get("id_cliente"));
+        assertEquals(2, etas.get("totalParadas"));
+    }
+
+    @Test
+    void testRegistrarPosicion_CargaLaSesionUnaSolaVez() {
+        LocalDateTime hora = LocalDateTime.now();
+        for (int i = 0; i < 5; i++) {
+            etaEnVivoService.registrarPosicion(new Posicion(1L, 7L, -36.6, -72.095, null, null, hora.plusSeconds(i * 5)));
+        }
+
+        verify(distanciaCacheService, times(1)).obtenerMatriz(any(), anyList());
+        verify(clienteServiceClient, times(1)).getClientesByIds(anyList());
+        assertEquals(hora.plusSeconds(20), etaEnVivoService.getEtas(1L).get("actualizado"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.microservice.entrega.service;
+
+import com.microservice.entrega.entity.VisitaCliente;
+import com.microservice.entrega.repository.VisitaClienteRepository;
+import com.microservice.entrega.service.seguimiento.Posicion;
+import com.microservice.entrega.service.seguimiento.RecorridoEnVivo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GeocercaServiceTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    @Mock
+    private EtaEnVivoService etaEnVivoService;
+
+    @Mock
+    private VisitaClienteRepository visitaClienteRepository;
+
+    @InjectMocks
+    private GeocercaService geocercaService;
+
+    private void conRecorrido() {
+        double[][] coordenadas = { { -36.6, -72.10 }, { -36.6, -72.09 } };
+        RecorridoEnVivo recorrido = new RecorridoEnVivo(1L, 5L, List.of(10L), new long[2][2], new long[2],
+            coordenadas, 0.3, INICIO);
+        when(etaEnVivoService.getRecorrido(1L)).thenReturn(recorrido);
+    }
+
+    private Posicion posicion(double longitud, int minutos, Double precision) {
+        return new Posicion(1L, 7L, -36.6, longitud, null, precision, INICIO.plusMinutes(minutos));
+    }
+
+    @Test
+    void testProcesar_SalidaGuardaLaVisitaYLaLlegadaQuedaDisponible() {
+        conRecorrido();
+        geocercaService.procesar(posicion(-72.0901, 10, 5.0));
+        geocercaService.procesar(posicion(-72.0950, 14, 5.0));
+
+        assertEquals(INICIO.plusMinutes(10), geocercaService.getHoraLlegada(1L, 10L));
+        ArgumentCaptor<VisitaCliente> captor = ArgumentCaptor.forClass(VisitaCliente.class);
+        verify(visitaClienteRepository).save(captor.capture());
+        assertEquals(240L, captor.getValue().getPermanencia_segundos());
+        assertEquals(5L, captor.getValue().getId_ruta());
+        // El recorrido se pide una sola vez por sesión
+        verify(etaEnVivoService, times(1)).getRecorrido(1L);
+    }
+
+    @Test
+    void testProcesar_PosicionImprecisaNoGeneraEventos() {
+        assertTrue(geocercaService.procesar(posicion(-72.09, 10, 200.0)).isEmpty());
+
+        assertNull(geocercaService.getHoraLlegada(1L, 10L));
+        verifyNoInteractions(etaEnVivoService, visitaClienteRepository);
+    }
+
+    @Test
+    void testTerminarSesion_DescartaLlegadasYEventos() {
+        conRecorrido();
+        geocercaService.procesar(posicion(-72.0901, 10, 5.0));
+        assertNotNull(geocercaService.getHoraLlegada(1L, 10L));
+
+        geocercaService.terminarSesion(1L);
+
+        assertNull(geocercaService.getHoraLlegada(1L, 10L));
+        assertTrue(geocercaService.getEventos(1L).isEmpty());
+    }
+}
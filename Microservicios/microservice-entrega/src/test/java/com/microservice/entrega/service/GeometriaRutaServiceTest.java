@@ -0,0 +1,121 @@
+package com.microservice.entrega.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.entity.Ruta;
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+import com.microservice.entrega.service.distancia.OsrmGateway;
+import com.microservice.entrega.service.geometria.FormatoGeometria;
+import com.microservice.entrega.service.geometria.Polyline;
+import com.microservice.entrega.service.geometria.SimplificadorGeometria;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeometriaRutaServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private GeometriaRutaService geometriaRutaService;
+
+    @BeforeEach
+    void setUp() {
+        geometriaRutaService = new GeometriaRutaService(objectMapper, new OsrmGateway("osrm", "http://127.0.0.1:1"),
+            new HaversineDistanceProvider());
+    }
+
+    // Respuesta de OSRM con una línea recta de 101 puntos y un desvío de 50 m en la mitad
+    private String respuestaOsrm() {
+        StringBuilder coordenadas = new StringBuilder();
+        for (int i = 0; i <= 100; i++) {
+            double latitud = -36.6 + (i == 50 ? 0.00045 : 0.0);
+            double longitud = -72.1 + i * 0.0001;
+            coordenadas.append(i > 0 ? "," : "").append("[").append(longitud).append(",").append(latitud).append("]");
+        }
+        return "{\"code\":\"Ok\",\"waypoints\":[{\"name\":\"x\"}],\"routes\":[{\"distance\":1234.5,\"duration\":300.2,"
+            + "\"legs\":[{\"steps\":[]}],\"geometry\":{\"type\":\"LineString\",\"coordinates\":[" + coordenadas + "]}}]}";
+    }
+
+    @Test
+    void testSimplificar_ConservaExtremosYDesvio() throws Exception {
+        JsonNode ruta = objectMapper.readTree(geometriaRutaService.simplificar(respuestaOsrm())).path("routes").path(0);
+
+        // Quedan el inicio, el fin y los puntos que rodean al desvío
+        JsonNode coordenadas = ruta.path("geometry").path("coordinates");
+        assertTrue(coordenadas.size() <= 5);
+        assertEquals(-72.1, coordenadas.get(0).get(0).asDouble(), 1e-9);
+        assertEquals(-72.09, coordenadas.get(coordenadas.size() - 1).get(0).asDouble(), 1e-9);
+        assertEquals(1234.5, ruta.path("distance").asDouble());
+        assertEquals(300.2, ruta.path("duration").asDouble());
+        assertTrue(ruta.path("legs").isMissingNode());
+    }
+
+    @Test
+    void testSimplificar_ToleranciaAltaDejaSoloExtremos() {
+        List<double[]> puntos = new ArrayList<>();
+        for (int i = 0; i <= 100; i++) {
+            puntos.add(new double[] { -36.6 + (i == 50 ? 0.00045 : 0.0), -72.1 + i * 0.0001 });
+        }
+
+        assertEquals(2, SimplificadorGeometria.simplificar(puntos, 100).size());
+        assertEquals(101, SimplificadorGeometria.simplificar(puntos, 0).size());
+    }
+
+    @Test
+    void testPolyline_CodificaYDecodifica() {
+        // Ejemplo de la documentación del algoritmo
+        List<double[]> puntos = Arrays.asList(
+            new double[] { 38.5, -120.2 },
+            new double[] { 40.7, -120.95 },
+            new double[] { 43.252, -126.453 }
+        );
+
+        String codificada = Polyline.codificar(puntos);
+
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", codificada);
+        List<double[]> decodificada = Polyline.decodificar(codificada);
+        assertEquals(3, decodificada.size());
+        assertEquals(43.252, decodificada.get(2)[0], 1e-9);
+        assertEquals(-126.453, decodificada.get(2)[1], 1e-9);
+    }
+
+    @Test
+    void testConvertir_PolylineMantieneDistanciaYDuracion() throws Exception {
+        String geojson = geometriaRutaService.simplificar(respuestaOsrm());
+
+        String polyline = geometriaRutaService.convertir(geojson, FormatoGeometria.POLYLINE);
+
+        JsonNode ruta = objectMapper.readTree(polyline).path("routes").path(0);
+        assertTrue(ruta.path("geometry").isTextual());
+        assertEquals(1234.5, ruta.path("distance").asDouble());
+        List<double[]> puntos = Polyline.decodificar(ruta.path("geometry").asText());
+        assertEquals(-36.6, puntos.get(0)[0], 1e-5);
+        assertTrue(polyline.length() < geojson.length());
+        assertSame(geojson, geometriaRutaService.convertir(geojson, FormatoGeometria.GEOJSON));
+    }
+
+    @Test
+    void testObtenerRuta_SinOsrmDevuelveLineaRectaEstimada() throws Exception {
+        Ruta origen = new Ruta();
+        origen.setLatitud(-36.6);
+        origen.setLongitud(-72.1);
+        ClienteDTO cliente = new ClienteDTO();
+        cliente.setLatitud(-36.61);
+        cliente.setLongitud(-72.09);
+
+        JsonNode respuesta = objectMapper.readTree(geometriaRutaService.obtenerRuta(List.of(cliente), origen));
+
+        // Nadie escucha en el puerto configurado: ida y vuelta en línea recta con distancia haversine
+        assertTrue(respuesta.path("estimada").asBoolean());
+        JsonNode ruta = respuesta.path("routes").path(0);
+        assertEquals(3, ruta.path("geometry").path("coordinates").size());
+        assertEquals(-72.09, ruta.path("geometry").path("coordinates").get(1).get(0).asDouble(), 1e-9);
+        assertTrue(ruta.path("distance").asLong() > 2000);
+        assertTrue(ruta.path("duration").asLong() > 0);
+    }
+}
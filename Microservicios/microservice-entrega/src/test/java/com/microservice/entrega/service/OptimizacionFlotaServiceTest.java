@@ -0,0 +1,151 @@
+package com.microservice.entrega.service;
+
+import com.microservice.entrega.client.ClienteServiceClient;
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.entity.ProgramacionEntrega;
+import com.microservice.entrega.entity.Ruta;
+import com.microservice.entrega.repository.DistanciaCacheRepository;
+import com.microservice.entrega.repository.ProgramacionEntregaRepository;
+import com.microservice.entrega.repository.RutaRepository;
+import com.microservice.entrega.service.distancia.DistanceProviderRegistry;
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OptimizacionFlotaServiceTest {
+
+    @Mock
+    private RutaRepository rutaRepository;
+
+    @Mock
+    private ProgramacionEntregaRepository programacionEntregaRepository;
+
+    @Mock
+    private ClienteServiceClient clienteServiceClient;
+
+    @Mock
+    private DistanciaCacheRepository distanciaCacheRepository;
+
+    private OptimizacionFlotaService optimizacionFlotaService;
+
+    private final LocalDate fecha = LocalDate.of(2026, 10, 18);
+
+    @BeforeEach
+    void setUp() {
+        DistanceProviderRegistry registry = new DistanceProviderRegistry(List.of(new HaversineDistanceProvider()));
+        optimizacionFlotaService = new OptimizacionFlotaService(rutaRepository, programacionEntregaRepository,
+            clienteServiceClient, new DistanciaCacheService(distanciaCacheRepository), registry);
+        ReflectionTestUtils.setField(optimizacionFlotaService, "tiempoLimiteSegundos", 1L);
+    }
+
+    private Ruta createRuta(Long id, Long idDriver, double lat, double lng) {
+        Ruta ruta = new Ruta();
+        ruta.setId(id);
+        ruta.setNombre("Ruta " + id);
+        ruta.setId_driver(idDriver);
+        ruta.setLatitud(lat);
+        ruta.setLongitud(lng);
+        return ruta;
+    }
+
+    private ClienteDTO createClienteDTO(Long id, double lat, double lng) {
+        ClienteDTO cliente = new ClienteDTO();
+        cliente.setId(id);
+        cliente.setNombre("Cliente " + id);
+        cliente.setLatitud(lat);
+        cliente.setLongitud(lng);
+        return cliente;
+    }
+
+    private ProgramacionEntrega createProgramacion(Long idRuta, Long idCliente, double kgCorriente) {
+        ProgramacionEntrega prog = new ProgramacionEntrega();
+        prog.setId_ruta(idRuta);
+        prog.setId_cliente(idCliente);
+        prog.setFecha_programada(fecha);
+        prog.setKg_corriente_programado(kgCorriente);
+        prog.setKg_especial_programado(0.0);
+        return prog;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOptimizarFlota_ProponeReasignacionPorCercania() {
+        // Dos depósitos separados; el cliente 3 está programado en la ruta 1 pero queda junto al depósito 2
+        when(rutaRepository.findAll()).thenReturn(Arrays.asList(
+            createRuta(1L, 10L, -36.60, -72.10),
+            createRuta(2L, 20L, -36.70, -72.00)
+        ));
+        when(programacionEntregaRepository.findByFechaProgramada(fecha)).thenReturn(Arrays.asList(
+            createProgramacion(1L, 1L, 50.0),
+            createProgramacion(1L, 2L, 50.0),
+            createProgramacion(1L, 3L, 50.0)
+        ));
+        when(clienteServiceClient.getClientesByIds(anyList())).thenReturn(Arrays.asList(
+            createClienteDTO(1L, -36.601, -72.101),
+            createClienteDTO(2L, -36.602, -72.102),
+            createClienteDTO(3L, -36.701, -72.001)
+        ));
+
+        Map<String, Object> resultado = optimizacionFlotaService.optimizarFlota(fecha, "haversine");
+
+        List<Map<String, Object>> reasignaciones = (List<Map<String, Object>>) resultado.get("reasignaciones");
+        assertEquals(1, reasignaciones.size());
+        assertEquals(3L, reasignaciones.get(0).get("id_cliente"));
+        assertEquals(2L, reasignaciones.get(0).get("id_ruta_propuesta"));
+        assertTrue(((List<Long>) resultado.get("noAtendidos")).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOptimizarFlota_RespetaCapacidadPorVehiculo() {
+        // Todos los clientes junto al depósito 1, pero 600 kg no caben en un solo vehículo de 500 kg
+        when(rutaRepository.findAll()).thenReturn(Arrays.asList(
+            createRuta(1L, 10L, -36.60, -72.10),
+            createRuta(2L, 20L, -36.70, -72.00)
+        ));
+        when(programacionEntregaRepository.findByFechaProgramada(fecha)).thenReturn(Arrays.asList(
+            createProgramacion(1L, 1L, 200.0),
+            createProgramacion(1L, 2L, 200.0),
+            createProgramacion(1L, 3L, 200.0)
+        ));
+        when(clienteServiceClient.getClientesByIds(anyList())).thenReturn(Arrays.asList(
+            createClienteDTO(1L, -36.601, -72.101),
+            createClienteDTO(2L, -36.602, -72.102),
+            createClienteDTO(3L, -36.603, -72.103)
+        ));
+
+        Map<String, Object> resultado = optimizacionFlotaService.optimizarFlota(fecha, "haversine");
+
+        List<Map<String, Object>> rutas = (List<Map<String, Object>>) resultado.get("rutas");
+        for (Map<String, Object> ruta : rutas) {
+            assertTrue((Double) ruta.get("kgCorriente") <= 500.0);
+        }
+        assertFalse(((List<Map<String, Object>>) resultado.get("reasignaciones")).isEmpty());
+        assertTrue(((List<Long>) resultado.get("noAtendidos")).isEmpty());
+    }
+
+    @Test
+    void testOptimizarFlota_SinProgramaciones() {
+        when(rutaRepository.findAll()).thenReturn(Arrays.asList(createRuta(1L, 10L, -36.60, -72.10)));
+        when(programacionEntregaRepository.findByFechaProgramada(fecha)).thenReturn(List.of());
+
+        Map<String, Object> resultado = optimizacionFlotaService.optimizarFlota(fecha, null);
+
+        assertEquals("No hay entregas programadas para esta fecha", resultado.get("message"));
+        verifyNoInteractions(clienteServiceClient);
+    }
+}
@@ -0,0 +1,112 @@
+package com.microservice.entrega.service;
+
+import com.microservice.entrega.config.PoolOptimizacion;
+import com.microservice.entrega.service.optimizacion.PerfilBusqueda;
+import com.microservice.entrega.service.optimizacion.TrabajoOptimizacion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OptimizacionJobServiceTest {
+
+    @Mock
+    private RutaService rutaService;
+
+    private ThreadPoolExecutor executor;
+    private OptimizacionJobService optimizacionJobService;
+    private CountDownLatch liberarSolver;
+
+    private final LocalDate fecha = LocalDate.of(2026, 10, 18);
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        optimizacionJobService = new OptimizacionJobService(rutaService, new PoolOptimizacion(executor));
+        liberarSolver = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        liberarSolver.countDown();
+        executor.shutdownNow();
+    }
+
+    private void solverBloqueado() {
+        when(rutaService.optimizarRuta(anyLong(), any(), any(), any())).thenAnswer(inv -> {
+            liberarSolver.await(5, TimeUnit.SECONDS);
+            return Map.of("orderedClients", List.of());
+        });
+    }
+
+    private void esperarEstado(TrabajoOptimizacion trabajo, TrabajoOptimizacion.Estado estado) throws InterruptedException {
+        for (int i = 0; i < 100 && trabajo.getEstado() != estado; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(estado, trabajo.getEstado());
+    }
+
+    @Test
+    void testEnviar_DeduplicaTrabajosIdenticosEnCurso() throws Exception {
+        solverBloqueado();
+
+        TrabajoOptimizacion primero = optimizacionJobService.enviar(1L, fecha, null, PerfilBusqueda.INTERACTIVO);
+        TrabajoOptimizacion repetido = optimizacionJobService.enviar(1L, fecha, null, PerfilBusqueda.INTERACTIVO);
+
+        assertSame(primero, repetido);
+        liberarSolver.countDown();
+        esperarEstado(primero, TrabajoOptimizacion.Estado.COMPLETADO);
+        assertNotNull(primero.resumen().get("resultado"));
+        verify(rutaService, times(1)).optimizarRuta(1L, fecha, null, PerfilBusqueda.INTERACTIVO);
+
+        // Una vez terminado, un nuevo envío crea otro trabajo
+        TrabajoOptimizacion nuevo = optimizacionJobService.enviar(1L, fecha, null, PerfilBusqueda.INTERACTIVO);
+        assertNotEquals(primero.getId(), nuevo.getId());
+    }
+
+    @Test
+    void testCancelar_TrabajoEnColaNoSeEjecuta() throws Exception {
+        solverBloqueado();
+        TrabajoOptimizacion enProceso = optimizacionJobService.enviar(1L, fecha, null, PerfilBusqueda.INTERACTIVO);
+        esperarEstado(enProceso, TrabajoOptimizacion.Estado.EN_PROCESO);
+        TrabajoOptimizacion enCola = optimizacionJobService.enviar(2L, fecha, null, PerfilBusqueda.INTERACTIVO);
+
+        optimizacionJobService.cancelar(enCola.getId());
+        liberarSolver.countDown();
+        esperarEstado(enProceso, TrabajoOptimizacion.Estado.COMPLETADO);
+
+        assertEquals(TrabajoOptimizacion.Estado.CANCELADO, enCola.getEstado());
+        verify(rutaService, never()).optimizarRuta(eq(2L), any(), any(), any());
+    }
+
+    @Test
+    void testEnviar_ColaLlenaRechaza() throws Exception {
+        solverBloqueado();
+        TrabajoOptimizacion enProceso = optimizacionJobService.enviar(1L, fecha, null, PerfilBusqueda.INTERACTIVO);
+        esperarEstado(enProceso, TrabajoOptimizacion.Estado.EN_PROCESO);
+        optimizacionJobService.enviar(2L, fecha, null, PerfilBusqueda.INTERACTIVO);
+
+        assertThrows(IllegalStateException.class,
+            () -> optimizacionJobService.enviar(3L, fecha, null, PerfilBusqueda.INTERACTIVO));
+    }
+
+    @Test
+    void testObtener_TrabajoInexistente() {
+        assertThrows(RuntimeException.class, () -> optimizacionJobService.obtener("no-existe"));
+    }
+}
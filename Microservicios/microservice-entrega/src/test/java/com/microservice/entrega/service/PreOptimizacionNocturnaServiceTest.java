@@ -0,0 +1,113 @@
+package com.microservice.entrega.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservice.entrega.repository.ProgramacionEntregaRepository;
+import com.microservice.entrega.security.JwtUtils;
+import com.microservice.entrega.service.optimizacion.PerfilBusqueda;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PreOptimizacionNocturnaServiceTest {
+
+    @Mock
+    private ProgramacionEntregaRepository programacionEntregaRepository;
+
+    @Mock
+    private RutaService rutaService;
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    private PreOptimizacionNocturnaService preOptimizacionNocturnaService;
+
+    private final LocalDate fecha = LocalDate.of(2026, 10, 18);
+
+    @BeforeEach
+    void setUp() {
+        preOptimizacionNocturnaService = new PreOptimizacionNocturnaService(programacionEntregaRepository, rutaService,
+            jwtUtils, new ObjectMapper());
+        when(jwtUtils.generarTokenServicio(anyLong())).thenReturn("token");
+    }
+
+    private Map<String, Object> resultadoRuta(double distancia) {
+        Map<String, Object> resultado = new HashMap<>();
+        resultado.put("orderedClients", List.of(new Object(), new Object()));
+        resultado.put("osrmRoute", "{\"routes\":[{\"distance\":" + distancia + ",\"duration\":600.0}]}");
+        resultado.put("desdeCache", false);
+        return resultado;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPreOptimizar_ReportaMetricasPorRuta() {
+        when(programacionEntregaRepository.findIdRutasByFechaProgramada(fecha)).thenReturn(Arrays.asList(1L, 2L, 3L));
+        when(rutaService.optimizarRuta(1L, fecha, null, PerfilBusqueda.NOCTURNO)).thenReturn(resultadoRuta(1500.0));
+        when(rutaService.optimizarRuta(2L, fecha, null, PerfilBusqueda.NOCTURNO)).thenReturn(resultadoRuta(2500.0));
+        when(rutaService.optimizarRuta(3L, fecha, null, PerfilBusqueda.NOCTURNO))
+            .thenThrow(new RuntimeException("Ruta de origen no encontrada"));
+
+        Map<String, Object> reporte = preOptimizacionNocturnaService.preOptimizar(fecha);
+
+        assertEquals(3, reporte.get("totalRutas"));
+        assertEquals(2L, reporte.get("exitosas"));
+        assertEquals(1L, reporte.get("fallidas"));
+        assertEquals(4000L, reporte.get("distanciaTotalMetros"));
+        List<Map<String, Object>> rutas = (List<Map<String, Object>>) reporte.get("rutas");
+        assertEquals(2, rutas.get(0).get("clientes"));
+        assertEquals(600L, rutas.get(0).get("duracionSegundos"));
+        assertEquals("ERROR", rutas.get(2).get("estado"));
+        assertSame(reporte, preOptimizacionNocturnaService.getUltimoReporte());
+    }
+
+    @Test
+    void testPreOptimizar_SinRutasProgramadas() {
+        when(programacionEntregaRepository.findIdRutasByFechaProgramada(fecha)).thenReturn(List.of());
+
+        Map<String, Object> reporte = preOptimizacionNocturnaService.preOptimizar(fecha);
+
+        assertEquals(0, reporte.get("totalRutas"));
+        verifyNoInteractions(rutaService);
+    }
+
+    @Test
+    void testIniciarEnSegundoPlano_UsaHiloPropioYNoSolapaLotes() throws InterruptedException {
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicReference<String> hilo = new AtomicReference<>();
+        when(programacionEntregaRepository.findIdRutasByFechaProgramada(fecha)).thenAnswer(inv -> {
+            hilo.set(Thread.currentThread().getName());
+            liberar.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        try {
+            assertTrue(preOptimizacionNocturnaService.iniciarEnSegundoPlano(fecha));
+            assertFalse(preOptimizacionNocturnaService.iniciarEnSegundoPlano(fecha));
+            liberar.countDown();
+            for (int i = 0; i < 100 && preOptimizacionNocturnaService.getUltimoReporte() == null; i++) {
+                Thread.sleep(20);
+            }
+
+            assertEquals("pre-optimizacion-nocturna", hilo.get());
+            assertNotNull(preOptimizacionNocturnaService.getUltimoReporte());
+        } finally {
+            preOptimizacionNocturnaService.cerrar();
+        }
+    }
+}
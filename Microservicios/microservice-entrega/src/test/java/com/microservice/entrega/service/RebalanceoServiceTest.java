@@ -0,0 +1,146 @@
+package com.microservice.entrega.service;
+
+import com.microservice.entrega.client.ClienteServiceClient;
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.entity.Ruta;
+import com.microservice.entrega.entity.RutaCliente;
+import com.microservice.entrega.repository.ProgramacionEntregaRepository;
+import com.microservice.entrega.repository.RutaClienteRepository;
+import com.microservice.entrega.repository.RutaRepository;
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RebalanceoServiceTest {
+
+    @Mock
+    private RutaRepository rutaRepository;
+
+    @Mock
+    private RutaClienteRepository rutaClienteRepository;
+
+    @Mock
+    private ProgramacionEntregaRepository programacionEntregaRepository;
+
+    @Mock
+    private ClienteServiceClient clienteServiceClient;
+
+    @Spy
+    private HaversineDistanceProvider haversine = new HaversineDistanceProvider();
+
+    @InjectMocks
+    private RebalanceoService rebalanceoService;
+
+    private List<ClienteDTO> clientes;
+    private List<RutaCliente> asignaciones;
+
+    @BeforeEach
+    void setUp() {
+        // Dos rutas vecinas al este de la panadería: la 1 con cinco paradas y la 2 con una sola
+        when(rutaRepository.findAll()).thenReturn(List.of(createRuta(1L), createRuta(2L)));
+        clientes = new ArrayList<>();
+        asignaciones = new ArrayList<>();
+        agregarAsignado(10L, 1L, -72.040);
+        agregarAsignado(11L, 1L, -72.045);
+        agregarAsignado(12L, 1L, -72.050);
+        agregarAsignado(13L, 1L, -72.055);
+        agregarAsignado(14L, 1L, -72.060);
+        agregarAsignado(20L, 2L, -72.065);
+        when(rutaClienteRepository.findAll()).thenReturn(asignaciones);
+        when(clienteServiceClient.getAllClientes()).thenReturn(clientes);
+        when(programacionEntregaRepository.countDiasConEntregas(any(), any())).thenReturn(0L);
+    }
+
+    private Ruta createRuta(Long id) {
+        Ruta ruta = new Ruta();
+        ruta.setId(id);
+        ruta.setNombre("Ruta " + id);
+        ruta.setLatitud(-36.6);
+        ruta.setLongitud(-72.1);
+        return ruta;
+    }
+
+    private void agregarAsignado(Long idCliente, Long idRuta, double longitud) {
+        ClienteDTO cliente = new ClienteDTO();
+        cliente.setId(idCliente);
+        cliente.setNombre("Cliente " + idCliente);
+        cliente.setLatitud(-36.6);
+        cliente.setLongitud(longitud);
+        clientes.add(cliente);
+        asignaciones.add(new RutaCliente(idCliente, idRuta, idCliente, asignaciones.size() + 1, null, null, null, null, null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private long makespan(Map<String, Object> resultado, String momento) {
+        return (Long) ((Map<String, Object>) resultado.get(momento)).get("makespanSegundos");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRebalancear_MueveClientesDeBordeYBajaLaJornadaMaxima() {
+        Map<String, Object> resultado = rebalanceoService.rebalancear();
+
+        List<Map<String, Object>> cambios = (List<Map<String, Object>>) resultado.get("cambios");
+        assertFalse(cambios.isEmpty());
+        assertTrue(cambios.stream().allMatch(c -> c.get("id_ruta_anterior").equals(1L) && c.get("id_ruta_nueva").equals(2L)));
+        assertTrue(makespan(resultado, "despues") < makespan(resultado, "antes"));
+        // Solo es una propuesta: no se toca la tabla de asignaciones
+        verify(rutaClienteRepository, never()).save(any());
+        verify(rutaClienteRepository, never()).saveAll(anyList());
+        assertSame(resultado, rebalanceoService.getUltimoResultado());
+    }
+
+    @Test
+    void testRebalancear_RespetaCapacidadSegunHistorial() {
+        // Cada cliente lleva 300 kg diarios: la ruta 2 no puede recibir a nadie sin pasar los 500 kg
+        when(programacionEntregaRepository.countDiasConEntregas(any(), any())).thenReturn(2L);
+        List<Object[]> kg = new ArrayList<>();
+        for (ClienteDTO c : clientes) {
+            kg.add(new Object[] { c.getId(), 600.0, null, 2L });
+        }
+        when(programacionEntregaRepository.sumKgPorCliente(any(), any())).thenReturn(kg);
+
+        Map<String, Object> resultado = rebalanceoService.rebalancear();
+
+        assertTrue(((List<?>) resultado.get("cambios")).isEmpty());
+        assertEquals(makespan(resultado, "antes"), makespan(resultado, "despues"));
+    }
+
+    @Test
+    void testIniciarEnSegundoPlano_DejaElResultadoDisponible() throws InterruptedException {
+        AtomicReference<String> hilo = new AtomicReference<>();
+        when(rutaRepository.findAll()).thenAnswer(inv -> {
+            hilo.set(Thread.currentThread().getName());
+            return List.of(createRuta(1L), createRuta(2L));
+        });
+
+        assertTrue(rebalanceoService.iniciarEnSegundoPlano());
+
+        for (int i = 0; i < 250 && (rebalanceoService.isEnEjecucion() || rebalanceoService.getUltimoResultado() == null); i++) {
+            Thread.sleep(20);
+        }
+
+        assertFalse(rebalanceoService.isEnEjecucion());
+        assertEquals("OK", rebalanceoService.getUltimoResultado().get("estado"));
+        assertEquals("rebalanceo-rutas", hilo.get());
+        rebalanceoService.cerrar();
+    }
+}
@@ -0,0 +1,137 @@
+package com.microservice.entrega.service;
+
+import com.microservice.entrega.dto.ClienteDTO;
+import com.microservice.entrega.entity.ResultadoOptimizacion;
+import com.microservice.entrega.entity.Ruta;
+import com.microservice.entrega.repository.ResultadoOptimizacionRepository;
+import com.microservice.entrega.service.optimizacion.PerfilBusqueda;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResultadoOptimizacionServiceTest {
+
+    @Mock
+    private ResultadoOptimizacionRepository resultadoOptimizacionRepository;
+
+    @InjectMocks
+    private ResultadoOptimizacionService resultadoOptimizacionService;
+
+    private Ruta origen;
+    private List<ClienteDTO> clientes;
+    private final LocalDate fecha = LocalDate.of(2026, 10, 18);
+
+    @BeforeEach
+    void setUp() {
+        origen = new Ruta();
+        origen.setId(1L);
+        origen.setLatitud(-36.60);
+        origen.setLongitud(-72.10);
+
+        clientes = new ArrayList<>(Arrays.asList(
+            createClienteDTO(2L, -36.612484, -72.082953),
+            createClienteDTO(1L, -36.610930, -72.110828)
+        ));
+    }
+
+    private ClienteDTO createClienteDTO(Long id, double lat, double lng) {
+        ClienteDTO cliente = new ClienteDTO();
+        cliente.setId(id);
+        cliente.setLatitud(lat);
+        cliente.setLongitud(lng);
+        return cliente;
+    }
+
+    @Test
+    void testHuella_IndependienteDelOrdenYSensibleACoordenadas() {
+        String huella = resultadoOptimizacionService.huella(origen, clientes, "osrm", "06:00");
+
+        List<ClienteDTO> invertidos = new ArrayList<>(clientes);
+        Collections.reverse(invertidos);
+        assertEquals(huella, resultadoOptimizacionService.huella(origen, invertidos, "osrm", "06:00"));
+
+        clientes.get(0).setLatitud(-36.7);
+        assertNotEquals(huella, resultadoOptimizacionService.huella(origen, clientes, "osrm", "06:00"));
+        assertNotEquals(huella, resultadoOptimizacionService.huella(origen, invertidos, "haversine", "06:00"));
+    }
+
+    @Test
+    void testGuardarYBuscar_DesdeMemoria() {
+        when(resultadoOptimizacionRepository.findByIdRutaAndFecha(1L, fecha)).thenReturn(Optional.empty());
+        when(resultadoOptimizacionRepository.save(any(ResultadoOptimizacion.class))).thenAnswer(inv -> inv.getArgument(0));
+        clientes.get(0).setEta(LocalTime.of(6, 10));
+
+        resultadoOptimizacionService.guardar(1L, fecha, "abc", "osrm", PerfilBusqueda.INTERACTIVO, clientes, "{}");
+        Optional<ResultadoOptimizacion> resultado = resultadoOptimizacionService.buscar(1L, fecha, "abc",
+            PerfilBusqueda.INTERACTIVO);
+
+        assertTrue(resultado.isPresent());
+        assertEquals(Arrays.asList(2L, 1L), resultadoOptimizacionService.getOrdenClientes(resultado.get()));
+        assertEquals("06:10,", resultado.get().getEtas());
+        assertTrue(resultadoOptimizacionService.buscar(1L, fecha, "otra", PerfilBusqueda.INTERACTIVO).isEmpty());
+        verify(resultadoOptimizacionRepository, times(1)).findByIdRutaAndFecha(1L, fecha);
+    }
+
+    @Test
+    void testGuardar_MemoriaLimitadaReleeLosDescartadosDeLaBase() {
+        ReflectionTestUtils.setField(resultadoOptimizacionService, "maxEntradas", 2);
+        when(resultadoOptimizacionRepository.findByIdRutaAndFecha(anyLong(), any())).thenReturn(Optional.empty());
+        when(resultadoOptimizacionRepository.save(any(ResultadoOptimizacion.class))).thenAnswer(inv -> inv.getArgument(0));
+        for (int dia = 0; dia < 3; dia++) {
+            resultadoOptimizacionService.guardar(1L, fecha.plusDays(dia), "abc", "osrm", PerfilBusqueda.INTERACTIVO,
+                clientes, "{}");
+        }
+        clearInvocations(resultadoOptimizacionRepository);
+
+        // El día más antiguo salió de memoria; los dos últimos siguen ahí
+        resultadoOptimizacionService.buscar(1L, fecha, "abc", PerfilBusqueda.INTERACTIVO);
+        resultadoOptimizacionService.buscar(1L, fecha.plusDays(2), "abc", PerfilBusqueda.INTERACTIVO);
+
+        verify(resultadoOptimizacionRepository).findByIdRutaAndFecha(1L, fecha);
+        verify(resultadoOptimizacionRepository, never()).findByIdRutaAndFecha(1L, fecha.plusDays(2));
+    }
+
+    @Test
+    void testBuscar_ResultadoInteractivoNoSirveParaPerfilNocturno() {
+        ResultadoOptimizacion interactivo = new ResultadoOptimizacion();
+        interactivo.setHuella("abc");
+        interactivo.setPerfil("INTERACTIVO");
+        when(resultadoOptimizacionRepository.findByIdRutaAndFecha(1L, fecha)).thenReturn(Optional.of(interactivo));
+
+        assertTrue(resultadoOptimizacionService.buscar(1L, fecha, "abc", PerfilBusqueda.NOCTURNO).isEmpty());
+        assertTrue(resultadoOptimizacionService.buscar(1L, fecha, "abc", PerfilBusqueda.INTERACTIVO).isPresent());
+    }
+
+    @Test
+    void testInvalidar_EliminaMemoriaYBaseDeDatos() {
+        ResultadoOptimizacion guardado = new ResultadoOptimizacion();
+        guardado.setHuella("abc");
+        guardado.setPerfil("NOCTURNO");
+        when(resultadoOptimizacionRepository.findByIdRutaAndFecha(1L, fecha))
+            .thenReturn(Optional.of(guardado))
+            .thenReturn(Optional.empty());
+        assertTrue(resultadoOptimizacionService.buscar(1L, fecha, "abc", PerfilBusqueda.NOCTURNO).isPresent());
+
+        resultadoOptimizacionService.invalidarRuta(1L);
+
+        assertTrue(resultadoOptimizacionService.buscar(1L, fecha, "abc", PerfilBusqueda.NOCTURNO).isEmpty());
+        verify(resultadoOptimizacionRepository).deleteByIdRuta(1L);
+    }
+}
@@ -0,0 +1,140 @@
+package com.microservice.entrega.service;
+
+import com.microservice.entrega.entity.RegistroEntrega;
+import com.microservice.entrega.entity.RutaCliente;
+import com.microservice.entrega.entity.SesionReparto;
+import com.microservice.entrega.repository.RegistroEntregaRepository;
+import com.microservice.entrega.repository.ResumenEntregaDiarioRepository;
+import com.microservice.entrega.repository.RutaClienteRepository;
+import com.microservice.entrega.repository.RutaRepository;
+import com.microservice.entrega.repository.SesionRepartoRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResumenEntregaServiceTest {
+
+    @Mock
+    private RegistroEntregaRepository registroEntregaRepository;
+
+    @Mock
+    private ResumenEntregaDiarioRepository resumenEntregaDiarioRepository;
+
+    @Mock
+    private SesionRepartoRepository sesionRepartoRepository;
+
+    @Mock
+    private RutaRepository rutaRepository;
+
+    @Mock
+    private RutaClienteRepository rutaClienteRepository;
+
+    @InjectMocks
+    private ResumenEntregaService resumenEntregaService;
+
+    @Test
+    void testGuardar_AcumulaEnLaRutaDelDriver() {
+        RegistroEntrega registro = registro(LocalDateTime.of(2025, 3, 10, 9, 30));
+        SesionReparto sesion = new SesionReparto();
+        sesion.setId(5L);
+        sesion.setId_driver(7L);
+        when(registroEntregaRepository.save(registro)).thenReturn(registro);
+        when(sesionRepartoRepository.findById(5L)).thenReturn(Optional.of(sesion));
+        when(rutaRepository.findPrimerIdByIdDriver(7L)).thenReturn(3L);
+
+        resumenEntregaService.guardar(registro);
+
+        assertEquals(3L, registro.getId_ruta());
+        verify(resumenEntregaDiarioRepository).acumular(LocalDate.of(2025, 3, 10), 3L, 20L, 10.0, 0.0, 15000.0, 0.0, 15000.0);
+        verifyNoInteractions(rutaClienteRepository);
+    }
+
+    @Test
+    void testGuardar_SinSesionUsaLaRutaDelCliente() {
+        RegistroEntrega registro = registro(LocalDateTime.of(2025, 3, 10, 9, 30));
+        registro.setId_pedido(null);
+        RutaCliente rc = new RutaCliente();
+        rc.setId_ruta(4L);
+        rc.setId_cliente(20L);
+        when(registroEntregaRepository.save(registro)).thenReturn(registro);
+        when(rutaClienteRepository.findByIdClienteIn(List.of(20L))).thenReturn(List.of(rc));
+
+        resumenEntregaService.guardar(registro);
+
+        verify(resumenEntregaDiarioRepository).acumular(eq(LocalDate.of(2025, 3, 10)), eq(4L), eq(20L),
+                anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void testGuardar_DriverSinRutaUsaLaRutaDelCliente() {
+        RegistroEntrega registro = registro(LocalDateTime.of(2025, 3, 10, 9, 30));
+        SesionReparto sesion = new SesionReparto();
+        sesion.setId(5L);
+        sesion.setId_driver(7L);
+        RutaCliente rc = new RutaCliente();
+        rc.setId_ruta(4L);
+        rc.setId_cliente(20L);
+        when(registroEntregaRepository.save(registro)).thenReturn(registro);
+        when(sesionRepartoRepository.findById(5L)).thenReturn(Optional.of(sesion));
+        when(rutaRepository.findPrimerIdByIdDriver(7L)).thenReturn(null);
+        when(rutaClienteRepository.findByIdClienteIn(List.of(20L))).thenReturn(List.of(rc));
+
+        resumenEntregaService.guardar(registro);
+
+        assertEquals(4L, registro.getId_ruta());
+    }
+
+    @Test
+    void testGuardar_SinHoraNoAcumula() {
+        RegistroEntrega registro = registro(null);
+        when(registroEntregaRepository.save(registro)).thenReturn(registro);
+
+        resumenEntregaService.guardar(registro);
+
+        verifyNoInteractions(resumenEntregaDiarioRepository);
+    }
+
+    @Test
+    void testGuardar_RutaYaInformadaNoSeResuelve() {
+        RegistroEntrega registro = registro(LocalDateTime.of(2025, 3, 10, 9, 30));
+        registro.setId_ruta(8L);
+        when(registroEntregaRepository.save(registro)).thenReturn(registro);
+
+        resumenEntregaService.guardar(registro);
+
+        verifyNoInteractions(sesionRepartoRepository, rutaRepository, rutaClienteRepository);
+        verify(resumenEntregaDiarioRepository).acumular(eq(LocalDate.of(2025, 3, 10)), eq(8L), eq(20L),
+                anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void testReconstruir_RangoInvalido() {
+        assertThrows(IllegalArgumentException.class,
+                () -> resumenEntregaService.reconstruir(LocalDate.of(2025, 3, 10), LocalDate.of(2025, 3, 1)));
+        verifyNoInteractions(resumenEntregaDiarioRepository);
+    }
+
+    private RegistroEntrega registro(LocalDateTime hora) {
+        RegistroEntrega registro = new RegistroEntrega();
+        registro.setId_pedido(5L);
+        registro.setId_cliente(20L);
+        registro.setHora_entregada(hora);
+        registro.setCorriente_entregado(10.0);
+        registro.setMonto_corriente(15000.0);
+        registro.setMonto_especial(0.0);
+        registro.setMonto_total(15000.0);
+        return registro;
+    }
+}
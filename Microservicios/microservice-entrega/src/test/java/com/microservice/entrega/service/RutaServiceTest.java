@@ -1,24 +1,37 @@
 package com.microservice.entrega.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microservice.entrega.client.ClienteServiceClient;
 import com.microservice.entrega.dto.ClienteDTO;
 import com.microservice.entrega.entity.Ruta;
 import com.microservice.entrega.entity.RutaCliente;
+import com.microservice.entrega.entity.ProgramacionEntrega;
+import com.microservice.entrega.entity.ResultadoOptimizacion;
 import com.microservice.entrega.entity.SesionReparto;
 import com.microservice.entrega.entity.RegistroEntrega;
 import com.microservice.entrega.repository.*;
+import com.microservice.entrega.service.distancia.DistanceProviderRegistry;
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+import com.microservice.entrega.service.distancia.OsrmGateway;
+import com.microservice.entrega.service.distancia.TablaDistancias;
+import com.microservice.entrega.service.optimizacion.PerfilBusqueda;
+import com.microservice.entrega.service.optimizacion.PerfilesBusqueda;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -46,6 +59,25 @@ class RutaServiceTest {
     @Mock
     private ProgramacionEntregaRepository programacionEntregaRepository;
 
+    @Mock
+    private DistanciaCacheService distanciaCacheService;
+
+    @Mock
+    private DistanceProviderRegistry distanceProviderRegistry;
+
+    @Mock
+    private ResultadoOptimizacionService resultadoOptimizacionService;
+
+    @Mock
+    private DashboardService dashboardService;
+
+    @Spy
+    private PerfilesBusqueda perfilesBusqueda = new PerfilesBusqueda();
+
+    @Spy
+    private GeometriaRutaService geometriaRutaService = new GeometriaRutaService(new ObjectMapper(),
+            new OsrmGateway("osrm", "http://127.0.0.1:1"), new HaversineDistanceProvider());
+
     @InjectMocks
     private RutaService rutaService;
 
@@ -65,6 +97,20 @@ class RutaServiceTest {
             createClienteDTO(2L, "Cliente B", -36.612484, -72.082953),
             createClienteDTO(3L, "Cliente C", -36.602133, -72.078198)
         );
+        ReflectionTestUtils.setField(perfilesBusqueda, "interactivoTiempoLimiteMs", 200L);
+    }
+
+    // Clientes en línea desde el origen (1, 2 y 3 km), a 1 minuto por km
+    private TablaDistancias tablaEnLinea() {
+        long[][] distancias = new long[4][4];
+        long[][] duraciones = new long[4][4];
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                distancias[i][j] = 1000L * Math.abs(i - j);
+                duraciones[i][j] = 60L * Math.abs(i - j);
+            }
+        }
+        return new TablaDistancias(distancias, duraciones);
     }
 
     private ClienteDTO createClienteDTO(Long id, String nombre, Double lat, Double lng) {
@@ -126,6 +172,150 @@ class RutaServiceTest {
         return rc;
     }
 
+    @Test
+    void testGetOptimizedRouteORTools_RespetaVentanaHoraria() {
+        when(rutaRepository.findById(1L)).thenReturn(Optional.of(rutaTest));
+        when(distanciaCacheService.obtenerMatriz(any(), anyList())).thenReturn(tablaEnLinea());
+
+        List<ClienteDTO> clientes = new ArrayList<>(clientesTest);
+        clientes.forEach(c -> c.setTiempoServicioMinutos(10));
+        clientes.get(0).setVentanaInicio(LocalTime.of(7, 0));
+        clientes.get(2).setVentanaFin(LocalTime.of(6, 5));
+
+        List<ClienteDTO> resultado = rutaService.getOptimizedRouteORTools(1L, clientes);
+
+        // El cliente con cierre temprano va primero aunque sea el más lejano
+        assertEquals(3, resultado.size());
+        assertEquals(3L, resultado.get(0).getId());
+        assertEquals(LocalTime.of(6, 3), resultado.get(0).getEta());
+        // El cliente que abre a las 7:00 no recibe antes de esa hora
+        ClienteDTO clienteA = resultado.stream().filter(c -> c.getId().equals(1L)).findFirst().orElseThrow();
+        assertFalse(clienteA.getEta().isBefore(LocalTime.of(7, 0)));
+    }
+
+    @Test
+    void testGetOptimizedRouteORTools_ArrancaDesdeOrdenAnterior() {
+        LocalDate fecha = LocalDate.of(2026, 10, 18);
+        ProgramacionEntrega prog1 = new ProgramacionEntrega();
+        prog1.setId_cliente(3L);
+        prog1.setOrden(1);
+        ProgramacionEntrega prog2 = new ProgramacionEntrega();
+        prog2.setId_cliente(1L);
+        prog2.setOrden(2);
+        when(rutaRepository.findById(1L)).thenReturn(Optional.of(rutaTest));
+        when(distanciaCacheService.obtenerMatriz(any(), anyList())).thenReturn(tablaEnLinea());
+        when(programacionEntregaRepository.findUltimoOrdenAnterior(1L, fecha)).thenReturn(Arrays.asList(prog1, prog2));
+
+        List<ClienteDTO> resultado = rutaService.getOptimizedRouteORTools(1L, new ArrayList<>(clientesTest), null,
+            PerfilBusqueda.INTERACTIVO, fecha);
+
+        // El cliente 2 no tenía orden previo, pero igual forma parte de la ruta
+        assertEquals(3, resultado.size());
+        assertTrue(resultado.stream().anyMatch(c -> c.getId().equals(2L)));
+        verify(programacionEntregaRepository).findUltimoOrdenAnterior(1L, fecha);
+        verify(rutaClienteRepository, never()).findById_ruta(anyLong());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOptimizarRuta_ResultadoEnCacheNoResuelveNiConsultaOsrm() {
+        LocalDate fecha = LocalDate.of(2026, 10, 18);
+        ProgramacionEntrega prog = new ProgramacionEntrega();
+        prog.setId_cliente(1L);
+        ProgramacionEntrega prog2 = new ProgramacionEntrega();
+        prog2.setId_cliente(2L);
+        ResultadoOptimizacion guardado = new ResultadoOptimizacion();
+        guardado.setOrden_clientes("2,1");
+        guardado.setEtas("06:05,06:20");
+        guardado.setOsrm_route("{\"routes\":[]}");
+
+        when(programacionEntregaRepository.findByIdRutaAndFechaProgramada(1L, fecha)).thenReturn(Arrays.asList(prog, prog2));
+        when(clienteServiceClient.getClientesByIds(anyList())).thenReturn(new ArrayList<>(clientesTest.subList(0, 2)));
+        when(rutaRepository.findById(1L)).thenReturn(Optional.of(rutaTest));
+        when(distanceProviderRegistry.resolver(any(), any())).thenReturn(new HaversineDistanceProvider());
+        when(resultadoOptimizacionService.huella(any(), anyList(), anyString(), anyString())).thenReturn("abc");
+        when(resultadoOptimizacionService.buscar(1L, fecha, "abc", PerfilBusqueda.INTERACTIVO)).thenReturn(Optional.of(guardado));
+        when(resultadoOptimizacionService.getOrdenClientes(guardado)).thenReturn(Arrays.asList(2L, 1L));
+
+        Map<String, Object> resultado = rutaService.optimizarRuta(1L, fecha, null, PerfilBusqueda.INTERACTIVO);
+
+        List<ClienteDTO> ordenados = (List<ClienteDTO>) resultado.get("orderedClients");
+        assertEquals(2L, ordenados.get(0).getId());
+        assertEquals(LocalTime.of(6, 5), ordenados.get(0).getEta());
+        assertEquals("{\"routes\":[]}", resultado.get("osrmRoute"));
+        assertEquals(true, resultado.get("desdeCache"));
+        verify(distanciaCacheService, never()).obtenerMatriz(any(), anyList());
+        verify(resultadoOptimizacionService, never()).guardar(any(), any(), any(), any(), any(), anyList(), any());
+    }
+
+    @Test
+    void testOptimizarRuta_GeometriaEstimadaNoSeGuarda() {
+        LocalDate fecha = LocalDate.of(2026, 10, 18);
+        prepararOptimizacionSinCache(fecha, tablaEnLinea());
+        // OSRM no respondió: la geometría es la línea recta estimada
+        doReturn("{\"routes\":[],\"estimada\":true}").when(geometriaRutaService).obtenerRuta(anyList(), any());
+
+        Map<String, Object> resultado = rutaService.optimizarRuta(1L, fecha, null, PerfilBusqueda.INTERACTIVO);
+
+        assertEquals(true, resultado.get("estimada"));
+        verify(resultadoOptimizacionService, never()).guardar(any(), any(), any(), any(), any(), anyList(), any());
+        verify(programacionEntregaRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testOptimizarRuta_MatrizEstimadaNoSeGuarda() {
+        LocalDate fecha = LocalDate.of(2026, 10, 18);
+        TablaDistancias enLinea = tablaEnLinea();
+        boolean[][] estimadas = new boolean[4][4];
+        estimadas[0][2] = true;
+        prepararOptimizacionSinCache(fecha, new TablaDistancias(enLinea.distancias(), enLinea.duraciones(), estimadas));
+        doReturn("{\"routes\":[]}").when(geometriaRutaService).obtenerRuta(anyList(), any());
+
+        Map<String, Object> resultado = rutaService.optimizarRuta(1L, fecha, null, PerfilBusqueda.INTERACTIVO);
+
+        assertEquals(true, resultado.get("estimada"));
+        assertEquals(3, ((List<?>) resultado.get("orderedClients")).size());
+        verify(resultadoOptimizacionService, never()).guardar(any(), any(), any(), any(), any(), anyList(), any());
+        verify(programacionEntregaRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testOptimizarRuta_ConOsrmGuardaResultadoYOrden() {
+        LocalDate fecha = LocalDate.of(2026, 10, 18);
+        prepararOptimizacionSinCache(fecha, tablaEnLinea());
+        doReturn("{\"routes\":[]}").when(geometriaRutaService).obtenerRuta(anyList(), any());
+
+        Map<String, Object> resultado = rutaService.optimizarRuta(1L, fecha, null, PerfilBusqueda.INTERACTIVO);
+
+        assertEquals(false, resultado.get("estimada"));
+        verify(resultadoOptimizacionService).guardar(eq(1L), eq(fecha), eq("abc"), anyString(), any(), anyList(),
+            eq("{\"routes\":[]}"));
+        verify(programacionEntregaRepository).saveAll(anyList());
+    }
+
+    private void prepararOptimizacionSinCache(LocalDate fecha, TablaDistancias tabla) {
+        List<ProgramacionEntrega> programaciones = new ArrayList<>();
+        for (ClienteDTO cliente : clientesTest) {
+            ProgramacionEntrega prog = new ProgramacionEntrega();
+            prog.setId_cliente(cliente.getId());
+            programaciones.add(prog);
+        }
+        when(programacionEntregaRepository.findByIdRutaAndFechaProgramada(1L, fecha)).thenReturn(programaciones);
+        when(clienteServiceClient.getClientesByIds(anyList())).thenReturn(new ArrayList<>(clientesTest));
+        when(rutaRepository.findById(1L)).thenReturn(Optional.of(rutaTest));
+        when(distanceProviderRegistry.resolver(any(), any())).thenReturn(new HaversineDistanceProvider());
+        when(resultadoOptimizacionService.huella(any(), anyList(), anyString(), anyString())).thenReturn("abc");
+        when(resultadoOptimizacionService.buscar(1L, fecha, "abc", PerfilBusqueda.INTERACTIVO)).thenReturn(Optional.empty());
+        when(distanciaCacheService.obtenerMatriz(any(), anyList())).thenReturn(tabla);
+    }
+
+    @Test
+    void testPerfilBusqueda_Desde() {
+        assertEquals(PerfilBusqueda.INTERACTIVO, PerfilBusqueda.desde(null));
+        assertEquals(PerfilBusqueda.NOCTURNO, PerfilBusqueda.desde("nocturno"));
+        assertThrows(IllegalArgumentException.class, () -> PerfilBusqueda.desde("exhaustivo"));
+    }
+
     @Test
     void testGetAllRutas() {
         List<Ruta> rutas = Arrays.asList(rutaTest);
@@ -182,6 +372,60 @@ class RutaServiceTest {
         assertThrows(RuntimeException.class, () -> rutaService.asignarClienteARuta(1L, 5L));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAsignarClienteARuta_InsertaEnHuecoMasBarato() {
+        // Origen y clientes sobre una línea: el cliente 2 queda entre el 1 y el 3
+        Ruta origen = new Ruta();
+        origen.setId(1L);
+        origen.setLatitud(0.0);
+        origen.setLongitud(0.0);
+        RutaCliente rc1 = createRutaCliente(1L, 1L, 1);
+        RutaCliente rc3 = createRutaCliente(1L, 3L, 2);
+        when(rutaRepository.existsById(1L)).thenReturn(true);
+        when(rutaRepository.findById(1L)).thenReturn(Optional.of(origen));
+        when(rutaClienteRepository.findAllClienteIds()).thenReturn(Arrays.asList(1L, 3L));
+        when(rutaClienteRepository.findById_ruta(1L)).thenReturn(Arrays.asList(rc1, rc3));
+        when(clienteServiceClient.getClientesByIds(anyList())).thenReturn(Arrays.asList(
+            createClienteDTO(1L, "Cliente A", 0.0, 1.0),
+            createClienteDTO(2L, "Cliente B", 0.0, 2.0),
+            createClienteDTO(3L, "Cliente C", 0.0, 3.0)
+        ));
+        when(distanciaCacheService.obtenerDistancias(any(), anyList(), anyList())).thenAnswer(invocation -> {
+            List<double[]> ubicaciones = invocation.getArgument(1);
+            List<int[]> pares = invocation.getArgument(2);
+            long[] distancias = new long[pares.size()];
+            for (int p = 0; p < pares.size(); p++) {
+                distancias[p] = Math.round(1000 * Math.abs(ubicaciones.get(pares.get(p)[0])[1] - ubicaciones.get(pares.get(p)[1])[1]));
+            }
+            return distancias;
+        });
+
+        rutaService.asignarClienteARuta(1L, 2L);
+
+        verify(rutaClienteRepository).save(argThat(rc -> rc.getId_cliente().equals(2L) && rc.getOrden() == 2));
+        verify(rutaClienteRepository).saveAll(argThat(filas -> filas.iterator().next() == rc3));
+        assertEquals(1, rc1.getOrden());
+        assertEquals(3, rc3.getOrden());
+        verify(distanciaCacheService, never()).obtenerMatriz(any(), anyList());
+    }
+
+    @Test
+    void testReasignarClienteARuta_CierraHuecoEnRutaAnterior() {
+        RutaCliente rc1 = createRutaCliente(2L, 1L, 1);
+        RutaCliente rc3 = createRutaCliente(2L, 3L, 3);
+        when(rutaRepository.existsById(1L)).thenReturn(true);
+        when(rutaClienteRepository.findByIdClienteIn(List.of(2L))).thenReturn(List.of(createRutaCliente(2L, 2L, 2)));
+        when(rutaClienteRepository.findById_ruta(2L)).thenReturn(Arrays.asList(rc1, rc3));
+        when(rutaClienteRepository.findById_ruta(1L)).thenReturn(new ArrayList<>());
+
+        rutaService.reasignarClienteARuta(1L, 2L);
+
+        assertEquals(1, rc1.getOrden());
+        assertEquals(2, rc3.getOrden());
+        verify(rutaClienteRepository).save(argThat(rc -> rc.getId_ruta().equals(1L) && rc.getOrden() == 1));
+    }
+
     @Test
     void testGetRutaIdByDriverId_Exitoso() {
         when(rutaRepository.findByIdDriver(100L)).thenReturn(Optional.of(rutaTest));
@@ -0,0 +1,136 @@
+package com.microservice.entrega.service;
+
+import com.microservice.entrega.dto.PosicionDTO;
+import com.microservice.entrega.entity.SesionReparto;
+import com.microservice.entrega.repository.SesionRepartoRepository;
+import com.microservice.entrega.service.seguimiento.Posicion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SeguimientoGpsServiceTest {
+
+    @Mock
+    private SesionRepartoRepository sesionRepartoRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private EtaEnVivoService etaEnVivoService;
+
+    @Mock
+    private GeocercaService geocercaService;
+
+    @InjectMocks
+    private SeguimientoGpsService seguimientoGpsService;
+
+    private SesionReparto createSesion(Long id, LocalDateTime horaRetorno) {
+        SesionReparto sesion = new SesionReparto();
+        sesion.setId(id);
+        sesion.setId_driver(7L);
+        sesion.setHora_retorno(horaRetorno);
+        return sesion;
+    }
+
+    private PosicionDTO ping(double longitud, LocalDateTime hora) {
+        return new PosicionDTO(-36.6, longitud, 30.0, 5.0, hora);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testVolcar_GuardaPorLotesYConsultaLaSesionUnaVez() {
+        when(sesionRepartoRepository.findById(1L)).thenReturn(Optional.of(createSesion(1L, null)));
+        LocalDateTime hora = LocalDateTime.of(2025, 1, 1, 8, 0);
+        for (int i = 0; i < 3; i++) {
+            seguimientoGpsService.registrar(1L, ping(-72.1 + i * 0.001, hora.plusSeconds(i * 5)));
+        }
+
+        assertEquals(3, seguimientoGpsService.volcar());
+        assertEquals(0, seguimientoGpsService.volcar());
+
+        ArgumentCaptor<List<Posicion>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(SeguimientoGpsService.INSERT_POSICION), captor.capture(), eq(500),
+            any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(3, captor.getValue().size());
+        assertEquals(7L, captor.getValue().get(0).idDriver());
+        verify(sesionRepartoRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testGetUltimaPosicion_SeRespondeDesdeMemoria() {
+        when(sesionRepartoRepository.findById(1L)).thenReturn(Optional.of(createSesion(1L, null)));
+        LocalDateTime hora = LocalDateTime.of(2025, 1, 1, 8, 0);
+        seguimientoGpsService.registrar(1L, ping(-72.10, hora));
+        seguimientoGpsService.registrar(1L, ping(-72.11, hora.plusSeconds(5)));
+
+        assertEquals(-72.11, seguimientoGpsService.getUltimaPosicion(1L).longitud());
+        assertNull(seguimientoGpsService.getUltimaPosicion(2L));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testRegistrar_SesionTerminadaOCoordenadasInvalidas() {
+        when(sesionRepartoRepository.findById(1L)).thenReturn(Optional.of(createSesion(1L, LocalDateTime.now())));
+
+        assertThrows(IllegalStateException.class, () -> seguimientoGpsService.registrar(1L, ping(-72.1, null)));
+        assertThrows(IllegalArgumentException.class, () -> seguimientoGpsService.registrar(1L, ping(-200, null)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testVolcar_ErrorDeBaseReintentaEnElSiguienteVaciado() {
+        when(sesionRepartoRepository.findById(1L)).thenReturn(Optional.of(createSesion(1L, null)));
+        seguimientoGpsService.registrar(1L, ping(-72.1, LocalDateTime.now()));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+            .thenThrow(new RuntimeException("conexión rechazada"))
+            .thenReturn(new int[][] { { 1 } });
+
+        assertEquals(0, seguimientoGpsService.volcar());
+        assertEquals(1, seguimientoGpsService.volcar());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTerminarSesion_GuardaPendientesYRechazaPingsPosteriores() {
+        SesionReparto sesion = createSesion(1L, null);
+        when(sesionRepartoRepository.findById(1L)).thenReturn(Optional.of(sesion));
+        seguimientoGpsService.registrar(1L, ping(-72.1, LocalDateTime.now()));
+
+        sesion.setHora_retorno(LocalDateTime.now());
+        seguimientoGpsService.terminarSesion(1L);
+
+        ArgumentCaptor<List<Posicion>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(SeguimientoGpsService.INSERT_POSICION), captor.capture(), eq(500),
+            any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(1, captor.getValue().size());
+        assertNull(seguimientoGpsService.getUltimaPosicion(1L));
+        assertThrows(IllegalStateException.class, () -> seguimientoGpsService.registrar(1L, ping(-72.2, null)));
+    }
+
+    @Test
+    void testRegistrar_HoraFuturaNoCongelaLaUltimaPosicion() {
+        when(sesionRepartoRepository.findById(1L)).thenReturn(Optional.of(createSesion(1L, null)));
+        LocalDateTime ahora = LocalDateTime.now();
+
+        Posicion adelantada = seguimientoGpsService.registrar(1L, ping(-72.10, ahora.plusHours(5)));
+        seguimientoGpsService.registrar(1L, ping(-72.11, ahora.plusSeconds(1)));
+
+        assertFalse(adelantada.hora().isAfter(LocalDateTime.now()));
+        assertEquals(-72.11, seguimientoGpsService.getUltimaPosicion(1L).longitud());
+    }
+}
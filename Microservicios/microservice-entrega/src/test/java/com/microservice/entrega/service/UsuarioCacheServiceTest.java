@@ -0,0 +1,80 @@
+package com.microservice.entrega.service;
+
+import com.microservice.entrega.client.UsuarioServiceClient;
+import com.microservice.entrega.dto.UsuarioDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UsuarioCacheServiceTest {
+
+    @Mock
+    private UsuarioServiceClient usuarioServiceClient;
+
+    @InjectMocks
+    private UsuarioCacheService usuarioCacheService;
+
+    @Test
+    void testObtenerNombres_UnaLlamadaYLuegoDesdeCache() {
+        when(usuarioServiceClient.getUsuariosByIds(List.of(1L, 2L, 3L)))
+                .thenReturn(List.of(usuario(1L, "Ana"), usuario(2L, "Luis")));
+
+        Map<Long, String> nombres = usuarioCacheService.obtenerNombres(Arrays.asList(1L, 2L, null, 3L, 1L));
+        Map<Long, String> otraVez = usuarioCacheService.obtenerNombres(List.of(1L, 2L, 3L));
+
+        assertEquals(Map.of(1L, "Ana", 2L, "Luis"), nombres);
+        assertEquals(nombres, otraVez);
+        // El 3 no existe y queda recordado: no se vuelve a pedir
+        verify(usuarioServiceClient, times(1)).getUsuariosByIds(anyList());
+    }
+
+    @Test
+    void testObtenerNombres_ServicioCaidoDevuelveLoQueHay() {
+        when(usuarioServiceClient.getUsuariosByIds(List.of(1L))).thenReturn(List.of(usuario(1L, "Ana")));
+        usuarioCacheService.obtenerNombres(List.of(1L));
+        when(usuarioServiceClient.getUsuariosByIds(List.of(2L))).thenThrow(new RuntimeException("usuario-service caído"));
+
+        Map<Long, String> nombres = usuarioCacheService.obtenerNombres(List.of(1L, 2L));
+
+        assertEquals(Map.of(1L, "Ana"), nombres);
+    }
+
+    @Test
+    void testObtenerNombres_MaximoDeEntradasDescartaLasMenosUsadas() {
+        ReflectionTestUtils.setField(usuarioCacheService, "maxEntradas", 2);
+        when(usuarioServiceClient.getUsuariosByIds(List.of(1L, 2L)))
+                .thenReturn(List.of(usuario(1L, "Ana"), usuario(2L, "Luis")));
+        when(usuarioServiceClient.getUsuariosByIds(List.of(3L))).thenReturn(List.of());
+        when(usuarioServiceClient.getUsuariosByIds(List.of(2L))).thenReturn(List.of(usuario(2L, "Luis")));
+
+        usuarioCacheService.obtenerNombres(List.of(1L, 2L));
+        usuarioCacheService.obtenerNombres(List.of(1L));
+        // El 3 desconocido también ocupa lugar y desplaza al 2, que es el menos usado
+        usuarioCacheService.obtenerNombres(List.of(3L));
+        Map<Long, String> nombres = usuarioCacheService.obtenerNombres(List.of(1L, 2L));
+
+        assertEquals(Map.of(1L, "Ana", 2L, "Luis"), nombres);
+        verify(usuarioServiceClient).getUsuariosByIds(List.of(2L));
+        verify(usuarioServiceClient, times(3)).getUsuariosByIds(anyList());
+    }
+
+    private UsuarioDTO usuario(Long id, String nombre) {
+        UsuarioDTO usuario = new UsuarioDTO();
+        usuario.setId(id);
+        usuario.setNombre(nombre);
+        usuario.setRol("DRIVER");
+        return usuario;
+    }
+}
@@ -0,0 +1,54 @@
+package com.microservice.entrega.service.asignacion;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.microservice.entrega.service.distancia.HaversineDistanceProvider;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndiceEspacialTest {
+
+    @Test
+    void testBuscar_DevuelveLosMasCercanosComoFuerzaBruta() {
+        IndiceEspacial<Integer> indice = new IndiceEspacial<>(1000, -36.6);
+        Random random = new Random(3);
+        double[][] puntos = new double[500][];
+        for (int i = 0; i < puntos.length; i++) {
+            puntos[i] = new double[] { -36.7 + random.nextDouble() * 0.2, -72.2 + random.nextDouble() * 0.2 };
+            indice.agregar(puntos[i][0], puntos[i][1], i);
+        }
+
+        for (int consulta = 0; consulta < 20; consulta++) {
+            double latitud = -36.75 + random.nextDouble() * 0.3;
+            double longitud = -72.25 + random.nextDouble() * 0.3;
+            List<IndiceEspacial.Vecino<Integer>> vecinos = indice.buscar(latitud, longitud, 5);
+
+            double[] distancias = new double[puntos.length];
+            for (int i = 0; i < puntos.length; i++) {
+                distancias[i] = HaversineDistanceProvider.haversine(latitud, longitud, puntos[i][0], puntos[i][1]);
+            }
+            Arrays.sort(distancias);
+            for (int k = 0; k < 5; k++) {
+                assertEquals(distancias[k], vecinos.get(k).metros(), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void testBuscar_PuntoLejanoTerminaRapidoYRespetaMaximo() {
+        IndiceEspacial<Integer> indice = new IndiceEspacial<>(1000, -36.6);
+        indice.agregar(-36.6, -72.1, 1);
+        indice.agregar(-36.61, -72.11, 2);
+
+        long inicio = System.currentTimeMillis();
+        assertTrue(indice.buscar(0, 0, 15, 50_000).isEmpty());
+        List<IndiceEspacial.Vecino<Integer>> sinLimite = indice.buscar(0, 0, 15);
+        assertTrue(System.currentTimeMillis() - inicio < 1000);
+
+        assertEquals(2, sinLimite.size());
+    }
+}
@@ -0,0 +1,79 @@
+package com.microservice.entrega.service.concurrencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LlamadasParalelasTest {
+
+    private LlamadasParalelas llamadasParalelas;
+
+    @BeforeEach
+    void setUp() {
+        llamadasParalelas = new LlamadasParalelas();
+    }
+
+    @AfterEach
+    void tearDown() {
+        llamadasParalelas.cerrar();
+    }
+
+    @Test
+    void testEnviar_LatenciaEsLaDeLaMasLenta() {
+        LlamadasParalelas.Grupo grupo = llamadasParalelas.grupo();
+        long inicio = System.nanoTime();
+        List<CompletableFuture<Integer>> futuros = List.of(
+                grupo.enviar("a", () -> esperar(300, 1), 0),
+                grupo.enviar("b", () -> esperar(300, 2), 0),
+                grupo.enviar("c", () -> esperar(300, 3), 0));
+        grupo.esperar();
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+
+        assertEquals(6, futuros.stream().mapToInt(CompletableFuture::join).sum());
+        assertTrue(ms < 800, "Las llamadas deberían ir en paralelo, tardó " + ms + " ms");
+        assertTrue(grupo.isCompleto());
+    }
+
+    @Test
+    void testEnviar_TimeoutDevuelvePorDefecto() {
+        LlamadasParalelas.Grupo grupo = llamadasParalelas.grupo();
+        CompletableFuture<String> lenta = grupo.enviar("lenta", () -> esperar(5000, "tarde"), "defecto", 100);
+        CompletableFuture<String> rapida = grupo.enviar("rapida", () -> "ok", "defecto");
+        grupo.esperar();
+
+        assertEquals("defecto", lenta.join());
+        assertEquals("ok", rapida.join());
+        assertEquals(List.of("lenta"), grupo.getFallidas());
+    }
+
+    @Test
+    void testEnviarPorLotes_LoteFallidoQuedaFuera() {
+        LlamadasParalelas.Grupo grupo = llamadasParalelas.grupo();
+        CompletableFuture<List<Long>> futuro = grupo.enviarPorLotes("clientes", List.of(1L, 2L, 3L, 4L, 5L), 2,
+                ids -> {
+                    if (ids.contains(3L)) {
+                        throw new RuntimeException("cliente-service caído");
+                    }
+                    return ids;
+                });
+        grupo.esperar();
+
+        assertEquals(List.of(1L, 2L, 5L), futuro.join());
+        assertEquals(List.of("clientes"), grupo.getFallidas());
+    }
+
+    private static <T> T esperar(long ms, T valor) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return valor;
+    }
+}
@@ -0,0 +1,215 @@
+package com.microservice.entrega.service.distancia;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OsrmDistanceProviderTest {
+
+    private HttpServer servidor;
+    private AtomicInteger consultas;
+    private Map<String, AtomicInteger> fallosPendientes;
+    private int maxCoordenadasVistas;
+    // Longitud de un punto al que el servidor ficticio no encuentra camino
+    private Double longitudSinCamino;
+    private OsrmGateway gateway;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        consultas = new AtomicInteger();
+        fallosPendientes = new ConcurrentHashMap<>();
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.createContext("/table/v1/driving/", this::responder);
+        servidor.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (gateway != null) {
+            gateway.close();
+        }
+        servidor.stop(0);
+    }
+
+    // Servidor ficticio: la distancia es 1000 * |lon_origen - lon_destino| y la duración la décima parte
+    private void responder(HttpExchange exchange) throws IOException {
+        consultas.incrementAndGet();
+        String ruta = exchange.getRequestURI().getPath();
+        String[] coords = ruta.substring(ruta.lastIndexOf('/') + 1).split(";");
+        synchronized (this) {
+            maxCoordenadasVistas = Math.max(maxCoordenadasVistas, coords.length);
+        }
+        Map<String, String> params = new ConcurrentHashMap<>();
+        for (String par : exchange.getRequestURI().getQuery().split("&")) {
+            String[] kv = par.split("=", 2);
+            params.put(kv[0], kv[1]);
+        }
+
+        AtomicInteger fallos = fallosPendientes.get(params.get("sources"));
+        if (fallos != null && fallos.getAndDecrement() > 0) {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+
+        List<Double> longitudes = new ArrayList<>();
+        for (String c : coords) {
+            longitudes.add(Double.parseDouble(c.split(",")[0]));
+        }
+        String[] sources = params.get("sources").split(";");
+        String[] destinations = params.get("destinations").split(";");
+        StringBuilder distancias = new StringBuilder("[");
+        StringBuilder duraciones = new StringBuilder("[");
+        for (int i = 0; i < sources.length; i++) {
+            List<String> filaDist = new ArrayList<>();
+            List<String> filaDur = new ArrayList<>();
+            for (String d : destinations) {
+                double lonOrigen = longitudes.get(Integer.parseInt(sources[i]));
+                double lonDestino = longitudes.get(Integer.parseInt(d));
+                if (lonOrigen != lonDestino && (Double.valueOf(lonOrigen).equals(longitudSinCamino)
+                        || Double.valueOf(lonDestino).equals(longitudSinCamino))) {
+                    filaDist.add("null");
+                    filaDur.add("null");
+                    continue;
+                }
+                double metros = 1000 * Math.abs(lonOrigen - lonDestino);
+                filaDist.add(String.valueOf(metros));
+                filaDur.add(String.valueOf(metros / 10));
+            }
+            distancias.append(i > 0 ? "," : "").append("[").append(String.join(",", filaDist)).append("]");
+            duraciones.append(i > 0 ? "," : "").append("[").append(String.join(",", filaDur)).append("]");
+        }
+        byte[] cuerpo = ("{\"code\":\"Ok\",\"distances\":" + distancias + "],\"durations\":" + duraciones + "]}")
+            .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, cuerpo.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(cuerpo);
+        }
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + servidor.getAddress().getPort();
+    }
+
+    private OsrmDistanceProvider proveedor(int paralelismo, int reintentos) {
+        return proveedor(paralelismo, reintentos, null);
+    }
+
+    private OsrmDistanceProvider proveedor(int paralelismo, int reintentos, DistanceProvider respaldo) {
+        gateway = new OsrmGateway("osrm", url(),
+            new OsrmGateway.Configuracion(1000, 5000, 8, 1000, reintentos, 10, 100, 30000), new SimpleMeterRegistry());
+        return new OsrmDistanceProvider("osrm", gateway, 10, paralelismo, respaldo);
+    }
+
+    private List<double[]> ubicaciones(int n) {
+        List<double[]> ubicaciones = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            ubicaciones.add(new double[] { -36.6, i });
+        }
+        return ubicaciones;
+    }
+
+    private List<Integer> indices(int n) {
+        return IntStream.range(0, n).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    void testCalcularTabla_PequenaUnaSolaConsulta() {
+        try (OsrmDistanceProvider proveedor = proveedor(2, 0)) {
+            TablaDistancias tabla = proveedor.calcularTabla(ubicaciones(4), indices(4), indices(4));
+
+            assertEquals(1, consultas.get());
+            assertEquals(3000L, tabla.distancias()[0][3]);
+            assertEquals(300L, tabla.duraciones()[3][0]);
+        }
+    }
+
+    @Test
+    void testCalcularTabla_GrandeSeDivideEnBloquesYSeEnsambla() {
+        try (OsrmDistanceProvider proveedor = proveedor(3, 0)) {
+            TablaDistancias tabla = proveedor.calcularTabla(ubicaciones(12), indices(12), indices(12));
+
+            // Bloques de 5x5: 3 grupos de origenes por 3 de destinos
+            assertEquals(9, consultas.get());
+            assertTrue(maxCoordenadasVistas <= 10);
+            for (int i = 0; i < 12; i++) {
+                for (int j = 0; j < 12; j++) {
+                    assertEquals(1000L * Math.abs(i - j), tabla.distancias()[i][j]);
+                    assertEquals(100L * Math.abs(i - j), tabla.duraciones()[i][j]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCalcularTabla_BloqueFallidoSoloSeReintentaEseBloque() {
+        // El primer bloque de 5 origenes que llegue al servidor falla una vez
+        fallosPendientes.put("0;1;2;3;4", new AtomicInteger(1));
+        try (OsrmDistanceProvider proveedor = proveedor(1, 2)) {
+            TablaDistancias tabla = proveedor.calcularTabla(ubicaciones(12), indices(12), indices(12));
+
+            // 9 bloques más un único reintento
+            assertEquals(10, consultas.get());
+            assertEquals(11000L, tabla.distancias()[0][11]);
+        }
+    }
+
+    @Test
+    void testCalcularTabla_BloqueSinReintentosDisponiblesLanzaError() {
+        fallosPendientes.put("0;1;2;3;4", new AtomicInteger(5));
+        try (OsrmDistanceProvider proveedor = proveedor(2, 1)) {
+            RuntimeException error = assertThrows(RuntimeException.class,
+                () -> proveedor.calcularTabla(ubicaciones(12), indices(12), indices(12)));
+
+            assertTrue(error.getMessage().contains("No se pudo obtener un bloque"));
+        }
+    }
+
+    @Test
+    void testCalcularTabla_BloqueFallidoSeEstimaYConservaLosDemas() {
+        // Los bloques cuyos origenes son 0..4 dentro de su consulta fallan siempre; el resto responde
+        fallosPendientes.put("0;1;2;3;4", new AtomicInteger(100));
+        HaversineDistanceProvider haversine = new HaversineDistanceProvider();
+        List<double[]> ubicaciones = ubicaciones(12);
+        try (OsrmDistanceProvider proveedor = proveedor(2, 0, haversine)) {
+            TablaDistancias tabla = proveedor.calcularTabla(ubicaciones, indices(12), indices(12));
+
+            // La fila 10 viene de un bloque de 2 origenes: es de OSRM y se puede guardar
+            assertEquals(1000L, tabla.distancias()[10][11]);
+            assertTrue(tabla.persistible(10, 11));
+            // La fila 0 cae en un bloque fallido: estimada y fuera de la caché
+            assertEquals(haversine.distanciaVial(ubicaciones.get(0), ubicaciones.get(11)), tabla.distancias()[0][11]);
+            assertFalse(tabla.persistible(0, 11));
+        }
+    }
+
+    @Test
+    void testCalcularTabla_SinCaminoNoEsPersistible() {
+        longitudSinCamino = 2.0;
+        try (OsrmDistanceProvider proveedor = proveedor(1, 0)) {
+            TablaDistancias tabla = proveedor.calcularTabla(ubicaciones(4), indices(4), indices(4));
+
+            assertEquals(TablaDistancias.SIN_CAMINO, tabla.distancias()[0][2]);
+            assertFalse(tabla.persistible(0, 2));
+            assertTrue(tabla.persistible(0, 3));
+        }
+    }
+}
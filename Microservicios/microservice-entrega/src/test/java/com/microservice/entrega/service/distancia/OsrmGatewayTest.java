@@ -0,0 +1,166 @@
+package com.microservice.entrega.service.distancia;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OsrmGatewayTest {
+
+    private HttpServer servidor;
+    private AtomicInteger consultas;
+    private AtomicInteger fallosPendientes;
+    private int estadoFallo;
+    private CountDownLatch recibida;
+    private CountDownLatch liberar;
+    private SimpleMeterRegistry registry;
+    private OsrmGateway gateway;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        consultas = new AtomicInteger();
+        fallosPendientes = new AtomicInteger();
+        estadoFallo = 503;
+        registry = new SimpleMeterRegistry();
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.createContext("/route/v1/driving/", this::responder);
+        servidor.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (gateway != null) {
+            gateway.close();
+        }
+        servidor.stop(0);
+    }
+
+    // Responde con error mientras queden fallos pendientes y luego con una ruta fija
+    private void responder(HttpExchange exchange) throws IOException {
+        consultas.incrementAndGet();
+        if (liberar != null) {
+            // La petición queda colgada hasta que el test la libere
+            recibida.countDown();
+            try {
+                liberar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+            return;
+        }
+        if (fallosPendientes.getAndDecrement() > 0) {
+            exchange.sendResponseHeaders(estadoFallo, -1);
+            exchange.close();
+            return;
+        }
+        byte[] cuerpo = "{\"code\":\"Ok\",\"routes\":[{\"distance\":10.0}]}".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, cuerpo.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(cuerpo);
+        }
+    }
+
+    private OsrmGateway gateway(int reintentos, int umbralFallos, long aperturaMs) {
+        gateway = new OsrmGateway("osrm", "http://127.0.0.1:" + servidor.getAddress().getPort(),
+            new OsrmGateway.Configuracion(1000, 5000, 4, 1000, reintentos, 10, umbralFallos, aperturaMs), registry);
+        return gateway;
+    }
+
+    private long peticiones(String resultado) {
+        return registry.get("osrm.peticiones").tag("servicio", "route").tag("resultado", resultado).timer().count();
+    }
+
+    @Test
+    void testConsultar_ReintentaErroresDelServidor() {
+        fallosPendientes.set(2);
+
+        String respuesta = gateway(2, 10, 30000).consultar("route", "-72.1,-36.6;-72.0,-36.6", "?overview=false");
+
+        assertTrue(respuesta.contains("\"distance\":10.0"));
+        assertEquals(3, consultas.get());
+        assertEquals(2, peticiones("error"));
+        assertEquals(1, peticiones("ok"));
+    }
+
+    @Test
+    void testConsultar_ErrorDeClienteNoSeReintenta() {
+        fallosPendientes.set(5);
+        estadoFallo = 400;
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> gateway(2, 10, 30000).consultar("route", "x", ""));
+
+        assertFalse(error instanceof ProveedorNoDisponibleException);
+        assertEquals(1, consultas.get());
+        assertFalse(gateway.circuitoAbierto());
+    }
+
+    @Test
+    void testConsultar_CircuitoAbiertoRechazaSinLlamar() {
+        fallosPendientes.set(100);
+        OsrmGateway gateway = gateway(1, 2, 30000);
+
+        assertThrows(ProveedorNoDisponibleException.class, () -> gateway.consultar("route", "x", ""));
+        assertTrue(gateway.circuitoAbierto());
+
+        ProveedorNoDisponibleException error = assertThrows(ProveedorNoDisponibleException.class,
+            () -> gateway.consultar("route", "x", ""));
+
+        assertTrue(error.getMessage().contains("Circuito abierto"));
+        assertEquals(2, consultas.get());
+        assertEquals(1.0, registry.get("osrm.rechazos").tag("motivo", "circuito-abierto").counter().count());
+    }
+
+    @Test
+    void testConsultar_PruebaExitosaCierraElCircuito() throws InterruptedException {
+        fallosPendientes.set(2);
+        OsrmGateway gateway = gateway(1, 2, 50);
+        assertThrows(ProveedorNoDisponibleException.class, () -> gateway.consultar("route", "x", ""));
+        assertTrue(gateway.circuitoAbierto());
+
+        Thread.sleep(80);
+        gateway.consultar("route", "x", "");
+
+        assertFalse(gateway.circuitoAbierto());
+        assertEquals(3, consultas.get());
+    }
+
+    @Test
+    void testConsultar_PruebaInterrumpidaPermiteOtraPrueba() throws InterruptedException {
+        fallosPendientes.set(2);
+        OsrmGateway gateway = gateway(1, 2, 50);
+        assertThrows(ProveedorNoDisponibleException.class, () -> gateway.consultar("route", "x", ""));
+        assertTrue(gateway.circuitoAbierto());
+        Thread.sleep(80);
+
+        // La prueba se cancela mientras espera la respuesta (como un future.cancel(true))
+        recibida = new CountDownLatch(1);
+        liberar = new CountDownLatch(1);
+        Thread prueba = new Thread(() -> assertThrows(ProveedorNoDisponibleException.class,
+            () -> gateway.consultar("route", "x", "")));
+        prueba.start();
+        assertTrue(recibida.await(5, TimeUnit.SECONDS));
+        prueba.interrupt();
+        prueba.join(5000);
+        assertFalse(prueba.isAlive());
+        liberar.countDown();
+        liberar = null;
+
+        gateway.consultar("route", "x", "");
+
+        assertFalse(gateway.circuitoAbierto());
+    }
+}
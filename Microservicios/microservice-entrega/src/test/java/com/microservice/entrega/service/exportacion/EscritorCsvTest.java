@@ -0,0 +1,29 @@
+package com.microservice.entrega.service.exportacion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class EscritorCsvTest {
+
+    @Test
+    void testFila_ComillasYFormulas() throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        EscritorCsv escritor = new EscritorCsv(salida);
+
+        escritor.encabezado(List.of("Fecha", "Cliente", "Comentario"));
+        escritor.fila(new Object[] { LocalDate.of(2025, 3, 10), 20L, "Dejar en \"bodega\", atrás" });
+        escritor.fila(new Object[] { LocalDate.of(2025, 3, 10), null, "=1+1" });
+        escritor.terminar();
+
+        String csv = salida.toString(StandardCharsets.UTF_8);
+        assertEquals("\uFEFFFecha,Cliente,Comentario\r\n"
+                + "2025-03-10,20,\"Dejar en \"\"bodega\"\", atrás\"\r\n"
+                + "2025-03-10,,'=1+1\r\n", csv);
+    }
+}
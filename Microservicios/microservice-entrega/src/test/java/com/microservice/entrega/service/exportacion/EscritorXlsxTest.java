@@ -0,0 +1,78 @@
+package com.microservice.entrega.service.exportacion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+class EscritorXlsxTest {
+
+    @Test
+    void testTerminar_EscribeEncabezadoYFilas() throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        EscritorXlsx escritor = new EscritorXlsx(salida, "Ventas");
+
+        escritor.encabezado(List.of("Hora", "Cliente", "Monto total"));
+        // Más filas que las que el libro mantiene en memoria
+        for (int i = 0; i < 250; i++) {
+            escritor.fila(new Object[] { LocalDateTime.of(2025, 3, 10, 9, 0).plusMinutes(i), (long) i, 1500.5 });
+        }
+        escritor.terminar();
+        escritor.close();
+
+        try (XSSFWorkbook libro = new XSSFWorkbook(new ByteArrayInputStream(salida.toByteArray()))) {
+            Sheet hoja = libro.getSheet("Ventas");
+            assertEquals(250, hoja.getLastRowNum());
+            assertEquals("Cliente", hoja.getRow(0).getCell(1).getStringCellValue());
+            assertEquals(249.0, hoja.getRow(250).getCell(1).getNumericCellValue());
+            assertEquals(LocalDateTime.of(2025, 3, 10, 9, 0), hoja.getRow(1).getCell(0).getLocalDateTimeCellValue());
+        }
+    }
+
+    @Test
+    void testClose_SinTerminarBorraLosTemporales() throws Exception {
+        Set<Path> antes = temporales();
+        EscritorXlsx escritor = new EscritorXlsx(new ByteArrayOutputStream(), "Entregas");
+        escritor.encabezado(List.of("Hora", "Cliente"));
+        for (int i = 0; i < 250; i++) {
+            escritor.fila(new Object[] { LocalDateTime.of(2025, 3, 10, 9, 0).plusMinutes(i), (long) i });
+        }
+        Set<Path> creados = temporales();
+        creados.removeAll(antes);
+        assertFalse(creados.isEmpty());
+
+        // La consulta falló a mitad de camino: no se llega a terminar()
+        escritor.close();
+
+        for (Path temporal : creados) {
+            assertFalse(Files.exists(temporal), "Quedó el temporal " + temporal);
+        }
+        // Cerrar dos veces no falla
+        escritor.close();
+    }
+
+    // Archivos de hoja que POI baja a disco en su carpeta temporal
+    private Set<Path> temporales() throws IOException {
+        Path carpeta = Paths.get(System.getProperty("java.io.tmpdir"), "poifiles");
+        if (!Files.isDirectory(carpeta)) {
+            return new HashSet<>();
+        }
+        try (Stream<Path> archivos = Files.list(carpeta)) {
+            return new HashSet<>(archivos.filter(a -> a.getFileName().toString().startsWith("poi-sxssf-sheet")).toList());
+        }
+    }
+}
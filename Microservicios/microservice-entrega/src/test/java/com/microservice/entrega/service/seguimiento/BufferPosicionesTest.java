@@ -0,0 +1,90 @@
+package com.microservice.entrega.service.seguimiento;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPosicionesTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    private Posicion posicion(int segundos) {
+        return new Posicion(1L, 7L, -36.6, -72.1 + segundos * 0.0001, null, null, INICIO.plusSeconds(segundos));
+    }
+
+    @Test
+    void testDrenar_EntregaEnOrdenYSoloUnaVez() {
+        BufferPosiciones buffer = new BufferPosiciones(1L, 7L, 8);
+        buffer.agregar(posicion(0));
+        buffer.agregar(posicion(5));
+
+        List<Posicion> leidas = new ArrayList<>();
+        assertEquals(2, buffer.drenar(leidas::add));
+        assertEquals(0, buffer.drenar(leidas::add));
+
+        assertEquals(INICIO, leidas.get(0).hora());
+        assertEquals(INICIO.plusSeconds(5), leidas.get(1).hora());
+        assertEquals(0, buffer.pendientes());
+    }
+
+    @Test
+    void testDrenar_LlenoDescartaLasMasAntiguas() {
+        BufferPosiciones buffer = new BufferPosiciones(1L, 7L, 4);
+        for (int i = 0; i < 10; i++) {
+            buffer.agregar(posicion(i));
+        }
+
+        List<Posicion> leidas = new ArrayList<>();
+        buffer.drenar(leidas::add);
+
+        assertEquals(4, leidas.size());
+        assertEquals(INICIO.plusSeconds(6), leidas.get(0).hora());
+        assertEquals(6, buffer.getDescartadas());
+    }
+
+    @Test
+    void testGetUltima_IgnoraPosicionesAtrasadas() {
+        BufferPosiciones buffer = new BufferPosiciones(1L, 7L, 8);
+        buffer.agregar(posicion(10));
+        buffer.agregar(posicion(3));
+
+        assertEquals(INICIO.plusSeconds(10), buffer.getUltima().hora());
+    }
+
+    @Test
+    void testAgregar_VariosProductoresMientrasSeDrena() throws InterruptedException {
+        BufferPosiciones buffer = new BufferPosiciones(1L, 7L, 1 << 16);
+        ExecutorService productores = Executors.newFixedThreadPool(4);
+        CountDownLatch listos = new CountDownLatch(4);
+        for (int p = 0; p < 4; p++) {
+            int base = p * 10_000;
+            productores.submit(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    buffer.agregar(posicion(base + i));
+                }
+                listos.countDown();
+            });
+        }
+
+        Set<LocalDateTime> leidas = new HashSet<>();
+        while (listos.getCount() > 0) {
+            buffer.drenar(p -> leidas.add(p.hora()));
+        }
+        buffer.drenar(p -> leidas.add(p.hora()));
+        productores.shutdown();
+        assertTrue(productores.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(20_000, leidas.size());
+        assertEquals(0, buffer.getDescartadas());
+    }
+}
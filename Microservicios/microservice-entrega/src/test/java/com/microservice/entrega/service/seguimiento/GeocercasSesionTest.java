@@ -0,0 +1,61 @@
+package com.microservice.entrega.service.seguimiento;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeocercasSesionTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2025, 1, 1, 8, 0);
+    // Aproximadamente un metro en longitud a la latitud de los clientes
+    private static final double METRO = 1.0 / (111_320.0 * Math.cos(Math.toRadians(36.6)));
+
+    private GeocercasSesion geocercas;
+
+    @BeforeEach
+    void setUp() {
+        double[][] coordenadas = { { -36.6, -72.10 }, { -36.6, -72.09 }, { -36.6, -72.08 } };
+        RecorridoEnVivo recorrido = new RecorridoEnVivo(1L, 5L, List.of(10L, 11L), new long[3][3], new long[3],
+            coordenadas, 0.3, INICIO);
+        geocercas = new GeocercasSesion(1L, recorrido, 40, 80);
+    }
+
+    @Test
+    void testProcesar_LlegadaYSalidaConPermanencia() {
+        assertTrue(geocercas.procesar(-36.6, -72.095, INICIO.plusMinutes(5)).isEmpty());
+
+        List<EventoGeocerca> llegada = geocercas.procesar(-36.6, -72.09 + 20 * METRO, INICIO.plusMinutes(10));
+        assertEquals(1, llegada.size());
+        assertEquals(EventoGeocerca.Tipo.LLEGADA, llegada.get(0).tipo());
+        assertEquals(10L, llegada.get(0).idCliente());
+        assertEquals(INICIO.plusMinutes(10), geocercas.getLlegada(10L));
+
+        List<EventoGeocerca> salida = geocercas.procesar(-36.6, -72.09 + 200 * METRO, INICIO.plusMinutes(16));
+        assertEquals(EventoGeocerca.Tipo.SALIDA, salida.get(0).tipo());
+        assertEquals(360L, salida.get(0).permanenciaSegundos());
+        assertEquals(2, geocercas.getEventos().size());
+    }
+
+    @Test
+    void testProcesar_RuidoEnElBordeNoRepiteEventos() {
+        geocercas.procesar(-36.6, -72.09 + 35 * METRO, INICIO.plusMinutes(10));
+        // Entre el radio de llegada y el de salida sigue adentro
+        assertTrue(geocercas.procesar(-36.6, -72.09 + 60 * METRO, INICIO.plusMinutes(11)).isEmpty());
+        assertTrue(geocercas.procesar(-36.6, -72.09 + 30 * METRO, INICIO.plusMinutes(12)).isEmpty());
+
+        assertEquals(1, geocercas.getEventos().size());
+        assertEquals(INICIO.plusMinutes(10), geocercas.getLlegada(10L));
+    }
+
+    @Test
+    void testProcesar_PosicionAtrasadaSeIgnora() {
+        geocercas.procesar(-36.6, -72.095, INICIO.plusMinutes(10));
+
+        assertTrue(geocercas.procesar(-36.6, -72.09, INICIO.plusMinutes(9)).isEmpty());
+        assertNull(geocercas.getLlegada(10L));
+    }
+}
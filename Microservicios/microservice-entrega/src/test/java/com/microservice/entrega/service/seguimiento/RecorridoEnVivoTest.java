@@ -0,0 +1,72 @@
+package com.microservice.entrega.service.seguimiento;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecorridoEnVivoTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    private RecorridoEnVivo recorrido;
+
+    @BeforeEach
+    void setUp() {
+        // Origen y tres clientes en línea hacia el este: 10 minutos entre cada punto y 5 de atención
+        long[][] duraciones = new long[4][4];
+        for (int a = 0; a < 4; a++) {
+            for (int b = 0; b < 4; b++) {
+                duraciones[a][b] = Math.abs(a - b) * 600L;
+            }
+        }
+        long[] servicio = { 0, 300, 300, 300 };
+        double[][] coordenadas = { { -36.6, -72.10 }, { -36.6, -72.09 }, { -36.6, -72.08 }, { -36.6, -72.07 } };
+        recorrido = new RecorridoEnVivo(1L, 5L, List.of(10L, 11L, 12L), duraciones, servicio, coordenadas, 0.5, INICIO);
+    }
+
+    @Test
+    void testEtas_PlanInicialSegunLaMatriz() {
+        List<RecorridoEnVivo.EtaParada> etas = recorrido.getEtas();
+
+        assertEquals(3, etas.size());
+        assertEquals(INICIO.plusMinutes(10), etas.get(0).eta());
+        assertEquals(INICIO.plusMinutes(25), etas.get(1).eta());
+        assertEquals(INICIO.plusMinutes(40), etas.get(2).eta());
+    }
+
+    @Test
+    void testRegistrarEntrega_AjustaElRitmoConLoObservado() {
+        recorrido.registrarEntrega(10L, INICIO.plusMinutes(15));
+        // Planificado 15 minutos (10 de viaje + 5 de atención), observado 30: razón 2, ritmo 1.5 con suavizado 0.5
+        recorrido.registrarEntrega(11L, INICIO.plusMinutes(45));
+
+        List<RecorridoEnVivo.EtaParada> etas = recorrido.getEtas();
+        assertEquals(1.5, recorrido.getRitmo(), 1e-9);
+        assertEquals(1, etas.size());
+        assertEquals(12L, etas.get(0).idCliente());
+        assertEquals(INICIO.plusMinutes(60), etas.get(0).eta());
+    }
+
+    @Test
+    void testRegistrarPosicion_UsaLoQueFaltaDelTramo() {
+        // A mitad de camino hacia el primer cliente, 2 minutos después de salir
+        recorrido.registrarPosicion(-36.6, -72.095, INICIO.plusMinutes(2));
+
+        List<RecorridoEnVivo.EtaParada> etas = recorrido.getEtas();
+        assertEquals(INICIO.plusMinutes(7), etas.get(0).eta());
+        assertEquals(INICIO.plusMinutes(22), etas.get(1).eta());
+        assertEquals(INICIO.plusMinutes(2), recorrido.getActualizado());
+    }
+
+    @Test
+    void testRegistrarEntrega_ClienteAjenoNoCambiaNada() {
+        List<RecorridoEnVivo.EtaParada> antes = recorrido.getEtas();
+
+        assertFalse(recorrido.registrarEntrega(99L, INICIO.plusMinutes(5)));
+        assertSame(antes, recorrido.getEtas());
+    }
+}
@@ -18,6 +18,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.microservice.usuario.dto.CreateUsuarioRequest;
 import com.microservice.usuario.dto.UpdateUsuarioRequest;
+import com.microservice.usuario.dto.UsuarioResumen;
 import com.microservice.usuario.entity.Usuario;
 import com.microservice.usuario.service.UsuarioService;
 
@@ -53,6 +54,11 @@ public class UsuarioController {
         return usuarioService.getUsuariosByRol(rol);
     }
 
+    @GetMapping("/batch")
+    public List<UsuarioResumen> getUsuariosByIds(@RequestParam List<Long> ids) {
+        return usuarioService.getResumenUsuarios(ids);
+    }
+
     @GetMapping("/{id}")
     public Usuario getUsuarioById(@PathVariable Long id) {
         return usuarioService.getUsuarioById(id);
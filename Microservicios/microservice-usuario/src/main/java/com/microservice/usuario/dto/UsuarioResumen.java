@@ -0,0 +1,12 @@
+package com.microservice.usuario.dto;
+
+/**
+ * Proyección liviana de un usuario para que otros servicios resuelvan nombres sin traer la entidad completa.
+ */
+public interface UsuarioResumen {
+    Long getId();
+
+    String getNombre();
+
+    String getRol();
+}
@@ -4,7 +4,10 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.microservice.usuario.dto.UsuarioResumen;
 import com.microservice.usuario.entity.Usuario;
 
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
@@ -13,4 +16,7 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     boolean existsByEmail(String email);
 
     List<Usuario> findByRolRol(String rol);
+
+    @Query("SELECT u.id AS id, u.nombre AS nombre, r.rol AS rol FROM Usuario u JOIN u.rol r WHERE u.id IN :ids")
+    List<UsuarioResumen> findResumenByIdIn(@Param("ids") List<Long> ids);
 }
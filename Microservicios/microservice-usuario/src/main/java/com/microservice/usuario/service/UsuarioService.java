@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 
 import com.microservice.usuario.dto.CreateUsuarioRequest;
 import com.microservice.usuario.dto.UpdateUsuarioRequest;
+import com.microservice.usuario.dto.UsuarioResumen;
 import com.microservice.usuario.entity.Rol;
 import com.microservice.usuario.entity.Usuario;
 import com.microservice.usuario.repository.RolRepository;
@@ -85,4 +86,11 @@ public class UsuarioService {
         return usuarioRepository.findById(id).orElse(null);
     }
 
+    public List<UsuarioResumen> getResumenUsuarios(List<Long> ids) { // id, nombre y rol de varios usuarios en una consulta
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        return usuarioRepository.findResumenByIdIn(ids.stream().distinct().toList());
+    }
+
 }
@@ -3,8 +3,10 @@ package com.microservice.usuario.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -23,6 +25,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 
 import com.microservice.usuario.dto.CreateUsuarioRequest;
 import com.microservice.usuario.dto.UpdateUsuarioRequest;
+import com.microservice.usuario.dto.UsuarioResumen;
 import com.microservice.usuario.entity.Rol;
 import com.microservice.usuario.entity.Usuario;
 import com.microservice.usuario.repository.RolRepository;
@@ -385,4 +388,33 @@ class UsuarioServiceTest {
         assertThat(result).isNull();
         verify(usuarioRepository, times(1)).findById(99L);
     }
+
+    @Test
+    void getResumenUsuarios_DeberiaConsultarIdsSinRepetir() {
+        // Arrange
+        UsuarioResumen resumen = new UsuarioResumen() {
+            public Long getId() { return 1L; }
+            public String getNombre() { return "Juan Pérez"; }
+            public String getRol() { return "ADMIN"; }
+        };
+        when(usuarioRepository.findResumenByIdIn(List.of(1L, 2L))).thenReturn(List.of(resumen));
+
+        // Act
+        List<UsuarioResumen> result = usuarioService.getResumenUsuarios(List.of(1L, 2L, 1L));
+
+        // Assert
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getNombre()).isEqualTo("Juan Pérez");
+        verify(usuarioRepository, times(1)).findResumenByIdIn(List.of(1L, 2L));
+    }
+
+    @Test
+    void getResumenUsuarios_DeberiaRetornarVacioSinIds() {
+        // Act
+        List<UsuarioResumen> result = usuarioService.getResumenUsuarios(List.of());
+
+        // Assert
+        assertThat(result).isEmpty();
+        verify(usuarioRepository, never()).findResumenByIdIn(anyList());
+    }
 }